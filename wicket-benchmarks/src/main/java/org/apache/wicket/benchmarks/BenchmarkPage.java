@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.CheckBox;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.markup.repeater.RepeatingView;
+import org.apache.wicket.model.CompoundPropertyModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.model.PropertyModel;
+
+/**
+ * A page with a form of nested rows, each with a label, a text field and a check box bound to a
+ * bean through models.
+ * <p>
+ * The page is never rendered, thus it needs no markup.
+ */
+public class BenchmarkPage extends WebPage
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Count of components per row, including the row itself.
+	 */
+	private static final int ROW_COMPONENTS = 4;
+
+	private final List<Row> rows = new ArrayList<>();
+
+	/**
+	 * @param components
+	 *            approximate count of components
+	 */
+	public BenchmarkPage(int components)
+	{
+		add(new Label("title", Model.of("Benchmark")));
+
+		Form<List<Row>> form = new Form<>("form", new PropertyModel<>(this, "rows"));
+		add(form);
+
+		RepeatingView repeater = new RepeatingView("rows");
+		form.add(repeater);
+
+		for (int r = 0; r < components / ROW_COMPONENTS; r++)
+		{
+			Row row = new Row("row" + r, r);
+			rows.add(row);
+
+			WebMarkupContainer container = new WebMarkupContainer(repeater.newChildId(),
+				new CompoundPropertyModel<>(row));
+			repeater.add(container);
+
+			container.add(new Label("name"));
+			container.add(new TextField<String>("value"));
+			container.add(new CheckBox("selected"));
+		}
+
+		add(new Label("count", new RowCount(this)));
+	}
+
+	/**
+	 * A bean edited in each row.
+	 */
+	public static class Row implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+
+		private String value;
+
+		private boolean selected;
+
+		Row(String name, int index)
+		{
+			this.name = name;
+			this.value = "value" + index;
+			this.selected = index % 2 == 0;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public String getValue()
+		{
+			return value;
+		}
+
+		public void setValue(String value)
+		{
+			this.value = value;
+		}
+
+		public boolean isSelected()
+		{
+			return selected;
+		}
+
+		public void setSelected(boolean selected)
+		{
+			this.selected = selected;
+		}
+	}
+
+	/**
+	 * Counts the rows, detached after each request.
+	 */
+	private static class RowCount extends LoadableDetachableModel<Integer>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final BenchmarkPage page;
+
+		RowCount(BenchmarkPage page)
+		{
+			this.page = page;
+		}
+
+		@Override
+		protected Integer load()
+		{
+			return page.rows.size();
+		}
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.mock.MockPageContext;
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.pageStore.AsynchronousPageStore;
+import org.apache.wicket.pageStore.CryptingPageStore;
+import org.apache.wicket.pageStore.DiskPageStore;
+import org.apache.wicket.pageStore.FilePageStore;
+import org.apache.wicket.pageStore.IPageContext;
+import org.apache.wicket.pageStore.IPageStore;
+import org.apache.wicket.pageStore.InSessionPageStore;
+import org.apache.wicket.pageStore.SerializingPageStore;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Adds and gets pages with combinations of page stores.
+ * <p>
+ * Each thread works with its own sessions, adding {@link BenchmarkPage}s with a small set of ids
+ * over and over again, as it happens on Ajax requests.
+ * <p>
+ * Throughput is reported in ops/s, the sampled latency of the <code>*Latency</code> methods in
+ * microseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PageStoreBenchmark
+{
+	/**
+	 * Count of distinct page ids per session.
+	 */
+	private static final int PAGES = 10;
+
+	/**
+	 * The store to benchmark.
+	 */
+	@Param({ "disk", "file", "inSession", "asynchronous", "crypting" })
+	public String store;
+
+	/**
+	 * Approximate count of components per page.
+	 */
+	@Param({ "10", "100", "1000" })
+	public int components;
+
+	/**
+	 * Count of sessions per thread.
+	 */
+	@Param({ "1", "10" })
+	public int sessions;
+
+	private WicketTester tester;
+
+	/**
+	 * Context of the tester, to be restored on each thread.
+	 */
+	private ThreadContext threadContext;
+
+	private File folder;
+
+	private IPageStore pageStore;
+
+	/**
+	 * Create the store.
+	 */
+	@Setup
+	public void setup() throws IOException
+	{
+		tester = new WicketTester();
+		threadContext = ThreadContext.get(false);
+		folder = Files.createTempDirectory("wicket-benchmarks").toFile();
+
+		Application application = tester.getApplication();
+		ISerializer serializer = new JavaSerializer(application.getApplicationKey());
+		Bytes maxSize = Bytes.megabytes(10);
+
+		switch (store)
+		{
+			case "disk" :
+				pageStore = new SerializingPageStore(
+					new DiskPageStore(application.getName(), folder, maxSize), serializer);
+				break;
+			case "file" :
+				pageStore = new SerializingPageStore(
+					new FilePageStore(application.getName(), folder, maxSize), serializer);
+				break;
+			case "inSession" :
+				pageStore = new InSessionPageStore(PAGES, serializer);
+				break;
+			case "asynchronous" :
+				pageStore = new SerializingPageStore(new AsynchronousPageStore(
+					new DiskPageStore(application.getName(), folder, maxSize), 100), serializer);
+				break;
+			case "crypting" :
+				pageStore = new SerializingPageStore(new CryptingPageStore(
+					new DiskPageStore(application.getName(), folder, maxSize), application),
+					serializer);
+				break;
+			default :
+				throw new IllegalArgumentException("unknown store " + store);
+		}
+	}
+
+	/**
+	 * Destroy the store and remove all files.
+	 */
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		pageStore.destroy();
+		tester.destroy();
+
+		try (Stream<Path> paths = Files.walk(folder.toPath()))
+		{
+			for (Path path : (Iterable<Path>)paths.sorted(Comparator.reverseOrder())::iterator)
+			{
+				Files.delete(path);
+			}
+		}
+	}
+
+	/**
+	 * Sessions of a single thread.
+	 */
+	@State(Scope.Thread)
+	public static class Sessions
+	{
+		private static final AtomicInteger COUNTER = new AtomicInteger();
+
+		private IPageContext[] contexts;
+
+		private BenchmarkPage[] pages;
+
+		private int next;
+
+		/**
+		 * Restore the context of the tester, create sessions and add a page to each.
+		 */
+		@Setup
+		public void setup(PageStoreBenchmark benchmark)
+		{
+			ThreadContext.restore(benchmark.threadContext);
+
+			contexts = new IPageContext[benchmark.sessions];
+			for (int s = 0; s < contexts.length; s++)
+			{
+				contexts[s] = new MockPageContext("session" + COUNTER.incrementAndGet());
+			}
+
+			pages = new BenchmarkPage[PAGES];
+			synchronized (benchmark)
+			{
+				// pages are created with the shared request cycle of the tester
+				for (int p = 0; p < pages.length; p++)
+				{
+					pages[p] = new BenchmarkPage(benchmark.components);
+				}
+			}
+
+			for (IPageContext context : contexts)
+			{
+				benchmark.pageStore.addPage(context, pages[0]);
+			}
+		}
+
+		IPageContext nextContext()
+		{
+			next++;
+			return contexts[next % contexts.length];
+		}
+
+		BenchmarkPage nextPage()
+		{
+			return pages[next % pages.length];
+		}
+
+		/**
+		 * Detach the context from the thread.
+		 */
+		@TearDown
+		public void tearDown()
+		{
+			ThreadContext.detach();
+		}
+	}
+
+	/**
+	 * Add a page.
+	 */
+	@Benchmark
+	public void addPage(Sessions sessions)
+	{
+		IPageContext context = sessions.nextContext();
+		pageStore.addPage(context, sessions.nextPage());
+		pageStore.detach(context);
+	}
+
+	/**
+	 * Get a page.
+	 */
+	@Benchmark
+	public IManageablePage getPage(Sessions sessions)
+	{
+		IPageContext context = sessions.nextContext();
+		IManageablePage page = pageStore.getPage(context, sessions.pages[0].getPageId());
+		pageStore.detach(context);
+		return page;
+	}
+
+	/**
+	 * Add a page, sampling the latency.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void addPageLatency(Sessions sessions)
+	{
+		addPage(sessions);
+	}
+
+	/**
+	 * Get a page, sampling the latency.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public IManageablePage getPageLatency(Sessions sessions)
+	{
+		return getPage(sessions);
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.serialize.java.CompactJavaSerializer;
+import org.apache.wicket.serialize.java.DeflatedJavaSerializer;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.apache.wicket.serialize.java.LZJavaSerializer;
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Serializes and deserializes a {@link BenchmarkPage} with {@link ISerializer} implementations.
+ * <p>
+ * Throughput is reported in ops/s, the sampled latency of the <code>*Latency</code> methods in
+ * microseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SerializerBenchmark
+{
+	/**
+	 * The serializer to benchmark.
+	 */
+	@Param({ "java", "deflated", "lz", "compact" })
+	public String serializer;
+
+	/**
+	 * Approximate count of components per page.
+	 */
+	@Param({ "10", "100", "1000" })
+	public int components;
+
+	private WicketTester tester;
+
+	/**
+	 * Context of the tester, to be restored on each thread.
+	 */
+	private ThreadContext threadContext;
+
+	private ISerializer pageSerializer;
+
+	private BenchmarkPage page;
+
+	private byte[] data;
+
+	/**
+	 * Create the serializer and a serialized page.
+	 */
+	@Setup
+	public void setup()
+	{
+		tester = new WicketTester();
+		threadContext = ThreadContext.get(false);
+
+		String applicationKey = tester.getApplication().getApplicationKey();
+		switch (serializer)
+		{
+			case "java" :
+				pageSerializer = new JavaSerializer(applicationKey);
+				break;
+			case "deflated" :
+				pageSerializer = new DeflatedJavaSerializer(applicationKey);
+				break;
+			case "lz" :
+				pageSerializer = new LZJavaSerializer(applicationKey);
+				break;
+			case "compact" :
+				pageSerializer = new CompactJavaSerializer(applicationKey);
+				break;
+			default :
+				throw new IllegalArgumentException("unknown serializer " + serializer);
+		}
+
+		page = new BenchmarkPage(components);
+		data = pageSerializer.serialize(page);
+	}
+
+	/**
+	 * Destroy the application.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		tester.destroy();
+	}
+
+	/**
+	 * Attaches the context of the tester to each thread.
+	 */
+	@State(Scope.Thread)
+	public static class Attachment
+	{
+		/**
+		 * Restore the context of the tester.
+		 */
+		@Setup
+		public void setup(SerializerBenchmark benchmark)
+		{
+			ThreadContext.restore(benchmark.threadContext);
+		}
+
+		/**
+		 * Detach the context from the thread.
+		 */
+		@TearDown
+		public void tearDown()
+		{
+			ThreadContext.detach();
+		}
+	}
+
+	/**
+	 * Serialize a page.
+	 */
+	@Benchmark
+	public byte[] serialize(Attachment attachment)
+	{
+		return pageSerializer.serialize(page);
+	}
+
+	/**
+	 * Deserialize a page.
+	 */
+	@Benchmark
+	public Object deserialize(Attachment attachment)
+	{
+		return pageSerializer.deserialize(data);
+	}
+
+	/**
+	 * Serialize a page, sampling the latency.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public byte[] serializeLatency(Attachment attachment)
+	{
+		return serialize(attachment);
+	}
+
+	/**
+	 * Deserialize a page, sampling the latency.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Object deserializeLatency(Attachment attachment)
+	{
+		return deserialize(attachment);
+	}
+}
@@ -18,6 +18,8 @@ package org.apache.wicket;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.apache.wicket.core.util.lang.PropertyResolver;
 import org.apache.wicket.page.IPageManager;
@@ -27,6 +29,7 @@ import org.apache.wicket.pageStore.DiskPageStore;
 import org.apache.wicket.pageStore.InSessionPageStore;
 import org.apache.wicket.pageStore.RequestPageStore;
 import org.apache.wicket.pageStore.SerializingPageStore;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.tester.WicketTestCase;
 import org.junit.jupiter.api.Test;
 
@@ -54,4 +57,29 @@ class DefaultPageManagerProviderTest extends WicketTestCase
 		
 		assertNotNull(disk);
 	}
+
+	/**
+	 * Test chain with pages kept in the session, spilling to the persistent store.
+	 */
+	@Test
+	void chainInSession()
+	{
+		tester.getApplication().getStoreSettings().setMaxSizeInSession(Bytes.kilobytes(100));
+
+		IPageManager manager = new DefaultPageManagerProvider(tester.getApplication()).get();
+
+		RequestPageStore request = (RequestPageStore)manager.getPageStore();
+		CachingPageStore caching = (CachingPageStore)request.getDelegate();
+		SerializingPageStore serializing = (SerializingPageStore)caching.getDelegate();
+		InSessionPageStore session = (InSessionPageStore)serializing.getDelegate();
+		assertNotNull(session.getBudget());
+		assertTrue(tester.getApplication().getSessionListeners().iterator().hasNext());
+		for (ISessionListener listener : tester.getApplication().getSessionListeners())
+		{
+			assertSame(session, listener);
+		}
+		DiskPageStore disk = (DiskPageStore)PropertyResolver.getValue("spillStore", session);
+
+		assertNotNull(disk);
+	}
 }
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.application;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Session;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.panel.EmptyPanel;
+import org.apache.wicket.request.resource.PackageResourceReference;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link ApplicationWarmUp}.
+ */
+class ApplicationWarmUpTest extends WicketTestCase
+{
+	/**
+	 * Mounted pages, added classes and resource references are warmed up in thread context.
+	 */
+	@Test
+	void warmUp()
+	{
+		ResourceReference mounted = new PackageResourceReference(ApplicationWarmUpTest.class,
+			"mounted.css");
+		tester.getApplication().mountPage("warmup", WarmUpPage.class);
+		tester.getApplication().mountResource("mounted.css", mounted);
+
+		Set<Object> warmedUp = ConcurrentHashMap.newKeySet();
+		ApplicationWarmUp warmUp = new ApplicationWarmUp(2)
+		{
+			@Override
+			protected void warmUp(Class<?> clazz)
+			{
+				assertTrue(Application.exists());
+				assertTrue(Session.exists());
+
+				warmedUp.add(clazz);
+				super.warmUp(clazz);
+			}
+
+			@Override
+			protected void warmUp(ResourceReference reference)
+			{
+				assertTrue(Application.exists());
+				assertTrue(Session.exists());
+
+				warmedUp.add(reference);
+				super.warmUp(reference);
+			}
+		};
+		warmUp.add(EmptyPanel.class);
+
+		warmUp.warmUp(tester.getApplication());
+
+		assertTrue(warmedUp.containsAll(Set.of(tester.getApplication().getHomePage(),
+			WarmUpPage.class, EmptyPanel.class, WarmUpPage.CSS, mounted)));
+	}
+
+	/**
+	 * A page with a resource reference.
+	 */
+	public static class WarmUpPage extends WebPage
+	{
+		private static final long serialVersionUID = 1L;
+
+		static final ResourceReference CSS = new PackageResourceReference(
+			ApplicationWarmUpTest.class, "warmup.css");
+	}
+}
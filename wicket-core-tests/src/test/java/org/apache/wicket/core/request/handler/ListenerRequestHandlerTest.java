@@ -23,11 +23,13 @@ import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
 import java.text.ParseException;
+import java.time.Duration;
 
 import org.apache.wicket.MarkupContainer;
 import org.apache.wicket.Page;
 import org.apache.wicket.Session;
 import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.ajax.AbstractDefaultAjaxBehavior;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.markup.html.AjaxLink;
 import org.apache.wicket.core.request.mapper.MountedMapper;
@@ -36,6 +38,12 @@ import org.apache.wicket.markup.IMarkupResourceStreamProvider;
 import org.apache.wicket.markup.Markup;
 import org.apache.wicket.markup.html.WebPage;
 import org.apache.wicket.markup.html.link.StatelessLink;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.page.FifoPageLockManager;
+import org.apache.wicket.page.PageAccessSynchronizer;
+import org.apache.wicket.protocol.http.WebSession;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Response;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.resource.DummyPage;
@@ -43,6 +51,7 @@ import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
 import org.apache.wicket.util.resource.StringResourceStream;
 import org.apache.wicket.util.tester.WicketTestCase;
+import org.apache.wicket.util.tester.WicketTester;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -147,6 +156,66 @@ public class ListenerRequestHandlerTest extends WicketTestCase
 		assertTrue(page.executedInAnFreshPage);
 	}
 
+	/**
+	 * Read-only listeners work on their page itself, if locks are not actually shared.
+	 */
+	@Test
+	void readOnlyListener()
+	{
+		ReadOnlyPage page = tester.startPage(new ReadOnlyPage());
+
+		tester.executeBehavior(page.readOnly);
+		assertTrue(tester.getLastResponseAsString().contains("invoked(1);"));
+		assertEquals(1, page.readOnly.invoked);
+
+		tester.executeBehavior(page.readWrite);
+		assertEquals(1, page.readWrite.invoked);
+	}
+
+	/**
+	 * Read-only listeners work on a copy of their page if locks are shared, the page itself is
+	 * neither changed nor detached.
+	 */
+	@Test
+	void sharedReadOnlyListener()
+	{
+		WicketTester tester = new WicketTester(new MockApplication()
+		{
+			@Override
+			public Session newSession(Request request, Response response)
+			{
+				return new WebSession(request)
+				{
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected PageAccessSynchronizer newPageAccessSynchronizer(Duration timeout)
+					{
+						return new PageAccessSynchronizer(new FifoPageLockManager(timeout));
+					}
+				};
+			}
+		});
+		try
+		{
+			ReadOnlyPage page = tester.startPage(new ReadOnlyPage());
+			page.detached = 0;
+
+			tester.executeBehavior(page.readOnly);
+			assertTrue(tester.getLastResponseAsString().contains("invoked(1);"));
+			assertEquals(0, page.readOnly.invoked);
+			assertEquals(0, page.detached);
+
+			tester.executeBehavior(page.readWrite);
+			assertEquals(1, page.readWrite.invoked);
+			assertTrue(page.detached > 0);
+		}
+		finally
+		{
+			tester.destroy();
+		}
+	}
+
 	/**
 	 * Test page for #recreateThePageWhenListenereInterfaceIsExecutedOnExpiredPage()
 	 */
@@ -184,6 +253,71 @@ public class ListenerRequestHandlerTest extends WicketTestCase
 
 	}
 
+	/**
+	 * Test page for #readOnlyListener()
+	 */
+	public static class ReadOnlyPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		int detached;
+
+		final CountingBehavior readOnly = new CountingBehavior(true);
+
+		final CountingBehavior readWrite = new CountingBehavior(false);
+
+		/**
+		 * Constructor.
+		 */
+		public ReadOnlyPage()
+		{
+			add(readOnly, readWrite);
+		}
+
+		@Override
+		protected void onDetach()
+		{
+			detached++;
+
+			super.onDetach();
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><body></body></html>");
+		}
+	}
+
+	private static class CountingBehavior extends AbstractDefaultAjaxBehavior
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final boolean readOnly;
+
+		int invoked;
+
+		CountingBehavior(boolean readOnly)
+		{
+			this.readOnly = readOnly;
+		}
+
+		@Override
+		public boolean isReadOnly()
+		{
+			return readOnly;
+		}
+
+		@Override
+		protected void respond(AjaxRequestTarget target)
+		{
+			invoked++;
+
+			target.appendJavaScript("invoked(" + invoked + ");");
+		}
+	}
+
 	public static class StatelessPage extends WebPage
 	{
 		boolean invoked;
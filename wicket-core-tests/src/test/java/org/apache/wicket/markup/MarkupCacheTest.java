@@ -16,13 +16,18 @@
  */
 package org.apache.wicket.markup;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.MarkupCache.DefaultCacheImplementation;
+import org.apache.wicket.markup.MarkupCache.ICache;
 import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.settings.MarkupSettings;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.StringResourceStream;
 import org.apache.wicket.util.tester.WicketTestCase;
@@ -91,6 +96,28 @@ class MarkupCacheTest extends WicketTestCase
 		assertNull(markup);
 	}
 
+	/**
+	 * Keys are bounded independently from markup.
+	 */
+	@Test
+	void keyCacheCapacity()
+	{
+		MarkupSettings settings = tester.getApplication().getMarkupSettings();
+
+		settings.setMarkupCacheCapacity(1000);
+		MarkupCache bounded = new MarkupCache();
+		assertInstanceOf(SegmentedLruCache.class, bounded.getMarkupCache());
+		assertInstanceOf(DefaultCacheImplementation.class, bounded.newKeyCacheImplementation());
+
+		settings.setMarkupKeyCacheCapacity(10);
+		ICache<String, String> keys = bounded.newKeyCacheImplementation();
+		for (int k = 0; k < 20; k++)
+		{
+			keys.put("key" + k, "a/long/location/of/some/markup" + k + ".html");
+		}
+		assertEquals(10, keys.size());
+	}
+
 	private static class MarkupCachingAssumingComponent extends Panel
 		implements
 			IMarkupResourceStreamProvider
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link SegmentedLruCache}.
+ */
+class SegmentedLruCacheTest
+{
+	/**
+	 * Values are weighted and counted.
+	 */
+	@Test
+	void weight()
+	{
+		SegmentedLruCache<String, String> cache = new SegmentedLruCache<>(10, String::length);
+
+		cache.put("a", "aaa");
+		cache.put("b", "bb");
+		assertEquals(2, cache.size());
+		assertEquals(5, cache.getWeight());
+
+		cache.put("a", "a");
+		assertEquals(3, cache.getWeight());
+
+		assertTrue(cache.remove("b"));
+		assertFalse(cache.remove("b"));
+		assertEquals(1, cache.getWeight());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+	}
+
+	/**
+	 * Hits and misses are counted.
+	 */
+	@Test
+	void statistics()
+	{
+		SegmentedLruCache<String, String> cache = new SegmentedLruCache<>(10, String::length);
+
+		cache.put("a", "aaa");
+
+		assertEquals("aaa", cache.get("a"));
+		assertEquals("aaa", cache.get("a"));
+		assertNull(cache.get("b"));
+
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0, cache.getEvictionCount());
+	}
+
+	/**
+	 * Values read again survive values read once.
+	 */
+	@Test
+	void eviction()
+	{
+		SegmentedLruCache<String, String> cache = new SegmentedLruCache<>(10, String::length);
+
+		cache.put("a", "aaa");
+		cache.put("b", "bbb");
+		cache.put("c", "ccc");
+
+		cache.get("a");
+
+		cache.put("d", "ddd");
+		assertEquals(1, cache.getEvictionCount());
+		assertTrue(cache.containsKey("a"));
+		assertFalse(cache.containsKey("b"));
+		assertEquals(9, cache.getWeight());
+
+		cache.put("e", "eee");
+		cache.put("f", "fff");
+		assertEquals(3, cache.getEvictionCount());
+		assertTrue(cache.containsKey("a"));
+		assertTrue(cache.getWeight() <= 10);
+	}
+
+	/**
+	 * A value exceeding the capacity does not flush the cache.
+	 */
+	@Test
+	void oversized()
+	{
+		SegmentedLruCache<String, String> cache = new SegmentedLruCache<>(10, String::length);
+
+		cache.put("a", "aaa");
+		cache.put("b", "bbbbbbbbbbbbbbbbbbbb");
+
+		assertTrue(cache.containsKey("a"));
+		assertFalse(cache.containsKey("b"));
+		assertEquals(1, cache.getEvictionCount());
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.wicket.markup.parser.IXmlPullParser.HttpTagType;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link PrecompiledXmlPullParser}.
+ */
+class PrecompiledXmlPullParserTest
+{
+	private static final String[] MARKUP = {
+			"This is a text",
+			"<?xml version=\"1.0\" encoding=\"UTF-8\" ?><!DOCTYPE html><html xmlns:wicket>x</html>",
+			"xx <tag a='1' b=\"2\" c=3 d> yy </tag> zz <ns:tag/>",
+			"<!-- test --><tag> aaa <?tag test 1 ?> bbb <tag> <!DOCTYPE test > </tag>",
+			"<html><script language=\"JavaScript\">... <x a> ...</script><style>a > b {}</style></html>",
+			"<!--[if IE]><a href='test.html'>my link</a><![endif]--><![CDATA[ <a> ]]>",
+			"<!--[if (gt IE 9)|!(IE)]><!--><html lang=\"en\"><!--<![endif]--> <span>&lt;</span>",
+			"<div wicket:id=\"a\">\n\t<span wicket:id=\"b\" title=\"&quot;b&quot;\"/>\n</div>\n" };
+
+	/**
+	 * Replayed tokens are equal to parsed tokens.
+	 */
+	@Test
+	void replay() throws Exception
+	{
+		PrecompiledMarkupIndex index = new PrecompiledMarkupIndex();
+		for (String markup : MARKUP)
+		{
+			assertTrue(index.add(markup));
+		}
+		assertEquals(MARKUP.length, index.size());
+
+		for (String markup : MARKUP)
+		{
+			XmlPullParser expected = new XmlPullParser();
+			expected.parse(markup);
+
+			PrecompiledXmlPullParser actual = new PrecompiledXmlPullParser(index);
+			actual.parse(markup);
+			assertTrue(actual.isPrecompiled());
+
+			assertEqualTokens(expected, actual);
+		}
+	}
+
+	/**
+	 * Markup not in the index is parsed.
+	 */
+	@Test
+	void fallback() throws Exception
+	{
+		PrecompiledMarkupIndex index = new PrecompiledMarkupIndex();
+		index.add(MARKUP[2]);
+
+		XmlPullParser expected = new XmlPullParser();
+		expected.parse(MARKUP[3]);
+
+		PrecompiledXmlPullParser actual = new PrecompiledXmlPullParser(index);
+		actual.parse(MARKUP[3]);
+		assertFalse(actual.isPrecompiled());
+
+		assertEqualTokens(expected, actual);
+	}
+
+	/**
+	 * Malformed markup is not precompiled.
+	 */
+	@Test
+	void malformed()
+	{
+		PrecompiledMarkupIndex index = new PrecompiledMarkupIndex();
+
+		assertFalse(index.add("<tag a='1' a='2'>"));
+		assertFalse(index.add("<!-- unclosed"));
+		assertTrue(index.isEmpty());
+	}
+
+	/**
+	 * An index can be written and read.
+	 */
+	@Test
+	void writeAndRead() throws Exception
+	{
+		PrecompiledMarkupIndex index = new PrecompiledMarkupIndex();
+		for (String markup : MARKUP)
+		{
+			index.add(markup);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		index.write(out);
+
+		PrecompiledMarkupIndex read = new PrecompiledMarkupIndex();
+		read.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(MARKUP.length, read.size());
+
+		// xml declaration is not part of the parsed markup
+		String markup = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\" ?>" + MARKUP[2];
+
+		PrecompiledXmlPullParser parser = new PrecompiledXmlPullParser(read);
+		parser.parse(new ByteArrayInputStream(markup.getBytes(StandardCharsets.ISO_8859_1)));
+		assertTrue(parser.isPrecompiled());
+		assertEquals("ISO-8859-1", parser.getEncoding());
+	}
+
+	private void assertEqualTokens(IXmlPullParser expected, IXmlPullParser actual)
+		throws Exception
+	{
+		HttpTagType type;
+		do
+		{
+			type = expected.next();
+			assertEquals(type, actual.next());
+
+			if (type != HttpTagType.NOT_INITIALIZED)
+			{
+				assertEquals(expected.getString().toString(), actual.getString().toString());
+
+				XmlTag expectedTag = expected.getElement();
+				XmlTag actualTag = actual.getElement();
+				if (expectedTag != null)
+				{
+					assertEquals(expectedTag.toDebugString(), actualTag.toDebugString());
+					assertEquals(expectedTag.getType(), actualTag.getType());
+					assertEquals(expectedTag.getName(), actualTag.getName());
+					assertEquals(expectedTag.getNamespace(), actualTag.getNamespace());
+					assertEquals(expectedTag.getAttributes(), actualTag.getAttributes());
+					assertEquals(expectedTag.getPos(), actualTag.getPos());
+					assertEquals(expectedTag.getLength(), actualTag.getLength());
+					assertEquals(expectedTag.getLineNumber(), actualTag.getLineNumber());
+					assertEquals(expectedTag.getColumnNumber(), actualTag.getColumnNumber());
+
+					assertEquals(expected.getInputFromPositionMarker(expectedTag.getPos()).toString(),
+						actual.getInputFromPositionMarker(actualTag.getPos()).toString());
+				}
+
+				// move marker like the markup parser does
+				expected.setPositionMarker();
+				actual.setPositionMarker();
+			}
+		}
+		while (type != HttpTagType.NOT_INITIALIZED);
+
+		assertEquals(String.valueOf(expected.getDoctype()), String.valueOf(actual.getDoctype()));
+		assertEquals(expected.getInputFromPositionMarker(-1).toString(),
+			actual.getInputFromPositionMarker(-1).toString());
+	}
+}
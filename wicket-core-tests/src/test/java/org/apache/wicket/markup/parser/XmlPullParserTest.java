@@ -20,6 +20,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.UnsupportedEncodingException;
@@ -486,4 +487,67 @@ class XmlPullParserTest
 		type = parser.next();
 		assertEquals(HttpTagType.CONDITIONAL_COMMENT_ENDIF, type);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * A scanning parser yields the same tags as a parser using regular expressions.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	final void scanning() throws Exception
+	{
+		String markup = "<html xmlns:wicket><body onload=foo.bar()>" +
+			"<a href=\"x.html?a=1&amp;b=2\" wicket:id='link' disabled>" +
+			"<WICKET:panel  data-x = 1 >text</WICKET:panel><br/>" +
+			"<script type=\"text/javascript\">if (a < b) {}</script><!-- comment -->" +
+			"<span class=\" a b \" style=''/></a></body></html>";
+
+		XmlPullParser parser = new XmlPullParser();
+		parser.parse(markup);
+		XmlPullParser scanner = new XmlPullParser(true);
+		scanner.parse(markup);
+
+		HttpTagType type;
+		do
+		{
+			type = parser.next();
+			assertEquals(type, scanner.next());
+			assertEquals(parser.getString(), scanner.getString());
+
+			XmlTag tag = parser.getElement();
+			if (type == HttpTagType.TAG)
+			{
+				XmlTag scanned = scanner.getElement();
+				assertEquals(tag.getType(), scanned.getType());
+				assertEquals(tag.getNamespace(), scanned.getNamespace());
+				assertEquals(tag.getName(), scanned.getName());
+				assertEquals(tag.getPos(), scanned.getPos());
+				assertEquals(tag.getAttributes().entrySet().toString(),
+					scanned.getAttributes().entrySet().toString());
+			}
+		}
+		while (type != HttpTagType.NOT_INITIALIZED);
+	}
+
+	/**
+	 * Known names are taken from the symbol table.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	final void scanningSymbols() throws Exception
+	{
+		XmlPullParser scanner = new XmlPullParser(true);
+		scanner.parse("<div wicket:id=\"a\"><div wicket:id=\"b\">");
+
+		scanner.next();
+		XmlTag first = scanner.getElement();
+		scanner.next();
+		XmlTag second = scanner.getElement();
+
+		assertSame(first.getName(), second.getName());
+		assertSame(first.getAttributes().keySet().iterator().next(),
+			second.getAttributes().keySet().iterator().next());
+		assertEquals("b", second.getAttributes().getString("wicket:id"));
+	}
+}
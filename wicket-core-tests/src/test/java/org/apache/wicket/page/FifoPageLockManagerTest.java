@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.page;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link FifoPageLockManager}.
+ */
+class FifoPageLockManagerTest
+{
+	/**
+	 * Locks are reentrant.
+	 */
+	@Test
+	void reentrant()
+	{
+		FifoPageLockManager manager = new FifoPageLockManager(Duration.ofSeconds(5));
+
+		manager.lockPage(1);
+		manager.lockPage(1);
+		manager.unlockPage(1);
+
+		assertTrue(manager.lockPageAsync(1, "owner").toCompletableFuture().isDone());
+	}
+
+	/**
+	 * Locks are handed off in the order they were requested.
+	 */
+	@Test
+	void handOffInOrder()
+	{
+		FifoPageLockManager manager = new FifoPageLockManager(Duration.ofSeconds(5));
+
+		manager.lockPage(1);
+
+		List<String> order = new ArrayList<>();
+		for (String owner : new String[] { "a", "b", "c" })
+		{
+			manager.lockPageAsync(1, owner).thenRun(() -> order.add(owner));
+		}
+		assertTrue(order.isEmpty());
+
+		manager.unlockAllPages();
+		assertEquals(List.of("a"), order);
+
+		// not the owner
+		manager.unlockAllPages("c");
+		assertEquals(List.of("a"), order);
+
+		manager.unlockAllPages("a");
+		manager.unlockAllPages("b");
+		assertEquals(List.of("a", "b", "c"), order);
+
+		// other pages are not affected
+		assertTrue(manager.lockPageAsync(2, "d").toCompletableFuture().isDone());
+	}
+
+	/**
+	 * Shared locks are granted together, but not before earlier exclusive waiters.
+	 */
+	@Test
+	void shared()
+	{
+		FifoPageLockManager manager = new FifoPageLockManager(Duration.ofSeconds(5));
+
+		manager.lockPageShared(1);
+		assertTrue(manager.lockPageSharedAsync(1, "a").toCompletableFuture().isDone());
+
+		CompletableFuture<Void> exclusive = manager.lockPageAsync(1, "b").toCompletableFuture();
+		CompletableFuture<Void> shared1 = manager.lockPageSharedAsync(1, "c").toCompletableFuture();
+		CompletableFuture<Void> shared2 = manager.lockPageSharedAsync(1, "d").toCompletableFuture();
+		assertFalse(exclusive.isDone());
+		assertFalse(shared1.isDone());
+
+		manager.unlockPage(1);
+		assertFalse(exclusive.isDone());
+
+		manager.unlockAllPages("a");
+		assertTrue(exclusive.isDone());
+		assertFalse(shared1.isDone());
+
+		manager.unlockAllPages("b");
+		assertTrue(shared1.isDone());
+		assertTrue(shared2.isDone());
+
+		// upgrade gives up the shared lock
+		CompletableFuture<Void> upgrade = manager.lockPageAsync(1, "c").toCompletableFuture();
+		assertFalse(upgrade.isDone());
+		manager.unlockAllPages("d");
+		assertTrue(upgrade.isDone());
+	}
+
+	/**
+	 * A blocked thread acquires the lock when released.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void blocking() throws Exception
+	{
+		FifoPageLockManager manager = new FifoPageLockManager(Duration.ofSeconds(5));
+
+		manager.lockPage(1);
+
+		CountDownLatch locked = new CountDownLatch(1);
+		Thread thread = new Thread(() -> {
+			manager.lockPage(1);
+			locked.countDown();
+		});
+		thread.start();
+
+		assertFalse(locked.await(100, TimeUnit.MILLISECONDS));
+
+		manager.unlockPage(1);
+		assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+		// still locked by the other thread
+		assertFalse(manager.lockPageAsync(1, "owner").toCompletableFuture().isDone());
+	}
+
+	/**
+	 * Waiting for a lock times out.
+	 */
+	@Test
+	void timeout()
+	{
+		FifoPageLockManager manager = new FifoPageLockManager(Duration.ofMillis(100));
+
+		manager.lockPageAsync(1, "owner");
+
+		assertThrows(CouldNotLockPageException.class, () -> manager.lockPage(1));
+
+		CompletableFuture<Void> lock = manager.lockPageAsync(1, "other").toCompletableFuture();
+		ExecutionException ex = assertThrows(ExecutionException.class,
+			() -> lock.get(5, TimeUnit.SECONDS));
+		assertInstanceOf(CouldNotLockPageException.class, ex.getCause());
+
+		// timed out waiters are not handed the lock
+		manager.unlockAllPages("owner");
+		manager.lockPage(1);
+	}
+
+	/**
+	 * Locks acquired asynchronously can be claimed by a thread.
+	 */
+	@Test
+	void claim()
+	{
+		FifoPageLockManager manager = new FifoPageLockManager(Duration.ofSeconds(5));
+
+		manager.lockPageAsync(1, "owner");
+		manager.lockPageAsync(2, "owner");
+
+		manager.claimPages("owner");
+		manager.lockPage(1);
+
+		CompletableFuture<Void> lock = manager.lockPageAsync(2, "other").toCompletableFuture();
+		assertFalse(lock.isDone());
+
+		manager.unlockAllPages();
+		assertTrue(lock.isDone());
+	}
+}
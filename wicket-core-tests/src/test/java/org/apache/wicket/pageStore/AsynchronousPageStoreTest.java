@@ -23,6 +23,9 @@ import static org.junit.jupiter.api.Assertions.fail;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -347,6 +350,205 @@ public class AsynchronousPageStoreTest
 		assertTrue(sync > 0);
 	}
 
+	/**
+	 * Partitioned store keeps pages of each session in order.
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	void partitionedStoreKeepsOrderPerSession() throws InterruptedException
+	{
+		int sessions = 10;
+		int pages = 50;
+
+		final CountDownLatch lock = new CountDownLatch(sessions * pages);
+		final Map<String, List<Integer>> added = new ConcurrentHashMap<>();
+
+		IPageStore store = new NoopPageStore()
+		{
+			@Override
+			public void addPage(IPageContext context, IManageablePage page)
+			{
+				added.computeIfAbsent(context.getSessionId(false), key -> new CopyOnWriteArrayList<>())
+					.add(page.getPageId());
+
+				lock.countDown();
+			}
+		};
+
+		AsynchronousPageStore asyncPageStore = new AsynchronousPageStore(store, sessions * pages, 4, false);
+
+		for (int pageId = 0; pageId < pages; pageId++)
+		{
+			for (int session = 0; session < sessions; session++)
+			{
+				IPageContext context = new MockPageContext("session" + session);
+
+				asyncPageStore.addPage(context, new SerializedPage(pageId, "", new byte[0]));
+			}
+		}
+
+		assertTrue(lock.await(10, TimeUnit.SECONDS));
+
+		assertEquals(sessions, added.size());
+		for (List<Integer> pageIds : added.values())
+		{
+			assertEquals(pages, pageIds.size());
+			for (int pageId = 0; pageId < pages; pageId++)
+			{
+				assertEquals(pageId, (int)pageIds.get(pageId));
+			}
+		}
+
+		assertEquals(0, asyncPageStore.getDropCount());
+
+		asyncPageStore.destroy();
+	}
+
+	/**
+	 * Pending adds of the same page are coalesced and passed as a batch.
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	void coalesceAndBatchPendingAdds() throws InterruptedException
+	{
+		final Semaphore semaphore = new Semaphore(0);
+		final CountDownLatch lock = new CountDownLatch(1);
+		final List<IManageablePage> added = new CopyOnWriteArrayList<>();
+		final List<List<IManageablePage>> batches = new CopyOnWriteArrayList<>();
+
+		IPageStore store = new NoopPageStore()
+		{
+			@Override
+			public void addPage(IPageContext context, IManageablePage page)
+			{
+				try
+				{
+					semaphore.acquire();
+				}
+				catch (InterruptedException e)
+				{
+				}
+
+				added.add(page);
+			}
+
+			@Override
+			public void addPages(IPageContext context, List<IManageablePage> pages)
+			{
+				batches.add(pages);
+				added.addAll(pages);
+
+				lock.countDown();
+			}
+		};
+
+		IPageStore asyncPageStore = new AsynchronousPageStore(store, 100);
+
+		IPageContext context = new MockPageContext("sessionId");
+
+		// first add clogs the queue
+		asyncPageStore.addPage(context, new SerializedPage(0, "", new byte[0]));
+		Thread.sleep(100);
+
+		SerializedPage latest = new SerializedPage(1, "", new byte[3]);
+		asyncPageStore.addPage(context, new SerializedPage(1, "", new byte[1]));
+		asyncPageStore.addPage(context, new SerializedPage(2, "", new byte[0]));
+		asyncPageStore.addPage(context, new SerializedPage(1, "", new byte[2]));
+		asyncPageStore.addPage(context, latest);
+
+		assertEquals(latest, asyncPageStore.getPage(context, 1));
+
+		semaphore.release();
+
+		assertTrue(lock.await(5, TimeUnit.SECONDS));
+
+		assertEquals(1, batches.size());
+		assertEquals(2, batches.get(0).size());
+		assertEquals(3, added.size());
+		assertTrue(added.contains(latest));
+
+		asyncPageStore.destroy();
+	}
+
+	/**
+	 * A delegating store overriding {@link DelegatingPageStore#addPage(IPageContext, IManageablePage)}
+	 * only still sees each page of a batch.
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	void batchReachesAddPageOfDelegatingStore() throws InterruptedException
+	{
+		final Semaphore semaphore = new Semaphore(0);
+		final CountDownLatch lock = new CountDownLatch(3);
+		final List<Integer> hooked = new CopyOnWriteArrayList<>();
+		final List<List<IManageablePage>> batches = new CopyOnWriteArrayList<>();
+
+		IPageStore store = new NoopPageStore()
+		{
+			@Override
+			public void addPage(IPageContext context, IManageablePage page)
+			{
+				try
+				{
+					semaphore.acquire();
+				}
+				catch (InterruptedException e)
+				{
+				}
+			}
+		};
+
+		IPageStore delegatingStore = new DelegatingPageStore(store)
+		{
+			@Override
+			public boolean canBeAsynchronous(IPageContext context)
+			{
+				return true;
+			}
+
+			@Override
+			public void addPage(IPageContext context, IManageablePage page)
+			{
+				hooked.add(page.getPageId());
+
+				super.addPage(context, page);
+
+				lock.countDown();
+			}
+
+			@Override
+			public void addPages(IPageContext context, List<IManageablePage> pages)
+			{
+				batches.add(pages);
+
+				super.addPages(context, pages);
+			}
+		};
+
+		IPageStore asyncPageStore = new AsynchronousPageStore(delegatingStore, 100);
+
+		IPageContext context = new MockPageContext("sessionId");
+
+		// first add clogs the queue
+		asyncPageStore.addPage(context, new SerializedPage(0, "", new byte[0]));
+		Thread.sleep(100);
+
+		asyncPageStore.addPage(context, new SerializedPage(1, "", new byte[0]));
+		asyncPageStore.addPage(context, new SerializedPage(2, "", new byte[0]));
+
+		semaphore.release(3);
+
+		assertTrue(lock.await(5, TimeUnit.SECONDS));
+
+		assertEquals(1, batches.size());
+		assertEquals(List.of(0, 1, 2), hooked);
+
+		asyncPageStore.destroy();
+	}
+
 	private MetaDataKey<Serializable> KEY1 = new MetaDataKey<Serializable>()
 	{
 	};
@@ -362,6 +564,7 @@ public class AsynchronousPageStoreTest
 	public void storeAsynchronousContextClosed() throws Throwable
 	{
 		final AtomicReference<Throwable> asyncFail = new AtomicReference<>();
+		final CountDownLatch added = new CountDownLatch(1);
 		
 		IPageStore store = new MockPageStore() {
 			
@@ -415,10 +618,12 @@ public class AsynchronousPageStoreTest
 				assertEquals("value1", context.getSessionAttribute("key1", () -> null));
 				// .. but nothing new
 				try {
-					context.getSessionAttribute("key2", () -> null);
+					context.getSessionAttribute("key2", () -> "value2");
 					asyncFail.set(new Exception().fillInStackTrace());
 				} catch (WicketRuntimeException expected) {
 				}
+
+				added.countDown();
 			}
 		};
 
@@ -430,6 +635,9 @@ public class AsynchronousPageStoreTest
 		
 		asyncPageStore.addPage(context , page);
 		
+		// all checks passed asynchronously
+		assertTrue(added.await(10, TimeUnit.SECONDS));
+
 		store.destroy();
 		
 		if (asyncFail.get() != null) {
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.List;
+
+import javax.crypto.SecretKey;
+
+import org.apache.wicket.MockPage;
+import org.apache.wicket.mock.MockPageContext;
+import org.apache.wicket.mock.MockPageStore;
+import org.apache.wicket.pageStore.crypt.DefaultCrypter;
+import org.apache.wicket.pageStore.crypt.GCMSIVCrypter;
+import org.apache.wicket.pageStore.crypt.ICrypter;
+import org.apache.wicket.serialize.java.LZJavaSerializer;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Test for {@link CryptingSerializingPageStore}.
+ */
+class CryptingSerializingPageStoreTest extends WicketTestCase
+{
+	@BeforeAll
+	static void init()
+	{
+		Security.addProvider(new BouncyCastleProvider());
+	}
+
+	static List<ICrypter> crypters()
+	{
+		return List.of(new DefaultCrypter(), new GCMSIVCrypter());
+	}
+
+	/**
+	 * Streamed encryption is decrypted like encryption of an array.
+	 */
+	@ParameterizedTest
+	@MethodSource("crypters")
+	void stream(ICrypter crypter) throws Exception
+	{
+		SecretKey key = crypter.generateKey(new SecureRandom());
+
+		byte[] data = new byte[100000];
+		for (int i = 0; i < data.length; i++)
+		{
+			data[i] = (byte)(i % 251);
+		}
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		OutputStream out = crypter.encrypt(buffer, key, new SecureRandom());
+		out.write(data, 0, 10);
+		out.write(data[10]);
+		out.write(data, 11, data.length - 11);
+		out.close();
+
+		assertArrayEquals(data, crypter.decrypt(buffer.toByteArray(), key));
+	}
+
+	@ParameterizedTest
+	@MethodSource("crypters")
+	void test(ICrypter crypter)
+	{
+		MockPageStore delegate = new MockPageStore();
+		CryptingSerializingPageStore store = new CryptingSerializingPageStore(delegate,
+			new LZJavaSerializer("test"), tester.getApplication())
+		{
+			@Override
+			protected ICrypter newCrypter()
+			{
+				return crypter;
+			}
+		};
+
+		IPageContext context = new MockPageContext();
+
+		for (int p = 0; p < 10; p++)
+		{
+			MockPage add = new MockPage(p);
+			store.addPage(context, add);
+
+			// encrypted data is not shared
+			assertNull(SerializingPageStore.getSerializedPage(context, add));
+
+			MockPage got = (MockPage)store.getPage(context, p);
+			assertEquals(p, got.getPageId());
+		}
+
+		assertEquals(10, delegate.getPages().size());
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.mock.MockPageContext;
+import org.apache.wicket.mock.MockPageStore;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link DeltaPageStore}.
+ */
+public class DeltaPageStoreTest
+{
+	private final Random random = new Random(42);
+
+	/**
+	 * Pages are restored from deltas, which are much smaller than the pages.
+	 */
+	@Test
+	void deltas()
+	{
+		MockPageStore delegate = new MockPageStore();
+		DeltaPageStore store = new DeltaPageStore(delegate, 10);
+
+		IPageContext context = new MockPageContext();
+
+		byte[] data = new byte[10000];
+		random.nextBytes(data);
+
+		byte[][] versions = new byte[5][];
+		for (int p = 0; p < versions.length; p++)
+		{
+			data = data.clone();
+			data[random.nextInt(data.length)]++;
+			versions[p] = data;
+
+			store.addPage(context, new SerializedPage(p, "foo", data));
+		}
+
+		for (int p = 0; p < versions.length; p++)
+		{
+			assertArrayEquals(versions[p], ((SerializedPage)store.getPage(context, p)).getData());
+		}
+
+		// a single base
+		assertEquals(versions.length + 1, delegate.getPages().size());
+		for (IManageablePage page : delegate.getPages())
+		{
+			if (page.getPageId() >= 0)
+			{
+				assertTrue(((SerializedPage)page).getData().length < 100);
+			}
+		}
+	}
+
+	/**
+	 * A new base is stored after the maximum count of deltas, the old base is removed once it is no
+	 * longer used.
+	 */
+	@Test
+	void rebase()
+	{
+		MockPageStore delegate = new MockPageStore();
+		DeltaPageStore store = new DeltaPageStore(delegate, 2);
+
+		IPageContext context = new MockPageContext();
+
+		byte[] data = new byte[1000];
+		random.nextBytes(data);
+
+		// same page over and over again, i.e. Ajax requests
+		for (int r = 0; r < 10; r++)
+		{
+			data = data.clone();
+			data[random.nextInt(data.length)]++;
+
+			store.addPage(context, new SerializedPage(1, "foo", data));
+
+			assertArrayEquals(data, ((SerializedPage)store.getPage(context, 1)).getData());
+		}
+
+		// page and its current base
+		assertEquals(2, delegate.getPages().size());
+
+		store.removePage(context, new SerializedPage(1, "foo", data));
+		assertNull(store.getPage(context, 1));
+	}
+
+	/**
+	 * Pages that diverged too far are stored as a new base.
+	 */
+	@Test
+	void diverged()
+	{
+		MockPageStore delegate = new MockPageStore();
+		DeltaPageStore store = new DeltaPageStore(delegate, 10);
+
+		IPageContext context = new MockPageContext();
+
+		byte[] first = new byte[1000];
+		random.nextBytes(first);
+		byte[] second = new byte[1000];
+		random.nextBytes(second);
+
+		store.addPage(context, new SerializedPage(1, "foo", first));
+		store.addPage(context, new SerializedPage(1, "foo", second));
+
+		assertArrayEquals(second, ((SerializedPage)store.getPage(context, 1)).getData());
+
+		// old base was removed
+		assertEquals(2, delegate.getPages().size());
+	}
+
+	/**
+	 * Each page type has its own base, so alternating between pages does not store new bases.
+	 */
+	@Test
+	void alternating()
+	{
+		MockPageStore delegate = new MockPageStore();
+		DeltaPageStore store = new DeltaPageStore(delegate, 10);
+
+		IPageContext context = new MockPageContext();
+
+		byte[] foo = new byte[1000];
+		random.nextBytes(foo);
+		byte[] bar = new byte[1000];
+		random.nextBytes(bar);
+
+		for (int r = 0; r < 5; r++)
+		{
+			foo = foo.clone();
+			foo[random.nextInt(foo.length)]++;
+			store.addPage(context, new SerializedPage(1, "foo", foo));
+
+			bar = bar.clone();
+			bar[random.nextInt(bar.length)]++;
+			store.addPage(context, new SerializedPage(2, "bar", bar));
+		}
+
+		assertArrayEquals(foo, ((SerializedPage)store.getPage(context, 1)).getData());
+		assertArrayEquals(bar, ((SerializedPage)store.getPage(context, 2)).getData());
+
+		// two pages and their bases
+		assertEquals(4, delegate.getPages().size());
+	}
+
+	/**
+	 * Bases in use are stored again, before they could be evicted before the pages referring to
+	 * them.
+	 */
+	@Test
+	void restore()
+	{
+		List<Integer> added = new ArrayList<>();
+		MockPageStore delegate = new MockPageStore()
+		{
+			@Override
+			public void addPage(IPageContext context, IManageablePage page)
+			{
+				added.add(page.getPageId());
+
+				super.addPage(context, page);
+			}
+		};
+		DeltaPageStore store = new DeltaPageStore(delegate, 100, Bytes.bytes(500),
+			Bytes.megabytes(1));
+
+		IPageContext context = new MockPageContext();
+
+		byte[] data = new byte[1000];
+		random.nextBytes(data);
+
+		for (int p = 0; p < 50; p++)
+		{
+			data = data.clone();
+			data[random.nextInt(data.length)]++;
+
+			store.addPage(context, new SerializedPage(p, "foo", data));
+		}
+
+		assertArrayEquals(data, ((SerializedPage)store.getPage(context, 49)).getData());
+
+		// stored initially and again
+		assertTrue(added.stream().filter(id -> id < 0).count() > 1);
+	}
+
+	/**
+	 * Bases of pages no longer tracked are removed.
+	 */
+	@Test
+	void bounded()
+	{
+		MockPageStore delegate = new MockPageStore();
+		DeltaPageStore store = new DeltaPageStore(delegate, 1);
+
+		IPageContext context = new MockPageContext();
+
+		byte[] data = new byte[1000];
+		random.nextBytes(data);
+
+		for (int p = 0; p < 1000; p++)
+		{
+			data = data.clone();
+			data[random.nextInt(data.length)]++;
+
+			store.addPage(context, new SerializedPage(p, "foo", data));
+		}
+
+		assertTrue(delegate.getPages().stream().filter(page -> page.getPageId() < 0).count() <= 101);
+	}
+}
@@ -16,10 +16,15 @@
  */
 package org.apache.wicket.pageStore;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 
+import org.apache.wicket.mock.MockPageContext;
 import org.apache.wicket.util.WicketTestTag;
 import org.apache.wicket.util.lang.Bytes;
 import org.junit.jupiter.api.Tag;
@@ -48,4 +53,42 @@ public class FilePageStoreTest extends AbstractConcurrentPageStoreTest
 
 		pageStore.destroy();
 	}
+
+	/**
+	 * Least recently written pages are removed when the maximum size is exceeded, sizes are read
+	 * from files of sessions once.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void maxSizePerSession() throws IOException
+	{
+		File folder = Files.createTempDirectory(null).toFile();
+
+		FilePageStore pageStore = new FilePageStore("app1", folder, Bytes.bytes(300));
+
+		IPageContext context = new MockPageContext("session1");
+
+		pageStore.addPage(context, new SerializedPage(1, "foo", new byte[100]));
+		pageStore.addPage(context, new SerializedPage(2, "foo", new byte[100]));
+		pageStore.addPage(context, new SerializedPage(3, "foo", new byte[100]));
+		// rewrite first page
+		pageStore.addPage(context, new SerializedPage(1, "foo", new byte[100]));
+		pageStore.addPage(context, new SerializedPage(4, "foo", new byte[100]));
+
+		assertNotNull(pageStore.getPage(context, 1));
+		assertNull(pageStore.getPage(context, 2));
+		assertEquals(300, pageStore.getTotalSize().bytes());
+
+		pageStore.removePage(context, new SerializedPage(3, "foo", new byte[0]));
+		assertEquals(200, pageStore.getTotalSize().bytes());
+
+		pageStore.destroy();
+
+		// files are kept on destroy
+		pageStore = new FilePageStore("app1", folder, Bytes.bytes(300));
+		assertEquals(200, pageStore.getTotalSize().bytes());
+
+		pageStore.destroy();
+	}
 }
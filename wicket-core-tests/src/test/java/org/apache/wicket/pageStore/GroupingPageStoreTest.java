@@ -21,6 +21,9 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Supplier;
 
 import org.apache.wicket.MetaDataKey;
@@ -107,6 +110,46 @@ public class GroupingPageStoreTest
 		
 	}
 
+	/**
+	 * Pages of each group are passed on at once.
+	 */
+	@Test
+	void addPages()
+	{
+		List<String> batches = new ArrayList<>();
+
+		IPageStore store = new MockPageStore() {
+			@Override
+			public void addPages(IPageContext context, List<IManageablePage> pages)
+			{
+				StringBuilder batch = new StringBuilder(context.getSessionId(true));
+				for (IManageablePage page : pages)
+				{
+					batch.append(' ').append(page.getPageId());
+				}
+				batches.add(batch.toString());
+
+				super.addPages(context, pages);
+			}
+		};
+
+		IPageStore groupingStore = new GroupingPageStore(store, 2) {
+			@Override
+			protected String getGroup(IManageablePage page)
+			{
+				return group(page);
+			}
+		};
+
+		MockPageContext context = new MockPageContext("foo");
+
+		groupingStore.addPages(context, Arrays.asList(new MockPage(0), new MockPage(10), new MockPage(1)));
+
+		assertEquals(Arrays.asList("foo_group0 0 1", "foo_group1 10"), batches);
+		assertEquals(1, groupingStore.getPage(context, 1).getPageId());
+		assertEquals(10, groupingStore.getPage(context, 10).getPageId());
+	}
+
 	protected String group(IManageablePage page)
 	{
 		return "group" + page.getPageId() / 10;
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.wicket.mock.MockPageContext;
+import org.apache.wicket.mock.MockPageStore;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link InSessionPageStore} with a budget for all sessions.
+ */
+public class InSessionPageStoreBudgetTest
+{
+	/**
+	 * Least recently used pages of all sessions are spilled.
+	 */
+	@Test
+	void spillAcrossSessions()
+	{
+		MockPageStore spillStore = new MockPageStore();
+		InSessionPageStore store = new InSessionPageStore(Bytes.bytes(1000), Bytes.bytes(300),
+			spillStore);
+
+		IPageContext context1 = new MockPageContext("session1");
+		IPageContext context2 = new MockPageContext("session2");
+
+		SerializedPage page1 = new SerializedPage(1, "type", new byte[100]);
+		store.addPage(context1, page1);
+		store.addPage(context2, new SerializedPage(1, "type", new byte[100]));
+		store.addPage(context1, new SerializedPage(2, "type", new byte[100]));
+
+		// touch first page of session 2 last
+		assertNotNull(store.getPage(context1, 1));
+
+		store.addPage(context2, new SerializedPage(2, "type", new byte[100]));
+
+		assertEquals(300, store.getBudget().getSize().bytes());
+		assertEquals(1, spillStore.getPages().size());
+		assertEquals(1, spillStore.getPages().get(0).getPageId());
+
+		// still available from spill store
+		assertNotNull(store.getPage(context2, 1));
+		assertSame(page1, store.getPage(context1, 1));
+
+		store.removeAllPages(context1);
+		assertEquals(100, store.getBudget().getSize().bytes());
+		assertEquals(1, store.getBudget().getCount());
+	}
+
+	/**
+	 * Pages of another session are spilled on its next access, if the spill store cannot add
+	 * pages asynchronously.
+	 */
+	@Test
+	void spillOnNextAccess()
+	{
+		MockPageStore spillStore = new MockPageStore()
+		{
+			@Override
+			public boolean canBeAsynchronous(IPageContext context)
+			{
+				return false;
+			}
+		};
+		InSessionPageStore store = new InSessionPageStore(Bytes.bytes(1000), Bytes.bytes(100),
+			spillStore);
+
+		IPageContext context1 = new MockPageContext("session1");
+		IPageContext context2 = new MockPageContext("session2");
+
+		store.addPage(context1, new SerializedPage(1, "type", new byte[100]));
+		store.addPage(context2, new SerializedPage(1, "type", new byte[100]));
+
+		assertEquals(100, store.getBudget().getSize().bytes());
+		assertTrue(spillStore.getPages().isEmpty());
+
+		// not lost
+		assertNotNull(store.getPage(context1, 1));
+		assertEquals(1, spillStore.getPages().size());
+	}
+
+	/**
+	 * Pages removed by the limit per session are released from the budget.
+	 */
+	@Test
+	void limitPerSession()
+	{
+		MockPageStore spillStore = new MockPageStore();
+		InSessionPageStore store = new InSessionPageStore(Bytes.bytes(200), Bytes.bytes(1000),
+			spillStore);
+
+		IPageContext context = new MockPageContext("session1");
+
+		for (int p = 0; p < 5; p++)
+		{
+			store.addPage(context, new SerializedPage(p, "type", new byte[100]));
+		}
+
+		assertEquals(200, store.getBudget().getSize().bytes());
+		assertEquals(2, store.getBudget().getCount());
+		assertEquals(3, spillStore.getPages().size());
+	}
+
+	/**
+	 * Pages of an unbound session are released from the budget.
+	 */
+	@Test
+	void releaseOnUnbound()
+	{
+		InSessionPageStore store = new InSessionPageStore(Bytes.bytes(1000), Bytes.bytes(1000),
+			new MockPageStore());
+
+		store.addPage(new MockPageContext("session1"), new SerializedPage(1, "type", new byte[100]));
+		store.addPage(new MockPageContext("session2"), new SerializedPage(1, "type", new byte[100]));
+
+		store.onUnbound("session1");
+
+		assertEquals(100, store.getBudget().getSize().bytes());
+		assertEquals(1, store.getBudget().getCount());
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.mock.MockPageContext;
+import org.apache.wicket.pageStore.kv.IKeyValueStore;
+import org.apache.wicket.pageStore.kv.MemoryKeyValueStore;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link KeyValuePageStore}.
+ */
+public class KeyValuePageStoreTest extends AbstractConcurrentPageStoreTest
+{
+	/**
+	 * Concurrent usage.
+	 */
+	@Test
+	void store()
+	{
+		IPageStore pageStore = new KeyValuePageStore("app1", new MemoryKeyValueStore());
+
+		doTestStore(pageStore);
+
+		pageStore.destroy();
+	}
+
+	/**
+	 * Pages are stored, listed and removed.
+	 */
+	@Test
+	void storeAndRemove()
+	{
+		KeyValuePageStore store = new KeyValuePageStore("app1", new MemoryKeyValueStore());
+
+		IPageContext context1 = new MockPageContext("session1");
+		IPageContext context2 = new MockPageContext("session2");
+
+		byte[] data = { 1, 2, 3 };
+		store.addPage(context1, new SerializedPage(1, "type", data));
+		store.addPage(context1, new SerializedPage(2, "type", new byte[10]));
+		store.addPage(context2, new SerializedPage(1, "type", new byte[100]));
+
+		SerializedPage page = (SerializedPage)store.getPage(context1, 1);
+		assertEquals("type", page.getPageType());
+		assertArrayEquals(data, page.getData());
+
+		assertEquals(Arrays.asList("session1", "session2"),
+			List.copyOf(store.getSessionIdentifiers()));
+		assertEquals(2, store.getPersistedPages("session1").size());
+		assertEquals(113, store.getTotalSize().bytes());
+
+		store.removePage(context1, page);
+		assertNull(store.getPage(context1, 1));
+		assertNotNull(store.getPage(context1, 2));
+
+		store.removeAllPages(context1);
+		assertNull(store.getPage(context1, 2));
+		assertEquals(Collections.singleton("session2"), store.getSessionIdentifiers());
+
+		store.destroy();
+	}
+
+	/**
+	 * Nodes sharing a store see pages written by other nodes, unchanged pages are served from the
+	 * near-cache.
+	 */
+	@Test
+	void nodes()
+	{
+		AtomicInteger dataReads = new AtomicInteger();
+		IKeyValueStore shared = new MemoryKeyValueStore()
+		{
+			@Override
+			public byte[] get(String key)
+			{
+				if (key.endsWith(":d"))
+				{
+					dataReads.incrementAndGet();
+				}
+				return super.get(key);
+			}
+		};
+
+		KeyValuePageStore node1 = new KeyValuePageStore("node1", "app:", shared,
+			KeyValuePageStore.DEFAULT_TTL, 10);
+		KeyValuePageStore node2 = new KeyValuePageStore("node2", "app:", shared,
+			KeyValuePageStore.DEFAULT_TTL, 10);
+
+		IPageContext context = new MockPageContext("session1");
+
+		node1.addPage(context, new SerializedPage(1, "type", new byte[] { 1 }));
+
+		assertArrayEquals(new byte[] { 1 }, ((SerializedPage)node2.getPage(context, 1)).getData());
+		assertEquals(1, dataReads.get());
+
+		// cached
+		assertArrayEquals(new byte[] { 1 }, ((SerializedPage)node2.getPage(context, 1)).getData());
+		assertEquals(1, dataReads.get());
+
+		node1.addPage(context, new SerializedPage(1, "type", new byte[] { 2 }));
+
+		// stale near-cache is detected
+		assertArrayEquals(new byte[] { 2 }, ((SerializedPage)node2.getPage(context, 1)).getData());
+		assertEquals(2, dataReads.get());
+
+		node2.removeAllPages(context);
+		assertNull(node1.getPage(context, 1));
+
+		node1.destroy();
+		node2.destroy();
+	}
+
+	/**
+	 * Pages expire after their time-to-live.
+	 */
+	@Test
+	void expire()
+	{
+		MutableClock clock = new MutableClock();
+		KeyValuePageStore store = new KeyValuePageStore("app1", new MemoryKeyValueStore(clock),
+			Duration.ofMinutes(10), 10);
+
+		IPageContext context = new MockPageContext("session1");
+
+		store.addPage(context, new SerializedPage(1, "type", new byte[10]));
+
+		clock.instant = clock.instant.plus(Duration.ofMinutes(9));
+		assertNotNull(store.getPage(context, 1));
+
+		clock.instant = clock.instant.plus(Duration.ofMinutes(10));
+		assertNull(store.getPage(context, 1));
+		assertEquals(0, store.getSessionIdentifiers().size());
+
+		store.destroy();
+	}
+
+	/**
+	 * Pages which are only read do not expire, whether served from the near-cache or not.
+	 */
+	@Test
+	void expireAfterRead()
+	{
+		MutableClock clock = new MutableClock();
+		MemoryKeyValueStore shared = new MemoryKeyValueStore(clock);
+		KeyValuePageStore cached = new KeyValuePageStore("node1", "app:", shared,
+			Duration.ofMinutes(10), 10);
+		KeyValuePageStore uncached = new KeyValuePageStore("node2", "app:", shared,
+			Duration.ofMinutes(10), 0);
+
+		IPageContext context = new MockPageContext("session1");
+
+		cached.addPage(context, new SerializedPage(1, "type", new byte[10]));
+		cached.addPage(context, new SerializedPage(2, "type", new byte[10]));
+
+		for (int minutes = 0; minutes < 30; minutes += 9)
+		{
+			clock.instant = clock.instant.plus(Duration.ofMinutes(9));
+
+			assertNotNull(cached.getPage(context, 1));
+			assertNotNull(uncached.getPage(context, 2));
+		}
+
+		clock.instant = clock.instant.plus(Duration.ofMinutes(10));
+		assertNull(cached.getPage(context, 1));
+		assertNull(uncached.getPage(context, 2));
+
+		cached.destroy();
+		uncached.destroy();
+	}
+
+	private static class MutableClock extends Clock
+	{
+		private Instant instant = Instant.now();
+
+		@Override
+		public ZoneId getZone()
+		{
+			return ZoneId.systemDefault();
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone)
+		{
+			return this;
+		}
+
+		@Override
+		public Instant instant()
+		{
+			return instant;
+		}
+	}
+}
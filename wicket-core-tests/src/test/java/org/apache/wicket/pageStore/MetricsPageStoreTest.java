@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.DefaultPageManagerProvider;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.mock.MockPageContext;
+import org.apache.wicket.mock.MockPageStore;
+import org.apache.wicket.page.IPageManager;
+import org.apache.wicket.pageStore.IPageStoreMetrics.Operation;
+import org.apache.wicket.pageStore.PageStoreMetrics.Statistics;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link MetricsPageStore} and {@link PageStoreMetrics}.
+ */
+public class MetricsPageStoreTest
+{
+	/**
+	 * Operations are recorded.
+	 */
+	@Test
+	void operations()
+	{
+		PageStoreMetrics metrics = new PageStoreMetrics();
+		MetricsPageStore store = new MetricsPageStore(new MockPageStore(), metrics);
+
+		IPageContext context = new MockPageContext();
+
+		store.addPage(context, new SerializedPage(1, "type", new byte[10]));
+		store.addPages(context, Arrays.asList(new SerializedPage(2, "type", new byte[20]),
+			new SerializedPage(3, "type", new byte[30])));
+		store.getPage(context, 1);
+		store.getPage(context, 4);
+		store.removeAllPages(context);
+
+		assertEquals("MockPageStore", metrics.getStores().iterator().next());
+		assertNull(metrics.getStatistics("unknown", Operation.GET));
+
+		Statistics add = metrics.getStatistics("MockPageStore", Operation.ADD);
+		assertEquals(2, add.getCount());
+		assertEquals(3, add.getPages());
+		assertEquals(60, add.getBytes());
+
+		Statistics get = metrics.getStatistics("MockPageStore", Operation.GET);
+		assertEquals(2, get.getCount());
+		assertEquals(1, get.getPages());
+		assertEquals(10, get.getBytes());
+
+		assertEquals(0, metrics.getStatistics("MockPageStore", Operation.REMOVE).getCount());
+		assertEquals(1, metrics.getStatistics("MockPageStore", Operation.REMOVE_ALL).getCount());
+	}
+
+	/**
+	 * Lock waits are counted in buckets.
+	 */
+	@Test
+	void lockWaits()
+	{
+		PageStoreMetrics metrics = new PageStoreMetrics();
+
+		metrics.recordLockWait(0);
+		metrics.recordLockWait(TimeUnit.MILLISECONDS.toNanos(5));
+		metrics.recordLockWait(TimeUnit.MILLISECONDS.toNanos(10));
+		metrics.recordLockWait(TimeUnit.MINUTES.toNanos(1));
+
+		assertArrayEquals(new long[] { 1, 1, 1, 0, 0, 1 }, metrics.getLockWaits());
+	}
+
+	/**
+	 * Hits and misses of the cache are counted.
+	 */
+	@Test
+	void cache()
+	{
+		MockPageStore cache = new MockPageStore();
+		MockPageStore delegate = new MockPageStore();
+		CachingPageStore store = new CachingPageStore(delegate, cache);
+
+		IPageContext context = new MockPageContext();
+
+		cache.addPage(context, new SerializedPage(1, "type", new byte[0]));
+		delegate.addPage(context, new SerializedPage(2, "type", new byte[0]));
+
+		store.getPage(context, 1);
+		store.getPage(context, 2);
+		store.getPage(context, 3);
+
+		assertEquals(1, store.getHitCount());
+		assertEquals(2, store.getMissCount());
+	}
+
+	/**
+	 * Stores are found in the registered chain.
+	 */
+	@Test
+	void register()
+	{
+		PageStoreMetrics metrics = new PageStoreMetrics();
+		assertNull(metrics.findStore(CachingPageStore.class));
+
+		CachingPageStore cache = new CachingPageStore(new MockPageStore(), new MockPageStore());
+		metrics.register(new RequestPageStore(cache));
+
+		assertSame(cache, metrics.findStore(CachingPageStore.class));
+		assertNull(metrics.findStore(AsynchronousPageStore.class));
+	}
+
+	/**
+	 * The default chain of stores is registered.
+	 */
+	@Test
+	void registerDefault()
+	{
+		PageStoreMetrics metrics = new PageStoreMetrics();
+
+		WicketTester tester = new WicketTester(new MockApplication()
+		{
+			@Override
+			protected void init()
+			{
+				super.init();
+
+				getStoreSettings().setMetrics(metrics);
+			}
+		});
+		try
+		{
+			IPageManager manager = new DefaultPageManagerProvider(tester.getApplication()).get();
+
+			assertSame(manager.getPageStore(), metrics.findStore(RequestPageStore.class));
+			assertSame(metrics.findStore(MetricsPageStore.class),
+				metrics.findStore(CachingPageStore.class).getDelegate());
+
+			manager.destroy();
+		}
+		finally
+		{
+			tester.destroy();
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.apache.wicket.mock.MockPageContext;
+import org.apache.wicket.mock.MockPageStore;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link OffHeapPageStore}.
+ */
+public class OffHeapPageStoreTest
+{
+	/**
+	 * Pages spanning multiple blocks.
+	 */
+	@Test
+	void store()
+	{
+		OffHeapPageStore store = new OffHeapPageStore("app1", Bytes.bytes(1024), Bytes.bytes(64));
+
+		IPageContext context = new MockPageContext("session1");
+
+		byte[] data = new byte[150];
+		for (int i = 0; i < data.length; i++)
+		{
+			data[i] = (byte)i;
+		}
+		store.addPage(context, new SerializedPage(1, "type", data));
+		store.addPage(context, new SerializedPage(2, "type", new byte[0]));
+
+		SerializedPage page = (SerializedPage)store.getPage(context, 1);
+		assertEquals("type", page.getPageType());
+		assertArrayEquals(data, page.getData());
+		assertEquals(0, ((SerializedPage)store.getPage(context, 2)).getData().length);
+		assertEquals(150, store.getTotalSize().bytes());
+
+		store.removePage(context, page);
+		assertNull(store.getPage(context, 1));
+		assertEquals(0, store.getTotalSize().bytes());
+
+		store.destroy();
+	}
+
+	/**
+	 * Referenced pages get a second chance on eviction.
+	 */
+	@Test
+	void evictAcrossSessions()
+	{
+		OffHeapPageStore store = new OffHeapPageStore("app1", Bytes.bytes(300), Bytes.bytes(100));
+
+		IPageContext context1 = new MockPageContext("session1");
+		IPageContext context2 = new MockPageContext("session2");
+
+		store.addPage(context1, new SerializedPage(1, "type", new byte[100]));
+		store.addPage(context2, new SerializedPage(1, "type", new byte[100]));
+		store.addPage(context1, new SerializedPage(2, "type", new byte[100]));
+
+		// reference first page
+		assertNotNull(store.getPage(context1, 1));
+
+		store.addPage(context2, new SerializedPage(2, "type", new byte[100]));
+
+		assertNotNull(store.getPage(context1, 1));
+		assertNull(store.getPage(context2, 1));
+		assertNotNull(store.getPage(context1, 2));
+		assertNotNull(store.getPage(context2, 2));
+		assertEquals(300, store.getTotalSize().bytes());
+
+		// too large
+		store.addPage(context1, new SerializedPage(3, "type", new byte[301]));
+		assertNull(store.getPage(context1, 3));
+
+		store.removeAllPages(context1);
+		assertEquals(100, store.getTotalSize().bytes());
+
+		store.destroy();
+	}
+
+	/**
+	 * Replaced and removed pages leave the clock without eviction.
+	 */
+	@Test
+	void freedLeaveClock()
+	{
+		OffHeapPageStore store = new OffHeapPageStore("app1", Bytes.bytes(1024), Bytes.bytes(64));
+
+		IPageContext context1 = new MockPageContext("session1");
+		IPageContext context2 = new MockPageContext("session2");
+
+		for (int i = 0; i < 100; i++)
+		{
+			store.addPage(context1, new SerializedPage(1, "type", new byte[10]));
+			store.addPage(context2, new SerializedPage(i % 3, "type", new byte[10]));
+		}
+		assertEquals(4, store.getClockLength());
+
+		store.removePage(context1, store.getPage(context1, 1));
+		assertEquals(3, store.getClockLength());
+
+		store.removeAllPages(context2);
+		assertEquals(0, store.getClockLength());
+		assertEquals(0, store.getTotalSize().bytes());
+
+		store.destroy();
+	}
+
+	/**
+	 * Blocks of all slabs can be freed.
+	 */
+	@Test
+	void multipleSlabs()
+	{
+		OffHeapPageStore store = new OffHeapPageStore("app1", Bytes.bytes(1024), Bytes.bytes(64),
+			256);
+
+		IPageContext context = new MockPageContext("session1");
+
+		// fill all four slabs
+		for (int i = 0; i < 16; i++)
+		{
+			store.addPage(context, new SerializedPage(i, "type", new byte[64]));
+		}
+		assertEquals(1024, store.getTotalSize().bytes());
+
+		for (int i = 0; i < 16; i++)
+		{
+			store.removePage(context, store.getPage(context, i));
+		}
+		assertEquals(0, store.getTotalSize().bytes());
+
+		// evict across slabs
+		for (int i = 0; i < 32; i++)
+		{
+			store.addPage(context, new SerializedPage(i, "type", new byte[100]));
+		}
+		assertEquals(8 * 100, store.getTotalSize().bytes());
+		assertNotNull(store.getPage(context, 31));
+
+		store.destroy();
+	}
+
+	/**
+	 * Usable as a cache.
+	 */
+	@Test
+	void cache()
+	{
+		MockPageStore delegate = new MockPageStore();
+		OffHeapPageStore cache = new OffHeapPageStore("app1", Bytes.bytes(100), Bytes.bytes(100));
+		CachingPageStore store = new CachingPageStore(delegate, cache);
+
+		IPageContext context = new MockPageContext("session1");
+
+		store.addPage(context, new SerializedPage(1, "type", new byte[100]));
+		store.addPage(context, new SerializedPage(2, "type", new byte[100]));
+
+		assertNull(cache.getPage(context, 1));
+		assertNotNull(cache.getPage(context, 2));
+		assertNotNull(store.getPage(context, 1));
+
+		store.destroy();
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.wicket.mock.MockPageContext;
+import org.apache.wicket.util.WicketTestTag;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link SegmentPageStore}.
+ */
+@Tag(WicketTestTag.SLOW)
+public class SegmentPageStoreTest extends AbstractConcurrentPageStoreTest
+{
+
+	private static final Bytes MAX_SIZE_PER_SESSION = Bytes.megabytes(10);
+
+	/**
+	 * @throws IOException
+	 */
+	@Test
+	void store() throws IOException
+	{
+		File fileStoreFolder = Files.createTempDirectory(null).toFile();
+
+		IPageStore pageStore = new SegmentPageStore("app1", fileStoreFolder, MAX_SIZE_PER_SESSION);
+
+		doTestStore(pageStore);
+
+		pageStore.destroy();
+	}
+
+	/**
+	 * Pages larger than a segment and pages spanning multiple segments.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void rollSegments() throws IOException
+	{
+		File fileStoreFolder = Files.createTempDirectory(null).toFile();
+
+		SegmentPageStore pageStore = new SegmentPageStore("app1", fileStoreFolder,
+			MAX_SIZE_PER_SESSION, Bytes.bytes(100));
+
+		IPageContext context = new MockPageContext("session1");
+
+		byte[] small = new byte[60];
+		small[0] = 1;
+		byte[] large = new byte[250];
+		large[0] = 2;
+
+		pageStore.addPage(context, new SerializedPage(1, "type", small));
+		pageStore.addPage(context, new SerializedPage(2, "type", small));
+		pageStore.addPage(context, new SerializedPage(3, "type", large));
+
+		assertArrayEquals(small, ((SerializedPage)pageStore.getPage(context, 1)).getData());
+		assertArrayEquals(small, ((SerializedPage)pageStore.getPage(context, 2)).getData());
+		assertArrayEquals(large, ((SerializedPage)pageStore.getPage(context, 3)).getData());
+
+		assertEquals(370, pageStore.getTotalSize().bytes());
+
+		pageStore.destroy();
+	}
+
+	/**
+	 * Oldest pages are removed when the maximum size of a session is exceeded.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void maxSizePerSession() throws IOException
+	{
+		File fileStoreFolder = Files.createTempDirectory(null).toFile();
+
+		SegmentPageStore pageStore = new SegmentPageStore("app1", fileStoreFolder,
+			Bytes.bytes(100), Bytes.kilobytes(1));
+
+		IPageContext context = new MockPageContext("session1");
+
+		pageStore.addPage(context, new SerializedPage(1, "type", new byte[40]));
+		pageStore.addPage(context, new SerializedPage(2, "type", new byte[40]));
+		pageStore.addPage(context, new SerializedPage(1, "type", new byte[40]));
+		pageStore.addPage(context, new SerializedPage(3, "type", new byte[40]));
+
+		assertNull(pageStore.getPage(context, 2));
+		assertEquals(2, pageStore.getPersistedPages(pageStore.getSessionIdentifier(context)).size());
+		assertEquals(80, pageStore.getTotalSize().bytes());
+
+		pageStore.removeAllPages(context);
+		assertEquals(0, pageStore.getTotalSize().bytes());
+
+		pageStore.destroy();
+	}
+}
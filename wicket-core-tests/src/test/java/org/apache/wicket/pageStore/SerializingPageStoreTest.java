@@ -16,7 +16,14 @@
  */
 package org.apache.wicket.pageStore;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.wicket.MockPage;
 import org.apache.wicket.mock.MockPageContext;
@@ -49,5 +56,129 @@ public class SerializingPageStoreTest
 		
 		MockPage deserialized = (MockPage)store.getPage(context, 1);
 		assertEquals(1, deserialized.getPageId(), "page was deserialized");
+
+		assertSame(serialized, SerializingPageStore.getSerializedPage(context, original));
+	}
+
+	/**
+	 * A page serialized in the request is not serialized again along with the session, if
+	 * requested.
+	 */
+	@Test
+	void serializedOnce() throws IOException
+	{
+		assertEquals(1, serializeWithSession(true));
+		assertEquals(2, serializeWithSession(false));
+	}
+
+	private int serializeWithSession(boolean retainSerialized) throws IOException
+	{
+		MockPageContext context = new MockPageContext();
+
+		AtomicInteger serializations = new AtomicInteger();
+		JavaSerializer serializer = new JavaSerializer("test")
+		{
+			@Override
+			public byte[] serialize(Object object)
+			{
+				serializations.incrementAndGet();
+				return super.serialize(object);
+			}
+		};
+
+		InSessionPageStore cache = new InSessionPageStore(10, serializer, retainSerialized);
+		IPageStore store = new CachingPageStore(
+			new SerializingPageStore(new MockPageStore(), serializer), cache);
+
+		store.addPage(context, new MockPage(1));
+		store.detach(context);
+
+		try (ObjectOutputStream output = new ObjectOutputStream(new ByteArrayOutputStream()))
+		{
+			output.writeObject(context.getSessionData(cache.getKey(), () -> null));
+		}
+
+		return serializations.get();
+	}
+
+	/**
+	 * Unmodified pages are neither serialized nor stored again, the serialized form of a restored
+	 * page is still available.
+	 */
+	@Test
+	void unmodified()
+	{
+		MockPageContext context = new MockPageContext();
+
+		AtomicInteger serializations = new AtomicInteger();
+		JavaSerializer serializer = new JavaSerializer("test")
+		{
+			@Override
+			public byte[] serialize(Object object)
+			{
+				serializations.incrementAndGet();
+				return super.serialize(object);
+			}
+		};
+
+		MockPageStore mockStore = new MockPageStore();
+		SerializingPageStore store = new SerializingPageStore(mockStore, serializer);
+
+		TrackingPage page = new TrackingPage(1);
+		store.addPage(context, page);
+		SerializedPage stored = (SerializedPage)mockStore.getPage(context, 1);
+		assertEquals(1, serializations.get());
+
+		// live page
+		store.addPage(context, page);
+		assertEquals(1, serializations.get());
+		assertSame(stored, mockStore.getPage(context, 1));
+
+		// restored page
+		MockPageContext context2 = new MockPageContext();
+		TrackingPage restored = (TrackingPage)store.getPage(context2, 1);
+		store.addPage(context2, restored);
+		assertEquals(1, serializations.get());
+		assertSame(stored, mockStore.getPage(context, 1));
+		assertArrayEquals(stored.getData(),
+			SerializingPageStore.getSerializedPage(context2, restored).getData());
+
+		// modified
+		restored.modified = true;
+		store.addPage(context2, restored);
+		assertEquals(2, serializations.get());
+
+		// restored with new id
+		TrackingPage restored2 = (TrackingPage)store.getPage(context2, 1);
+		restored2.setPageId(2);
+		store.addPage(context2, restored2);
+		assertEquals(3, serializations.get());
+
+		assertEquals(3, store.getStoreCount());
+		assertEquals(2, store.getSkipCount());
+	}
+
+	private static class TrackingPage extends MockPage
+	{
+		private static final long serialVersionUID = 1L;
+
+		private transient boolean modified = true;
+
+		TrackingPage(int pageId)
+		{
+			super(pageId);
+		}
+
+		@Override
+		public boolean isPageModified()
+		{
+			return modified;
+		}
+
+		@Override
+		public void onPageStored()
+		{
+			modified = false;
+		}
 	}
 }
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore.disk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.pageStore.disk.PageWindowManager.FileWindow;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link IndexJournal}.
+ */
+public class IndexJournalTest
+{
+	private final Map<String, PageWindowManager> managers = new HashMap<>();
+
+	/**
+	 * Changes are replayed without closing the journal.
+	 */
+	@Test
+	void replay() throws IOException
+	{
+		File file = new File(Files.createTempDirectory(null).toFile(), "journal");
+
+		IndexJournal journal = new IndexJournal(file, 100, () -> managers);
+		journal.open();
+
+		PageWindowManager manager = new PageWindowManager(100);
+		managers.put("session1", manager);
+		createPageWindows(journal, "session1", manager);
+
+		PageWindowManager removed = new PageWindowManager(100);
+		managers.put("session2", removed);
+		createPageWindows(journal, "session2", removed);
+		journal.removeAll("session2");
+
+		// process killed, i.e. not closed
+
+		Map<String, PageWindowManager> replayed = new IndexJournal(file, 100, () -> managers)
+			.open();
+
+		assertEquals(1, replayed.size());
+		assertWindows(manager, replayed.get("session1"));
+	}
+
+	/**
+	 * Incomplete records are ignored and overwritten.
+	 */
+	@Test
+	void incomplete() throws IOException
+	{
+		File file = new File(Files.createTempDirectory(null).toFile(), "journal");
+
+		IndexJournal journal = new IndexJournal(file, 100, () -> managers);
+		journal.open();
+
+		PageWindowManager manager = new PageWindowManager(100);
+		managers.put("session1", manager);
+		createPageWindows(journal, "session1", manager);
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+		{
+			// record cut short
+			raf.setLength(raf.length() - 1);
+		}
+
+		journal = new IndexJournal(file, 100, () -> managers);
+		PageWindowManager recovered = journal.open().get("session1");
+
+		// removal is lost
+		assertNotNull(recovered.getPageWindow(1));
+
+		journal.removePage("session1", recovered, 1);
+		journal.createPageWindow("session1", recovered, 4, null, 20, window -> {
+		});
+		manager.createPageWindow(4, null, 20);
+
+		assertWindows(manager, recovered);
+		assertWindows(manager, new IndexJournal(file, 100, () -> managers).open().get("session1"));
+	}
+
+	/**
+	 * A window is recorded before its data is written, a failed write removes it again.
+	 */
+	@Test
+	void recordBeforeWrite() throws IOException
+	{
+		File file = new File(Files.createTempDirectory(null).toFile(), "journal");
+
+		IndexJournal journal = new IndexJournal(file, 100, () -> managers);
+		journal.open();
+
+		PageWindowManager manager = new PageWindowManager(100);
+		managers.put("session1", manager);
+
+		journal.createPageWindow("session1", manager, 1, "foo", 20, window -> {
+			// process killed while writing
+			PageWindowManager replayed = new IndexJournal(file, 100, () -> managers).open()
+				.get("session1");
+			assertNotNull(replayed.getPageWindow(1));
+		});
+
+		assertThrows(IOException.class,
+			() -> journal.createPageWindow("session1", manager, 2, "foo", 20, window -> {
+				throw new IOException();
+			}));
+		assertNull(manager.getPageWindow(2));
+
+		assertWindows(manager, new IndexJournal(file, 100, () -> managers).open().get("session1"));
+	}
+
+	/**
+	 * Compaction keeps all windows.
+	 */
+	@Test
+	void compact() throws IOException
+	{
+		File file = new File(Files.createTempDirectory(null).toFile(), "journal");
+
+		IndexJournal journal = new IndexJournal(file, 100, () -> managers);
+		journal.open();
+
+		PageWindowManager manager = new PageWindowManager(100);
+		managers.put("session1", manager);
+		createPageWindows(journal, "session1", manager);
+
+		long size = journal.getSize();
+		journal.close();
+		assertTrue(file.length() < size);
+
+		assertWindows(manager, new IndexJournal(file, 100, () -> managers).open().get("session1"));
+	}
+
+	private void createPageWindows(IndexJournal journal, String sessionIdentifier,
+		PageWindowManager manager) throws IOException
+	{
+		for (int i = 0; i < 20; i++)
+		{
+			journal.createPageWindow(sessionIdentifier, manager, i % 4, "foo", 10 + i,
+				window -> {
+				});
+		}
+		journal.removePage(sessionIdentifier, manager, 1);
+	}
+
+	private void assertWindows(PageWindowManager expected, PageWindowManager actual)
+	{
+		List<FileWindow> expectedWindows = expected.getFileWindows();
+		List<FileWindow> actualWindows = actual.getFileWindows();
+
+		assertEquals(expectedWindows.size(), actualWindows.size());
+		for (int w = 0; w < expectedWindows.size(); w++)
+		{
+			assertEquals(expectedWindows.get(w).getPageId(), actualWindows.get(w).getPageId());
+			assertEquals(expectedWindows.get(w).getPageType(), actualWindows.get(w).getPageType());
+			assertEquals(expectedWindows.get(w).getFilePartOffset(),
+				actualWindows.get(w).getFilePartOffset());
+			assertEquals(expectedWindows.get(w).getFilePartSize(),
+				actualWindows.get(w).getFilePartSize());
+		}
+		assertEquals(expected.getTotalSize(), actual.getTotalSize());
+	}
+}
@@ -16,11 +16,22 @@
  */
 package org.apache.wicket.protocol.http;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
 
+import org.apache.wicket.RuntimeConfigurationType;
+import org.apache.wicket.markup.RawMarkup;
+import org.apache.wicket.markup.html.basic.SimplePage;
+import org.apache.wicket.mock.MockApplication;
 import org.apache.wicket.mock.MockWebResponse;
+import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.apache.wicket.response.filter.EmptySrcAttributeCheckFilter;
 import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.util.tester.WicketTestCase;
 import org.junit.jupiter.api.Test;
@@ -34,6 +45,22 @@ public class BufferedWebResponseTest extends WicketTestCase
 		SET_CONTENT_LENGTH, WRITE_RESPONSE, DISABLE_CACHING
 	}
 
+	/**
+	 * Deployment mode, so no response filters are configured by default.
+	 */
+	@Override
+	protected WebApplication newApplication()
+	{
+		return new MockApplication()
+		{
+			@Override
+			public RuntimeConfigurationType getConfigurationType()
+			{
+				return RuntimeConfigurationType.DEPLOYMENT;
+			}
+		};
+	}
+
 	/**
 	 * Asserting that set header actions are invoked before write in response actions.
 	 * 
@@ -74,4 +101,125 @@ public class BufferedWebResponseTest extends WicketTestCase
 		assertEquals(1, actionsSequence.indexOf(TestAction.DISABLE_CACHING));
 		assertEquals(2, actionsSequence.indexOf(TestAction.WRITE_RESPONSE));
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Static markup is written with its pre-encoded bytes.
+	 */
+	@Test
+	void rawMarkupPreEncoded()
+	{
+		RawMarkup markup = new RawMarkup("<p>\u00e4</p>");
+
+		final MockHttpServletResponse containerResponse = new MockHttpServletResponse(null);
+		containerResponse.setCharacterEncoding("UTF-8");
+
+		final List<byte[]> writes = new ArrayList<>();
+		MockWebResponse originalResponse = new MockWebResponse()
+		{
+			@Override
+			public void write(byte[] array)
+			{
+				writes.add(array);
+				super.write(array);
+			}
+
+			@Override
+			public Object getContainerResponse()
+			{
+				return containerResponse;
+			}
+		};
+		BufferedWebResponse response = new BufferedWebResponse(originalResponse);
+		response.write("<div>");
+		response.writeRawMarkup(markup);
+		response.write("\u00f6</div>");
+		assertEquals("<div><p>\u00e4</p>\u00f6</div>", response.getText().toString());
+
+		response.writeTo(originalResponse);
+
+		assertNull(originalResponse.getTextResponse());
+		assertArrayEquals("<div><p>\u00e4</p>\u00f6</div>".getBytes(StandardCharsets.UTF_8),
+			originalResponse.getBinaryResponse());
+		assertEquals(3, writes.size());
+		assertSame(markup.getBytes(StandardCharsets.UTF_8), writes.get(1));
+	}
+
+	/**
+	 * Static markup is encoded with the charset of the container response.
+	 */
+	@Test
+	void rawMarkupPreEncodedCharset()
+	{
+		final MockHttpServletResponse containerResponse = new MockHttpServletResponse(null);
+		containerResponse.setCharacterEncoding("ISO-8859-1");
+
+		MockWebResponse originalResponse = new MockWebResponse()
+		{
+			@Override
+			public Object getContainerResponse()
+			{
+				return containerResponse;
+			}
+		};
+		BufferedWebResponse response = new BufferedWebResponse(originalResponse);
+		response.writeRawMarkup(new RawMarkup("<p>\u00e4</p>"));
+
+		response.writeTo(originalResponse);
+
+		assertArrayEquals("<p>\u00e4</p>".getBytes(StandardCharsets.ISO_8859_1),
+			originalResponse.getBinaryResponse());
+	}
+
+	/**
+	 * Static markup is written as text if the charset of the container response is not known.
+	 */
+	@Test
+	void rawMarkupUnknownCharset()
+	{
+		MockWebResponse originalResponse = new MockWebResponse();
+		BufferedWebResponse response = new BufferedWebResponse(originalResponse);
+		response.writeRawMarkup(new RawMarkup("<p>"));
+		response.write("text</p>");
+
+		response.writeTo(originalResponse);
+
+		assertEquals("<p>text</p>", originalResponse.getTextResponse().toString());
+		assertNull(originalResponse.getBinaryResponse());
+	}
+
+	/**
+	 * Static markup is written as text if response filters have to be applied.
+	 */
+	@Test
+	void rawMarkupFiltered()
+	{
+		tester.getApplication()
+			.getRequestCycleSettings()
+			.addResponseFilter(EmptySrcAttributeCheckFilter.INSTANCE);
+
+		MockWebResponse originalResponse = new MockWebResponse();
+		BufferedWebResponse response = new BufferedWebResponse(originalResponse);
+		response.writeRawMarkup(new RawMarkup("<p>"));
+		response.write("text</p>");
+
+		response.writeTo(originalResponse);
+
+		assertEquals("<p>text</p>", originalResponse.getTextResponse().toString());
+		assertNull(originalResponse.getBinaryResponse());
+	}
+
+	/**
+	 * A page renders the same with pre-encoded static markup.
+	 */
+	@Test
+	void rawMarkupPreEncodedPage()
+	{
+		tester.startPage(SimplePage.class);
+		String expected = tester.getLastResponseAsString();
+
+		tester.getApplication().getMarkupSettings().setRawMarkupPreEncoded(true);
+
+		tester.startPage(SimplePage.class);
+		assertEquals(expected, tester.getLastResponseAsString());
+	}
+}
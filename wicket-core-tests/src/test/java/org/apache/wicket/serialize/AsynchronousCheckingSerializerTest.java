@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.core.util.objects.checker.AbstractObjectChecker;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link AsynchronousCheckingSerializer}.
+ */
+class AsynchronousCheckingSerializerTest
+{
+	/**
+	 * Violations are reported in the background.
+	 */
+	@Test
+	void violation() throws Exception
+	{
+		CountDownLatch latch = new CountDownLatch(1);
+		List<Object> violations = new ArrayList<>();
+
+		AsynchronousCheckingSerializer serializer = new AsynchronousCheckingSerializer(
+			new JavaSerializer("AsynchronousCheckingSerializerTest"), 1d, (object, violation) -> {
+				violations.add(object);
+				latch.countDown();
+			}, AsynchronousCheckingSerializer.DEFAULT_CAPACITY, new InvalidChecker());
+
+		Holder holder = new Holder();
+		holder.invalid = new Invalid();
+		byte[] data = serializer.serialize(holder);
+
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertEquals(1, violations.size());
+		assertTrue(violations.get(0) instanceof Holder);
+
+		assertTrue(serializer.deserialize(data) instanceof Holder);
+	}
+
+	/**
+	 * Objects are not checked if not sampled.
+	 */
+	@Test
+	void notSampled()
+	{
+		AsynchronousCheckingSerializer serializer = new AsynchronousCheckingSerializer(
+			new JavaSerializer("AsynchronousCheckingSerializerTest"), 0d, new InvalidChecker());
+
+		serializer.serialize(new Holder());
+
+		assertEquals(0, serializer.getCheckCount());
+		assertEquals(0, serializer.getDropCount());
+	}
+
+	private static class Holder implements Serializable
+	{
+		private Invalid invalid;
+	}
+
+	private static class Invalid implements Serializable
+	{
+	}
+
+	private static class InvalidChecker extends AbstractObjectChecker
+	{
+		@Override
+		protected Result doCheck(Object object)
+		{
+			if (object instanceof Invalid)
+			{
+				return new Result(Result.Status.FAILURE, "Invalid object found!");
+			}
+			return Result.SUCCESS;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link CompactJavaSerializer}.
+ */
+class CompactJavaSerializerTest extends WicketTestCase
+{
+	/**
+	 * Objects survive a round trip.
+	 */
+	@Test
+	void roundTrip()
+	{
+		CompactJavaSerializer serializer = new CompactJavaSerializer("CompactJavaSerializerTest");
+
+		Map<String, Object> map = new HashMap<>();
+		map.put("values", new ArrayList<>(Arrays.asList(1, 2L, "three")));
+		map.put("bean", new Bean("bean", Kind.ONE, new int[] { 1, 2 }));
+
+		Object deserialized = serializer.deserialize(serializer.serialize(map));
+
+		assertEquals(map, deserialized);
+	}
+
+	/**
+	 * Compact descriptors are smaller than standard ones.
+	 */
+	@Test
+	void smallerThanJavaSerializer()
+	{
+		List<Bean> beans = new ArrayList<>();
+		for (int i = 0; i < 10; i++)
+		{
+			beans.add(new Bean("bean" + i, Kind.TWO, new int[] { i }));
+		}
+
+		byte[] standard = new JavaSerializer("CompactJavaSerializerTest").serialize(beans);
+		byte[] compact = new CompactJavaSerializer("CompactJavaSerializerTest").serialize(beans);
+
+		assertTrue(compact.length < standard.length);
+	}
+
+	/**
+	 * Registered classes have to be registered identically on deserialization.
+	 */
+	@Test
+	void registeredClass()
+	{
+		CompactJavaSerializer serializer = new CompactJavaSerializer("CompactJavaSerializerTest");
+		serializer.getClassRegistry().register(Bean.class, Kind.class);
+
+		Bean bean = new Bean("bean", Kind.ONE, new int[0]);
+		byte[] data = serializer.serialize(bean);
+
+		assertEquals(bean, serializer.deserialize(data));
+
+		CompactJavaSerializer other = new CompactJavaSerializer("CompactJavaSerializerTest");
+		assertThrows(WicketRuntimeException.class, () -> other.deserialize(data));
+	}
+
+	private enum Kind
+	{
+		ONE, TWO
+	}
+
+	private static class Bean implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+
+		private final Kind kind;
+
+		private final int[] values;
+
+		Bean(String name, Kind kind, int[] values)
+		{
+			this.name = name;
+			this.kind = kind;
+			this.values = values;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (obj instanceof Bean)
+			{
+				Bean other = (Bean)obj;
+				return name.equals(other.name) && kind == other.kind &&
+					Arrays.equals(values, other.values);
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return name.hashCode();
+		}
+	}
+}
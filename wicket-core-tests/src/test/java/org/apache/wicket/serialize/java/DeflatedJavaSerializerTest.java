@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link DeflatedJavaSerializer}.
+ */
+class DeflatedJavaSerializerTest extends WicketTestCase
+{
+	/**
+	 * Deflaters are reused for subsequent serializations.
+	 */
+	@Test
+	void reuseDeflater()
+	{
+		List<Deflater> created = new ArrayList<>();
+		DeflatedJavaSerializer serializer = new DeflatedJavaSerializer("DeflatedJavaSerializerTest")
+		{
+			@Override
+			protected Deflater createDeflater()
+			{
+				Deflater deflater = super.createDeflater();
+				created.add(deflater);
+				return deflater;
+			}
+		};
+
+		for (int i = 0; i < 10; i++)
+		{
+			List<String> list = new ArrayList<>();
+			for (int s = 0; s < i * 100; s++)
+			{
+				list.add("string" + s);
+			}
+
+			byte[] data = serializer.serialize(list);
+
+			assertEquals(list, serializer.deserialize(data));
+		}
+
+		assertEquals(1, created.size());
+	}
+}
@@ -18,6 +18,7 @@ package org.apache.wicket.serialize.java;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -187,6 +188,27 @@ class JavaSerializerTest extends WicketTestCase
 		}
 	}
 
+	/**
+	 * Pooled buffers of all size classes are reused without mixing up contents.
+	 */
+	@Test
+	void pooledBuffers()
+	{
+		JavaSerializer serializer = new JavaSerializer("JavaSerializerTest-pooled");
+
+		for (int size : new int[] { 10, 10 * 1024, 2 * 1024 * 1024, 10 * 1024, 10 })
+		{
+			byte[] data = new byte[size];
+			data[size - 1] = (byte)size;
+
+			for (int round = 0; round < 3; round++)
+			{
+				byte[] deserialized = (byte[])serializer.deserialize(serializer.serialize(data));
+				assertArrayEquals(data, deserialized);
+			}
+		}
+	}
+
 	private static class ObjectThatBlowsOnSerialization implements Serializable
 	{
 		private int counter = 0;
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link LZJavaSerializer}.
+ */
+class LZJavaSerializerTest extends WicketTestCase
+{
+	/**
+	 * Repetitive data is compressed across several blocks.
+	 */
+	@Test
+	void compress()
+	{
+		LZJavaSerializer serializer = new LZJavaSerializer("LZJavaSerializerTest");
+
+		List<String> list = new ArrayList<>();
+		for (int s = 0; s < 20000; s++)
+		{
+			list.add("string" + s);
+		}
+
+		byte[] plain = new JavaSerializer("LZJavaSerializerTest").serialize(list);
+		byte[] compressed = serializer.serialize(list);
+
+		assertTrue(compressed.length < plain.length / 2);
+		assertEquals(list, serializer.deserialize(compressed));
+	}
+
+	/**
+	 * Random data is stored uncompressed.
+	 */
+	@Test
+	void incompressible()
+	{
+		LZJavaSerializer serializer = new LZJavaSerializer("LZJavaSerializerTest");
+
+		byte[] data = new byte[200000];
+		new Random(42).nextBytes(data);
+
+		assertArrayEquals(data, (byte[])serializer.deserialize(serializer.serialize(data)));
+	}
+
+	/**
+	 * Blocks with short, long and overlapping matches.
+	 */
+	@Test
+	void block() throws Exception
+	{
+		byte[] raw = new byte[5000];
+		Random random = new Random(42);
+		int i = 0;
+		while (i < raw.length)
+		{
+			int run = random.nextInt(300);
+			if (random.nextBoolean())
+			{
+				byte b = (byte)random.nextInt();
+				for (int r = 0; r < run && i < raw.length; r++)
+				{
+					raw[i++] = b;
+				}
+			}
+			else
+			{
+				for (int r = 0; r < run && i < raw.length; r++)
+				{
+					raw[i] = i > 100 && random.nextInt(4) > 0 ? raw[i - 100] : (byte)random.nextInt();
+					i++;
+				}
+			}
+		}
+
+		byte[] compressed = new byte[raw.length * 2];
+		int length = LZJavaSerializer.compress(raw, raw.length, compressed, new int[1 << 12]);
+		assertTrue(length < raw.length);
+
+		byte[] decompressed = new byte[raw.length];
+		LZJavaSerializer.decompress(compressed, length, decompressed, raw.length);
+		assertArrayEquals(raw, decompressed);
+	}
+}
@@ -18,6 +18,7 @@ package org.apache.wicket.versioning;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.apache.wicket.IPageManagerProvider;
 import org.apache.wicket.Page;
@@ -42,6 +43,8 @@ class PageVersioningTest
 {
 	private WicketTester wicketTester;
 
+	private SerializingPageStore serializing;
+
 	/**
 	 * setup()
 	 */
@@ -62,7 +65,7 @@ class PageVersioningTest
 				return () ->
 				{
 					InMemoryPageStore inMemory = new InMemoryPageStore("test", Integer.MAX_VALUE);
-					SerializingPageStore serializing = new SerializingPageStore(inMemory, new JavaSerializer("test"));
+					serializing = new SerializingPageStore(inMemory, new JavaSerializer("test"));
 					InSessionPageStore session = new InSessionPageStore(Integer.MAX_VALUE);
 					final IPageStore store = new CachingPageStore(serializing, session);
 					return new PageManager(store);
@@ -127,6 +130,26 @@ class PageVersioningTest
 		checkPageVersionsAreStored(versioningPage);
 	}
 
+	/**
+	 * Unmodified pages are not stored again if modifications are tracked.
+	 */
+	@Test
+	void skipUnmodifiedPage()
+	{
+		wicketTester.getApplication().getPageSettings().setTrackPageModifications(true);
+
+		wicketTester.startPage(VersioningTestPage.class);
+		long stored = serializing.getStoreCount();
+		long skipped = serializing.getSkipCount();
+
+		wicketTester.clickLink("noopLink");
+		assertEquals(stored, serializing.getStoreCount());
+		assertTrue(serializing.getSkipCount() > skipped);
+
+		wicketTester.clickLink("changeVisibilityStateLink");
+		assertEquals(stored + 1, serializing.getStoreCount());
+	}
+
 	/**
 	 * Asserts that there is a version of the page for each operation that modified the page
 	 * 
@@ -3318,7 +3318,13 @@ public abstract class Component
 
 		PageAndComponentProvider provider = new PageAndComponentProvider(page, this, parameters);
 
-		if (page.isPageStateless()
+		boolean stateless = page.isPageStateless();
+		if (stateless == false)
+		{
+			registerReadOnlyListener(page, id);
+		}
+
+		if (stateless
 			|| (page.isBookmarkable() && page.wasCreatedBookmarkable()))
 		{
 			return new BookmarkableListenerRequestHandler(provider, id);
@@ -3329,6 +3335,21 @@ public abstract class Component
 		}
 	}
 
+	/**
+	 * Register the listener with the given behavior id if it is read-only.
+	 * 
+	 * @see IRequestListener#isReadOnly()
+	 */
+	private void registerReadOnlyListener(Page page, Integer id)
+	{
+		Object listener = id == null ? this : getBehaviorById(id);
+		if (listener instanceof IRequestListener && ((IRequestListener)listener).isReadOnly())
+		{
+			getSession().getPageAccessSynchronizer()
+				.addReadOnlyListener(page.getPageId(), getPageRelativePath(), id);
+		}
+	}
+
 	/**
 	 * Returns a URL that references the given request target.
 	 * 
@@ -23,14 +23,20 @@ import org.apache.wicket.page.PageManager;
 import org.apache.wicket.pageStore.AsynchronousPageStore;
 import org.apache.wicket.pageStore.CachingPageStore;
 import org.apache.wicket.pageStore.CryptingPageStore;
+import org.apache.wicket.pageStore.CryptingSerializingPageStore;
+import org.apache.wicket.pageStore.DeltaPageStore;
 import org.apache.wicket.pageStore.DiskPageStore;
 import org.apache.wicket.pageStore.FilePageStore;
 import org.apache.wicket.pageStore.GroupingPageStore;
 import org.apache.wicket.pageStore.IPageStore;
+import org.apache.wicket.pageStore.IPageStoreMetrics;
 import org.apache.wicket.pageStore.InMemoryPageStore;
 import org.apache.wicket.pageStore.InSessionPageStore;
+import org.apache.wicket.pageStore.MetricsPageStore;
 import org.apache.wicket.pageStore.NoopPageStore;
+import org.apache.wicket.pageStore.OffHeapPageStore;
 import org.apache.wicket.pageStore.RequestPageStore;
+import org.apache.wicket.pageStore.SegmentPageStore;
 import org.apache.wicket.pageStore.SerializedPage;
 import org.apache.wicket.pageStore.SerializingPageStore;
 import org.apache.wicket.serialize.ISerializer;
@@ -46,10 +52,16 @@ import org.apache.wicket.util.lang.Bytes;
  * <li>{@link CachingPageStore} caching with an ...</li>
  * <li>{@link InSessionPageStore} keeping the last accessed page in the session</li>
  * <li>{@link SerializingPageStore} serializing all pages (so they are available for back-button)</li>
+ * <li>{@link InSessionPageStore} keeping pages in the session, spilling to the following stores (disabled by default in {@link StoreSettings#getMaxSizeInSession()})</li>
  * <li>{@link AsynchronousPageStore} moving storage of pages to an asynchronous worker thread (enabled by default with {@link StoreSettings#isAsynchronous()})</li>
+ * <li>{@link DeltaPageStore} storing deltas against a base version of pages (disabled by default in {@link StoreSettings#getMaxDeltas()})</li>
  * <li>{@link CryptingPageStore} encrypting all pages (disabled by default in {@link StoreSettings#isEncrypted()})</li>
  * <li>{@link DiskPageStore} persisting all pages, configured according to {@link StoreSettings}</li>
  * </ol>
+ * With {@link StoreSettings#isSegmented()} a {@link SegmentPageStore} is used instead of the {@link DiskPageStore}.
+ * If pages are encrypted, but neither stored asynchronously nor as deltas, a {@link CryptingSerializingPageStore}
+ * serializes and encrypts them in a single pass instead.
+ * <p>
  * An alternative chain with all pages held in-memory could be:
  * <ol>
  * <li>{@link RequestPageStore} keeping pages until end of the request</li>
@@ -77,6 +89,8 @@ import org.apache.wicket.util.lang.Bytes;
  * <li>{@link NoopPageStore} discards all pages</li>
  * <li>{@link GroupingPageStore} groups pages, e.g. to limit storage size on a per-group basis</li>
  * <li>{@link FilePageStore} as an alternative to the trusted {@link DiskPageStore}</li>
+ * <li>{@link OffHeapPageStore} as a cache of serialized pages outside of the heap</li>
+ * <li>{@link MetricsPageStore} measuring operations of the following store</li>
  * <li>other implementations from <a href="https://github.com/wicketstuff/core/tree/master/datastores-parent">wicketstuff-datastores</a></li>
  * </ul>
  */
@@ -99,17 +113,31 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 	public IPageManager get()
 	{
 		IPageStore store = newPersistentStore();
+
+		store = newMetricsStore(store);
 		
 		store = newCryptingStore(store);
 
+		store = newDeltaStore(store);
+
+		store = newInSessionStore(store);
+
 		store = newAsynchronousStore(store);
 		
 		store = newSerializingStore(store);
 
+		store = newMetricsStore(store);
+
 		store = newCachingStore(store);
 
 		store = newRequestStore(store);
 
+		IPageStoreMetrics metrics = application.getStoreSettings().getMetrics();
+		if (metrics != null)
+		{
+			metrics.register(store);
+		}
+
 		return new PageManager(store);
 	}
 
@@ -150,8 +178,38 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 		return new CachingPageStore(pageStore, new InSessionCache());
 	}
 
+	/**
+	 * Keep pages in the session, if enabled in {@link StoreSettings#getMaxSizeInSession()}.
+	 * <p>
+	 * Pages exceeding the size per session or {@link StoreSettings#getMaxTotalSizeInSessions()}
+	 * are spilled to the persistent store. The store is registered as session listener, so its
+	 * budget is released when a session is unbound.
+	 * 
+	 * @see InSessionPageStore#InSessionPageStore(Bytes, Bytes, IPageStore)
+	 */
+	protected IPageStore newInSessionStore(IPageStore pageStore)
+	{
+		StoreSettings storeSettings = application.getStoreSettings();
+
+		Bytes maxSizeInSession = storeSettings.getMaxSizeInSession();
+		if (maxSizeInSession != null)
+		{
+			Bytes maxTotalSize = storeSettings.getMaxTotalSizeInSessions();
+			InSessionPageStore inSessionStore = new InSessionPageStore(maxSizeInSession,
+				maxTotalSize == null ? Bytes.MAX : maxTotalSize, pageStore);
+			application.getSessionListeners().add(inSessionStore);
+
+			pageStore = inSessionStore;
+		}
+
+		return pageStore;
+	}
+
 	/**
 	 * Store pages asynchronously into the persistent store, if enabled in {@link StoreSettings#isAsynchronous()}.
+	 * <p>
+	 * Not used if pages are kept in the session by {@link #newInSessionStore(IPageStore)}, since
+	 * these are added to the session in the request anyway.
 	 * 
 	 * @see AsynchronousPageStore
 	 */
@@ -159,10 +217,32 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 	{
 		StoreSettings storeSettings = application.getStoreSettings();
 
-		if (storeSettings.isAsynchronous())
+		if (storeSettings.isAsynchronous() && storeSettings.getMaxSizeInSession() == null)
 		{
 			int capacity = storeSettings.getAsynchronousQueueCapacity();
-			pageStore = new AsynchronousPageStore(pageStore, capacity);
+			int threads = storeSettings.getAsynchronousThreads();
+			boolean virtual = storeSettings.isAsynchronousVirtualThreads();
+			pageStore = new AsynchronousPageStore(pageStore, capacity, threads, virtual);
+		}
+
+		return pageStore;
+	}
+
+	/**
+	 * Measure operations of a store, if enabled in {@link StoreSettings#getMetrics()}.
+	 * <p>
+	 * By default the persistent store and the serializing store are measured, so the time spent
+	 * for I/O can be told from the time spent for serialization.
+	 * 
+	 * @see MetricsPageStore
+	 */
+	protected IPageStore newMetricsStore(IPageStore pageStore)
+	{
+		IPageStoreMetrics metrics = application.getStoreSettings().getMetrics();
+
+		if (metrics != null)
+		{
+			pageStore = new MetricsPageStore(pageStore, metrics);
 		}
 
 		return pageStore;
@@ -175,9 +255,36 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 	 */
 	protected IPageStore newSerializingStore(IPageStore pageStore)
 	{
+		if (isSinglePassEncryption())
+		{
+			return new CryptingSerializingPageStore(pageStore, getSerializer(), application);
+		}
+
 		return new SerializingPageStore(pageStore, getSerializer());
 	}
 
+	/**
+	 * Store deltas of pages, if enabled in {@link StoreSettings#getMaxDeltas()}.
+	 * <p>
+	 * Bases are stored again after half of {@link StoreSettings#getMaxSizePerSession()}.
+	 * 
+	 * @see DeltaPageStore
+	 */
+	protected IPageStore newDeltaStore(IPageStore pageStore)
+	{
+		StoreSettings storeSettings = application.getStoreSettings();
+
+		if (storeSettings.getMaxDeltas() > 0)
+		{
+			Bytes restoreAfter = Bytes.bytes(storeSettings.getMaxSizePerSession().bytes() / 2);
+
+			pageStore = new DeltaPageStore(pageStore, storeSettings.getMaxDeltas(), restoreAfter,
+				Bytes.megabytes(10));
+		}
+
+		return pageStore;
+	}
+
 	/**
 	 * Crypt all pages, if enabled in {@link StoreSettings#isEncrypted()}.
 	 * 
@@ -187,7 +294,7 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 	{
 		StoreSettings storeSettings = application.getStoreSettings();
 		
-		if (storeSettings.isEncrypted())
+		if (storeSettings.isEncrypted() && isSinglePassEncryption() == false)
 		{
 			pageStore = new CryptingPageStore(pageStore, application);
 		}
@@ -195,12 +302,28 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 		return pageStore;
 	}
 
+	/**
+	 * Whether pages are encrypted while being serialized, see {@link CryptingSerializingPageStore}.
+	 * <p>
+	 * This is the case if encryption is enabled, but neither deltas (which need plain serialized
+	 * pages) nor asynchronous storing (which keeps encryption off the request thread).
+	 */
+	private boolean isSinglePassEncryption()
+	{
+		StoreSettings storeSettings = application.getStoreSettings();
+
+		return storeSettings.isEncrypted() && storeSettings.getMaxDeltas() == 0 &&
+			storeSettings.isAsynchronous() == false;
+	}
+
 	/**
 	 * Keep persistent copies of all pages on disk.
 	 * 
 	 * @see DiskPageStore
+	 * @see SegmentPageStore
 	 * @see StoreSettings#getMaxSizePerSession()
 	 * @see StoreSettings#getFileStoreFolder()
+	 * @see StoreSettings#isSegmented()
 	 */
 	protected IPageStore newPersistentStore()
 	{
@@ -208,6 +331,11 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 		Bytes maxSizePerSession = storeSettings.getMaxSizePerSession();
 		File fileStoreFolder = storeSettings.getFileStoreFolder();
 
+		if (storeSettings.isSegmented())
+		{
+			return new SegmentPageStore(application.getName(), fileStoreFolder, maxSizePerSession);
+		}
+
 		return new DiskPageStore(application.getName(), fileStoreFolder, maxSizePerSession);
 	}
 	
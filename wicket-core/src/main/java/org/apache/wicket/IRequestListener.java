@@ -39,6 +39,24 @@ public interface IRequestListener extends IClusterable
 		return true;
 	}
 	
+	/**
+	 * Does invocation of this listener only read the state of the page.
+	 * <p>
+	 * Read-only listeners lock their page shared only and never store it: any change of a
+	 * read-only listener to its page, e.g. by rendering components, is lost. If the
+	 * {@link org.apache.wicket.page.IPageLockManager#isSharingLocks() lock manager shares locks}
+	 * with other read-only requests, each of these requests works on a private copy of the page.
+	 * Non-Ajax requests to listeners which {@link #rendersPage() render the page} are never
+	 * processed read-only, neither are requests whose page is resolved by bookmarkable URLs.
+	 * 
+	 * @return default {@code false}
+	 * @see org.apache.wicket.page.IPageLockManager#lockPageShared(int)
+	 */
+	default boolean isReadOnly()
+	{
+		return false;
+	}
+
 	/**
 	 * Called when a request is received.
 	 */
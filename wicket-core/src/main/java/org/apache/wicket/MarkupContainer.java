@@ -44,6 +44,7 @@ import org.apache.wicket.markup.MarkupFactory;
 import org.apache.wicket.markup.MarkupNotFoundException;
 import org.apache.wicket.markup.MarkupStream;
 import org.apache.wicket.markup.MarkupType;
+import org.apache.wicket.markup.RawMarkup;
 import org.apache.wicket.markup.WicketTag;
 import org.apache.wicket.markup.html.border.Border;
 import org.apache.wicket.markup.html.form.AutoLabelResolver;
@@ -51,6 +52,8 @@ import org.apache.wicket.markup.resolver.ComponentResolvers;
 import org.apache.wicket.model.IComponentInheritedModel;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.IWrapModel;
+import org.apache.wicket.protocol.http.BufferedWebResponse;
+import org.apache.wicket.request.Response;
 import org.apache.wicket.settings.DebugSettings;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Classes;
@@ -1465,7 +1468,16 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 			// Render as raw markup
 			if (canRenderRawTag(element))
 			{
-				getResponse().write(element.toCharSequence());
+				Response response = getResponse();
+				if (element instanceof RawMarkup && response instanceof BufferedWebResponse &&
+					getApplication().getMarkupSettings().isRawMarkupPreEncoded())
+				{
+					((BufferedWebResponse)response).writeRawMarkup((RawMarkup)element);
+				}
+				else
+				{
+					response.write(element.toCharSequence());
+				}
 			}
 			return true;
 		}
@@ -37,6 +37,7 @@ import org.apache.wicket.request.component.IRequestablePage;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.settings.DebugSettings;
+import org.apache.wicket.settings.PageSettings;
 import org.apache.wicket.util.lang.Classes;
 import org.apache.wicket.util.lang.Generics;
 import org.apache.wicket.util.string.StringValue;
@@ -99,6 +100,12 @@ public abstract class Page extends MarkupContainer
 	/** Flag that indicates if the page was created using one of its bookmarkable constructors */
 	private static final int FLAG_WAS_CREATED_BOOKMARKABLE = FLAG_RESERVED8;
 
+	/**
+	 * True if the page was modified since it was last stored, <code>false</code> after
+	 * deserialization.
+	 */
+	private transient boolean modified = true;
+
 	/** Log. */
 	private static final Logger log = LoggerFactory.getLogger(Page.class);
 
@@ -246,6 +253,9 @@ public abstract class Page extends MarkupContainer
 	 */
 	public final void dirty()
 	{
+		// mark modified even if a subclass prevents dirtying, e.g. in Ajax requests
+		modified = true;
+
 		dirty(false);
 	}
 
@@ -257,6 +267,24 @@ public abstract class Page extends MarkupContainer
 		return frozen;
 	}
 
+	/**
+	 * Modifications are tracked only if enabled in the application's settings, otherwise the page
+	 * is always considered modified.
+	 * 
+	 * @see PageSettings#setTrackPageModifications(boolean)
+	 */
+	@Override
+	public boolean isPageModified()
+	{
+		return modified || getApplication().getPageSettings().getTrackPageModifications() == false;
+	}
+
+	@Override
+	public final void onPageStored()
+	{
+		modified = false;
+	}
+
 	/**
 	 * Mark this page as modified in the session. If versioning is supported then a new version of
 	 * the page will be stored in {@link IPageStore page store}
@@ -268,6 +296,8 @@ public abstract class Page extends MarkupContainer
 	{
 		checkHierarchyChange(this);
 
+		modified = true;
+
 		if (getFlag(FLAG_PREVENT_DIRTY))
 		{
 			return;
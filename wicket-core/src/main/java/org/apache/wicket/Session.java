@@ -997,6 +997,17 @@ public abstract class Session implements IClusterable, IEventSink, IMetadataCont
 		return pageAccessSynchronizer.get().adapt(manager);
 	}
 
+	/**
+	 * Returns the {@link PageAccessSynchronizer} used to synchronize access to pages of this
+	 * session.
+	 * 
+	 * @return synchronizer
+	 */
+	public final PageAccessSynchronizer getPageAccessSynchronizer()
+	{
+		return pageAccessSynchronizer.get();
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void onEvent(IEvent<?> event)
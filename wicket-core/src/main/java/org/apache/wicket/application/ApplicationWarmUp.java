@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.IApplicationListener;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.core.request.mapper.MountedMapper;
+import org.apache.wicket.core.request.mapper.ResourceMapper;
+import org.apache.wicket.core.util.resource.locator.IResourceNameIterator;
+import org.apache.wicket.core.util.resource.locator.IResourceStreamLocator;
+import org.apache.wicket.markup.MarkupType;
+import org.apache.wicket.mock.MockWebRequest;
+import org.apache.wicket.protocol.http.BufferedWebResponse;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.mapper.ICompoundRequestMapper;
+import org.apache.wicket.request.mapper.IRequestMapperDelegate;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.request.resource.ClassScanner;
+import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.request.resource.caching.IStaticCacheableResource;
+import org.apache.wicket.request.resource.caching.ResourceUrl;
+import org.apache.wicket.resource.IPropertiesFactory;
+import org.apache.wicket.settings.ResourceSettings;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Warms up caches of an application on startup, so the first requests after a deployment do not
+ * have to fill them one after another.
+ * <p>
+ * The home page and the pages of all {@link MountedMapper}s are collected, plus any component
+ * class added explicitly (e.g. panels). For each class and its superclasses the markup is located
+ * and the properties are loaded. All {@link ResourceReference}s held in static fields of these
+ * classes or mounted by {@link ResourceMapper}s are resolved and their version is calculated.
+ * <p>
+ * The work is done in parallel, on threads bound to the application and a temporary session
+ * (which is never stored). Failures are logged only, warm-up never prevents an application from
+ * starting.
+ * <p>
+ * Warm-up is opt-in, register it in {@link Application#init()}:
+ * 
+ * <pre>
+ * getApplicationListeners().add(new ApplicationWarmUp());
+ * </pre>
+ * 
+ * Note that pages and components are not instantiated, thus markup of classes providing their
+ * markup dynamically is not located.
+ */
+public class ApplicationWarmUp implements IApplicationListener
+{
+	private static final Logger log = LoggerFactory.getLogger(ApplicationWarmUp.class);
+
+	private final int parallelism;
+
+	private final Set<Class<?>> classes = ConcurrentHashMap.newKeySet();
+
+	private final Set<ResourceReference> references = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Warm up with one thread per available processor.
+	 */
+	public ApplicationWarmUp()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Warm up with the given count of threads.
+	 * 
+	 * @param parallelism
+	 *            count of threads
+	 */
+	public ApplicationWarmUp(int parallelism)
+	{
+		this.parallelism = Args.withinRange(1, 256, parallelism, "parallelism");
+	}
+
+	/**
+	 * Add a class to warm up, e.g. a panel not reachable from mounted pages.
+	 * 
+	 * @param clazz
+	 *            class of a component
+	 * @return {@code this} object for chaining
+	 */
+	public ApplicationWarmUp add(Class<?> clazz)
+	{
+		classes.add(Args.notNull(clazz, "clazz"));
+		return this;
+	}
+
+	/**
+	 * Add a resource reference to warm up.
+	 * 
+	 * @param reference
+	 *            resource reference
+	 * @return {@code this} object for chaining
+	 */
+	public ApplicationWarmUp add(ResourceReference reference)
+	{
+		references.add(Args.notNull(reference, "reference"));
+		return this;
+	}
+
+	@Override
+	public void onAfterInitialized(Application application)
+	{
+		warmUp(application);
+	}
+
+	/**
+	 * Warm up the given application, blocking until finished.
+	 * 
+	 * @param application
+	 *            the application
+	 */
+	public void warmUp(final Application application)
+	{
+		long start = System.currentTimeMillis();
+
+		Set<Class<?>> warmUpClasses = ConcurrentHashMap.newKeySet();
+		Set<ResourceReference> warmUpReferences = ConcurrentHashMap.newKeySet();
+		collect(application, warmUpClasses, warmUpReferences);
+
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+		int failures = 0;
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try
+		{
+			List<ForkJoinTask<Boolean>> tasks = new ArrayList<>();
+			for (Class<?> clazz : warmUpClasses)
+			{
+				tasks.add(pool.submit(
+					() -> inThreadContext(application, classLoader, clazz, () -> warmUp(clazz))));
+			}
+			for (ResourceReference reference : warmUpReferences)
+			{
+				tasks.add(pool.submit(() -> inThreadContext(application, classLoader, reference,
+					() -> warmUp(reference))));
+			}
+
+			for (ForkJoinTask<Boolean> task : tasks)
+			{
+				if (task.join() == false)
+				{
+					failures++;
+				}
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+
+		log.info("Warmed up {} classes and {} resources of application '{}' in {} ms, {} failed",
+			warmUpClasses.size(), warmUpReferences.size(), application.getName(),
+			System.currentTimeMillis() - start, failures);
+	}
+
+	/**
+	 * Collect classes and resource references to warm up.
+	 * 
+	 * @param application
+	 *            the application
+	 * @param classes
+	 *            collected classes
+	 * @param references
+	 *            collected resource references
+	 */
+	protected void collect(final Application application, final Set<Class<?>> classes,
+		final Set<ResourceReference> references)
+	{
+		classes.addAll(this.classes);
+		references.addAll(this.references);
+
+		classes.add(application.getHomePage());
+
+		collect(application.getRootRequestMapper(), classes, references);
+
+		ClassScanner scanner = new ClassScanner()
+		{
+			@Override
+			protected boolean foundResourceReference(ResourceReference reference)
+			{
+				return references.add(reference);
+			}
+		};
+		for (Class<?> clazz : classes)
+		{
+			scanner.scanClass(clazz);
+		}
+	}
+
+	private void collect(IRequestMapper mapper, final Set<Class<?>> classes,
+		final Set<ResourceReference> references)
+	{
+		while (mapper instanceof IRequestMapperDelegate)
+		{
+			mapper = ((IRequestMapperDelegate)mapper).getDelegateMapper();
+		}
+
+		if (mapper instanceof ICompoundRequestMapper)
+		{
+			for (IRequestMapper child : (ICompoundRequestMapper)mapper)
+			{
+				collect(child, classes, references);
+			}
+		}
+		else if (mapper instanceof MountedMapper)
+		{
+			classes.add(((MountedMapper)mapper).getPageClass());
+		}
+		else if (mapper instanceof ResourceMapper)
+		{
+			references.add(((ResourceMapper)mapper).getResourceReference());
+		}
+	}
+
+	/**
+	 * Warm up a class: locate its markup and load its properties, including those of its
+	 * superclasses.
+	 * 
+	 * @param clazz
+	 *            class to warm up
+	 */
+	protected void warmUp(final Class<?> clazz)
+	{
+		ResourceSettings settings = Application.get().getResourceSettings();
+		IResourceStreamLocator locator = settings.getResourceStreamLocator();
+		IPropertiesFactory propertiesFactory = settings.getPropertiesFactory();
+
+		Locale locale = Session.get().getLocale();
+		String style = Session.get().getStyle();
+		String extension = MarkupType.HTML_MARKUP_TYPE.getExtension();
+
+		Class<?> current = clazz;
+		while (current != null && current != Object.class)
+		{
+			String path = current.getName().replace('.', '/');
+
+			if (MarkupContainer.class.isAssignableFrom(current) &&
+				current != MarkupContainer.class)
+			{
+				locator.locate(current, path, style, null, locale, extension, false);
+			}
+
+			IResourceNameIterator iter = locator.newResourceNameIterator(path, locale, style,
+				null, null, false);
+			while (iter.hasNext())
+			{
+				propertiesFactory.load(current, iter.next());
+			}
+
+			current = current.getSuperclass();
+		}
+	}
+
+	/**
+	 * Warm up a resource reference: resolve its resource and calculate its version.
+	 * 
+	 * @param reference
+	 *            resource reference to warm up
+	 */
+	protected void warmUp(final ResourceReference reference)
+	{
+		IResource resource = reference.getResource();
+		if (resource instanceof IStaticCacheableResource)
+		{
+			IStaticCacheableResource cacheable = (IStaticCacheableResource)resource;
+			if (cacheable.isCachingEnabled())
+			{
+				Application.get()
+					.getResourceSettings()
+					.getCachingStrategy()
+					.decorateUrl(new ResourceUrl(reference.getName(), new PageParameters()),
+						cacheable);
+			}
+		}
+	}
+
+	/**
+	 * Run a warm up task on a thread bound to the application, a temporary request cycle and a
+	 * temporary session.
+	 * 
+	 * @return <code>false</code> if the task failed
+	 */
+	private boolean inThreadContext(final Application application, final ClassLoader classLoader,
+		final Object item, final Runnable runnable)
+	{
+		Thread thread = Thread.currentThread();
+		ClassLoader oldClassLoader = thread.getContextClassLoader();
+		ThreadContext oldContext = ThreadContext.detach();
+		try
+		{
+			thread.setContextClassLoader(classLoader);
+			ThreadContext.setApplication(application);
+
+			Request request = new MockWebRequest(Url.parse("/"));
+			Response response = new BufferedWebResponse(null);
+			ThreadContext.setRequestCycle(application.createRequestCycle(request, response));
+			ThreadContext.setSession(application.newSession(request, response));
+
+			runnable.run();
+
+			return true;
+		}
+		catch (RuntimeException e)
+		{
+			log.warn("Failed to warm up {}", item, e);
+
+			return false;
+		}
+		finally
+		{
+			ThreadContext.restore(oldContext);
+			thread.setContextClassLoader(oldClassLoader);
+		}
+	}
+}
@@ -19,6 +19,7 @@ package org.apache.wicket.core.request.handler;
 import org.apache.wicket.Component;
 import org.apache.wicket.IRequestListener;
 import org.apache.wicket.Page;
+import org.apache.wicket.Session;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.behavior.Behavior;
 import org.apache.wicket.core.request.handler.RenderPageRequestHandler.RedirectPolicy;
@@ -130,6 +131,29 @@ public class ListenerRequestHandler
 		pageComponentProvider.detach();
 	}
 
+	/**
+	 * Was the listener registered as read-only when its URL was generated, see
+	 * {@link IRequestListener#isReadOnly()}.
+	 * <p>
+	 * This is verified once more before the listener is invoked.
+	 *
+	 * @return <code>true</code> if the listener is expected to be read-only
+	 */
+	public boolean isReadOnly()
+	{
+		Integer pageId = getPageId();
+		if (pageId == null || pageComponentProvider instanceof PageAndComponentProvider == false ||
+			((PageAndComponentProvider)pageComponentProvider).isProvided())
+		{
+			// a page instance is already at hand
+			return false;
+		}
+
+		return Session.get()
+			.getPageAccessSynchronizer()
+			.isReadOnlyListener(pageId, getComponentPath(), behaviorId);
+	}
+
 	/**
 	 * Index of target behavior or <code>null</code> if component is the target.
 	 *
@@ -142,6 +166,20 @@ public class ListenerRequestHandler
 
 	@Override
 	public void respond(final IRequestCycle requestCycle)
+	{
+		final boolean readOnly = isReadOnly();
+		if (readOnly == false)
+		{
+			respond(requestCycle, false);
+			return;
+		}
+
+		Session.get().getPageAccessSynchronizer().beginReadOnly(getPageId());
+
+		respond(requestCycle, true);
+	}
+
+	private void respond(final IRequestCycle requestCycle, final boolean readOnly)
 	{
 		final IRequestablePage page = getPage();
 		final boolean freshPage = pageComponentProvider.doesProvideNewPage();
@@ -167,6 +205,16 @@ public class ListenerRequestHandler
 					+ "' has been removed from page.");
 		}
 
+		if (readOnly && component != null && isReadOnlyListener(component, isAjax) == false)
+		{
+			// not read-only after all, drop any copy and retrieve the page once again
+			Session.get().getPageAccessSynchronizer().endReadOnly(getPageId());
+			((PageAndComponentProvider)pageComponentProvider).forget();
+
+			respond(requestCycle, false);
+			return;
+		}
+
 		RedirectPolicy policy = page.isPageStateless()
 			? RedirectPolicy.NEVER_REDIRECT
 			: RedirectPolicy.AUTO_REDIRECT;
@@ -223,6 +271,33 @@ public class ListenerRequestHandler
 		}
 	}
 	
+	/**
+	 * Is the listener of the component read-only, without rendering the page afterwards.
+	 */
+	private boolean isReadOnlyListener(IRequestableComponent component, boolean ajax)
+	{
+		Object target = component;
+		if (behaviorId != null)
+		{
+			try
+			{
+				target = component.getBehaviorById(behaviorId);
+			}
+			catch (IndexOutOfBoundsException e)
+			{
+				return false;
+			}
+		}
+
+		if (target instanceof IRequestListener == false)
+		{
+			return false;
+		}
+		IRequestListener listener = (IRequestListener)target;
+
+		return listener.isReadOnly() && (ajax || listener.rendersPage() == false);
+	}
+
 	/**
 	 * Invokes a given interface on a component.
 	 * 
@@ -190,6 +190,20 @@ public class PageAndComponentProvider extends PageProvider implements IPageAndCo
 		return component;
 	}
 
+	/**
+	 * Detaches the page and forgets the component if it was resolved by its path, so both are
+	 * resolved again on further access.
+	 */
+	void forget()
+	{
+		detach();
+
+		if (componentPath != null)
+		{
+			component = null;
+		}
+	}
+
 	/**
 	 * @see org.apache.wicket.core.request.handler.IPageAndComponentProvider#getComponentPath()
 	 */
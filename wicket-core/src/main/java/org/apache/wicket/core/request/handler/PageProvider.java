@@ -228,6 +228,17 @@ public class PageProvider implements IPageProvider, IClusterable
 		return getProvision().doesProvideNewPage();
 	}
 
+	/**
+	 * Has a page already been provided, i.e. is {@link #getPageInstance()} guaranteed not to
+	 * resolve a page.
+	 * 
+	 * @return <code>true</code> if provided
+	 */
+	final boolean isProvided()
+	{
+		return provision != null;
+	}
+
 	@Override
 	public boolean wasExpired()
 	{
@@ -257,7 +257,10 @@ public class MountedMapper extends AbstractBookmarkableMapper
 		return Objects.equals(pageClass, this.getPageClass());
 	}
 
-	private Class<? extends IRequestablePage> getPageClass()
+	/**
+	 * @return the class of the mounted page
+	 */
+	public Class<? extends IRequestablePage> getPageClass()
 	{
 		return pageClassProvider.get();
 	}
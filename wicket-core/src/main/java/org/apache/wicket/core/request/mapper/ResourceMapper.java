@@ -245,6 +245,14 @@ public class ResourceMapper extends AbstractBookmarkableMapper
 		return encodePageParameters(url, parameters, parametersEncoder);
 	}
 
+	/**
+	 * @return the resource reference linked to the mount path
+	 */
+	public ResourceReference getResourceReference()
+	{
+		return resourceReference;
+	}
+
 	protected IResourceCachingStrategy getCachingStrategy()
 	{
 		return Application.get().getResourceSettings().getCachingStrategy();
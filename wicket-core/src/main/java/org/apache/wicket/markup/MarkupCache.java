@@ -98,7 +98,7 @@ public class MarkupCache implements IMarkupCache
 			throw new WicketRuntimeException("The map used to cache markup must not be null");
 		}
 
-		markupKeyCache = newCacheImplementation();
+		markupKeyCache = newKeyCacheImplementation();
 	}
 
 	@Override
@@ -567,16 +567,79 @@ public class MarkupCache implements IMarkupCache
 	/**
 	 * Allows you to change the map implementation which will hold the cache data. By default it is
 	 * a ConcurrentHashMap() in order to allow multiple thread to access the data in a secure way.
+	 * If a {@link org.apache.wicket.settings.MarkupSettings#getMarkupCacheCapacity() capacity} is
+	 * configured, a {@link SegmentedLruCache} weighted by {@link #getWeight(Object)} is used
+	 * instead.
 	 * 
 	 * @param <K>
 	 * @param <V>
 	 * @return new instance of cache implementation
+	 * @see #newKeyCacheImplementation()
 	 */
 	protected <K, V> ICache<K, V> newCacheImplementation()
 	{
+		long capacity = application.getMarkupSettings().getMarkupCacheCapacity();
+		if (capacity > 0)
+		{
+			return new SegmentedLruCache<K, V>(capacity, MarkupCache::getWeight);
+		}
+		return new DefaultCacheImplementation<K, V>();
+	}
+
+	/**
+	 * Create the cache mapping markup cache keys to locations of markup. By default it is a
+	 * ConcurrentHashMap(). If a
+	 * {@link org.apache.wicket.settings.MarkupSettings#getMarkupKeyCacheCapacity() capacity} is
+	 * configured, a {@link SegmentedLruCache} bounded by the count of keys is used instead.
+	 * 
+	 * @param <K>
+	 * @param <V>
+	 * @return new instance of cache implementation
+	 * @see #newCacheImplementation()
+	 */
+	protected <K, V> ICache<K, V> newKeyCacheImplementation()
+	{
+		long capacity = application.getMarkupSettings().getMarkupKeyCacheCapacity();
+		if (capacity > 0)
+		{
+			return new SegmentedLruCache<K, V>(capacity, value -> 1);
+		}
 		return new DefaultCacheImplementation<K, V>();
 	}
 
+	/**
+	 * Get the weight of a cached value, i.e. the count of markup characters.
+	 * 
+	 * @param value
+	 *            cached markup
+	 * @return weight, at least one
+	 */
+	public static int getWeight(final Object value)
+	{
+		long weight = 0;
+		if (value instanceof Markup)
+		{
+			Markup markup = (Markup)value;
+			for (int i = 0; i < markup.size(); i++)
+			{
+				MarkupElement element = markup.get(i);
+				if (element instanceof ComponentTag)
+				{
+					weight += ((ComponentTag)element).getLength();
+				}
+				else
+				{
+					weight += element.toCharSequence().length();
+				}
+			}
+		}
+		else if (value instanceof CharSequence)
+		{
+			weight = ((CharSequence)value).length();
+		}
+		return (int)Math.min(Integer.MAX_VALUE, Math.max(1, weight));
+	}
+
 	/**
 	 * MarkupCache allows you to implement you own cache implementation. ICache is the interface the
 	 * implementation must comply with.
@@ -17,6 +17,9 @@
 package org.apache.wicket.markup;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.MarkupContainer;
@@ -25,6 +28,8 @@ import org.apache.wicket.markup.loader.DefaultMarkupLoader;
 import org.apache.wicket.markup.loader.IMarkupLoader;
 import org.apache.wicket.markup.parser.IMarkupFilter;
 import org.apache.wicket.markup.parser.IXmlPullParser;
+import org.apache.wicket.markup.parser.PrecompiledMarkupIndex;
+import org.apache.wicket.markup.parser.PrecompiledXmlPullParser;
 import org.apache.wicket.markup.parser.XmlPullParser;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.resource.IResourceStream;
@@ -53,6 +58,9 @@ public class MarkupFactory
 	/** The markup resource stream provider used by MarkupCache */
 	private IMarkupResourceStreamProvider markupResourceStreamProvider = null;
 
+	/** Markup precompiled at build time */
+	private volatile PrecompiledMarkupIndex precompiledMarkupIndex = null;
+
 	/**
 	 * @return Gets the markup factory registered with the Wicket application
 	 */
@@ -120,12 +128,58 @@ public class MarkupFactory
 
 	/**
 	 * Subclasses can override this to use custom parsers.
+	 * <p>
+	 * If markup was precompiled at build time, a {@link PrecompiledXmlPullParser} is returned,
+	 * otherwise a {@link XmlPullParser}. Both scan tags directly on the input if enabled in
+	 * {@link org.apache.wicket.settings.MarkupSettings#isXmlPullParserScanning()}.
 	 * 
 	 * @return parser instance used by {@link MarkupParser} to parse markup.
 	 */
 	protected IXmlPullParser newXmlPullParser()
 	{
-		return new XmlPullParser();
+		boolean scanning = Application.get().getMarkupSettings().isXmlPullParserScanning();
+
+		PrecompiledMarkupIndex index = getPrecompiledMarkupIndex();
+		if (index.isEmpty())
+		{
+			return new XmlPullParser(scanning);
+		}
+		return new PrecompiledXmlPullParser(index, scanning);
+	}
+
+	/**
+	 * Get the markup precompiled at build time, read from all {@link PrecompiledMarkupIndex#RESOURCE}
+	 * resources found by the application's class resolver.
+	 * 
+	 * @return index of precompiled markup, might be empty
+	 */
+	public PrecompiledMarkupIndex getPrecompiledMarkupIndex()
+	{
+		if (precompiledMarkupIndex == null)
+		{
+			PrecompiledMarkupIndex index = new PrecompiledMarkupIndex();
+
+			Iterator<URL> resources = Application.get()
+				.getApplicationSettings()
+				.getClassResolver()
+				.getResources(PrecompiledMarkupIndex.RESOURCE);
+			while (resources.hasNext())
+			{
+				URL resource = resources.next();
+				try (InputStream in = resource.openStream())
+				{
+					index.read(in);
+				}
+				catch (IOException ex)
+				{
+					log.warn("Cannot read precompiled markup from " + resource, ex);
+				}
+			}
+
+			precompiledMarkupIndex = index;
+		}
+
+		return precompiledMarkupIndex;
 	}
 
 	/**
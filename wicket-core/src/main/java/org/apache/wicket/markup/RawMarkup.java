@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.markup;
 
+import java.nio.charset.Charset;
+
 /**
  * This class is for framework purposes only, which is why the class is (default) protected.
  * <p>
@@ -29,6 +31,9 @@ public class RawMarkup extends MarkupElement
 	/** The raw markup string * */
 	private final CharSequence string;
 
+	/** The raw markup encoded with the charset used last */
+	private transient volatile Encoded encoded;
+
 	/**
 	 * Create a RawMarkup element referencing an uninterpreted markup string.
 	 * 
@@ -96,6 +101,25 @@ public class RawMarkup extends MarkupElement
 		return string;
 	}
 
+	/**
+	 * Get the raw markup encoded with the given charset. The bytes are encoded once and reused as
+	 * long as the same charset is requested.
+	 * 
+	 * @param charset
+	 *            charset to encode with
+	 * @return encoded markup, must not be modified
+	 */
+	public byte[] getBytes(final Charset charset)
+	{
+		Encoded current = encoded;
+		if (current == null || current.charset.equals(charset) == false)
+		{
+			current = new Encoded(charset, string.toString().getBytes(charset));
+			encoded = current;
+		}
+		return current.bytes;
+	}
+
 	/**
 	 * @return This raw markup string
 	 */
@@ -113,4 +137,20 @@ public class RawMarkup extends MarkupElement
 	{
 		return "[Raw markup]";
 	}
+
+	/**
+	 * Bytes with their charset.
+	 */
+	private static final class Encoded
+	{
+		private final Charset charset;
+
+		private final byte[] bytes;
+
+		private Encoded(final Charset charset, final byte[] bytes)
+		{
+			this.charset = charset;
+			this.bytes = bytes;
+		}
+	}
 }
@@ -0,0 +1,477 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+import org.apache.wicket.markup.MarkupCache.ICache;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A cache bounded by the total weight of its values, evicting with a segmented LRU policy.
+ * <p>
+ * New entries are put into a probationary segment, entries read again are promoted into a
+ * protected segment taking up to 80% of the capacity. Victims are taken from the least recently
+ * used end of the probationary segment first, so entries read only once cannot flush entries read
+ * frequently.
+ * <p>
+ * Reads do not lock: accesses are recorded in a buffer, which is drained into the policy by writes
+ * or when it fills up. If the buffer is full, accesses are dropped, which only affects the precision
+ * of the policy.
+ * 
+ * @param <K>
+ *            The key type
+ * @param <V>
+ *            The value type
+ */
+public class SegmentedLruCache<K, V> implements ICache<K, V>
+{
+	/**
+	 * Share of capacity for the protected segment in percent.
+	 */
+	private static final int PROTECTED_PERCENTAGE = 80;
+
+	/**
+	 * Count of recorded accesses that trigger a drain.
+	 */
+	private static final int DRAIN_THRESHOLD = 64;
+
+	/**
+	 * Maximum count of recorded accesses.
+	 */
+	private static final int BUFFER_CAPACITY = 1024;
+
+	private final long capacity;
+
+	private final long protectedCapacity;
+
+	private final ToIntFunction<? super V> weigher;
+
+	private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+
+	private final Queue<Node<K, V>> readBuffer = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger readBufferSize = new AtomicInteger();
+
+	/**
+	 * Guards the segments and all writes.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Segment<K, V> probation = new Segment<>();
+
+	private final Segment<K, V> protect = new Segment<>();
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	/**
+	 * Construct.
+	 * 
+	 * @param capacity
+	 *            maximum total weight of all values
+	 * @param weigher
+	 *            weigher of values, weights less than one are counted as one
+	 */
+	public SegmentedLruCache(long capacity, ToIntFunction<? super V> weigher)
+	{
+		this.capacity = Args.withinRange(1L, Long.MAX_VALUE, capacity, "capacity");
+		this.protectedCapacity = capacity * PROTECTED_PERCENTAGE / 100;
+		this.weigher = Args.notNull(weigher, "weigher");
+	}
+
+	@Override
+	public V get(K key)
+	{
+		if (key == null)
+		{
+			return null;
+		}
+
+		Node<K, V> node = map.get(key);
+		if (node == null)
+		{
+			missCount.increment();
+			return null;
+		}
+		hitCount.increment();
+
+		recordAccess(node);
+
+		return node.value;
+	}
+
+	@Override
+	public boolean containsKey(K key)
+	{
+		if (key == null)
+		{
+			return false;
+		}
+		return map.containsKey(key);
+	}
+
+	@Override
+	public void put(K key, V value)
+	{
+		Args.notNull(key, "key");
+		Args.notNull(value, "value");
+
+		Node<K, V> node = new Node<>(key, value, Math.max(1, weigher.applyAsInt(value)));
+
+		lock.lock();
+		try
+		{
+			drainReadBuffer();
+
+			Node<K, V> old = map.put(key, node);
+			if (old != null)
+			{
+				unlink(old);
+			}
+
+			if (node.weight > capacity)
+			{
+				// would flush all other entries
+				map.remove(key, node);
+				evictionCount.increment();
+				return;
+			}
+
+			probation.addFirst(node);
+
+			while (probation.weight + protect.weight > capacity)
+			{
+				Node<K, V> victim = probation.last != null ? probation.last : protect.last;
+				map.remove(victim.key, victim);
+				unlink(victim);
+				evictionCount.increment();
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(K key)
+	{
+		if (key == null)
+		{
+			return false;
+		}
+
+		lock.lock();
+		try
+		{
+			Node<K, V> node = map.remove(key);
+			if (node == null)
+			{
+				return false;
+			}
+			unlink(node);
+			return true;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clear()
+	{
+		lock.lock();
+		try
+		{
+			map.clear();
+			readBuffer.clear();
+			readBufferSize.set(0);
+			probation.clear();
+			protect.clear();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Collection<K> getKeys()
+	{
+		return Collections.unmodifiableSet(map.keySet());
+	}
+
+	@Override
+	public Collection<V> getValues()
+	{
+		List<V> values = new ArrayList<>(map.size());
+		for (Node<K, V> node : map.values())
+		{
+			values.add(node.value);
+		}
+		return values;
+	}
+
+	@Override
+	public int size()
+	{
+		return map.size();
+	}
+
+	@Override
+	public void shutdown()
+	{
+		clear();
+	}
+
+	/**
+	 * Get the total weight of all values.
+	 * 
+	 * @return weight
+	 */
+	public long getWeight()
+	{
+		lock.lock();
+		try
+		{
+			return probation.weight + protect.weight;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the maximum total weight of all values.
+	 * 
+	 * @return capacity
+	 */
+	public long getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Get the count of reads finding a value.
+	 * 
+	 * @return count of hits
+	 */
+	public long getHitCount()
+	{
+		return hitCount.sum();
+	}
+
+	/**
+	 * Get the count of reads not finding a value.
+	 * 
+	 * @return count of misses
+	 */
+	public long getMissCount()
+	{
+		return missCount.sum();
+	}
+
+	/**
+	 * Get the count of values evicted to stay within capacity.
+	 * 
+	 * @return count of evictions
+	 */
+	public long getEvictionCount()
+	{
+		return evictionCount.sum();
+	}
+
+	private void recordAccess(Node<K, V> node)
+	{
+		int size = readBufferSize.incrementAndGet();
+		if (size > BUFFER_CAPACITY)
+		{
+			// drop the access
+			readBufferSize.decrementAndGet();
+		}
+		else
+		{
+			readBuffer.offer(node);
+		}
+
+		if (size >= DRAIN_THRESHOLD && lock.tryLock())
+		{
+			try
+			{
+				drainReadBuffer();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Apply recorded accesses to the segments, must be called with lock held.
+	 */
+	private void drainReadBuffer()
+	{
+		Node<K, V> node;
+		while ((node = readBuffer.poll()) != null)
+		{
+			readBufferSize.decrementAndGet();
+
+			if (node.segment == probation)
+			{
+				// promote
+				probation.remove(node);
+				protect.addFirst(node);
+
+				while (protect.weight > protectedCapacity && protect.last != node)
+				{
+					// demote
+					Node<K, V> demoted = protect.last;
+					protect.remove(demoted);
+					probation.addFirst(demoted);
+				}
+			}
+			else if (node.segment == protect)
+			{
+				protect.remove(node);
+				protect.addFirst(node);
+			}
+			// otherwise already removed
+		}
+	}
+
+	private void unlink(Node<K, V> node)
+	{
+		if (node.segment != null)
+		{
+			node.segment.remove(node);
+		}
+	}
+
+	/**
+	 * An entry of the cache.
+	 */
+	private static class Node<K, V>
+	{
+		final K key;
+
+		final V value;
+
+		final int weight;
+
+		/**
+		 * The segment containing this node, <code>null</code> if removed.
+		 */
+		Segment<K, V> segment;
+
+		Node<K, V> previous;
+
+		Node<K, V> next;
+
+		Node(K key, V value, int weight)
+		{
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * A doubly linked list of nodes, from most to least recently used.
+	 */
+	private static class Segment<K, V>
+	{
+		Node<K, V> first;
+
+		Node<K, V> last;
+
+		long weight;
+
+		void addFirst(Node<K, V> node)
+		{
+			node.segment = this;
+			node.previous = null;
+			node.next = first;
+			if (first == null)
+			{
+				last = node;
+			}
+			else
+			{
+				first.previous = node;
+			}
+			first = node;
+			weight += node.weight;
+		}
+
+		void remove(Node<K, V> node)
+		{
+			if (node.previous == null)
+			{
+				first = node.next;
+			}
+			else
+			{
+				node.previous.next = node.next;
+			}
+			if (node.next == null)
+			{
+				last = node.previous;
+			}
+			else
+			{
+				node.next.previous = node.previous;
+			}
+			node.segment = null;
+			node.previous = null;
+			node.next = null;
+			weight -= node.weight;
+		}
+
+		void clear()
+		{
+			Node<K, V> node = first;
+			while (node != null)
+			{
+				Node<K, V> next = node.next;
+				node.segment = null;
+				node.previous = null;
+				node.next = null;
+				node = next;
+			}
+			first = null;
+			last = null;
+			weight = 0;
+		}
+	}
+}
@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.parser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.markup.parser.IXmlPullParser.HttpTagType;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.io.Streams;
+import org.apache.wicket.util.io.XmlReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of markup tokenized at build time, replayed by {@link PrecompiledXmlPullParser} instead
+ * of parsing the markup again.
+ * <p>
+ * Markup is looked up by a digest of its content, thus an index never yields stale results: changed
+ * or unknown markup is parsed as usual. Only the output of the {@link XmlPullParser} is
+ * precompiled, all {@link IMarkupFilter}s still run on the replayed tags, since they depend on the
+ * application's settings and may attach behaviors.
+ * <p>
+ * The index is created by running this class at build time on a directory with markup files, e.g.
+ * with the exec-maven-plugin after the resources are copied:
+ * 
+ * <pre>
+ * &lt;plugin&gt;
+ *   &lt;groupId&gt;org.codehaus.mojo&lt;/groupId&gt;
+ *   &lt;artifactId&gt;exec-maven-plugin&lt;/artifactId&gt;
+ *   &lt;executions&gt;
+ *     &lt;execution&gt;
+ *       &lt;phase&gt;process-classes&lt;/phase&gt;
+ *       &lt;goals&gt;&lt;goal&gt;java&lt;/goal&gt;&lt;/goals&gt;
+ *       &lt;configuration&gt;
+ *         &lt;mainClass&gt;org.apache.wicket.markup.parser.PrecompiledMarkupIndex&lt;/mainClass&gt;
+ *         &lt;arguments&gt;&lt;argument&gt;${project.build.outputDirectory}&lt;/argument&gt;&lt;/arguments&gt;
+ *       &lt;/configuration&gt;
+ *     &lt;/execution&gt;
+ *   &lt;/executions&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ * 
+ * All indices found under {@link #RESOURCE} on the classpath are used by the
+ * {@link org.apache.wicket.markup.MarkupFactory}.
+ */
+public class PrecompiledMarkupIndex
+{
+	private static final Logger log = LoggerFactory.getLogger(PrecompiledMarkupIndex.class);
+
+	/**
+	 * Name of index resources.
+	 */
+	public static final String RESOURCE = "META-INF/wicket/markup.index";
+
+	private static final int VERSION = 1;
+
+	private static final HttpTagType[] HTTP_TAG_TYPES = HttpTagType.values();
+
+	private static final XmlTag.TagType[] TAG_TYPES = XmlTag.TagType.values();
+
+	/**
+	 * Body relative to the position marker.
+	 */
+	static final byte BODY_RELATIVE = 0;
+
+	/**
+	 * Body with fixed start.
+	 */
+	static final byte BODY_ABSOLUTE = 1;
+
+	/**
+	 * Tokens keyed by digest of markup.
+	 */
+	private final Map<String, byte[]> tokens = new ConcurrentHashMap<>();
+
+	/**
+	 * Tokenize markup and add it to this index.
+	 * 
+	 * @param markup
+	 *            markup
+	 * @return <code>false</code> if the markup cannot be tokenized
+	 */
+	public boolean add(CharSequence markup)
+	{
+		String string = markup.toString();
+		try
+		{
+			tokens.put(digest(string), tokenize(string));
+			return true;
+		}
+		catch (ParseException | IOException | RuntimeException ex)
+		{
+			log.debug("Cannot precompile markup", ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Get the tokens of markup.
+	 * 
+	 * @param markup
+	 *            markup
+	 * @return tokens or <code>null</code> if markup is not precompiled
+	 */
+	byte[] get(String markup)
+	{
+		if (tokens.isEmpty())
+		{
+			return null;
+		}
+		return tokens.get(digest(markup));
+	}
+
+	/**
+	 * @return count of precompiled markup
+	 */
+	public int size()
+	{
+		return tokens.size();
+	}
+
+	/**
+	 * @return <code>true</code> if no markup is precompiled
+	 */
+	public boolean isEmpty()
+	{
+		return tokens.isEmpty();
+	}
+
+	/**
+	 * Read precompiled markup, adding it to this index.
+	 * 
+	 * @param inputStream
+	 *            stream to read from
+	 * @throws IOException
+	 */
+	public void read(InputStream inputStream) throws IOException
+	{
+		DataInputStream in = new DataInputStream(inputStream);
+
+		int version = in.readInt();
+		if (version != VERSION)
+		{
+			throw new IOException("Unsupported version of markup index " + version);
+		}
+
+		int count = in.readInt();
+		for (int m = 0; m < count; m++)
+		{
+			String digest = in.readUTF();
+			byte[] data = new byte[in.readInt()];
+			in.readFully(data);
+			tokens.put(digest, data);
+		}
+	}
+
+	/**
+	 * Write all precompiled markup.
+	 * 
+	 * @param outputStream
+	 *            stream to write to
+	 * @throws IOException
+	 */
+	public void write(OutputStream outputStream) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(outputStream);
+
+		out.writeInt(VERSION);
+		out.writeInt(tokens.size());
+		for (Map.Entry<String, byte[]> entry : tokens.entrySet())
+		{
+			out.writeUTF(entry.getKey());
+			out.writeInt(entry.getValue().length);
+			out.write(entry.getValue());
+		}
+		out.flush();
+	}
+
+	private static String digest(String markup)
+	{
+		try
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(
+				digest.digest(markup.getBytes(StandardCharsets.UTF_8)));
+		}
+		catch (NoSuchAlgorithmException ex)
+		{
+			throw new WicketRuntimeException(ex);
+		}
+	}
+
+	/**
+	 * Tokenize markup with an {@link XmlPullParser}, recording everything needed to replay it.
+	 */
+	private static byte[] tokenize(String markup) throws IOException, ParseException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		XmlPullParser parser = new XmlPullParser();
+		parser.parse(markup);
+
+		int before = 0;
+		HttpTagType type;
+		while ((type = parser.next()) != HttpTagType.NOT_INITIALIZED)
+		{
+			CharSequence text = parser.getString();
+			int after = parser.getPosition();
+
+			out.writeByte(type.ordinal());
+			out.writeInt(after);
+
+			if (type == HttpTagType.BODY)
+			{
+				// position marker was never moved, so bodies are relative to the start
+				if (before == 0 || text.length() == after)
+				{
+					verify(markup, 0, after, text);
+					out.writeByte(BODY_RELATIVE);
+				}
+				else
+				{
+					verify(markup, before, after, text);
+					out.writeByte(BODY_ABSOLUTE);
+					out.writeInt(before);
+				}
+			}
+			else
+			{
+				XmlTag tag = parser.getElement();
+
+				int start = tag.getPos() + (type == HttpTagType.CDATA ? 1 : 0);
+				verify(markup, start, start + text.length(), text);
+				out.writeInt(start);
+				out.writeInt(start + text.length());
+
+				out.writeByte(tag.getType().ordinal());
+				out.writeInt(tag.getPos());
+				out.writeInt(tag.getLineNumber());
+				out.writeInt(tag.getColumnNumber());
+
+				if (type == HttpTagType.TAG)
+				{
+					out.writeUTF(tag.getName());
+					out.writeBoolean(tag.getNamespace() != null);
+					if (tag.getNamespace() != null)
+					{
+						out.writeUTF(tag.getNamespace());
+					}
+
+					if (tag.hasAttributes())
+					{
+						out.writeInt(tag.getAttributes().size());
+						for (Map.Entry<String, Object> attribute : tag.getAttributes().entrySet())
+						{
+							out.writeUTF(attribute.getKey());
+							out.writeUTF(attribute.getValue().toString());
+						}
+					}
+					else
+					{
+						out.writeInt(0);
+					}
+				}
+				else if (type == HttpTagType.DOCTYPE)
+				{
+					verify(markup, start + 1, start + text.length() - 1, parser.getDoctype());
+				}
+			}
+
+			before = after;
+		}
+
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void verify(String markup, int start, int end, CharSequence text)
+	{
+		if (markup.subSequence(start, end).toString().equals(text.toString()) == false)
+		{
+			throw new IllegalStateException("Unexpected token '" + text + "' at " + start);
+		}
+	}
+
+	/**
+	 * Read the replayed tag type.
+	 */
+	static HttpTagType readHttpTagType(DataInputStream in) throws IOException
+	{
+		return HTTP_TAG_TYPES[in.readByte()];
+	}
+
+	/**
+	 * Read the replayed tag type.
+	 */
+	static XmlTag.TagType readTagType(DataInputStream in) throws IOException
+	{
+		return TAG_TYPES[in.readByte()];
+	}
+
+	/**
+	 * Precompile all markup files in a directory and write the index into it.
+	 * 
+	 * @param args
+	 *            directory, followed by an optional default encoding of markup (defaults to
+	 *            UTF-8) and optional extension of markup files (defaults to html)
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 1)
+		{
+			throw new IllegalArgumentException(
+				"Usage: PrecompiledMarkupIndex directory [encoding] [extension]");
+		}
+
+		File directory = new File(args[0]);
+		String encoding = args.length > 1 ? args[1] : "UTF-8";
+		String extension = "." + (args.length > 2 ? args[2] : "html");
+
+		PrecompiledMarkupIndex index = new PrecompiledMarkupIndex();
+		int skipped = addAll(index, directory, encoding, extension);
+
+		File file = new File(directory, RESOURCE);
+		file.getParentFile().mkdirs();
+		try (OutputStream out = new FileOutputStream(file))
+		{
+			index.write(out);
+		}
+
+		log.info("Precompiled {} markup files into {}, skipped {}", index.size(), file, skipped);
+	}
+
+	private static int addAll(PrecompiledMarkupIndex index, File directory, String encoding,
+		String extension) throws IOException
+	{
+		int skipped = 0;
+
+		File[] files = directory.listFiles();
+		if (files != null)
+		{
+			for (File file : files)
+			{
+				if (file.isDirectory())
+				{
+					skipped += addAll(index, file, encoding, extension);
+				}
+				else if (file.getName().endsWith(extension))
+				{
+					// read just like the markup parser does
+					InputStream in = new FileInputStream(file);
+					try
+					{
+						XmlReader reader = new XmlReader(new BufferedInputStream(in, 4000), encoding);
+						if (index.add(Streams.readString(reader)) == false)
+						{
+							skipped++;
+						}
+					}
+					finally
+					{
+						IOUtils.closeQuietly(in);
+					}
+				}
+			}
+		}
+
+		return skipped;
+	}
+}
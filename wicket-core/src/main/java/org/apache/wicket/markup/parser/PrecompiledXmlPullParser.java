@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.parser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.markup.parser.XmlTag.TextSegment;
+import org.apache.wicket.util.io.FullyBufferedReader;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.io.Streams;
+import org.apache.wicket.util.io.XmlReader;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A parser replaying tokens from a {@link PrecompiledMarkupIndex}, falling back to a
+ * {@link XmlPullParser} for markup not found in the index.
+ */
+public class PrecompiledXmlPullParser implements IXmlPullParser
+{
+	private final PrecompiledMarkupIndex index;
+
+	/** Whether the fallback scans tags directly on the input */
+	private final boolean scanning;
+
+	/** The parser used if markup is not precompiled */
+	private XmlPullParser fallback;
+
+	/** The encoding of the XML */
+	private String encoding;
+
+	/** The parsed markup */
+	private FullyBufferedReader input;
+
+	/** The precompiled tokens */
+	private DataInputStream tokens;
+
+	/** The last substring selected from the input */
+	private CharSequence lastText;
+
+	/** Everything in between &lt;!DOCTYPE ... &gt; */
+	private CharSequence doctype;
+
+	/** The last tag found */
+	private XmlTag lastTag;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param index
+	 *            index of precompiled markup
+	 */
+	public PrecompiledXmlPullParser(PrecompiledMarkupIndex index)
+	{
+		this(index, false);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param index
+	 *            index of precompiled markup
+	 * @param scanning
+	 *            whether markup not found in the index is parsed by a
+	 *            {@link XmlPullParser#XmlPullParser(boolean) scanning} {@link XmlPullParser}
+	 */
+	public PrecompiledXmlPullParser(PrecompiledMarkupIndex index, boolean scanning)
+	{
+		this.index = Args.notNull(index, "index");
+		this.scanning = scanning;
+	}
+
+	/**
+	 * Is the parsed markup replayed from the index.
+	 * 
+	 * @return <code>true</code> if precompiled
+	 */
+	public boolean isPrecompiled()
+	{
+		return tokens != null;
+	}
+
+	@Override
+	public String getEncoding()
+	{
+		return encoding;
+	}
+
+	@Override
+	public CharSequence getDoctype()
+	{
+		if (fallback != null)
+		{
+			return fallback.getDoctype();
+		}
+		return doctype;
+	}
+
+	@Override
+	public CharSequence getInputFromPositionMarker(int toPos)
+	{
+		if (fallback != null)
+		{
+			return fallback.getInputFromPositionMarker(toPos);
+		}
+		return input.getSubstring(toPos);
+	}
+
+	@Override
+	public CharSequence getInput(int fromPos, int toPos)
+	{
+		if (fallback != null)
+		{
+			return fallback.getInput(fromPos, toPos);
+		}
+		return input.getSubstring(fromPos, toPos);
+	}
+
+	@Override
+	public void parse(CharSequence string) throws IOException
+	{
+		Args.notNull(string, "string");
+
+		init(string.toString(), null);
+	}
+
+	@Override
+	public void parse(InputStream in) throws IOException
+	{
+		// When XML declaration does not specify encoding, it defaults to UTF-8
+		parse(in, "UTF-8");
+	}
+
+	@Override
+	public void parse(InputStream inputStream, String encoding) throws IOException
+	{
+		Args.notNull(inputStream, "inputStream");
+
+		try
+		{
+			XmlReader xmlReader = new XmlReader(new BufferedInputStream(inputStream, 4000),
+				encoding);
+			init(Streams.readString(xmlReader), xmlReader.getEncoding());
+		}
+		finally
+		{
+			IOUtils.closeQuietly(inputStream);
+		}
+	}
+
+	private void init(String markup, String encoding) throws IOException
+	{
+		this.encoding = encoding;
+		this.doctype = null;
+		this.lastText = null;
+		this.lastTag = null;
+
+		byte[] data = index.get(markup);
+		if (data == null)
+		{
+			input = null;
+			tokens = null;
+			fallback = new XmlPullParser(scanning);
+			fallback.parse(markup);
+		}
+		else
+		{
+			input = new FullyBufferedReader(markup);
+			tokens = new DataInputStream(new ByteArrayInputStream(data));
+			fallback = null;
+		}
+	}
+
+	@Override
+	public HttpTagType next() throws ParseException
+	{
+		if (fallback != null)
+		{
+			return fallback.next();
+		}
+
+		try
+		{
+			if (tokens.available() == 0)
+			{
+				return HttpTagType.NOT_INITIALIZED;
+			}
+
+			HttpTagType type = PrecompiledMarkupIndex.readHttpTagType(tokens);
+			int after = tokens.readInt();
+
+			if (type == HttpTagType.BODY)
+			{
+				if (tokens.readByte() == PrecompiledMarkupIndex.BODY_RELATIVE)
+				{
+					lastText = input.getSubstring(after);
+				}
+				else
+				{
+					lastText = input.getSubstring(tokens.readInt(), after);
+				}
+			}
+			else
+			{
+				int start = tokens.readInt();
+				int end = tokens.readInt();
+				lastText = input.getSubstring(start, end);
+
+				XmlTag.TagType tagType = PrecompiledMarkupIndex.readTagType(tokens);
+				int pos = tokens.readInt();
+				int line = tokens.readInt();
+				int column = tokens.readInt();
+				XmlTag tag = new XmlTag(new TextSegment(lastText, pos, line, column), tagType);
+
+				if (type == HttpTagType.TAG)
+				{
+					tag.name = tokens.readUTF();
+					if (tokens.readBoolean())
+					{
+						tag.namespace = tokens.readUTF();
+					}
+
+					int attributes = tokens.readInt();
+					for (int a = 0; a < attributes; a++)
+					{
+						tag.getAttributes().put(tokens.readUTF(), tokens.readUTF());
+					}
+				}
+				else if (type == HttpTagType.DOCTYPE)
+				{
+					doctype = input.getSubstring(start + 1, end - 1);
+				}
+
+				lastTag = tag;
+			}
+
+			input.setPosition(after);
+
+			return type;
+		}
+		catch (IOException ex)
+		{
+			throw new WicketRuntimeException("Cannot replay precompiled markup", ex);
+		}
+	}
+
+	@Override
+	public XmlTag getElement()
+	{
+		if (fallback != null)
+		{
+			return fallback.getElement();
+		}
+		return lastTag;
+	}
+
+	@Override
+	public CharSequence getString()
+	{
+		if (fallback != null)
+		{
+			return fallback.getString();
+		}
+		return lastText;
+	}
+
+	@Override
+	public void setPositionMarker()
+	{
+		if (fallback != null)
+		{
+			fallback.setPositionMarker();
+		}
+		else
+		{
+			input.setPositionMarker(input.getPosition());
+		}
+	}
+
+	@Override
+	public void setPositionMarker(int pos)
+	{
+		if (fallback != null)
+		{
+			fallback.setPositionMarker(pos);
+		}
+		else
+		{
+			input.setPositionMarker(pos);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		if (fallback != null)
+		{
+			return fallback.toString();
+		}
+		return input.toString();
+	}
+}
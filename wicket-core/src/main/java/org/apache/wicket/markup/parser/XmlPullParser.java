@@ -19,7 +19,6 @@ package org.apache.wicket.markup.parser;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
 import java.text.ParseException;
 import java.util.Locale;
 
@@ -74,11 +73,30 @@ public final class XmlPullParser implements IXmlPullParser
 	/** The last tag found */
 	private XmlTag lastTag;
 
+	/** Whether tags are scanned directly on the input */
+	private final boolean scanning;
+
 	/**
 	 * Construct.
 	 */
 	public XmlPullParser()
 	{
+		this(false);
+	}
+
+	/**
+	 * Construct a parser, optionally scanning tags directly on the input.
+	 * <p>
+	 * A scanning parser yields the same tags, but does not copy the text of each tag and does not
+	 * use regular expressions to find its name and attributes. Known tag and attribute names are
+	 * taken from a symbol table instead of being allocated for each tag.
+	 * 
+	 * @param scanning
+	 *            {@code true} to scan tags directly on the input
+	 */
+	public XmlPullParser(final boolean scanning)
+	{
+		this.scanning = scanning;
 	}
 
 	@Override
@@ -225,6 +243,11 @@ public final class XmlPullParser implements IXmlPullParser
 		// Get the complete tag text
 		lastText = input.getSubstring(openBracketIndex, closeBracketIndex + 1);
 
+		if (scanning)
+		{
+			return scanTag(openBracketIndex, closeBracketIndex);
+		}
+
 		// Get the tagtext between open and close brackets
 		String tagText = lastText.subSequence(1, lastText.length() - 1).toString();
 		if (tagText.length() == 0)
@@ -257,36 +280,7 @@ public final class XmlPullParser implements IXmlPullParser
 			if ((tagText.length() > STYLE.length()) &&
 				((tagText.charAt(0) == 's') || (tagText.charAt(0) == 'S')))
 			{
-				final String lowerCase = tagText.toLowerCase(Locale.ROOT);
-				if (lowerCase.startsWith(SCRIPT))
-				{
-					String typeAttr = "type=";
-					int idxOfType = lowerCase.indexOf(typeAttr);
-					if (idxOfType > 0)
-					{
-						// +1 to remove the ' or "
-						String typePrefix = lowerCase.substring(idxOfType + typeAttr.length() + 1);
-						if (typePrefix.startsWith("text/javascript") || typePrefix.startsWith("module")
-						        || typePrefix.startsWith("importmap"))
-						{
-							// prepare to skip everything between the open and close tag
-							skipUntilText = SCRIPT;
-						}
-						// any other type is assumed to be a template so it can contain child nodes.
-						// See WICKET-5288
-					}
-					else
-					{
-						// no type attribute so it is 'text/javascript'
-						// prepare to skip everything between the open and close tag
-						skipUntilText = SCRIPT;
-					}
-				}
-				else if (lowerCase.startsWith(STYLE))
-				{
-					// prepare to skip everything between the open and close tag
-					skipUntilText = STYLE;
-				}
+				prepareSkipUntil(tagText);
 			}
 		}
 
@@ -294,23 +288,92 @@ public final class XmlPullParser implements IXmlPullParser
 		final char firstChar = tagText.charAt(0);
 		if ((firstChar == '!') || (firstChar == '?'))
 		{
-			specialTagHandling(tagText, openBracketIndex, closeBracketIndex);
+			return specialTag(tagText, type, openBracketIndex, closeBracketIndex);
+		}
 
-			input.countLinesTo(openBracketIndex);
-			TextSegment text = new TextSegment(lastText, openBracketIndex, input.getLineNumber(),
-				input.getColumnNumber());
-			lastTag = new XmlTag(text, type);
+		TextSegment text = new TextSegment(lastText, openBracketIndex, input.getLineNumber(),
+			input.getColumnNumber());
+		XmlTag tag = new XmlTag(text, type);
+		lastTag = tag;
 
+		// Parse the tag text and populate tag attributes
+		if (parseTagText(tag, tagText))
+		{
+			// Move to position after the tag
+			input.setPosition(closeBracketIndex + 1);
+			lastType = HttpTagType.TAG;
 			return lastType;
 		}
+		else
+		{
+			throw new ParseException("Malformed tag" + getLineAndColumnText(), openBracketIndex);
+		}
+	}
+
+	/**
+	 * Scans the tag in between the given brackets directly on the input.
+	 * 
+	 * @param openBracketIndex
+	 * @param closeBracketIndex
+	 * @return the type of the tag
+	 * @throws ParseException
+	 */
+	private HttpTagType scanTag(final int openBracketIndex, final int closeBracketIndex)
+		throws ParseException
+	{
+		final String source = input.toString();
+
+		// Bounds of the tagtext between open and close brackets
+		int start = openBracketIndex + 1;
+		int end = closeBracketIndex;
+		if (start == end)
+		{
+			throw new ParseException("Found empty tag: '<>' at" + getLineAndColumnText(),
+				input.getPosition());
+		}
+
+		// Type of the tag, to be determined next
+		final TagType type;
+
+		if (source.charAt(end - 1) == '/')
+		{
+			type = TagType.OPEN_CLOSE;
+			end--;
+		}
+		else if (source.charAt(start) == '/')
+		{
+			type = TagType.CLOSE;
+			start++;
+		}
+		else
+		{
+			type = TagType.OPEN;
+
+			if ((end - start > STYLE.length()) &&
+				((source.charAt(start) == 's') || (source.charAt(start) == 'S')))
+			{
+				prepareSkipUntil(source.substring(start, end));
+			}
+		}
+
+		if (start == end)
+		{
+			throw new ParseException("Malformed tag" + getLineAndColumnText(), openBracketIndex);
+		}
+
+		final char firstChar = source.charAt(start);
+		if ((firstChar == '!') || (firstChar == '?'))
+		{
+			return specialTag(source.substring(start, end), type, openBracketIndex,
+				closeBracketIndex);
+		}
 
 		TextSegment text = new TextSegment(lastText, openBracketIndex, input.getLineNumber(),
 			input.getColumnNumber());
 		XmlTag tag = new XmlTag(text, type);
 		lastTag = tag;
 
-		// Parse the tag text and populate tag attributes
-		if (parseTagText(tag, tagText))
+		if (scanTagText(tag, source, start, end))
 		{
 			// Move to position after the tag
 			input.setPosition(closeBracketIndex + 1);
@@ -323,6 +386,69 @@ public final class XmlPullParser implements IXmlPullParser
 		}
 	}
 
+	/**
+	 * Prepares skipping the body of "script" and "style" tags.
+	 * 
+	 * @param tagText
+	 *            text of an open tag
+	 */
+	private void prepareSkipUntil(final String tagText)
+	{
+		final String lowerCase = tagText.toLowerCase(Locale.ROOT);
+		if (lowerCase.startsWith(SCRIPT))
+		{
+			String typeAttr = "type=";
+			int idxOfType = lowerCase.indexOf(typeAttr);
+			if (idxOfType > 0)
+			{
+				// +1 to remove the ' or "
+				String typePrefix = lowerCase.substring(idxOfType + typeAttr.length() + 1);
+				if (typePrefix.startsWith("text/javascript") || typePrefix.startsWith("module")
+				        || typePrefix.startsWith("importmap"))
+				{
+					// prepare to skip everything between the open and close tag
+					skipUntilText = SCRIPT;
+				}
+				// any other type is assumed to be a template so it can contain child nodes.
+				// See WICKET-5288
+			}
+			else
+			{
+				// no type attribute so it is 'text/javascript'
+				// prepare to skip everything between the open and close tag
+				skipUntilText = SCRIPT;
+			}
+		}
+		else if (lowerCase.startsWith(STYLE))
+		{
+			// prepare to skip everything between the open and close tag
+			skipUntilText = STYLE;
+		}
+	}
+
+	/**
+	 * Handles a special tag like &lt;!-- and &lt;![CDATA ...
+	 * 
+	 * @param tagText
+	 * @param type
+	 * @param openBracketIndex
+	 * @param closeBracketIndex
+	 * @return the type of the tag
+	 * @throws ParseException
+	 */
+	private HttpTagType specialTag(final String tagText, final TagType type,
+		final int openBracketIndex, final int closeBracketIndex) throws ParseException
+	{
+		specialTagHandling(tagText, openBracketIndex, closeBracketIndex);
+
+		input.countLinesTo(openBracketIndex);
+		TextSegment text = new TextSegment(lastText, openBracketIndex, input.getLineNumber(),
+			input.getColumnNumber());
+		lastTag = new XmlTag(text, type);
+
+		return lastType;
+	}
+
 	/**
 	 * Handle special tags like &lt;!-- --&gt; or &lt;![CDATA[..]]&gt; or &lt;?xml&gt;
 	 *
@@ -565,7 +691,7 @@ public final class XmlPullParser implements IXmlPullParser
 	{
 		Args.notNull(string, "string");
 
-		this.input = new FullyBufferedReader(new StringReader(string.toString()));
+		this.input = new FullyBufferedReader(string.toString());
 		this.encoding = null;
 	}
 
@@ -615,6 +741,16 @@ public final class XmlPullParser implements IXmlPullParser
 		}
 	}
 
+	/**
+	 * Gets the current position in the input.
+	 * 
+	 * @return position
+	 */
+	final int getPosition()
+	{
+		return input.getPosition();
+	}
+
 	@Override
 	public final void setPositionMarker()
 	{
@@ -714,4 +850,245 @@ public final class XmlPullParser implements IXmlPullParser
 
 		return false;
 	}
+
+	/**
+	 * Scans the text between tags directly on the input, matching the same names and attributes
+	 * as {@link #parseTagText(XmlTag, String)}.
+	 *
+	 * @param tag
+	 * @param source
+	 *            the input
+	 * @param start
+	 *            index of the first character of the tag text
+	 * @param end
+	 *            index after the last character of the tag text
+	 * @return false in case of an error
+	 * @throws ParseException
+	 */
+	private boolean scanTagText(final XmlTag tag, final String source, final int start,
+		final int end) throws ParseException
+	{
+		// Tag name with optional namespace
+		int pos = -1;
+		int namespaceEnd = scanVariableName(source, start, end);
+		if (namespaceEnd != -1 && namespaceEnd < end && source.charAt(namespaceEnd) == ':')
+		{
+			pos = scanXmlName(source, namespaceEnd + 1, end);
+			if (pos != -1)
+			{
+				String namespace = XmlSymbols.get(source, start, namespaceEnd);
+				tag.namespace = namespace.toLowerCase(Locale.ROOT);
+				tag.name = XmlSymbols.get(source, namespaceEnd + 1, pos);
+			}
+		}
+		if (pos == -1)
+		{
+			pos = scanXmlName(source, start, end);
+			if (pos == -1)
+			{
+				return false;
+			}
+			tag.name = XmlSymbols.get(source, start, pos);
+		}
+
+		// Attributes, junk in between is skipped
+		while (pos < end)
+		{
+			int keyStart = pos;
+			while (keyStart < end && isXmlNameStart(source.charAt(keyStart)) == false)
+			{
+				keyStart++;
+			}
+			if (keyStart == end)
+			{
+				break;
+			}
+
+			int keyEnd = scanKey(source, keyStart, end);
+
+			String value = "";
+			pos = skipWhitespace(source, keyEnd, end);
+			if (pos < end && source.charAt(pos) == '=')
+			{
+				int valueStart = skipWhitespace(source, pos + 1, end);
+				int valueEnd = scanValue(source, valueStart, end);
+				if (valueEnd != -1)
+				{
+					pos = skipWhitespace(source, valueEnd, end);
+
+					// Chop off double quotes or single quotes
+					char first = source.charAt(valueStart);
+					if (first == '"' || first == '\'')
+					{
+						valueStart++;
+						valueEnd--;
+					}
+
+					// Trim whitespace
+					while (valueStart < valueEnd && source.charAt(valueStart) <= ' ')
+					{
+						valueStart++;
+					}
+					while (valueEnd > valueStart && source.charAt(valueEnd - 1) <= ' ')
+					{
+						valueEnd--;
+					}
+
+					value = source.substring(valueStart, valueEnd);
+					if (value.indexOf('&') != -1)
+					{
+						value = Strings.unescapeMarkup(value).toString();
+					}
+				}
+			}
+
+			final String key = XmlSymbols.get(source, keyStart, keyEnd);
+
+			// Put the attribute in the attributes hash
+			if (null != tag.getAttributes().put(key, value))
+			{
+				throw new ParseException("Same attribute found twice: " + key +
+					getLineAndColumnText(), input.getPosition());
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Scans an attribute key, with up to two namespaces.
+	 */
+	private static int scanKey(final String source, final int start, final int end)
+	{
+		int namespaceEnd = scanVariableName(source, start, end);
+		if (namespaceEnd != -1 && namespaceEnd < end && source.charAt(namespaceEnd) == ':')
+		{
+			int secondNamespaceEnd = scanVariableName(source, namespaceEnd + 1, end);
+			if (secondNamespaceEnd != -1 && secondNamespaceEnd < end &&
+				source.charAt(secondNamespaceEnd) == ':')
+			{
+				int pos = scanXmlName(source, secondNamespaceEnd + 1, end);
+				if (pos != -1)
+				{
+					return pos;
+				}
+			}
+
+			int pos = scanXmlName(source, namespaceEnd + 1, end);
+			if (pos != -1)
+			{
+				return pos;
+			}
+		}
+		return scanXmlName(source, start, end);
+	}
+
+	/**
+	 * Scans an unquoted or quoted value.
+	 * 
+	 * @return index after the value, -1 if there is none
+	 */
+	private static int scanValue(final String source, final int start, final int end)
+	{
+		if (start == end)
+		{
+			return -1;
+		}
+
+		char c = source.charAt(start);
+		if (c == '"' || c == '\'')
+		{
+			int quote = source.indexOf(c, start + 1);
+			return (quote != -1 && quote < end) ? quote + 1 : -1;
+		}
+
+		int pos = start;
+		while (pos < end && isValueChar(source.charAt(pos)))
+		{
+			pos++;
+		}
+		return pos > start ? pos : -1;
+	}
+
+	/**
+	 * Scans a variable name like a namespace.
+	 * 
+	 * @return index after the name, -1 if there is none
+	 */
+	private static int scanVariableName(final String source, final int start, final int end)
+	{
+		if (start == end || isLetterOrUnderscore(source.charAt(start)) == false)
+		{
+			return -1;
+		}
+
+		int pos = start + 1;
+		while (pos < end)
+		{
+			char c = source.charAt(pos);
+			if (isLetterOrUnderscore(c) == false && isDigit(c) == false && c != '-')
+			{
+				break;
+			}
+			pos++;
+		}
+		return pos;
+	}
+
+	/**
+	 * Scans a xml name of a tag or attribute.
+	 * 
+	 * @return index after the name, -1 if there is none
+	 */
+	private static int scanXmlName(final String source, final int start, final int end)
+	{
+		if (start == end || isXmlNameStart(source.charAt(start)) == false)
+		{
+			return -1;
+		}
+
+		int pos = start + 1;
+		while (pos < end && isValueChar(source.charAt(pos)))
+		{
+			pos++;
+		}
+		return pos;
+	}
+
+	private static int skipWhitespace(final String source, int pos, final int end)
+	{
+		while (pos < end && isWhitespace(source.charAt(pos)))
+		{
+			pos++;
+		}
+		return pos;
+	}
+
+	private static boolean isXmlNameStart(final char c)
+	{
+		return isLetterOrUnderscore(c) || c == ':' || c == '@';
+	}
+
+	/**
+	 * Word characters, '-' and '.', as allowed in xml names and unquoted values.
+	 */
+	private static boolean isValueChar(final char c)
+	{
+		return isLetterOrUnderscore(c) || isDigit(c) || c == '-' || c == '.';
+	}
+
+	private static boolean isLetterOrUnderscore(final char c)
+	{
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+	}
+
+	private static boolean isDigit(final char c)
+	{
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isWhitespace(final char c)
+	{
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
 }
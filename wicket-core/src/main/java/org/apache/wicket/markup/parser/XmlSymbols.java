@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.parser;
+
+/**
+ * A symbol table of known tag and attribute names, so these do not have to be allocated for each
+ * tag. Lookups work on a range of the input and do not allocate for known names.
+ * 
+ * @see XmlPullParser#XmlPullParser(boolean)
+ */
+final class XmlSymbols
+{
+	private static final String[] SYMBOLS = {
+			// html elements
+			"html", "head", "body", "title", "meta", "link", "base", "script", "style", "noscript",
+			"div", "span", "p", "a", "img", "br", "hr", "ul", "ol", "li", "dl", "dt", "dd", "table",
+			"caption", "thead", "tbody", "tfoot", "tr", "th", "td", "colgroup", "col", "form",
+			"input", "select", "option", "optgroup", "textarea", "button", "label", "fieldset",
+			"legend", "h1", "h2", "h3", "h4", "h5", "h6", "em", "strong", "b", "i", "u", "small",
+			"sub", "sup", "pre", "code", "blockquote", "section", "article", "header", "footer",
+			"nav", "main", "aside", "figure", "figcaption", "iframe", "object", "param", "embed",
+			"canvas", "svg", "path", "template", "video", "audio", "source", "picture", "abbr",
+
+			// wicket namespace, tags and attributes
+			"wicket", "panel", "border", "extend", "child", "fragment", "container", "enclosure",
+			"message", "remove", "header-items", "wicket:id", "wicket:message",
+			"wicket:enclosure", "wicket:for", "wicket:unknown", "xmlns:wicket",
+
+			// html attributes
+			"id", "class", "href", "src", "type", "name", "value", "alt", "rel", "for", "action",
+			"method", "target", "width", "height", "colspan", "rowspan", "lang", "xmlns",
+			"xml:lang", "charset", "content", "http-equiv", "placeholder", "disabled", "checked",
+			"selected", "readonly", "multiple", "size", "maxlength", "tabindex", "role",
+			"onclick", "onchange", "onsubmit", "onload", "media", "async", "defer", "enctype",
+			"accept-charset", "autocomplete", "scope", "cellpadding", "cellspacing", "align",
+			"valign", "aria-label", "aria-hidden", "data-toggle" };
+
+	private static final String[] TABLE;
+
+	static
+	{
+		int capacity = Integer.highestOneBit(SYMBOLS.length * 4);
+		TABLE = new String[capacity];
+		for (String symbol : SYMBOLS)
+		{
+			int index = index(symbol.hashCode());
+			while (TABLE[index] != null && TABLE[index].equals(symbol) == false)
+			{
+				index = (index + 1) & (TABLE.length - 1);
+			}
+			TABLE[index] = symbol;
+		}
+	}
+
+	private XmlSymbols()
+	{
+	}
+
+	/**
+	 * Get the name in the given range of the source.
+	 * 
+	 * @param source
+	 *            the source
+	 * @param start
+	 *            index of the first character
+	 * @param end
+	 *            index after the last character
+	 * @return the known symbol or a new string
+	 */
+	static String get(final String source, final int start, final int end)
+	{
+		int length = end - start;
+
+		int hash = 0;
+		for (int i = start; i < end; i++)
+		{
+			hash = 31 * hash + source.charAt(i);
+		}
+
+		int index = index(hash);
+		String symbol;
+		while ((symbol = TABLE[index]) != null)
+		{
+			if (symbol.length() == length && source.regionMatches(start, symbol, 0, length))
+			{
+				return symbol;
+			}
+			index = (index + 1) & (TABLE.length - 1);
+		}
+
+		return source.substring(start, end);
+	}
+
+	private static int index(final int hash)
+	{
+		return (hash ^ (hash >>> 16)) & (TABLE.length - 1);
+	}
+}
@@ -134,46 +134,70 @@ public class DefaultPageLockManager implements IPageLockManager {
 		else
 		{
 			final Thread previousThread = previous != null ? previous.getThread() : null;
-			final String previousThreadName = previousThread != null ? previousThread.getName() : "N/A";
-			if (logger.isWarnEnabled())
+			throw couldNotLock(logger, pageId, thread.getName(), start, pageTimeout, previousThread);
+		}
+	}
+
+	/**
+	 * Log the failure to acquire a lock, dumping threads as configured in the
+	 * {@link ExceptionSettings}.
+	 *
+	 * @param logger
+	 *            logger to log to
+	 * @param pageId
+	 *            the id of the page
+	 * @param name
+	 *            name of the thread that failed to acquire the lock
+	 * @param start
+	 *            start of the attempt
+	 * @param pageTimeout
+	 *            timeout of the attempt
+	 * @param previousThread
+	 *            thread holding the lock, might be <code>null</code>
+	 * @return exception to throw
+	 */
+	static CouldNotLockPageException couldNotLock(Logger logger, int pageId, String name,
+		Instant start, Duration pageTimeout, Thread previousThread)
+	{
+		final String previousThreadName = previousThread != null ? previousThread.getName() : "N/A";
+		if (logger.isWarnEnabled())
+		{
+			logger.warn(
+					"Thread '{}' failed to acquire lock to page with id '{}', attempted for {} out of allowed {}." +
+							" The thread that holds the lock has name '{}'.",
+					name, pageId, Duration.between(start, Instant.now()), pageTimeout, previousThreadName);
+			if (Application.exists())
 			{
-				logger.warn(
-						"Thread '{}' failed to acquire lock to page with id '{}', attempted for {} out of allowed {}." +
-								" The thread that holds the lock has name '{}'.",
-						thread.getName(), pageId, Duration.between(start, Instant.now()), pageTimeout, previousThreadName);
-				if (Application.exists())
+				ExceptionSettings.ThreadDumpStrategy strategy = Application.get()
+						.getExceptionSettings()
+						.getThreadDumpStrategy();
+				switch (strategy)
 				{
-					ExceptionSettings.ThreadDumpStrategy strategy = Application.get()
-							.getExceptionSettings()
-							.getThreadDumpStrategy();
-					switch (strategy)
-					{
-						case ALL_THREADS :
-							Threads.dumpAllThreads(logger);
-							break;
-						case THREAD_HOLDING_LOCK :
-							if (previousThread != null)
-							{
-								Threads.dumpSingleThread(logger, previousThread);
-							}
-							else
-							{
-								logger.warn("Cannot dump the stack of the previous thread because it is not available.");
-							}
-							break;
-						case NO_THREADS :
-						default :
-							// do nothing
-					}
+					case ALL_THREADS :
+						Threads.dumpAllThreads(logger);
+						break;
+					case THREAD_HOLDING_LOCK :
+						if (previousThread != null)
+						{
+							Threads.dumpSingleThread(logger, previousThread);
+						}
+						else
+						{
+							logger.warn("Cannot dump the stack of the previous thread because it is not available.");
+						}
+						break;
+					case NO_THREADS :
+					default :
+						// do nothing
 				}
 			}
-			if(previousThread != null)
-			{
-				var cause = new PageLockedException(previousThread, pageId);
-				throw new CouldNotLockPageException(pageId, thread.getName(), pageTimeout, cause);
-			}
-			throw new CouldNotLockPageException(pageId, thread.getName(), pageTimeout);
 		}
+		if(previousThread != null)
+		{
+			var cause = new PageLockedException(previousThread, pageId);
+			return new CouldNotLockPageException(pageId, name, pageTimeout, cause);
+		}
+		return new CouldNotLockPageException(pageId, name, pageTimeout);
 	}
 
 	@Override
@@ -0,0 +1,499 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.page;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.wicket.util.LazyInitializer;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A lock manager granting locks to pages in the order they were requested.
+ * <p>
+ * On release a lock is handed off directly to the next waiting owner, so requests cannot barge in
+ * and waiting requests are not starved. Shared locks are granted together to all consecutive
+ * waiting owners of read-only requests. Locks can be acquired asynchronously, which allows a
+ * {@link org.apache.wicket.protocol.http.AsyncPageLockRequestCycleListener} to suspend requests
+ * without holding a container thread:
+ *
+ * <pre>
+ * protected void init()
+ * {
+ * 	super.init();
+ * 
+ * 	getRequestCycleListeners().add(new AsyncPageLockRequestCycleListener());
+ * }
+ * 
+ * public Session newSession(Request request, Response response)
+ * {
+ * 	return new WebSession(request)
+ * 	{
+ * 		protected PageAccessSynchronizer newPageAccessSynchronizer(Duration timeout)
+ * 		{
+ * 			return new PageAccessSynchronizer(new FifoPageLockManager(timeout));
+ * 		}
+ * 	};
+ * }
+ * </pre>
+ */
+public class FifoPageLockManager implements IAsyncPageLockManager
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger logger = LoggerFactory.getLogger(FifoPageLockManager.class);
+
+	/** map of queues for locked pages */
+	private final LazyInitializer<ConcurrentMap<Integer, PageQueue>> locks = new LazyInitializer<>()
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected ConcurrentMap<Integer, PageQueue> createInstance()
+		{
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	/** timeout value for acquiring a page lock */
+	private final Duration timeout;
+
+	/**
+	 * Constructor
+	 *
+	 * @param timeout
+	 *            timeout value for acquiring a page lock
+	 */
+	public FifoPageLockManager(Duration timeout)
+	{
+		this.timeout = Args.notNull(timeout, "timeout");
+	}
+
+	/**
+	 * @param pageId
+	 *            the id of the page to be locked
+	 * @return the duration for acquiring a page lock
+	 */
+	public Duration getTimeout(int pageId)
+	{
+		return timeout;
+	}
+
+	@Override
+	public void lockPage(int pageId) throws CouldNotLockPageException
+	{
+		lock(pageId, false);
+	}
+
+	@Override
+	public void lockPageShared(int pageId) throws CouldNotLockPageException
+	{
+		lock(pageId, true);
+	}
+
+	/**
+	 * Shared locks are granted to several read-only requests at once.
+	 */
+	@Override
+	public boolean isSharingLocks()
+	{
+		return true;
+	}
+
+	private void lock(int pageId, boolean shared)
+	{
+		final Thread thread = Thread.currentThread();
+		final Instant start = Instant.now();
+		final Duration pageTimeout = getTimeout(pageId);
+
+		Waiter waiter = enqueue(pageId, thread, shared);
+		if (waiter != null)
+		{
+			if (logger.isDebugEnabled())
+			{
+				logger.debug("{} waiting for lock to page {} for {}", thread.getName(), pageId,
+					pageTimeout);
+			}
+
+			try
+			{
+				waiter.future.get(pageTimeout.toMillis(), TimeUnit.MILLISECONDS);
+			}
+			catch (TimeoutException e)
+			{
+				if (waiter.abandon())
+				{
+					throw DefaultPageLockManager.couldNotLock(logger, pageId, thread.getName(), start,
+						pageTimeout, ownerThread(waiter.queue));
+				}
+				// handed off meanwhile
+			}
+			catch (InterruptedException | ExecutionException e)
+			{
+				if (waiter.abandon() == false)
+				{
+					release(waiter.queue, thread);
+				}
+				throw new RuntimeException(e);
+			}
+		}
+
+		if (logger.isDebugEnabled())
+		{
+			logger.debug("{} acquired {} lock to page {}", thread.getName(),
+				shared ? "shared" : "exclusive", pageId);
+		}
+	}
+
+	@Override
+	public CompletionStage<Void> lockPageAsync(int pageId, Object owner)
+	{
+		return lockAsync(pageId, owner, false);
+	}
+
+	@Override
+	public CompletionStage<Void> lockPageSharedAsync(int pageId, Object owner)
+	{
+		return lockAsync(pageId, owner, true);
+	}
+
+	private CompletionStage<Void> lockAsync(int pageId, Object owner, boolean shared)
+	{
+		Args.notNull(owner, "owner");
+
+		final Instant start = Instant.now();
+		final Duration pageTimeout = getTimeout(pageId);
+
+		Waiter waiter = enqueue(pageId, owner, shared);
+		if (waiter == null)
+		{
+			return CompletableFuture.completedStage(null);
+		}
+
+		CompletableFuture.delayedExecutor(pageTimeout.toMillis(), TimeUnit.MILLISECONDS)
+			.execute(() -> {
+				if (waiter.abandon())
+				{
+					waiter.future.completeExceptionally(DefaultPageLockManager.couldNotLock(logger,
+						pageId, String.valueOf(owner), start, pageTimeout, ownerThread(waiter.queue)));
+				}
+			});
+
+		return waiter.future.minimalCompletionStage();
+	}
+
+	@Override
+	public void claimPages(Object owner)
+	{
+		final Thread thread = Thread.currentThread();
+
+		for (PageQueue queue : locks.get().values())
+		{
+			synchronized (queue)
+			{
+				if (queue.owner == owner)
+				{
+					queue.owner = thread;
+				}
+				if (queue.readers.remove(owner))
+				{
+					queue.readers.add(thread);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void unlockAllPages()
+	{
+		unlockAllPages(Thread.currentThread());
+	}
+
+	@Override
+	public void unlockAllPages(Object owner)
+	{
+		for (PageQueue queue : locks.get().values())
+		{
+			release(queue, owner);
+		}
+	}
+
+	@Override
+	public void unlockPage(int pageId)
+	{
+		PageQueue queue = locks.get().get(pageId);
+		if (queue != null)
+		{
+			release(queue, Thread.currentThread());
+		}
+	}
+
+	/**
+	 * Lock a page or enqueue a waiter.
+	 *
+	 * @return waiter or <code>null</code> if the lock was acquired immediately
+	 */
+	private Waiter enqueue(int pageId, Object owner, boolean shared)
+	{
+		while (true)
+		{
+			PageQueue queue = locks.get().computeIfAbsent(pageId, PageQueue::new);
+
+			Waiter waiter;
+			List<Waiter> granted;
+			synchronized (queue)
+			{
+				if (queue.removed)
+				{
+					// released concurrently
+					continue;
+				}
+
+				if (queue.owner == owner)
+				{
+					// lock is already owned
+					return null;
+				}
+
+				if (shared)
+				{
+					if (queue.readers.contains(owner))
+					{
+						// lock is already shared
+						return null;
+					}
+					if (queue.owner == null && queue.waiters.isEmpty())
+					{
+						queue.readers.add(owner);
+						return null;
+					}
+				}
+				else
+				{
+					// a shared lock cannot be upgraded, it is given up instead
+					queue.readers.remove(owner);
+
+					if (queue.owner == null && queue.readers.isEmpty() && queue.waiters.isEmpty())
+					{
+						// first to acquire the lock
+						queue.owner = owner;
+						return null;
+					}
+				}
+
+				waiter = new Waiter(queue, owner, shared);
+				queue.waiters.addLast(waiter);
+
+				granted = grant(queue);
+			}
+
+			complete(granted);
+			return waiter;
+		}
+	}
+
+	/**
+	 * Release a lock, handing it off to the next waiters.
+	 */
+	private void release(PageQueue queue, Object owner)
+	{
+		List<Waiter> granted;
+		synchronized (queue)
+		{
+			if (queue.owner == owner)
+			{
+				queue.owner = null;
+			}
+			else if (queue.readers.remove(owner) == false)
+			{
+				return;
+			}
+
+			granted = grant(queue);
+		}
+
+		if (logger.isDebugEnabled())
+		{
+			logger.debug("'{}' released lock to page with id '{}'", name(owner), queue.pageId);
+		}
+
+		complete(granted);
+	}
+
+	/**
+	 * Grant the lock to waiters at the head of the queue, must be called while holding the lock
+	 * of the queue.
+	 *
+	 * @return granted waiters or <code>null</code>
+	 */
+	private List<Waiter> grant(PageQueue queue)
+	{
+		List<Waiter> granted = null;
+
+		Waiter next;
+		while ((next = queue.waiters.peekFirst()) != null && queue.owner == null)
+		{
+			if (next.shared)
+			{
+				queue.readers.add(next.owner);
+			}
+			else if (queue.readers.isEmpty())
+			{
+				queue.owner = next.owner;
+			}
+			else
+			{
+				break;
+			}
+
+			queue.waiters.pollFirst();
+			next.granted = true;
+			if (granted == null)
+			{
+				granted = new ArrayList<>();
+			}
+			granted.add(next);
+		}
+
+		if (queue.owner == null && queue.readers.isEmpty() && queue.waiters.isEmpty())
+		{
+			queue.removed = true;
+			locks.get().remove(queue.pageId, queue);
+		}
+
+		return granted;
+	}
+
+	/**
+	 * Complete granted waiters outside of the lock, since dependent stages are run synchronously.
+	 */
+	private static void complete(List<Waiter> granted)
+	{
+		if (granted != null)
+		{
+			for (Waiter waiter : granted)
+			{
+				waiter.future.complete(null);
+			}
+		}
+	}
+
+	private static Thread ownerThread(PageQueue queue)
+	{
+		Object owner = queue.owner;
+		if (owner == null)
+		{
+			synchronized (queue)
+			{
+				owner = queue.readers.stream().findFirst().orElse(null);
+			}
+		}
+		return owner instanceof Thread ? (Thread)owner : null;
+	}
+
+	private static String name(Object owner)
+	{
+		return owner instanceof Thread ? ((Thread)owner).getName() : String.valueOf(owner);
+	}
+
+	/**
+	 * The owners of a page's lock and owners waiting for it.
+	 */
+	private static class PageQueue
+	{
+		final int pageId;
+
+		/** owner of an exclusive lock */
+		volatile Object owner;
+
+		/** owners of a shared lock, guarded by this */
+		final Set<Object> readers = new HashSet<>();
+
+		/** guarded by this */
+		final Deque<Waiter> waiters = new ArrayDeque<>();
+
+		/** guarded by this */
+		boolean removed;
+
+		PageQueue(int pageId)
+		{
+			this.pageId = pageId;
+		}
+	}
+
+	/**
+	 * An owner waiting for a lock.
+	 */
+	private class Waiter
+	{
+		final PageQueue queue;
+
+		final Object owner;
+
+		final boolean shared;
+
+		final CompletableFuture<Void> future = new CompletableFuture<>();
+
+		/** guarded by queue */
+		boolean granted;
+
+		Waiter(PageQueue queue, Object owner, boolean shared)
+		{
+			this.queue = queue;
+			this.owner = owner;
+			this.shared = shared;
+		}
+
+		/**
+		 * Stop waiting for the lock.
+		 *
+		 * @return <code>false</code> if the lock was already handed off to this waiter
+		 */
+		boolean abandon()
+		{
+			List<Waiter> granted;
+			synchronized (queue)
+			{
+				if (this.granted)
+				{
+					return false;
+				}
+				queue.waiters.remove(this);
+
+				// waiters behind might be compatible with the current owners
+				granted = grant(queue);
+			}
+			complete(granted);
+			return true;
+		}
+	}
+}
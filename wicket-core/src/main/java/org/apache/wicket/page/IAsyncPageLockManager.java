@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.page;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A lock manager that can acquire locks without blocking the calling thread.
+ * <p>
+ * Locks acquired asynchronously are held by an arbitrary owner, until they are claimed by the
+ * thread continuing the request.
+ */
+public interface IAsyncPageLockManager extends IPageLockManager
+{
+	/**
+	 * Acquire a lock to a page for the given owner.
+	 *
+	 * @param pageId
+	 *            page id
+	 * @param owner
+	 *            owner of the lock
+	 * @return stage completed when the lock is acquired, or completed exceptionally with a
+	 *         {@link CouldNotLockPageException} if the lock could not be acquired
+	 */
+	CompletionStage<Void> lockPageAsync(int pageId, Object owner);
+
+	/**
+	 * Acquire a lock to a page for the given owner, shared with other requests which only read the
+	 * page.
+	 *
+	 * @param pageId
+	 *            page id
+	 * @param owner
+	 *            owner of the lock
+	 * @return stage completed when the lock is acquired, or completed exceptionally with a
+	 *         {@link CouldNotLockPageException} if the lock could not be acquired
+	 * @see #lockPageShared(int)
+	 */
+	CompletionStage<Void> lockPageSharedAsync(int pageId, Object owner);
+
+	/**
+	 * Transfer all locks of the given owner to the current thread.
+	 *
+	 * @param owner
+	 *            owner of locks
+	 */
+	void claimPages(Object owner);
+
+	/**
+	 * Unlocks all pages locked by the given owner.
+	 *
+	 * @param owner
+	 *            owner of locks
+	 */
+	void unlockAllPages(Object owner);
+}
@@ -65,4 +65,30 @@ public interface IManageablePage extends IClusterable
 	 * @return previous state
 	 */
 	boolean setFreezePageId(boolean freeze);
+
+	/**
+	 * Whether this page might have been modified since it was last stored or restored from its
+	 * serialized form.
+	 * <p>
+	 * Stores may skip an unmodified page instead of serializing and storing it again. Thus
+	 * implementations must return <code>false</code> only if they are sure that no state of the
+	 * page has changed, in particular a page that was never stored is always modified. The
+	 * default implementation always returns <code>true</code>.
+	 * 
+	 * @return <code>false</code> if the page is known to be unmodified
+	 * @see #onPageStored()
+	 */
+	default boolean isPageModified()
+	{
+		return true;
+	}
+
+	/**
+	 * Notification that this page was stored in its current state, i.e. it is no longer modified.
+	 * 
+	 * @see #isPageModified()
+	 */
+	default void onPageStored()
+	{
+	}
 }
@@ -35,6 +35,32 @@ public interface IPageLockManager extends Serializable
 	 */
 	void lockPage(int pageId) throws CouldNotLockPageException;
 
+	/**
+	 * Acquire a lock to a page, shared with other requests which only read the page.
+	 * <p>
+	 * Defaults to an exclusive lock.
+	 *
+	 * @param pageId
+	 *            page id
+	 * @throws CouldNotLockPageException
+	 *             if lock could not be acquired
+	 * @see org.apache.wicket.IRequestListener#isReadOnly()
+	 */
+	default void lockPageShared(int pageId) throws CouldNotLockPageException
+	{
+		lockPage(pageId);
+	}
+
+	/**
+	 * Are locks acquired with {@link #lockPageShared(int)} actually shared between requests.
+	 *
+	 * @return default {@code false}
+	 */
+	default boolean isSharingLocks()
+	{
+		return false;
+	}
+
 	/**
 	 * Unlocks all pages locked by this thread
 	 */
@@ -18,14 +18,29 @@ package org.apache.wicket.page;
 
 import java.io.Serializable;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.wicket.Application;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.core.util.lang.WicketObjects;
 import org.apache.wicket.pageStore.IPageStore;
+import org.apache.wicket.pageStore.IPageStoreMetrics;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.util.LazyInitializer;
 import org.apache.wicket.util.lang.Args;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Synchronizes access to page instances from multiple threads
+ * <p>
+ * Requests invoking a {@link org.apache.wicket.IRequestListener#isReadOnly() read-only} listener
+ * acquire a shared lock only and do not touch their page. If the lock manager
+ * {@link IPageLockManager#isSharingLocks() shares locks}, they work on a private copy of the page.
  * 
  * @author Igor Vaynberg (ivaynberg)
  */
@@ -35,9 +50,39 @@ public class PageAccessSynchronizer implements Serializable
 
 	private static final Logger logger = LoggerFactory.getLogger(PageAccessSynchronizer.class);
 
+	/** maximum number of pages to keep read-only listeners for */
+	private static final int MAX_READ_ONLY_PAGES = 100;
+
+	/** id of the page accessed read-only in the current request */
+	private static final MetaDataKey<Integer> READ_ONLY_PAGE = new MetaDataKey<>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
 	/** lock manager responsible for locking and unlocking page instances */
 	private final IPageLockManager pageLockManager;
 
+	/** read-only listeners of the most recently used pages */
+	private final LazyInitializer<Map<Integer, Set<String>>> readOnlyListeners = new LazyInitializer<>()
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected Map<Integer, Set<String>> createInstance()
+		{
+			return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Integer, Set<String>> eldest)
+				{
+					return size() > MAX_READ_ONLY_PAGES;
+				}
+			});
+		}
+	};
+
 	/**
 	 * Constructor
 	 * 
@@ -59,6 +104,14 @@ public class PageAccessSynchronizer implements Serializable
 		this.pageLockManager = Args.notNull(pageLockManager, "pageLockManager");
 	}
 
+	/**
+	 * @return the lock manager
+	 */
+	public IPageLockManager getPageLockManager()
+	{
+		return pageLockManager;
+	}
+
 	/**
 	 * Acquire a lock to a page
 	 * 
@@ -69,7 +122,43 @@ public class PageAccessSynchronizer implements Serializable
 	 */
 	public void lockPage(int pageId) throws CouldNotLockPageException
 	{
+		long start = System.nanoTime();
+
 		pageLockManager.lockPage(pageId);
+
+		recordLockWait(start);
+	}
+
+	/**
+	 * Acquire a lock to a page, shared with other requests which only read the page.
+	 * 
+	 * @param pageId
+	 *            page id
+	 * @throws CouldNotLockPageException
+	 *             if lock could not be acquired
+	 */
+	public void lockPageShared(int pageId) throws CouldNotLockPageException
+	{
+		long start = System.nanoTime();
+
+		pageLockManager.lockPageShared(pageId);
+
+		recordLockWait(start);
+	}
+
+	/**
+	 * Record the wait for a lock, if metrics are enabled in the application's store settings.
+	 */
+	private void recordLockWait(long start)
+	{
+		if (Application.exists())
+		{
+			IPageStoreMetrics metrics = Application.get().getStoreSettings().getMetrics();
+			if (metrics != null)
+			{
+				metrics.recordLockWait(System.nanoTime() - start);
+			}
+		}
 	}
 
 	/**
@@ -91,6 +180,91 @@ public class PageAccessSynchronizer implements Serializable
 		pageLockManager.unlockPage(pageId);
 	}
 
+	/**
+	 * Register a read-only listener, see {@link org.apache.wicket.IRequestListener#isReadOnly()}.
+	 * <p>
+	 * Registrations are not replicated with the session, requests to listeners no longer known
+	 * are processed with an exclusive lock.
+	 * 
+	 * @param pageId
+	 *            id of the listener's page
+	 * @param componentPath
+	 *            page relative path of the listener's component
+	 * @param behaviorIndex
+	 *            index of the listener's behavior or <code>null</code>
+	 */
+	public void addReadOnlyListener(int pageId, String componentPath, Integer behaviorIndex)
+	{
+		readOnlyListeners.get()
+			.computeIfAbsent(pageId, key -> ConcurrentHashMap.newKeySet())
+			.add(componentPath + ':' + behaviorIndex);
+	}
+
+	/**
+	 * Is a listener registered as read-only.
+	 * 
+	 * @param pageId
+	 *            id of the listener's page
+	 * @param componentPath
+	 *            page relative path of the listener's component
+	 * @param behaviorIndex
+	 *            index of the listener's behavior or <code>null</code>
+	 * @return <code>true</code> if the listener was registered as read-only
+	 */
+	public boolean isReadOnlyListener(int pageId, String componentPath, Integer behaviorIndex)
+	{
+		Set<String> listeners = readOnlyListeners.get().get(pageId);
+		return listeners != null && listeners.contains(componentPath + ':' + behaviorIndex);
+	}
+
+	/**
+	 * Access a page read-only for the rest of the current request: it is locked shared only and
+	 * not touched. If the lock is actually shared, a private copy of the page is provided.
+	 * 
+	 * @param pageId
+	 *            page id
+	 */
+	public void beginReadOnly(int pageId)
+	{
+		RequestCycle.get().setMetaData(READ_ONLY_PAGE, pageId);
+	}
+
+	/**
+	 * Is a page accessed read-only in the current request.
+	 * 
+	 * @param pageId
+	 *            page id
+	 * @return <code>true</code> if accessed read-only
+	 */
+	public boolean isReadOnly(int pageId)
+	{
+		RequestCycle requestCycle = RequestCycle.get();
+		return requestCycle != null &&
+			Integer.valueOf(pageId).equals(requestCycle.getMetaData(READ_ONLY_PAGE));
+	}
+
+	/**
+	 * Stop accessing a page read-only, exchanging its shared lock for an exclusive one.
+	 * <p>
+	 * Note that the lock is not upgraded atomically: the page has to be retrieved again, any copy
+	 * provided read-only must no longer be used.
+	 * 
+	 * @param pageId
+	 *            page id
+	 * @throws CouldNotLockPageException
+	 *             if lock could not be acquired
+	 */
+	public void endReadOnly(int pageId) throws CouldNotLockPageException
+	{
+		if (isReadOnly(pageId))
+		{
+			RequestCycle.get().setMetaData(READ_ONLY_PAGE, null);
+
+			unlockPage(pageId);
+			lockPage(pageId);
+		}
+	}
+
 	/**
 	 * Wraps a page manager with this synchronizer
 	 * 
@@ -113,8 +287,21 @@ public class PageAccessSynchronizer implements Serializable
 				IManageablePage page = null;
 				try
 				{
-					lockPage(pageId);
-					page = manager.getPage(pageId);
+					if (isReadOnly(pageId))
+					{
+						lockPageShared(pageId);
+						page = manager.getPage(pageId);
+						if (page != null && pageLockManager.isSharingLocks())
+						{
+							// other read-only requests might use the page concurrently
+							page = WicketObjects.cloneObject(page);
+						}
+					}
+					else
+					{
+						lockPage(pageId);
+						page = manager.getPage(pageId);
+					}
 				}
 				finally
 				{
@@ -131,6 +318,7 @@ public class PageAccessSynchronizer implements Serializable
 			{
 				if (page != null)
 				{
+					readOnlyListeners.get().remove(page.getPageId());
 					try
 					{
 						manager.removePage(page);
@@ -145,6 +333,11 @@ public class PageAccessSynchronizer implements Serializable
 			@Override
 			public void touchPage(IManageablePage page)
 			{
+				if (isReadOnly(page.getPageId()))
+				{
+					return;
+				}
+
 				lockPage(page.getPageId());
 
 				manager.touchPage(page);
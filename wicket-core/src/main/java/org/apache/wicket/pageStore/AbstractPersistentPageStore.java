@@ -17,6 +17,7 @@
 package org.apache.wicket.pageStore;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -144,6 +145,30 @@ public abstract class AbstractPersistentPageStore implements IPageStore
 	 */
 	protected abstract void addPersistedPage(String sessionIdentifier, IManageablePage page);
 
+	@Override
+	public void addPages(IPageContext context, List<IManageablePage> pages)
+	{
+		String sessionIdentifier = getSessionIdentifier(context, true);
+
+		addPersistedPages(sessionIdentifier, pages);
+	}
+
+	/**
+	 * Add several pages at once.
+	 * <p>
+	 * Default implementation adds each page with {@link #addPersistedPage(String, IManageablePage)}.
+	 * 
+	 * @param sessionIdentifier identifier of session
+	 * @param pages pages to add
+	 */
+	protected void addPersistedPages(String sessionIdentifier, List<IManageablePage> pages)
+	{
+		for (IManageablePage page : pages)
+		{
+			addPersistedPage(sessionIdentifier, page);
+		}
+	}
+
 	/**
 	 * Get the distinct and stable identifier for the given context.
 	 * 
@@ -17,13 +17,18 @@
 package org.apache.wicket.pageStore;
 
 import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 
 import org.apache.wicket.MetaDataKey;
@@ -37,12 +42,22 @@ import org.slf4j.LoggerFactory;
 /**
  * Facade for {@link IPageStore} moving {@link #addPage(IPageContext, IManageablePage)} to a worker thread.
  * <p>
- * Creates an {@link PendingAdd} for {@link #addPage(IPageContext, IManageablePage)} and puts ito a {@link #queue}.
- * Later {@link PageAddingRunnable} reads in blocking manner from {@link #queue} and performs the add.
+ * Creates an {@link PendingAdd} for {@link #addPage(IPageContext, IManageablePage)} and puts ito a queue.
+ * Later {@link PageAddingRunnable} reads in blocking manner from the queue and performs the add.
  * <p>
- * It starts only one instance of {@link PageAddingRunnable} because all we need is to make the page
+ * Pending adds of the same page are coalesced, i.e. only the latest version of a page is added. All adds
+ * pending in the queue are passed as a batch per session to
+ * {@link IPageStore#addPages(IPageContext, List)}. They are removed from the queue after being added
+ * only, thus still counting against its capacity.
+ * <p>
+ * By default it starts only one instance of {@link PageAddingRunnable} because all we need is to make the page
  * storing asynchronous. We don't want to write concurrently in the wrapped {@link IPageStore},
  * though it may happen in the extreme case when the queue is full. These cases should be avoided.
+ * <p>
+ * If a single thread cannot keep up with the load, the store can be partitioned: Each session is
+ * assigned to one of several queues, each with its own {@link PageAddingRunnable}. Thus pages of a single
+ * session are still added in order, while pages of different sessions are added concurrently. In this
+ * case the wrapped {@link IPageStore} has to support concurrent adding of pages.
  * 
  * @author Matej Knopp
  * @author manuelbarzi
@@ -64,14 +79,14 @@ public class AsynchronousPageStore extends DelegatingPageStore
 	private static final long POLL_WAIT = 1000L;
 
 	/**
-	 * The page saving thread.
+	 * The page saving threads, one for each queue.
 	 */
-	private final Thread pageSavingThread;
+	private final List<Thread> pageSavingThreads;
 
 	/**
-	 * The queue where the entries which have to be saved are temporary stored
+	 * The queues where the entries which have to be saved are temporary stored, partitioned by session.
 	 */
-	private final BlockingQueue<PendingAdd> queue;
+	private final List<BlockingQueue<PendingAdd>> queues;
 
 	/**
 	 * A map 'sessionId:::pageId' -> {@link PendingAdd}. Used for fast retrieval of {@link PendingAdd}s which
@@ -79,6 +94,16 @@ public class AsynchronousPageStore extends DelegatingPageStore
 	 */
 	private final ConcurrentMap<String, PendingAdd> queueMap;
 
+	/**
+	 * Total time spent waiting for a queue in {@link #addPage(IPageContext, IManageablePage)}. In nanos.
+	 */
+	private final LongAdder waitTime = new LongAdder();
+
+	/**
+	 * Count of pages that could not be queued and were added synchronously.
+	 */
+	private final LongAdder dropCount = new LongAdder();
+
 	/**
 	 * Construct.
 	 * 
@@ -88,16 +113,107 @@ public class AsynchronousPageStore extends DelegatingPageStore
 	 *            the capacity of the queue that delays the saving
 	 */
 	public AsynchronousPageStore(final IPageStore delegate, final int capacity)
+	{
+		this(delegate, capacity, 1, false);
+	}
+
+	/**
+	 * Construct a store partitioned by session.
+	 * 
+	 * @param delegate
+	 *            the wrapped {@link IPageStore} that actually saved the page, has to support
+	 *            concurrent adding of pages if more than one thread is used
+	 * @param capacity
+	 *            the capacity of each queue that delays the saving
+	 * @param threads
+	 *            count of queues, each with its own saving thread
+	 * @param virtual
+	 *            whether virtual threads should be used for saving
+	 */
+	public AsynchronousPageStore(final IPageStore delegate, final int capacity, final int threads,
+		final boolean virtual)
 	{
 		super(delegate);
-		
-		queue = new LinkedBlockingQueue<>(capacity);
+
+		Args.withinRange(1, Integer.MAX_VALUE, threads, "threads");
+
+		queues = new ArrayList<>(threads);
+		pageSavingThreads = new ArrayList<>(threads);
 		queueMap = new ConcurrentHashMap<>();
 
-		PageAddingRunnable savingRunnable = new PageAddingRunnable(delegate, queue, queueMap);
-		pageSavingThread = new Thread(savingRunnable, "Wicket-AsyncPageStore-PageSavingThread");
-		pageSavingThread.setDaemon(true);
-		pageSavingThread.start();
+		for (int t = 0; t < threads; t++)
+		{
+			BlockingQueue<PendingAdd> queue = new LinkedBlockingQueue<>(capacity);
+			queues.add(queue);
+
+			String name = "Wicket-AsyncPageStore-PageSavingThread";
+			if (threads > 1)
+			{
+				name += "-" + t;
+			}
+
+			PageAddingRunnable savingRunnable = new PageAddingRunnable(delegate, queue, queueMap);
+			Thread pageSavingThread;
+			if (virtual)
+			{
+				pageSavingThread = Thread.ofVirtual().name(name).unstarted(savingRunnable);
+			}
+			else
+			{
+				pageSavingThread = new Thread(savingRunnable, name);
+				pageSavingThread.setDaemon(true);
+			}
+			pageSavingThreads.add(pageSavingThread);
+			pageSavingThread.start();
+		}
+	}
+
+	/**
+	 * Get the queue for the given session.
+	 * 
+	 * @param sessionId
+	 *            id of session
+	 * @return queue
+	 */
+	private BlockingQueue<PendingAdd> getQueue(final String sessionId)
+	{
+		return queues.get(Math.floorMod(sessionId.hashCode(), queues.size()));
+	}
+
+	/**
+	 * Get the count of pages currently waiting in all queues.
+	 * 
+	 * @return count of pending pages
+	 */
+	public int getQueueDepth()
+	{
+		int depth = 0;
+		for (BlockingQueue<PendingAdd> queue : queues)
+		{
+			depth += queue.size();
+		}
+		return depth;
+	}
+
+	/**
+	 * Get the total time spent waiting for a queue when adding pages.
+	 * 
+	 * @return total wait time
+	 */
+	public Duration getWaitTime()
+	{
+		return Duration.ofNanos(waitTime.sum());
+	}
+
+	/**
+	 * Get the count of pages which could not be queued because of a full queue, and were thus added
+	 * synchronously.
+	 * 
+	 * @return count of dropped pages
+	 */
+	public long getDropCount()
+	{
+		return dropCount.sum();
 	}
 
 	/**
@@ -285,38 +401,114 @@ public class AsynchronousPageStore extends DelegatingPageStore
 
 				if (add != null)
 				{
+					List<PendingAdd> pending = new ArrayList<>();
+					pending.add(add);
+					pending.addAll(queue);
+
 					try
 					{
-						log.debug("Saving asynchronously: {}...", add);
-						add.asynchronous = true;
-						delegate.addPage(add, add.page);
-					}
-					catch (Exception x)
-					{
-						log.error("An error occurred while saving asynchronously '{}'", add, x);
+						for (List<PendingAdd> batch : coalesce(pending).values())
+						{
+							add(batch);
+						}
 					}
 					finally
 					{
-						map.remove(add.getKey());
+						if (pending.size() > 1)
+						{
+							queue.removeAll(pending.subList(1, pending.size()));
+						}
 					}
 				}
 			}
 		}
+
+		/**
+		 * Group the given adds by session, skipping all adds that were superseded by a newer add of the
+		 * same page (or removed in the meantime).
+		 * 
+		 * @param adds
+		 *            adds to coalesce
+		 * @return adds by session
+		 */
+		private Map<String, List<PendingAdd>> coalesce(List<PendingAdd> adds)
+		{
+			Map<String, List<PendingAdd>> batches = new LinkedHashMap<>();
+
+			for (PendingAdd add : adds)
+			{
+				if (map.get(add.getKey()) != add)
+				{
+					log.debug("Skipping superseded: {}", add);
+					continue;
+				}
+
+				batches.computeIfAbsent(add.sessionId, key -> new ArrayList<>()).add(add);
+			}
+
+			return batches;
+		}
+
+		/**
+		 * Add a batch of pages of a single session.
+		 * 
+		 * @param batch
+		 *            adds of a single session
+		 */
+		private void add(List<PendingAdd> batch)
+		{
+			// the latest add holds the most recent cache of the session
+			PendingAdd context = batch.get(batch.size() - 1);
+
+			List<IManageablePage> pages = new ArrayList<>(batch.size());
+			for (PendingAdd add : batch)
+			{
+				add.asynchronous = true;
+				pages.add(add.page);
+			}
+
+			try
+			{
+				log.debug("Saving asynchronously: {}...", batch);
+				if (pages.size() == 1)
+				{
+					delegate.addPage(context, context.page);
+				}
+				else
+				{
+					delegate.addPages(context, pages);
+				}
+			}
+			catch (Exception x)
+			{
+				log.error("An error occurred while saving asynchronously '{}'", batch, x);
+			}
+			finally
+			{
+				for (PendingAdd add : batch)
+				{
+					map.remove(add.getKey(), add);
+				}
+			}
+		}
 	}
 
 	@Override
 	public void destroy()
 	{
-		if (pageSavingThread.isAlive())
+		for (Thread pageSavingThread : pageSavingThreads)
 		{
-			pageSavingThread.interrupt();
-			try
+			if (pageSavingThread.isAlive())
 			{
-				pageSavingThread.join();
-			}
-			catch (InterruptedException e)
-			{
-				log.error(e.getMessage(), e);
+				pageSavingThread.interrupt();
+				try
+				{
+					pageSavingThread.join();
+				}
+				catch (InterruptedException e)
+				{
+					log.error(e.getMessage(), e);
+				}
 			}
 		}
 
@@ -356,7 +548,7 @@ public class AsynchronousPageStore extends DelegatingPageStore
 		PendingAdd entry = queueMap.remove(key);
 		if (entry != null)
 		{
-			queue.remove(entry);
+			getQueue(sessionId).remove(entry);
 		}
 
 		getDelegate().removePage(context, page);
@@ -369,10 +561,15 @@ public class AsynchronousPageStore extends DelegatingPageStore
 		if (getDelegate().canBeAsynchronous(add))
 		{
 			String key = add.getKey();
-			queueMap.put(key, add);
+			PendingAdd previous = queueMap.put(key, add);
+			if (previous != null && getQueue(add.sessionId).remove(previous))
+			{
+				log.debug("Coalesced pending add of page with id '{}'", page.getPageId());
+			}
+			long start = System.nanoTime();
 			try
 			{
-				if (queue.offer(add, OFFER_WAIT, TimeUnit.MILLISECONDS))
+				if (getQueue(add.sessionId).offer(add, OFFER_WAIT, TimeUnit.MILLISECONDS))
 				{
 					log.debug("Offered for storing asynchronously page with id '{}'", page.getPageId());
 					return;
@@ -381,12 +578,18 @@ public class AsynchronousPageStore extends DelegatingPageStore
 				{
 					log.debug("Storing synchronously page with id '{}'", page.getPageId());
 					queueMap.remove(key);
+					dropCount.increment();
 				}
 			}
 			catch (InterruptedException e)
 			{
 				log.error(e.getMessage(), e);
 				queueMap.remove(key);
+				dropCount.increment();
+			}
+			finally
+			{
+				waitTime.add(System.nanoTime() - start);
 			}
 		}
 		else
@@ -405,7 +608,7 @@ public class AsynchronousPageStore extends DelegatingPageStore
 			return;
 		}
 
-		queue.removeIf(add -> {
+		getQueue(sessionId).removeIf(add -> {
 			if (add.sessionId.equals(sessionId)) {
 				queueMap.remove(add.getKey());
 				return true;
@@ -413,6 +616,9 @@ public class AsynchronousPageStore extends DelegatingPageStore
 			
 			return false;
 		});
+
+		// adds currently being saved
+		queueMap.values().removeIf(add -> add.sessionId.equals(sessionId));
 		
 		getDelegate().removeAllPages(context);
 	}
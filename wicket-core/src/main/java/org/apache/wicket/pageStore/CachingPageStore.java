@@ -16,6 +16,9 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.apache.wicket.page.IManageablePage;
 
 /**
@@ -29,6 +32,10 @@ public class CachingPageStore extends DelegatingPageStore
 	 */
 	private final IPageStore cache;
 
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
 	/**
 	 * Constructor.
 	 * @param delegate store to delegate to
@@ -51,6 +58,26 @@ public class CachingPageStore extends DelegatingPageStore
 		return cache;
 	}
 
+	/**
+	 * Get the count of pages found in the cache.
+	 * 
+	 * @return count of hits
+	 */
+	public long getHitCount()
+	{
+		return hitCount.sum();
+	}
+
+	/**
+	 * Get the count of pages not found in the cache, thus looked up in the delegate.
+	 * 
+	 * @return count of misses
+	 */
+	public long getMissCount()
+	{
+		return missCount.sum();
+	}
+
 	/**
 	 * Get the page from cache first.
 	 */
@@ -59,8 +86,10 @@ public class CachingPageStore extends DelegatingPageStore
 	{
 		IManageablePage page = cache.getPage(context, id);
 		if (page != null) {
+			hitCount.increment();
 			return page;
 		}
+		missCount.increment();
 		
 		return getDelegate().getPage(context, id);
 	}
@@ -73,6 +102,17 @@ public class CachingPageStore extends DelegatingPageStore
 		getDelegate().addPage(context, page);
 	}
 
+	@Override
+	public void addPages(IPageContext context, List<IManageablePage> pages)
+	{
+		for (IManageablePage page : pages)
+		{
+			cache.addPage(context, page);
+		}
+
+		getDelegate().addPages(context, pages);
+	}
+
 	@Override
 	public void removePage(IPageContext context, IManageablePage page)
 	{
@@ -18,6 +18,8 @@ package org.apache.wicket.pageStore;
 
 import java.io.Serializable;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.crypto.SecretKey;
 
@@ -123,6 +125,26 @@ public class CryptingPageStore extends DelegatingPageStore
 
 	@Override
 	public void addPage(IPageContext context, IManageablePage page)
+	{
+		getDelegate().addPage(context, encrypt(context, page));
+	}
+
+	/**
+	 * Encrypts all pages and passes them on to the delegate at once.
+	 */
+	@Override
+	public void addPages(IPageContext context, List<IManageablePage> pages)
+	{
+		List<IManageablePage> encrypted = new ArrayList<>(pages.size());
+		for (IManageablePage page : pages)
+		{
+			encrypted.add(encrypt(context, page));
+		}
+
+		getDelegate().addPages(context, encrypted);
+	}
+
+	private IManageablePage encrypt(IPageContext context, IManageablePage page)
 	{
 		if (page instanceof SerializedPage == false)
 		{
@@ -135,9 +157,7 @@ public class CryptingPageStore extends DelegatingPageStore
 		byte[] encrypted = getSessionData(context).encrypt(decrypted, crypter,
 			application.getSecuritySettings().getRandomSupplier().getRandom());
 
-		page = new SerializedPage(page.getPageId(), serializedPage.getPageType(), encrypted);
-
-		getDelegate().addPage(context, page);
+		return new SerializedPage(page.getPageId(), serializedPage.getPageType(), encrypted);
 	}
 
 	private static class SessionData implements Serializable
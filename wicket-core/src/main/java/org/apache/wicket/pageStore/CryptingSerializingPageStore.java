@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.crypto.SecretKey;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.pageStore.crypt.ICrypter;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.util.io.ByteArrayOutputStream;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A store that serializes and encrypts all pages in a single pass before delegating and vice versa.
+ * <p>
+ * This is an alternative to a {@link SerializingPageStore} followed by a {@link CryptingPageStore}:
+ * the serialized (and possibly compressed) stream is passed through the {@link ICrypter} as it is
+ * written, into a pooled buffer, so each page results in a single encrypted array.
+ * <p>
+ * Since the data is encrypted, the serialized form of pages is not shared with other stores, see
+ * {@link #isSerializedPageShared()}.
+ */
+public class CryptingSerializingPageStore extends SerializingPageStore
+{
+	private static final MetaDataKey<SecretKey> KEY = new MetaDataKey<>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+	private final BlockingQueue<ByteArrayOutputStream> buffers = new ArrayBlockingQueue<>(
+		POOL_SIZE);
+
+	private final ISerializer serializer;
+
+	private final ICrypter crypter;
+
+	private final Application application;
+
+	/**
+	 * @param delegate
+	 *            store to delegate to
+	 * @param serializer
+	 *            serializer to use
+	 * @param application
+	 *            the application
+	 */
+	public CryptingSerializingPageStore(IPageStore delegate, ISerializer serializer,
+		Application application)
+	{
+		super(delegate, serializer);
+
+		this.serializer = serializer;
+		this.application = Args.notNull(application, "application");
+		crypter = newCrypter();
+	}
+
+	/**
+	 * Create a new {@link ICrypter}.
+	 */
+	protected ICrypter newCrypter()
+	{
+		return application.getStoreSettings().getCrypter().get();
+	}
+
+	/**
+	 * Supports asynchronous add if the delegate supports it.
+	 */
+	@Override
+	public boolean canBeAsynchronous(IPageContext context)
+	{
+		// key must be added here *before* any asynchronous calls
+		// when session is no longer available
+		getKey(context);
+
+		return super.canBeAsynchronous(context);
+	}
+
+	private SecretKey getKey(IPageContext context)
+	{
+		return context.getSessionData(KEY,
+			() -> crypter.generateKey(application.getSecuritySettings().getRandomSupplier().getRandom()));
+	}
+
+	@Override
+	protected byte[] serialize(IPageContext context, IManageablePage page)
+	{
+		ByteArrayOutputStream buffer = buffers.poll();
+		if (buffer == null)
+		{
+			buffer = new ByteArrayOutputStream();
+		}
+
+		try
+		{
+			OutputStream out = crypter.encrypt(buffer, getKey(context),
+				application.getSecuritySettings().getRandomSupplier().getRandom());
+			serializer.serialize(page, out);
+			out.close();
+
+			return buffer.toByteArray();
+		}
+		catch (IOException ex)
+		{
+			throw new WicketRuntimeException("Could not serialize page " + page.getPageId(), ex);
+		}
+		finally
+		{
+			buffer.reset();
+			buffers.offer(buffer);
+		}
+	}
+
+	@Override
+	protected Object deserialize(IPageContext context, byte[] data)
+	{
+		return super.deserialize(context, crypter.decrypt(data, getKey(context)));
+	}
+
+	/**
+	 * Pages are encrypted, so their serialized form is not shared.
+	 */
+	@Override
+	protected boolean isSerializedPageShared()
+	{
+		return false;
+	}
+}
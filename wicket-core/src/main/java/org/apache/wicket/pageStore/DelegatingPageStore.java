@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.util.List;
+
 import org.apache.wicket.page.IManageablePage;
 import org.apache.wicket.util.lang.Args;
 
@@ -51,6 +53,21 @@ public abstract class DelegatingPageStore implements IPageStore
 		delegate.addPage(context, page);
 	}
 
+	/**
+	 * Adds each page with {@link #addPage(IPageContext, IManageablePage)}, so subclasses
+	 * overriding the latter only keep working unchanged.
+	 * <p>
+	 * Subclasses may override this method to pass all pages on to the delegate at once.
+	 */
+	@Override
+	public void addPages(IPageContext context, List<IManageablePage> pages)
+	{
+		for (IManageablePage page : pages)
+		{
+			addPage(context, page);
+		}
+	}
+
 	@Override
 	public void removePage(IPageContext context, IManageablePage page)
 	{
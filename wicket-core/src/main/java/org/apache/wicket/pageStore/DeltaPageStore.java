@@ -0,0 +1,653 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.pageStore.delta.BinaryDelta;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A store that keeps a base version of serialized pages and passes binary deltas to its delegate.
+ * <p>
+ * Pages changing only a few components per request, e.g. on Ajax requests, differ little from
+ * other pages of the same type, so storing a delta against a common base reduces the amount of
+ * written data considerably. Each page type has its own base, stored under a separate (negative)
+ * page id, thus it is never overwritten by a page. After a maximum count of deltas, or when a page
+ * diverged too far from its base, the next page of that type becomes the new base. A base is
+ * removed as soon as no page refers to it any longer.
+ * <p>
+ * A delegate evicting its oldest pages, e.g. because of its maximum size per session, would evict
+ * a base before the pages referring to it. Therefore each base still in use is stored again, after
+ * a configurable amount of data was passed to the delegate since the base was stored. This amount
+ * has to be smaller than the delegate's maximum size per session.
+ * <p>
+ * Recently used bases of all sessions are cached in memory, up to a maximum size.
+ * <p>
+ * All pages passing through this store are restricted to be {@link SerializedPage}s. It has to be
+ * placed before any {@link CryptingPageStore}, since encrypted data cannot be diffed.
+ */
+public class DeltaPageStore extends DelegatingPageStore
+{
+	private static final Logger log = LoggerFactory.getLogger(DeltaPageStore.class);
+
+	private static final MetaDataKey<SessionData> KEY = new MetaDataKey<>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	/**
+	 * Marker for a full page.
+	 */
+	private static final byte FULL = 0;
+
+	/**
+	 * Marker for a delta.
+	 */
+	private static final byte DELTA = 1;
+
+	/**
+	 * Maximum count of page types with a current base in each session.
+	 */
+	private static final int MAX_TYPES = 10;
+
+	/**
+	 * Maximum count of pages whose base is tracked in each session, older pages are expected to be
+	 * evicted by the delegate already.
+	 */
+	private static final int MAX_PAGES = 200;
+
+	private final int maxDeltas;
+
+	private final long restoreAfter;
+
+	private final long maxCacheSize;
+
+	private final BinaryDelta delta = new BinaryDelta();
+
+	/**
+	 * Cached data of bases, keyed by session id and base id.
+	 */
+	private final Map<String, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long cacheSize;
+
+	/**
+	 * Store bases again after 5 megabytes, caching up to 10 megabytes of bases.
+	 * 
+	 * @param delegate
+	 *            store to delegate to
+	 * @param maxDeltas
+	 *            maximum count of deltas before a new base is stored
+	 */
+	public DeltaPageStore(IPageStore delegate, int maxDeltas)
+	{
+		this(delegate, maxDeltas, Bytes.megabytes(5), Bytes.megabytes(10));
+	}
+
+	/**
+	 * @param delegate
+	 *            store to delegate to
+	 * @param maxDeltas
+	 *            maximum count of deltas before a new base is stored
+	 * @param restoreAfter
+	 *            amount of data passed to the delegate after a base, before the base is stored
+	 *            again
+	 * @param maxCacheSize
+	 *            maximum size of cached bases
+	 */
+	public DeltaPageStore(IPageStore delegate, int maxDeltas, Bytes restoreAfter, Bytes maxCacheSize)
+	{
+		super(delegate);
+
+		this.maxDeltas = Args.withinRange(1, Integer.MAX_VALUE, maxDeltas, "maxDeltas").intValue();
+		this.restoreAfter = Args.notNull(restoreAfter, "restoreAfter").bytes();
+		this.maxCacheSize = Args.notNull(maxCacheSize, "maxCacheSize").bytes();
+	}
+
+	/**
+	 * Pages are always serialized, so versioning is supported.
+	 */
+	@Override
+	public boolean supportsVersioning()
+	{
+		return true;
+	}
+
+	/**
+	 * Supports asynchronous add if the delegate supports it.
+	 */
+	@Override
+	public boolean canBeAsynchronous(IPageContext context)
+	{
+		// session data must be added here *before* any asynchronous calls
+		// when session is no longer available
+		getSessionData(context, true);
+
+		return getDelegate().canBeAsynchronous(context);
+	}
+
+	private SessionData getSessionData(IPageContext context, boolean create)
+	{
+		return context.getSessionData(KEY, create ? SessionData::new : null);
+	}
+
+	@Override
+	public IManageablePage getPage(IPageContext context, int id)
+	{
+		IManageablePage page = getDelegate().getPage(context, id);
+		if (page == null)
+		{
+			return null;
+		}
+
+		SerializedPage serializedPage = toSerializedPage(page);
+		ByteBuffer buffer = ByteBuffer.wrap(serializedPage.getData());
+
+		byte[] data;
+		if (buffer.get() == FULL)
+		{
+			data = new byte[buffer.remaining()];
+			buffer.get(data);
+		}
+		else
+		{
+			int baseId = buffer.getInt();
+			byte[] base = getBase(context, baseId);
+			if (base == null)
+			{
+				log.debug("base {} of page {} is no longer available", baseId, id);
+				return null;
+			}
+
+			byte[] encoded = new byte[buffer.remaining()];
+			buffer.get(encoded);
+			data = delta.decode(base, encoded);
+		}
+
+		return new SerializedPage(id, serializedPage.getPageType(), data);
+	}
+
+	private byte[] getBase(IPageContext context, int baseId)
+	{
+		byte[] base = getCached(context, baseId);
+		if (base != null)
+		{
+			return base;
+		}
+
+		IManageablePage page = getDelegate().getPage(context, baseId);
+		if (page == null)
+		{
+			return null;
+		}
+
+		byte[] data = toSerializedPage(page).getData();
+		base = Arrays.copyOfRange(data, 1, data.length);
+
+		cache(context, baseId, base);
+
+		return base;
+	}
+
+	@Override
+	public void addPage(IPageContext context, IManageablePage page)
+	{
+		addPages(context, Collections.singletonList(page));
+	}
+
+	/**
+	 * Encodes all pages and passes them on to the delegate at once.
+	 */
+	@Override
+	public void addPages(IPageContext context, List<IManageablePage> pages)
+	{
+		SessionData sessionData = getSessionData(context, true);
+
+		List<IManageablePage> adds = new ArrayList<>();
+		List<Integer> unused = new ArrayList<>();
+		synchronized (sessionData)
+		{
+			restoreBases(context, sessionData, adds);
+
+			for (IManageablePage page : pages)
+			{
+				encode(context, sessionData, toSerializedPage(page), adds, unused);
+			}
+		}
+
+		getDelegate().addPages(context, adds);
+
+		removeBases(context, unused);
+	}
+
+	/**
+	 * Store all bases in use again, which were stored too long ago.
+	 */
+	private void restoreBases(IPageContext context, SessionData sessionData,
+		List<IManageablePage> adds)
+	{
+		for (Base base : sessionData.bases.values())
+		{
+			if (sessionData.written - base.storedAt > restoreAfter)
+			{
+				byte[] data = getBase(context, base.id);
+				if (data == null)
+				{
+					log.debug("base {} is no longer available", base.id);
+					continue;
+				}
+
+				log.debug("storing base {} again", base.id);
+				adds.add(newFullPage(sessionData, base, data));
+			}
+		}
+	}
+
+	private void encode(IPageContext context, SessionData sessionData, SerializedPage page,
+		List<IManageablePage> adds, List<Integer> unused)
+	{
+		byte[] data = page.getData();
+
+		Base base = sessionData.getCurrent(page.getPageType());
+
+		byte[] encoded = null;
+		if (base != null && base.deltas < maxDeltas)
+		{
+			byte[] baseData = getBase(context, base.id);
+			if (baseData != null)
+			{
+				encoded = delta.encode(baseData, data);
+				if (encoded.length > data.length / 2)
+				{
+					// diverged too far
+					encoded = null;
+				}
+			}
+		}
+
+		if (encoded == null)
+		{
+			base = sessionData.newBase(page.getPageType(), unused);
+
+			cache(context, base.id, data);
+			adds.add(newFullPage(sessionData, base, data));
+
+			encoded = delta.encode(data, data);
+		}
+		else
+		{
+			base.deltas++;
+		}
+
+		byte[] encodedPage = ByteBuffer.allocate(1 + 4 + encoded.length)
+			.put(DELTA)
+			.putInt(base.id)
+			.put(encoded)
+			.array();
+		adds.add(new SerializedPage(page.getPageId(), page.getPageType(), encodedPage));
+		sessionData.written += encodedPage.length;
+
+		sessionData.use(page.getPageId(), base, unused);
+	}
+
+	private SerializedPage newFullPage(SessionData sessionData, Base base, byte[] data)
+	{
+		byte[] fullPage = ByteBuffer.allocate(1 + data.length).put(FULL).put(data).array();
+
+		sessionData.written += fullPage.length;
+		base.storedAt = sessionData.written;
+
+		return new SerializedPage(base.id, base.type, fullPage);
+	}
+
+	@Override
+	public void removePage(IPageContext context, IManageablePage page)
+	{
+		getDelegate().removePage(context, page);
+
+		SessionData sessionData = getSessionData(context, false);
+		if (sessionData != null)
+		{
+			List<Integer> unused = new ArrayList<>();
+			synchronized (sessionData)
+			{
+				sessionData.release(page.getPageId(), unused);
+			}
+
+			removeBases(context, unused);
+		}
+	}
+
+	@Override
+	public void removeAllPages(IPageContext context)
+	{
+		getDelegate().removeAllPages(context);
+
+		SessionData sessionData = getSessionData(context, false);
+		if (sessionData != null)
+		{
+			List<Integer> unused = new ArrayList<>();
+			synchronized (sessionData)
+			{
+				unused.addAll(sessionData.bases.keySet());
+
+				sessionData.clear();
+			}
+
+			for (Integer baseId : unused)
+			{
+				uncache(context, baseId);
+			}
+		}
+	}
+
+	private void removeBases(IPageContext context, List<Integer> baseIds)
+	{
+		for (Integer baseId : baseIds)
+		{
+			uncache(context, baseId);
+
+			getDelegate().removePage(context, new SerializedPage(baseId, new byte[0]));
+		}
+	}
+
+	private String getCacheKey(IPageContext context, int baseId)
+	{
+		String sessionId = context.getSessionId(false);
+		if (sessionId == null)
+		{
+			return null;
+		}
+		return sessionId + ':' + baseId;
+	}
+
+	private byte[] getCached(IPageContext context, int baseId)
+	{
+		String key = getCacheKey(context, baseId);
+		if (key == null)
+		{
+			return null;
+		}
+
+		synchronized (cache)
+		{
+			return cache.get(key);
+		}
+	}
+
+	private void cache(IPageContext context, int baseId, byte[] data)
+	{
+		String key = getCacheKey(context, baseId);
+		if (key == null || data.length > maxCacheSize)
+		{
+			return;
+		}
+
+		synchronized (cache)
+		{
+			byte[] previous = cache.put(key, data);
+			if (previous != null)
+			{
+				cacheSize -= previous.length;
+			}
+			cacheSize += data.length;
+
+			Iterator<byte[]> eldest = cache.values().iterator();
+			while (cacheSize > maxCacheSize)
+			{
+				cacheSize -= eldest.next().length;
+				eldest.remove();
+			}
+		}
+	}
+
+	private void uncache(IPageContext context, int baseId)
+	{
+		String key = getCacheKey(context, baseId);
+		if (key == null)
+		{
+			return;
+		}
+
+		synchronized (cache)
+		{
+			byte[] previous = cache.remove(key);
+			if (previous != null)
+			{
+				cacheSize -= previous.length;
+			}
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+		synchronized (cache)
+		{
+			cache.clear();
+			cacheSize = 0;
+		}
+
+		super.destroy();
+	}
+
+	private SerializedPage toSerializedPage(IManageablePage page)
+	{
+		if (page instanceof SerializedPage == false)
+		{
+			throw new WicketRuntimeException("DeltaPageStore works with serialized pages only");
+		}
+		return (SerializedPage)page;
+	}
+
+	/**
+	 * A base stored in the delegate.
+	 */
+	private static class Base implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int id;
+
+		private final String type;
+
+		/**
+		 * Count of deltas against this base.
+		 */
+		private int deltas;
+
+		/**
+		 * Count of pages referring to this base.
+		 */
+		private int usages;
+
+		/**
+		 * Is this the current base of its type.
+		 */
+		private boolean current = true;
+
+		/**
+		 * Amount of data written in the session when this base was stored.
+		 */
+		private long storedAt;
+
+		public Base(int id, String type)
+		{
+			this.id = id;
+			this.type = type;
+		}
+	}
+
+	/**
+	 * Data kept in the session, keeping track of bases.
+	 */
+	private static class SessionData implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Id of the latest base, <code>0</code> if none.
+		 */
+		private int baseId;
+
+		/**
+		 * Amount of data passed to the delegate.
+		 */
+		private long written;
+
+		/**
+		 * Current base for each page type, least recently used first.
+		 */
+		private final LinkedHashMap<String, Base> current = new LinkedHashMap<>(16, 0.75f, true);
+
+		/**
+		 * Bases which are current or in use.
+		 */
+		private final Map<Integer, Base> bases = new HashMap<>();
+
+		/**
+		 * Id of base for each page, least recently added first.
+		 */
+		private final LinkedHashMap<Integer, Integer> pages = new LinkedHashMap<>();
+
+		public Base getCurrent(String type)
+		{
+			return current.get(String.valueOf(type));
+		}
+
+		/**
+		 * Switch to a new base for the given type.
+		 */
+		public Base newBase(String type, List<Integer> unused)
+		{
+			// bases are identified by negative ids
+			baseId = baseId == Integer.MIN_VALUE ? -1 : baseId - 1;
+
+			Base base = new Base(baseId, type);
+			bases.put(base.id, base);
+
+			Base previous = current.put(String.valueOf(type), base);
+			if (previous != null)
+			{
+				previous.current = false;
+				removeIfUnused(previous, unused);
+			}
+
+			if (current.size() > MAX_TYPES)
+			{
+				Iterator<Base> eldest = current.values().iterator();
+				Base eldestBase = eldest.next();
+				eldest.remove();
+
+				eldestBase.current = false;
+				removeIfUnused(eldestBase, unused);
+			}
+
+			return base;
+		}
+
+		/**
+		 * The given page uses a base.
+		 */
+		public void use(int pageId, Base base, List<Integer> unused)
+		{
+			base.usages++;
+
+			Integer previous = pages.remove(pageId);
+			pages.put(pageId, base.id);
+			if (previous != null)
+			{
+				releaseBase(previous, unused);
+			}
+
+			if (pages.size() > MAX_PAGES)
+			{
+				Iterator<Integer> eldest = pages.values().iterator();
+				Integer eldestBaseId = eldest.next();
+				eldest.remove();
+
+				releaseBase(eldestBaseId, unused);
+			}
+		}
+
+		/**
+		 * The given page is removed.
+		 */
+		public void release(int pageId, List<Integer> unused)
+		{
+			Integer previous = pages.remove(pageId);
+			if (previous != null)
+			{
+				releaseBase(previous, unused);
+			}
+		}
+
+		private void releaseBase(int id, List<Integer> unused)
+		{
+			Base base = bases.get(id);
+			if (base != null)
+			{
+				base.usages--;
+				removeIfUnused(base, unused);
+			}
+		}
+
+		private void removeIfUnused(Base base, List<Integer> unused)
+		{
+			if (base.usages == 0 && base.current == false)
+			{
+				bases.remove(base.id);
+				unused.add(base.id);
+			}
+		}
+
+		public void clear()
+		{
+			baseId = 0;
+			written = 0;
+			current.clear();
+			bases.clear();
+			pages.clear();
+		}
+
+		/**
+		 * Prevent concurrent modification while the session is serialized.
+		 */
+		private synchronized void writeObject(ObjectOutputStream output) throws IOException
+		{
+			output.defaultWriteObject();
+		}
+	}
+}
@@ -19,25 +19,25 @@ package org.apache.wicket.pageStore;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.pageStore.disk.IndexJournal;
 import org.apache.wicket.pageStore.disk.NestedFolders;
 import org.apache.wicket.pageStore.disk.PageWindowManager;
 import org.apache.wicket.pageStore.disk.PageWindowManager.FileWindow;
@@ -60,23 +60,32 @@ import org.slf4j.LoggerFactory;
  * However this does not help in case of alternating requests between multiple browser windows: In this case requests are processed for
  * different page ids and the oldest pages are constantly overwritten (this can easily happen with Ajax timers on one or more pages).
  * This leads to pages with identical id superfluously kept in the file, while older pages are prematurely expelled.
- * Any following request to these older pages will then fail with {@link PageExpiredException}.   
+ * Any following request to these older pages will then fail with {@link PageExpiredException}.<p>
+ * The positions of all pages are kept in an {@link IndexJournal}, which is updated on each change, so
+ * pages are still available after a restart, even if the application was not shut down properly.
  */
 public class DiskPageStore extends AbstractPersistentPageStore implements IPersistentPageStore
 {
 	private static final Logger log = LoggerFactory.getLogger(DiskPageStore.class);
 
 	/**
-	 * Name of the file where the page index is stored.
+	 * Name of the file where the page index was stored in previous versions.
 	 */
 	private static final String INDEX_FILE_NAME = "DiskPageStoreIndex";
 
+	/**
+	 * Name of the file where the journal of the page index is stored.
+	 */
+	private static final String JOURNAL_FILE_NAME = "DiskPageStoreJournal";
+
 	private final Bytes maxSizePerSession;
 
 	private final NestedFolders folders;
 
 	private final ConcurrentMap<String, DiskData> diskDatas;
 
+	private final IndexJournal journal;
+
 	/**
 	 * Create a store that supports {@link SerializedPage}s only.
 	 * 
@@ -98,11 +107,15 @@ public class DiskPageStore extends AbstractPersistentPageStore implements IPersi
 
 		this.diskDatas = new ConcurrentHashMap<>();
 
+		this.journal = new IndexJournal(new File(folders.getBase(), JOURNAL_FILE_NAME),
+			this.maxSizePerSession.bytes(), this::getManagers);
+
 		try
 		{
 			if (folders.getBase().exists() || folders.getBase().mkdirs())
 			{
 				loadIndex();
+				openJournal();
 			}
 			else
 			{
@@ -131,7 +144,7 @@ public class DiskPageStore extends AbstractPersistentPageStore implements IPersi
 	public void destroy()
 	{
 		log.debug("Destroying...");
-		saveIndex();
+		journal.close();
 
 		super.destroy();
 		log.debug("Destroyed.");
@@ -190,11 +203,7 @@ public class DiskPageStore extends AbstractPersistentPageStore implements IPersi
 	@Override
 	protected void addPersistedPage(String sessionIdentifier, IManageablePage page)
 	{
-		if (page instanceof SerializedPage == false)
-		{
-			throw new WicketRuntimeException("DiskPageStore works with serialized pages only");
-		}
-		SerializedPage serializedPage = (SerializedPage) page;
+		SerializedPage serializedPage = toSerializedPage(page);
 
 		DiskData diskData = getDiskData(sessionIdentifier, true);
 
@@ -206,6 +215,34 @@ public class DiskPageStore extends AbstractPersistentPageStore implements IPersi
 		diskData.savePage(serializedPage.getPageId(), type, data);
 	}
 
+	/**
+	 * Saves all pages with a single access to the file of the session.
+	 */
+	@Override
+	protected void addPersistedPages(String sessionIdentifier, List<IManageablePage> pages)
+	{
+		List<SerializedPage> serializedPages = new ArrayList<>(pages.size());
+		for (IManageablePage page : pages)
+		{
+			serializedPages.add(toSerializedPage(page));
+		}
+
+		DiskData diskData = getDiskData(sessionIdentifier, true);
+
+		log.debug("Storing data for {} pages in session with id '{}'", serializedPages.size(), sessionIdentifier);
+
+		diskData.savePages(serializedPages);
+	}
+
+	private SerializedPage toSerializedPage(IManageablePage page)
+	{
+		if (page instanceof SerializedPage == false)
+		{
+			throw new WicketRuntimeException("DiskPageStore works with serialized pages only");
+		}
+		return (SerializedPage) page;
+	}
+
 	/**
 	 * Get the data on disk for the given session identifier.
 	 * 
@@ -225,7 +262,7 @@ public class DiskPageStore extends AbstractPersistentPageStore implements IPersi
 	}
 
 	/**
-	 * Load the index
+	 * Load the index written by previous versions.
 	 */
 	@SuppressWarnings("unchecked")
 	private void loadIndex()
@@ -255,32 +292,45 @@ public class DiskPageStore extends AbstractPersistentPageStore implements IPersi
 		Files.remove(index);
 	}
 
-	private void saveIndex()
+	/**
+	 * Replay the journal and compact it right away, so it contains the sessions of a previous
+	 * index too.
+	 */
+	private void openJournal()
 	{
-		File storeFolder = folders.getBase();
-		if (storeFolder.exists())
+		try
 		{
-			File index = new File(storeFolder, INDEX_FILE_NAME);
-			Files.remove(index);
-			try (OutputStream stream = new FileOutputStream(index))
+			for (Map.Entry<String, PageWindowManager> entry : journal.open().entrySet())
 			{
-				ObjectOutputStream oos = new ObjectOutputStream(stream);
-				
-				ArrayList<DiskData> list = new ArrayList<>(diskDatas.size());
-				for (DiskData diskData : diskDatas.values())
-				{
-					if (diskData.sessionIdentifier != null)
-					{
-						list.add(diskData);
-					}
-				}
-				oos.writeObject(list);
+				DiskData diskData = new DiskData(this, entry.getKey());
+				diskData.manager = entry.getValue();
+				diskDatas.put(diskData.sessionIdentifier, diskData);
 			}
-			catch (Exception e)
+		}
+		catch (IOException e)
+		{
+			log.error("Couldn't open DiskPageStore journal.", e);
+		}
+
+		journal.compact();
+	}
+
+	/**
+	 * Get the managers of all sessions for compaction of the journal.
+	 */
+	private Map<String, PageWindowManager> getManagers()
+	{
+		Map<String, PageWindowManager> managers = new HashMap<>();
+		for (DiskData diskData : diskDatas.values())
+		{
+			String sessionIdentifier = diskData.sessionIdentifier;
+			PageWindowManager manager = diskData.manager;
+			if (sessionIdentifier != null && manager != null)
 			{
-				log.error("Couldn't write DiskPageStore index to file " + index + ".", e);
+				managers.put(sessionIdentifier, manager);
 			}
 		}
+		return managers;
 	}
 
 	@Override
@@ -396,16 +446,15 @@ public class DiskPageStore extends AbstractPersistentPageStore implements IPersi
 			// only save page that has some data
 			if (data != null)
 			{
-				// allocate window for page
-				FileWindow window = getManager().createPageWindow(pageId, pageType, data.length);
-
 				FileChannel channel = getFileChannel(true);
 				if (channel != null)
 				{
 					try
 					{
-						// write the content
-						channel.write(ByteBuffer.wrap(data), window.getFilePartOffset());
+						// allocate window for page and write the content
+						pageStore.journal.createPageWindow(sessionIdentifier, getManager(), pageId,
+							pageType, data.length, window -> channel.write(ByteBuffer.wrap(data),
+								window.getFilePartOffset()));
 					}
 					catch (IOException e)
 					{
@@ -425,6 +474,50 @@ public class DiskPageStore extends AbstractPersistentPageStore implements IPersi
 			}
 		}
 
+		/**
+		 * Saves several serialized pages to appropriate file, opening it only once.
+		 * 
+		 * @param pages
+		 */
+		public synchronized void savePages(List<SerializedPage> pages)
+		{
+			if (sessionIdentifier == null)
+			{
+				return;
+			}
+
+			FileChannel channel = getFileChannel(true);
+			if (channel != null)
+			{
+				try
+				{
+					for (SerializedPage page : pages)
+					{
+						byte[] data = page.getData();
+
+						// allocate window for page and write the content
+						pageStore.journal.createPageWindow(sessionIdentifier, getManager(),
+							page.getPageId(), page.getPageType(), data.length,
+							window -> channel.write(ByteBuffer.wrap(data), window.getFilePartOffset()));
+					}
+				}
+				catch (IOException e)
+				{
+					log.error("Error writing to a channel " + channel, e);
+				}
+				finally
+				{
+					IOUtils.closeQuietly(channel);
+				}
+			}
+			else
+			{
+				log.warn(
+					"Cannot save {} pages because the data file cannot be opened.",
+					pages.size());
+			}
+		}
+
 		/**
 		 * Removes the page from disk.
 		 * 
@@ -437,7 +530,7 @@ public class DiskPageStore extends AbstractPersistentPageStore implements IPersi
 				return;
 			}
 
-			getManager().removePage(pageId);
+			pageStore.journal.removePage(sessionIdentifier, getManager(), pageId);
 		}
 
 		/**
@@ -521,6 +614,7 @@ public class DiskPageStore extends AbstractPersistentPageStore implements IPersi
 		 */
 		public synchronized void unbind()
 		{
+			pageStore.journal.removeAll(sessionIdentifier);
 			pageStore.folders.remove(sessionIdentifier);
 
 			sessionIdentifier = null;
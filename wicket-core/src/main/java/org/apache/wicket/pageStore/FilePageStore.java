@@ -29,8 +29,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.page.IManageablePage;
@@ -50,6 +55,10 @@ import org.slf4j.LoggerFactory;
  * While {@link DiskPageStore} uses a single file per session, this implementation stores each page
  * in its own file. This improves on a {@link DiskPageStore disadvantage of DiskPageStore} surfacing
  * with alternating Ajax requests from different browser tabs.  
+ * <p>
+ * The sizes of pages are kept in memory for each session, read once from the files of a session
+ * when it is accessed first. Thus the maximum size per session is enforced without listing the
+ * folder of the session on each write.
  */
 public class FilePageStore extends AbstractPersistentPageStore implements IPersistentPageStore
 {
@@ -63,6 +72,8 @@ public class FilePageStore extends AbstractPersistentPageStore implements IPersi
 
 	private final NestedFolders folders;
 
+	private final ConcurrentMap<String, Ledger> ledgers = new ConcurrentHashMap<>();
+
 	/**
 	 * Create a store that supports {@link SerializedPage}s only.
 	 * 
@@ -154,12 +165,23 @@ public class FilePageStore extends AbstractPersistentPageStore implements IPersi
 	@Override
 	protected void removePersistedPage(String sessionIdentifier, IManageablePage page)
 	{
-		File file = getPageFile(sessionIdentifier, page.getPageId(), false);
+		Ledger ledger = ledgers.get(sessionIdentifier);
+		if (ledger != null)
+		{
+			ledger.remove(page.getPageId());
+		}
+
+		removeFile(sessionIdentifier, page.getPageId());
+	}
+
+	private void removeFile(String sessionIdentifier, int pageId)
+	{
+		File file = getPageFile(sessionIdentifier, pageId, false);
 		if (file.exists())
 		{
 			if (!file.delete())
 			{
-				log.warn("cannot remove page data for session {} page {}", sessionIdentifier, page.getPageId());
+				log.warn("cannot remove page data for session {} page {}", sessionIdentifier, pageId);
 			}
 		}
 	}
@@ -167,11 +189,38 @@ public class FilePageStore extends AbstractPersistentPageStore implements IPersi
 	@Override
 	protected void removeAllPersistedPages(String sessionIdentifier)
 	{
+		ledgers.remove(sessionIdentifier);
+
 		folders.remove(sessionIdentifier);
 	}
 
 	@Override
 	protected void addPersistedPage(String sessionIdentifier, IManageablePage page)
+	{
+		Ledger ledger = getLedger(sessionIdentifier);
+
+		writePage(sessionIdentifier, page, ledger);
+
+		checkMaxSize(sessionIdentifier, ledger);
+	}
+
+	/**
+	 * Writes all pages before checking the maximum size of the session only once.
+	 */
+	@Override
+	protected void addPersistedPages(String sessionIdentifier, List<IManageablePage> pages)
+	{
+		Ledger ledger = getLedger(sessionIdentifier);
+
+		for (IManageablePage page : pages)
+		{
+			writePage(sessionIdentifier, page, ledger);
+		}
+
+		checkMaxSize(sessionIdentifier, ledger);
+	}
+
+	private void writePage(String sessionIdentifier, IManageablePage page, Ledger ledger)
 	{
 		if (page instanceof SerializedPage == false)
 		{
@@ -185,6 +234,8 @@ public class FilePageStore extends AbstractPersistentPageStore implements IPersi
 		try
 		{
 			writeFile(file, data);
+
+			ledger.add(serializedPage.getPageId(), data.length);
 		}
 		catch (IOException ex)
 		{
@@ -193,8 +244,6 @@ public class FilePageStore extends AbstractPersistentPageStore implements IPersi
 		}
 
 		setPageType(file, serializedPage.getPageType());
-
-		checkMaxSize(sessionIdentifier);
 	}
 
 	/**
@@ -227,24 +276,110 @@ public class FilePageStore extends AbstractPersistentPageStore implements IPersi
 		}
 	}
 
-	private void checkMaxSize(String sessionIdentifier)
+	private void checkMaxSize(String sessionIdentifier, Ledger ledger)
 	{
-		File[] files = Files.list(folders.get(sessionIdentifier, true));
-		Arrays.sort(files, new LastModifiedComparator());
-
-		long total = 0;
-		for (File candidate : files)
+		for (Integer pageId : ledger.evict(maxSizePerSession.bytes()))
 		{
-			total += candidate.length();
+			removeFile(sessionIdentifier, pageId);
+		}
+	}
+
+	/**
+	 * Get the ledger of a session, reading it from the files of the session if not present yet.
+	 */
+	private Ledger getLedger(String sessionIdentifier)
+	{
+		return ledgers.computeIfAbsent(sessionIdentifier, this::readLedger);
+	}
+
+	private Ledger readLedger(String sessionIdentifier)
+	{
+		Ledger ledger = new Ledger();
 
-			if (total > maxSizePerSession.bytes())
+		File folder = folders.get(sessionIdentifier, false);
+		if (folder.exists())
+		{
+			File[] files = Files.list(folder);
+			Arrays.sort(files, new LastModifiedComparator().reversed());
+			for (File file : files)
 			{
-				if (!Files.remove(candidate))
+				String name = file.getName();
+				if (name.endsWith(FILE_SUFFIX))
 				{
-					log.warn("cannot remove page data for session {} page {}", sessionIdentifier, candidate.getName());
+					try
+					{
+						int pageId = Integer.parseInt(
+							name.substring(0, name.length() - FILE_SUFFIX.length()), 10);
+
+						ledger.add(pageId, file.length());
+					}
+					catch (NumberFormatException ex)
+					{
+						log.debug("unexpected file {}", file.getAbsolutePath());
+					}
 				}
 			}
 		}
+
+		return ledger;
+	}
+
+	/**
+	 * Sizes of pages of a session, from the least to the most recently written.
+	 */
+	private static class Ledger
+	{
+		private final LinkedHashMap<Integer, Long> sizes = new LinkedHashMap<>();
+
+		private long total;
+
+		public synchronized void add(int pageId, long size)
+		{
+			Long previous = sizes.remove(pageId);
+			if (previous != null)
+			{
+				total -= previous;
+			}
+
+			sizes.put(pageId, size);
+			total += size;
+		}
+
+		public synchronized void remove(int pageId)
+		{
+			Long previous = sizes.remove(pageId);
+			if (previous != null)
+			{
+				total -= previous;
+			}
+		}
+
+		/**
+		 * Evict the least recently written pages exceeding the given size.
+		 * 
+		 * @return ids of evicted pages
+		 */
+		public synchronized List<Integer> evict(long maxSize)
+		{
+			List<Integer> evicted = new ArrayList<>();
+
+			Iterator<Map.Entry<Integer, Long>> iterator = sizes.entrySet().iterator();
+			while (total > maxSize && iterator.hasNext())
+			{
+				Map.Entry<Integer, Long> entry = iterator.next();
+				iterator.remove();
+				total -= entry.getValue();
+
+				evicted.add(entry.getKey());
+			}
+
+			return evicted;
+		}
+
+		public synchronized long getTotal()
+		{
+			return total;
+		}
 	}
 
 	public static class LastModifiedComparator implements Comparator<File>
@@ -361,6 +496,10 @@ public class FilePageStore extends AbstractPersistentPageStore implements IPersi
 		}
 	}
 
+	/**
+	 * Sums up the sizes of all sessions, taken from the ledgers of accessed sessions or from the
+	 * files of sessions not accessed yet - without keeping a ledger for the latter.
+	 */
 	@Override
 	public Bytes getTotalSize()
 	{
@@ -368,14 +507,21 @@ public class FilePageStore extends AbstractPersistentPageStore implements IPersi
 
 		for (File folder : folders.getAll())
 		{
-			for (File file : Files.list(folder))
+			Ledger ledger = ledgers.get(folder.getName());
+			if (ledger == null)
 			{
-				String name = file.getName();
-				if (name.endsWith(FILE_SUFFIX))
+				for (File file : Files.list(folder))
 				{
-					total += file.length();
+					if (file.getName().endsWith(FILE_SUFFIX))
+					{
+						total += file.length();
+					}
 				}
 			}
+			else
+			{
+				total += ledger.getTotal();
+			}
 		}
 
 		return Bytes.bytes(total);
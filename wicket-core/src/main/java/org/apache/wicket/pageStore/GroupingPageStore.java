@@ -17,8 +17,12 @@
 package org.apache.wicket.pageStore;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 
@@ -102,7 +106,27 @@ public abstract class GroupingPageStore extends DelegatingPageStore
 	{
 		SessionData sessionData = getSessionData(context, true);
 
-		sessionData.addPage(context, page, getGroupInternal(page), maxGroups, stableGroups, getDelegate());
+		sessionData.addPages(context, Collections.singletonList(page), getGroupInternal(page), maxGroups, stableGroups, getDelegate());
+	}
+
+	/**
+	 * Passes the pages of each group on to the delegate at once.
+	 */
+	@Override
+	public void addPages(IPageContext context, List<IManageablePage> pages)
+	{
+		Map<String, List<IManageablePage>> groups = new LinkedHashMap<>();
+		for (IManageablePage page : pages)
+		{
+			groups.computeIfAbsent(getGroupInternal(page), key -> new ArrayList<>()).add(page);
+		}
+
+		SessionData sessionData = getSessionData(context, true);
+
+		for (Map.Entry<String, List<IManageablePage>> group : groups.entrySet())
+		{
+			sessionData.addPages(context, group.getValue(), group.getKey(), maxGroups, stableGroups, getDelegate());
+		}
 	}
 
 	@Override
@@ -164,14 +188,17 @@ public abstract class GroupingPageStore extends DelegatingPageStore
 			return key.get(metaData.get(group));
 		}
 		
-		public synchronized void addPage(IPageContext context, IManageablePage page, String group, int maxGroups, boolean stableGroups, IPageStore delegate)
+		public synchronized void addPages(IPageContext context, List<IManageablePage> pages, String group, int maxGroups, boolean stableGroups, IPageStore delegate)
 		{
 			if (stableGroups == false)
 			{
-				// group might have changed, so remove page first from all groups
+				// group might have changed, so remove pages first from all groups
 				for (String other : groups)
 				{
-					delegate.removePage(new GroupContext(context, this, other), page);
+					for (IManageablePage page : pages)
+					{
+						delegate.removePage(new GroupContext(context, this, other), page);
+					}
 				}
 			}
 
@@ -180,7 +207,7 @@ public abstract class GroupingPageStore extends DelegatingPageStore
 			groups.addLast(group);
 			
 			// delegate
-			delegate.addPage(new GroupContext(context, this, group), page);
+			delegate.addPages(new GroupContext(context, this, group), pages);
 
 			while (groups.size() > maxGroups)
 			{
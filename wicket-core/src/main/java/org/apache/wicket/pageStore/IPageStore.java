@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.util.List;
+
 import org.apache.wicket.page.IManageablePage;
 
 /**
@@ -55,6 +57,27 @@ public interface IPageStore
 	 */
 	void addPage(IPageContext context, IManageablePage page);
 
+	/**
+	 * Stores several pages of the same context at once - optional operation.
+	 * <p>
+	 * Default implementation adds each page with {@link #addPage(IPageContext, IManageablePage)}, stores
+	 * might override this method to handle all pages in one go, e.g. with a single write to disk.
+	 * 
+	 * @param context
+	 *            the context of the pages
+	 * @param pages
+	 *            the pages
+	 * 
+	 * @see AsynchronousPageStore
+	 */
+	default void addPages(IPageContext context, List<IManageablePage> pages)
+	{
+		for (IManageablePage page : pages)
+		{
+			addPage(context, page);
+		}
+	}
+
 	/**
 	 * Removes a page from storage.
 	 * 
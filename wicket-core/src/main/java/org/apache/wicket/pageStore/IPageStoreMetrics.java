@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+/**
+ * Receiver of measurements taken by page stores and page locking, e.g. to report these to a
+ * monitoring system.
+ * <p>
+ * Implementations have to be thread-safe, since measurements are taken in request threads as well
+ * as in threads of an {@link AsynchronousPageStore}.
+ * 
+ * @see PageStoreMetrics
+ * @see MetricsPageStore
+ * @see org.apache.wicket.settings.StoreSettings#setMetrics(IPageStoreMetrics)
+ */
+public interface IPageStoreMetrics
+{
+	/**
+	 * Measured operations of a store.
+	 */
+	enum Operation
+	{
+		/**
+		 * {@link IPageStore#getPage(IPageContext, int)}
+		 */
+		GET,
+
+		/**
+		 * {@link IPageStore#addPage(IPageContext, org.apache.wicket.page.IManageablePage)} and
+		 * {@link IPageStore#addPages(IPageContext, java.util.List)}
+		 */
+		ADD,
+
+		/**
+		 * {@link IPageStore#removePage(IPageContext, org.apache.wicket.page.IManageablePage)}
+		 */
+		REMOVE,
+
+		/**
+		 * {@link IPageStore#removeAllPages(IPageContext)}
+		 */
+		REMOVE_ALL
+	}
+
+	/**
+	 * Record an operation of a store.
+	 * 
+	 * @param store
+	 *            name of the store
+	 * @param operation
+	 *            the operation
+	 * @param pages
+	 *            count of pages handled by the operation
+	 * @param bytes
+	 *            size of the serialized pages, {@code 0} if not serialized
+	 * @param nanos
+	 *            duration of the operation in nanoseconds
+	 */
+	void recordOperation(String store, Operation operation, int pages, long bytes, long nanos);
+
+	/**
+	 * Record the time taken to acquire the lock of a page.
+	 * 
+	 * @param nanos
+	 *            wait time in nanoseconds
+	 */
+	void recordLockWait(long nanos);
+
+	/**
+	 * Register the chain of stores of the page manager, so counters kept by the stores themselves
+	 * can be reported too, e.g. the hits of a {@link CachingPageStore} or the queue depth of an
+	 * {@link AsynchronousPageStore}.
+	 * 
+	 * @param store
+	 *            first store of the chain
+	 */
+	default void register(IPageStore store)
+	{
+	}
+}
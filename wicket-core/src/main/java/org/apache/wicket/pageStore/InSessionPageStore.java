@@ -19,13 +19,21 @@ package org.apache.wicket.pageStore;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.Supplier;
 
 import jakarta.servlet.http.HttpSession;
 
+import org.apache.wicket.Application;
+import org.apache.wicket.ISessionListener;
 import org.apache.wicket.MetaDataKey;
 import org.apache.wicket.Session;
 import org.apache.wicket.WicketRuntimeException;
@@ -34,14 +42,20 @@ import org.apache.wicket.serialize.ISerializer;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.lang.Classes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A store keeping a configurable maximum of pages in the session.
  * <p>
+ * Pages limited by size can additionally be limited by a {@link Budget} for all sessions, see
+ * {@link #InSessionPageStore(Bytes, Bytes, IPageStore)}.
+ * <p>
  * Note: see {@link #getKey()} for using more than once instance in an application
  */
-public class InSessionPageStore implements IPageStore
+public class InSessionPageStore implements IPageStore, ISessionListener
 {
+	private static final Logger log = LoggerFactory.getLogger(InSessionPageStore.class);
 
 	private static final MetaDataKey<SessionData> KEY = new MetaDataKey<>()
 	{
@@ -52,6 +66,12 @@ public class InSessionPageStore implements IPageStore
 
 	private final Supplier<SessionData> dataCreator;
 
+	private final Budget budget;
+
+	private final IPageStore spillStore;
+
+	private final boolean retainSerialized;
+
 	/**
 	 * Keep {@code maxPages} persistent in each session.
 	 * <p>
@@ -77,7 +97,7 @@ public class InSessionPageStore implements IPageStore
 	 */
 	public InSessionPageStore(Bytes maxBytes)
 	{
-		this(null, () -> new SizeLimitedData(maxBytes));
+		this(null, () -> new SizeLimitedData(maxBytes, false));
 	}
 
 	/**
@@ -93,14 +113,89 @@ public class InSessionPageStore implements IPageStore
 	 */
 	public InSessionPageStore(int maxPages, ISerializer serializer)
 	{
-		this(serializer, () -> new CountLimitedData(maxPages));
+		this(maxPages, serializer, false);
+	}
+
+	/**
+	 * Keep a cache of {@code maxPages} in each session.
+	 * <p>
+	 * If the container serializes sessions to disk, any non-{@code SerializedPage} added to this
+	 * store will be automatically serialized.
+	 * <p>
+	 * If {@code retainSerialized} is <code>true</code>, the serialized form of pages created by a
+	 * {@link SerializingPageStore} in the request is kept alongside each page, so the page does not
+	 * have to be serialized again along with the session. This doubles the memory held by each
+	 * page, and pays off only if the container serializes the session after most requests, e.g.
+	 * for replication.
+	 * 
+	 * @param maxPages
+	 *            maximum pages to keep in session
+	 * @param serializer
+	 *            optional serializer used only in case session serialization
+	 * @param retainSerialized
+	 *            whether to retain the serialized form of pages for the session serialization
+	 */
+	public InSessionPageStore(int maxPages, ISerializer serializer, boolean retainSerialized)
+	{
+		this(serializer, () -> new CountLimitedData(maxPages), null, null, retainSerialized);
+	}
+
+	/**
+	 * Keep page up to {@code maxBytes} persistent in each session and up to {@code maxTotalBytes}
+	 * in all sessions.
+	 * <p>
+	 * If the total is exceeded, the least recently used pages of all sessions are evicted and
+	 * spilled to the given store, pages not found in the session are looked up in the same store.
+	 * Pages exceeding {@code maxBytes} of their session are spilled too. If the spill store cannot
+	 * add pages asynchronously, pages of other sessions are kept in their session until its next
+	 * access.
+	 * <p>
+	 * The store has to be registered in {@link Application#getSessionListeners()}, so the budget
+	 * is released when a session is unbound.
+	 * <p>
+	 * All pages added to this store <em>must</em> be {@code SerializedPage}s. You can achieve this
+	 * by letting a {@link SerializingPageStore} delegate to this store.
+	 * 
+	 * @param maxBytes
+	 *            maximum bytes to keep in session
+	 * @param maxTotalBytes
+	 *            maximum bytes to keep in all sessions
+	 * @param spillStore
+	 *            optional store to spill evicted pages to, e.g. a {@link DiskPageStore}
+	 */
+	public InSessionPageStore(Bytes maxBytes, Bytes maxTotalBytes, IPageStore spillStore)
+	{
+		this(null, () -> new SizeLimitedData(maxBytes, spillStore != null), new Budget(maxTotalBytes),
+			spillStore, false);
 	}
 
 	private InSessionPageStore(ISerializer serializer, Supplier<SessionData> dataCreator)
+	{
+		this(serializer, dataCreator, null, null, false);
+	}
+
+	private InSessionPageStore(ISerializer serializer, Supplier<SessionData> dataCreator,
+		Budget budget, IPageStore spillStore, boolean retainSerialized)
 	{
 		this.serializer = serializer;
 
 		this.dataCreator = dataCreator;
+
+		this.budget = budget;
+
+		this.spillStore = spillStore;
+
+		this.retainSerialized = retainSerialized;
+	}
+
+	/**
+	 * Get the budget for all sessions.
+	 * 
+	 * @return budget, might be <code>null</code>
+	 */
+	public Budget getBudget()
+	{
+		return budget;
 	}
 
 	@Override
@@ -116,6 +211,11 @@ public class InSessionPageStore implements IPageStore
 			}
 		}
 
+		if (spillStore != null)
+		{
+			return spillStore.getPage(context, id);
+		}
+
 		return null;
 	}
 
@@ -124,7 +224,69 @@ public class InSessionPageStore implements IPageStore
 	{
 		SessionData data = getSessionData(context, true);
 
+		if (budget != null)
+		{
+			((SizeLimitedData)data).spillContext = newSpillContext(context);
+		}
+
 		data.add(page);
+
+		if (budget != null)
+		{
+			// evict after the data of the session was released
+			for (Budget.Key key : budget.evict())
+			{
+				if (key.data.evict(key.pageId) && key.data != data)
+				{
+					spill(key.data.spillContext, key.data);
+				}
+			}
+
+			spill(context, (SizeLimitedData)data);
+		}
+	}
+
+	/**
+	 * Create a context for spilling of pages, preparing the spill store while the session is still
+	 * available.
+	 * 
+	 * @return context or <code>null</code> if spilling is not possible
+	 */
+	private IPageContext newSpillContext(IPageContext context)
+	{
+		if (spillStore == null)
+		{
+			return null;
+		}
+
+		SpillContext spillContext = new SpillContext(context);
+		if (spillStore.canBeAsynchronous(spillContext) == false)
+		{
+			return null;
+		}
+		spillContext.prepared = true;
+		return spillContext;
+	}
+
+	/**
+	 * Spill all evicted pages of a session.
+	 * 
+	 * @param context
+	 *            context to spill with, if <code>null</code> the pages are kept in the session
+	 *            until its next access
+	 */
+	private void spill(IPageContext context, SizeLimitedData data)
+	{
+		if (context == null)
+		{
+			log.debug("spilling postponed until next access of session");
+			return;
+		}
+
+		for (IManageablePage page : data.drainEvicted())
+		{
+			spillStore.addPage(context, page);
+		}
 	}
 
 	@Override
@@ -135,6 +297,11 @@ public class InSessionPageStore implements IPageStore
 		{
 			data.remove(page.getPageId());
 		}
+
+		if (spillStore != null)
+		{
+			spillStore.removePage(context, page);
+		}
 	}
 
 	@Override
@@ -145,6 +312,45 @@ public class InSessionPageStore implements IPageStore
 		{
 			data.removeAll();
 		}
+
+		if (spillStore != null)
+		{
+			spillStore.removeAllPages(context);
+		}
+	}
+
+	/**
+	 * Remembers the serialized form of pages created in this request if requested, so these do not
+	 * have to be serialized again along with the session.
+	 * 
+	 * @see #InSessionPageStore(int, ISerializer, boolean)
+	 * @see SerializingPageStore#getSerializedPage(IPageContext, IManageablePage)
+	 */
+	@Override
+	public void detach(IPageContext context)
+	{
+		if (serializer != null && retainSerialized)
+		{
+			SessionData data = getSessionData(context, false);
+			if (data != null)
+			{
+				data.rememberSerializedPages(context);
+			}
+		}
+
+		if (spillStore != null)
+		{
+			spillStore.detach(context);
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (spillStore != null)
+		{
+			spillStore.destroy();
+		}
 	}
 
 	private SessionData getSessionData(IPageContext context, boolean create)
@@ -159,9 +365,40 @@ public class InSessionPageStore implements IPageStore
 			data.supportSessionSerialization(serializer);
 		}
 
+		if (data != null && budget != null)
+		{
+			SizeLimitedData sizeLimitedData = (SizeLimitedData)data;
+
+			// data might be deserialized so attach again
+			sizeLimitedData.attach(budget);
+
+			String sessionId = context.getSessionId(create);
+			if (sessionId != null)
+			{
+				budget.register(sizeLimitedData, sessionId);
+			}
+
+			// pages evicted while the session was not available
+			spill(context, sizeLimitedData);
+		}
+
 		return data;
 	}
 
+	/**
+	 * Releases all pages of the unbound session from the budget.
+	 * 
+	 * @see #InSessionPageStore(Bytes, Bytes, IPageStore)
+	 */
+	@Override
+	public void onUnbound(String sessionId)
+	{
+		if (budget != null)
+		{
+			budget.release(sessionId);
+		}
+	}
+
 	/**
 	 * Session data is stored under a {@link MetaDataKey}.
 	 * <p>
@@ -190,6 +427,11 @@ public class InSessionPageStore implements IPageStore
 		 */
 		List<IManageablePage> pages = new LinkedList<>();
 
+		/**
+		 * Serialized forms of non-serialized pages, valid until a page is handed out again.
+		 */
+		transient Map<IManageablePage, SerializedPage> serializedPages;
+
 		/**
 		 * Call this method if session serialization should be supported, i.e. all pages get
 		 * serialized along with the session.
@@ -224,6 +466,7 @@ public class InSessionPageStore implements IPageStore
 				if (page.getPageId() == pageId)
 				{
 					iterator.remove();
+					forgetSerializedPage(page);
 					return page;
 				}
 			}
@@ -233,6 +476,38 @@ public class InSessionPageStore implements IPageStore
 		public synchronized void removeAll()
 		{
 			pages.clear();
+			serializedPages = null;
+		}
+
+		/**
+		 * Remember the serialized form of all pages serialized in the current request.
+		 */
+		public synchronized void rememberSerializedPages(IPageContext context)
+		{
+			for (IManageablePage page : pages)
+			{
+				if (page instanceof SerializedPage == false)
+				{
+					SerializedPage serializedPage = SerializingPageStore.getSerializedPage(context,
+						page);
+					if (serializedPage != null)
+					{
+						if (serializedPages == null)
+						{
+							serializedPages = new IdentityHashMap<>();
+						}
+						serializedPages.put(page, serializedPage);
+					}
+				}
+			}
+		}
+
+		private void forgetSerializedPage(IManageablePage page)
+		{
+			if (serializedPages != null)
+			{
+				serializedPages.remove(page);
+			}
 		}
 
 		public synchronized IManageablePage get(int id)
@@ -251,6 +526,9 @@ public class InSessionPageStore implements IPageStore
 						pages.set(p, candidate);
 					}
 
+					// might be changed now
+					forgetSerializedPage(candidate);
+
 					return candidate;
 				}
 			}
@@ -280,9 +558,14 @@ public class InSessionPageStore implements IPageStore
 					}
 					else
 					{
-						// serialize first
-						byte[] bytes = serializer.serialize(page);
-						SerializedPage serializedPage = new SerializedPage(page.getPageId(), Classes.name(page.getClass()), bytes);
+						// serialize first, unless already serialized in the request
+						SerializedPage serializedPage = serializedPages == null ? null
+							: serializedPages.remove(page);
+						if (serializedPage == null)
+						{
+							byte[] bytes = serializer.serialize(page);
+							serializedPage = new SerializedPage(page.getPageId(), Classes.name(page.getClass()), bytes);
+						}
 
 						// and then re-add (to prevent a serialization loop,
 						// in case the page holds a reference to the session)  
@@ -326,13 +609,40 @@ public class InSessionPageStore implements IPageStore
 	{
 		private final Bytes maxBytes;
 
+		/**
+		 * Whether removed pages are kept for spilling.
+		 */
+		private final boolean spilling;
+
 		private long size;
 
-		public SizeLimitedData(Bytes maxBytes)
+		/**
+		 * Pages evicted but not yet spilled.
+		 */
+		private final List<IManageablePage> evicted = new ArrayList<>();
+
+		/**
+		 * Optional budget for all sessions.
+		 */
+		private transient Budget budget;
+
+		/**
+		 * Id of the session registered in the budget, guarded by the budget.
+		 */
+		private transient String sessionId;
+
+		/**
+		 * Context to spill pages with, set on each add.
+		 */
+		private transient volatile IPageContext spillContext;
+
+		public SizeLimitedData(Bytes maxBytes, boolean spilling)
 		{
 			Args.notNull(maxBytes, "maxBytes");
 
 			this.maxBytes = Args.withinRange(Bytes.bytes(1), Bytes.MAX, maxBytes, "maxBytes");
+
+			this.spilling = spilling;
 		}
 
 		@Override
@@ -346,14 +656,35 @@ public class InSessionPageStore implements IPageStore
 
 			super.add(page);
 
-			size += ((SerializedPage)page).getData().length;
+			int length = ((SerializedPage)page).getData().length;
+			size += length;
+
+			if (budget != null)
+			{
+				budget.add(this, page.getPageId(), length);
+			}
 
 			while (size > maxBytes.bytes())
 			{
-				removeOldest();
+				IManageablePage oldest = remove(pages.get(0).getPageId());
+				if (spilling)
+				{
+					evicted.add(oldest);
+				}
 			}
 		}
 
+		@Override
+		public synchronized IManageablePage get(int id)
+		{
+			IManageablePage page = super.get(id);
+			if (page != null && budget != null)
+			{
+				budget.touch(this, id);
+			}
+			return page;
+		}
+
 		@Override
 		public synchronized IManageablePage remove(int pageId)
 		{
@@ -361,6 +692,15 @@ public class InSessionPageStore implements IPageStore
 			if (page != null)
 			{
 				size -= page.getData().length;
+
+				if (budget != null)
+				{
+					budget.remove(this, pageId);
+				}
+			}
+			else
+			{
+				evicted.removeIf(candidate -> candidate.getPageId() == pageId);
 			}
 
 			return page;
@@ -369,10 +709,351 @@ public class InSessionPageStore implements IPageStore
 		@Override
 		public synchronized void removeAll()
 		{
+			detach();
+
 			super.removeAll();
 
+			evicted.clear();
+
 			size = 0;
 		}
+
+		/**
+		 * Evict a page, already removed from the budget.
+		 * 
+		 * @return <code>false</code> if not present or re-added in the meantime
+		 */
+		synchronized boolean evict(int pageId)
+		{
+			if (budget == null || budget.contains(this, pageId))
+			{
+				return false;
+			}
+
+			SerializedPage page = (SerializedPage)super.remove(pageId);
+			if (page == null)
+			{
+				return false;
+			}
+
+			size -= page.getData().length;
+			if (spilling)
+			{
+				evicted.add(page);
+			}
+			return true;
+		}
+
+		/**
+		 * Take all evicted pages for spilling.
+		 */
+		synchronized List<IManageablePage> drainEvicted()
+		{
+			if (evicted.isEmpty())
+			{
+				return List.of();
+			}
+
+			List<IManageablePage> drained = new ArrayList<>(evicted);
+			evicted.clear();
+			return drained;
+		}
+
+		/**
+		 * Attach to the given budget, accounting all pages.
+		 */
+		synchronized void attach(Budget budget)
+		{
+			if (this.budget == null)
+			{
+				this.budget = budget;
+
+				for (IManageablePage page : pages)
+				{
+					budget.add(this, page.getPageId(), ((SerializedPage)page).getData().length);
+				}
+			}
+		}
+
+		/**
+		 * Detach from the budget, releasing all pages.
+		 */
+		synchronized void detach()
+		{
+			if (budget != null)
+			{
+				for (IManageablePage page : pages)
+				{
+					budget.remove(this, page.getPageId());
+				}
+				budget.unregister(this);
+
+				budget = null;
+			}
+		}
+	}
+
+	/**
+	 * A budget of bytes for the pages of all sessions, keeping track of their usage.
+	 */
+	public static class Budget
+	{
+		private final long maxBytes;
+
+		private long size;
+
+		/**
+		 * Size of each page in order of access.
+		 */
+		private final LinkedHashMap<Key, Integer> sizes = new LinkedHashMap<>(16, 0.75f, true);
+
+		/**
+		 * Data of each session, to be released when the session is unbound.
+		 */
+		private final Map<String, SizeLimitedData> sessions = new HashMap<>();
+
+		/**
+		 * @param maxBytes
+		 *            maximum bytes of all pages
+		 */
+		public Budget(Bytes maxBytes)
+		{
+			Args.notNull(maxBytes, "maxBytes");
+
+			this.maxBytes = Args.withinRange(Bytes.bytes(1), Bytes.MAX, maxBytes, "maxBytes").bytes();
+		}
+
+		/**
+		 * @return current size of all pages
+		 */
+		public synchronized Bytes getSize()
+		{
+			return Bytes.bytes(size);
+		}
+
+		/**
+		 * @return count of pages in all sessions
+		 */
+		public synchronized int getCount()
+		{
+			return sizes.size();
+		}
+
+		/**
+		 * Register the data of a session, its id might have changed since.
+		 */
+		synchronized void register(SizeLimitedData data, String sessionId)
+		{
+			if (sessionId.equals(data.sessionId) == false)
+			{
+				unregister(data);
+
+				data.sessionId = sessionId;
+				sessions.put(sessionId, data);
+			}
+		}
+
+		synchronized void unregister(SizeLimitedData data)
+		{
+			if (data.sessionId != null)
+			{
+				sessions.remove(data.sessionId, data);
+				data.sessionId = null;
+			}
+		}
+
+		/**
+		 * Release all pages of a session.
+		 */
+		void release(String sessionId)
+		{
+			SizeLimitedData data;
+			synchronized (this)
+			{
+				data = sessions.get(sessionId);
+			}
+
+			// detach outside of lock, the data locks the budget in turn
+			if (data != null)
+			{
+				data.detach();
+			}
+		}
+
+		synchronized void add(SizeLimitedData data, int pageId, int length)
+		{
+			Integer previous = sizes.put(new Key(data, pageId), length);
+			if (previous != null)
+			{
+				size -= previous;
+			}
+			size += length;
+		}
+
+		synchronized void touch(SizeLimitedData data, int pageId)
+		{
+			sizes.get(new Key(data, pageId));
+		}
+
+		synchronized boolean contains(SizeLimitedData data, int pageId)
+		{
+			return sizes.containsKey(new Key(data, pageId));
+		}
+
+		synchronized void remove(SizeLimitedData data, int pageId)
+		{
+			Integer previous = sizes.remove(new Key(data, pageId));
+			if (previous != null)
+			{
+				size -= previous;
+			}
+		}
+
+		/**
+		 * Remove the least recently used pages until the budget is no longer exceeded.
+		 * 
+		 * @return keys of removed pages
+		 */
+		synchronized List<Key> evict()
+		{
+			List<Key> evicted = new ArrayList<>();
+
+			Iterator<Map.Entry<Key, Integer>> iterator = sizes.entrySet().iterator();
+			while (size > maxBytes && iterator.hasNext())
+			{
+				Map.Entry<Key, Integer> entry = iterator.next();
+				iterator.remove();
+
+				size -= entry.getValue();
+				evicted.add(entry.getKey());
+			}
+
+			return evicted;
+		}
+
+		/**
+		 * Key of a page in a session.
+		 */
+		static class Key
+		{
+			final SizeLimitedData data;
+
+			final int pageId;
+
+			Key(SizeLimitedData data, int pageId)
+			{
+				this.data = data;
+				this.pageId = pageId;
+			}
+
+			@Override
+			public boolean equals(Object obj)
+			{
+				if (obj instanceof Key)
+				{
+					Key other = (Key)obj;
+					return data == other.data && pageId == other.pageId;
+				}
+				return false;
+			}
+
+			@Override
+			public int hashCode()
+			{
+				return Objects.hash(System.identityHashCode(data), pageId);
+			}
+		}
+	}
+
+	/**
+	 * Context to spill pages of a session, possibly from a request of another session.
+	 * <p>
+	 * All values accessed from {@link IPageStore#canBeAsynchronous(IPageContext)} are cached, so
+	 * these are available later on.
+	 */
+	private static class SpillContext implements IPageContext
+	{
+		private final IPageContext context;
+
+		private final String sessionId;
+
+		private final Map<String, Serializable> attributeCache = new HashMap<>();
+
+		private final Map<MetaDataKey<?>, Serializable> dataCache = new HashMap<>();
+
+		/**
+		 * Was the spill store prepared already.
+		 */
+		boolean prepared = false;
+
+		SpillContext(IPageContext context)
+		{
+			this.context = context;
+
+			this.sessionId = context.getSessionId(true);
+		}
+
+		@Override
+		public <T> T getRequestData(MetaDataKey<T> key, Supplier<T> defaultValue)
+		{
+			throw new WicketRuntimeException("no request available for spilling");
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public synchronized <T extends Serializable> T getSessionAttribute(String key,
+			Supplier<T> defaultValue)
+		{
+			T value;
+			if (prepared)
+			{
+				value = (T)attributeCache.get(key);
+				if (value == null && defaultValue != null && defaultValue.get() != null)
+				{
+					throw new WicketRuntimeException("session attribute can not be changed when spilling");
+				}
+			}
+			else
+			{
+				value = context.getSessionAttribute(key, defaultValue);
+				if (value != null)
+				{
+					attributeCache.put(key, value);
+				}
+			}
+			return value;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public synchronized <T extends Serializable> T getSessionData(MetaDataKey<T> key,
+			Supplier<T> defaultValue)
+		{
+			T value;
+			if (prepared)
+			{
+				value = (T)dataCache.get(key);
+				if (value == null && defaultValue != null && defaultValue.get() != null)
+				{
+					throw new WicketRuntimeException("session data can not be changed when spilling");
+				}
+			}
+			else
+			{
+				value = context.getSessionData(key, defaultValue);
+				if (value != null)
+				{
+					dataCache.put(key, value);
+				}
+			}
+			return value;
+		}
+
+		@Override
+		public String getSessionId(boolean bind)
+		{
+			return sessionId;
+		}
 	}
 
 	@Override
@@ -0,0 +1,467 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.pageStore.kv.IKeyValueStore;
+import org.apache.wicket.util.collections.MostRecentlyUsedMap;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+
+/**
+ * A storage of pages in an {@link IKeyValueStore} shared by all nodes of a cluster, so requests of
+ * a session can be served by any node without session affinity.
+ * <p>
+ * Each page is kept under two keys: its data and a small descriptor holding a random version, the
+ * size and the type of the page. All keys of a session share a common prefix, so the pages of a
+ * session can be found with a single scan. Both keys are written in one batch with a time-to-live,
+ * which is reset whenever the page is read, thus pages of abandoned sessions expire even if no node
+ * removes them.
+ * <p>
+ * Recently written and read pages are kept in a near-cache on this node. A cached page is used
+ * only if its version still matches the descriptor in the shared store, so pages written by other
+ * nodes are never missed while the transfer of unchanged page data is saved.
+ * <p>
+ * Note that the session identifier is kept in the http session, so the latter has to be shared
+ * between nodes too, e.g. by a clustered session manager.
+ * <p>
+ * All pages added to this store <em>must</em> be {@code SerializedPage}s.
+ */
+public class KeyValuePageStore extends AbstractPersistentPageStore implements IPersistentPageStore
+{
+	/**
+	 * Default time-to-live of pages.
+	 */
+	public static final Duration DEFAULT_TTL = Duration.ofMinutes(30);
+
+	/**
+	 * Default number of pages kept in the near-cache.
+	 */
+	public static final int DEFAULT_NEAR_CACHE_SIZE = 1000;
+
+	private static final String DATA = ":d";
+
+	private static final String DESCRIPTOR = ":m";
+
+	private final IKeyValueStore store;
+
+	private final String namespace;
+
+	private final Duration ttl;
+
+	/**
+	 * Recently used pages by data key, <code>null</code> if disabled.
+	 */
+	private final Map<String, CachedPage> nearCache;
+
+	/**
+	 * Keep pages with default time-to-live and near-cache size.
+	 * 
+	 * @param applicationName
+	 *            {@link Application#getName()}
+	 * @param store
+	 *            shared store
+	 */
+	public KeyValuePageStore(String applicationName, IKeyValueStore store)
+	{
+		this(applicationName, store, DEFAULT_TTL, DEFAULT_NEAR_CACHE_SIZE);
+	}
+
+	/**
+	 * Keep pages under keys prefixed with the application name.
+	 * 
+	 * @param applicationName
+	 *            {@link Application#getName()}
+	 * @param store
+	 *            shared store
+	 * @param ttl
+	 *            time-to-live of pages since their last write or read
+	 * @param nearCacheSize
+	 *            maximum number of pages cached on this node, {@code 0} to disable caching
+	 */
+	public KeyValuePageStore(String applicationName, IKeyValueStore store, Duration ttl,
+		int nearCacheSize)
+	{
+		this(applicationName, "wicket:" + applicationName + ":", store, ttl, nearCacheSize);
+	}
+
+	/**
+	 * Keep pages under keys with the given prefix.
+	 * 
+	 * @param applicationName
+	 *            {@link Application#getName()}
+	 * @param namespace
+	 *            prefix of all keys, identical for all nodes of the cluster
+	 * @param store
+	 *            shared store
+	 * @param ttl
+	 *            time-to-live of pages since their last write or read
+	 * @param nearCacheSize
+	 *            maximum number of pages cached on this node, {@code 0} to disable caching
+	 */
+	public KeyValuePageStore(String applicationName, String namespace, IKeyValueStore store,
+		Duration ttl, int nearCacheSize)
+	{
+		super(applicationName);
+
+		this.namespace = Args.notNull(namespace, "namespace");
+		this.store = Args.notNull(store, "store");
+		this.ttl = Args.notNull(ttl, "ttl");
+		Args.withinRange(0, Integer.MAX_VALUE, nearCacheSize, "nearCacheSize");
+
+		if (nearCacheSize > 0)
+		{
+			nearCache = Collections.synchronizedMap(new MostRecentlyUsedMap<>(nearCacheSize));
+		}
+		else
+		{
+			nearCache = null;
+		}
+	}
+
+	/**
+	 * Pages are always serialized, so versioning is supported.
+	 */
+	@Override
+	public boolean supportsVersioning()
+	{
+		return true;
+	}
+
+	@Override
+	protected IManageablePage getPersistedPage(String sessionIdentifier, int id)
+	{
+		String dataKey = getKey(sessionIdentifier, id, DATA);
+		String descriptorKey = getKey(sessionIdentifier, id, DESCRIPTOR);
+
+		CachedPage cached = nearCache == null ? null : nearCache.get(dataKey);
+		if (cached != null)
+		{
+			byte[] descriptor = store.get(descriptorKey);
+			if (descriptor == null)
+			{
+				nearCache.remove(dataKey);
+				return null;
+			}
+
+			if (readDescriptor(descriptor).version == cached.version)
+			{
+				touch(dataKey, descriptorKey);
+				return cached.page;
+			}
+		}
+
+		byte[] data = store.get(dataKey);
+		if (data == null)
+		{
+			if (cached != null)
+			{
+				nearCache.remove(dataKey);
+			}
+			return null;
+		}
+
+		CachedPage page = readData(id, data);
+		if (nearCache != null)
+		{
+			nearCache.put(dataKey, page);
+		}
+		touch(dataKey, descriptorKey);
+		return page.page;
+	}
+
+	/**
+	 * Keep a page alive for another time-to-live, since it was read.
+	 */
+	private void touch(String dataKey, String descriptorKey)
+	{
+		store.touchAll(Arrays.asList(descriptorKey, dataKey), ttl);
+	}
+
+	@Override
+	protected void addPersistedPage(String sessionIdentifier, IManageablePage page)
+	{
+		addPersistedPages(sessionIdentifier, Collections.singletonList(page));
+	}
+
+	/**
+	 * Writes all pages in a single batch.
+	 */
+	@Override
+	protected void addPersistedPages(String sessionIdentifier, List<IManageablePage> pages)
+	{
+		Map<String, byte[]> values = new LinkedHashMap<>();
+		Map<String, CachedPage> cached = new LinkedHashMap<>();
+
+		for (IManageablePage page : pages)
+		{
+			if (page instanceof SerializedPage == false)
+			{
+				throw new WicketRuntimeException("KeyValuePageStore works with serialized pages only");
+			}
+			SerializedPage serializedPage = (SerializedPage)page;
+
+			long version = ThreadLocalRandom.current().nextLong();
+
+			String dataKey = getKey(sessionIdentifier, page.getPageId(), DATA);
+			values.put(dataKey, writeData(version, serializedPage));
+			values.put(getKey(sessionIdentifier, page.getPageId(), DESCRIPTOR),
+				writeDescriptor(version, serializedPage));
+
+			cached.put(dataKey, new CachedPage(version, serializedPage));
+		}
+
+		store.putAll(values, ttl);
+
+		if (nearCache != null)
+		{
+			nearCache.putAll(cached);
+		}
+	}
+
+	@Override
+	protected void removePersistedPage(String sessionIdentifier, IManageablePage page)
+	{
+		String dataKey = getKey(sessionIdentifier, page.getPageId(), DATA);
+
+		store.deleteAll(
+			Arrays.asList(getKey(sessionIdentifier, page.getPageId(), DESCRIPTOR), dataKey));
+
+		if (nearCache != null)
+		{
+			nearCache.remove(dataKey);
+		}
+	}
+
+	@Override
+	protected void removeAllPersistedPages(String sessionIdentifier)
+	{
+		String prefix = getPrefix(sessionIdentifier);
+
+		store.deleteAll(store.scan(prefix));
+
+		if (nearCache != null)
+		{
+			synchronized (nearCache)
+			{
+				nearCache.keySet().removeIf(key -> key.startsWith(prefix));
+			}
+		}
+	}
+
+	@Override
+	public Set<String> getSessionIdentifiers()
+	{
+		Set<String> sessionIdentifiers = new TreeSet<>();
+
+		for (String key : store.scan(namespace))
+		{
+			if (key.endsWith(DESCRIPTOR))
+			{
+				int pageIdStart = key.lastIndexOf(':', key.length() - DESCRIPTOR.length() - 1);
+				sessionIdentifiers.add(key.substring(namespace.length(), pageIdStart));
+			}
+		}
+
+		return sessionIdentifiers;
+	}
+
+	@Override
+	public List<IPersistedPage> getPersistedPages(String sessionIdentifier)
+	{
+		List<IPersistedPage> pages = new ArrayList<>();
+
+		String prefix = getPrefix(sessionIdentifier);
+		for (Map.Entry<String, byte[]> entry : getDescriptors(prefix).entrySet())
+		{
+			String key = entry.getKey();
+			int pageId = Integer.parseInt(
+				key.substring(prefix.length(), key.length() - DESCRIPTOR.length()));
+
+			Descriptor descriptor = readDescriptor(entry.getValue());
+			pages.add(new PersistedPage(pageId, descriptor.pageType, descriptor.size));
+		}
+
+		return pages;
+	}
+
+	@Override
+	public Bytes getTotalSize()
+	{
+		long total = 0;
+
+		for (byte[] descriptor : getDescriptors(namespace).values())
+		{
+			total += readDescriptor(descriptor).size;
+		}
+
+		return Bytes.bytes(total);
+	}
+
+	@Override
+	public void destroy()
+	{
+		super.destroy();
+
+		if (nearCache != null)
+		{
+			nearCache.clear();
+		}
+
+		store.close();
+	}
+
+	private Map<String, byte[]> getDescriptors(String prefix)
+	{
+		List<String> keys = new ArrayList<>();
+		for (String key : store.scan(prefix))
+		{
+			if (key.endsWith(DESCRIPTOR))
+			{
+				keys.add(key);
+			}
+		}
+
+		return store.getAll(keys);
+	}
+
+	private String getPrefix(String sessionIdentifier)
+	{
+		return namespace + sessionIdentifier + ":";
+	}
+
+	private String getKey(String sessionIdentifier, int pageId, String suffix)
+	{
+		return getPrefix(sessionIdentifier) + pageId + suffix;
+	}
+
+	private byte[] writeData(long version, SerializedPage page)
+	{
+		byte[] data = page.getData();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + 64);
+		try (DataOutputStream output = new DataOutputStream(bytes))
+		{
+			output.writeLong(version);
+			output.writeUTF(page.getPageType());
+			output.write(data);
+		}
+		catch (IOException ex)
+		{
+			throw new WicketRuntimeException(ex);
+		}
+		return bytes.toByteArray();
+	}
+
+	private CachedPage readData(int pageId, byte[] value)
+	{
+		try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(value)))
+		{
+			long version = input.readLong();
+			String pageType = input.readUTF();
+			byte[] data = new byte[input.available()];
+			input.readFully(data);
+
+			return new CachedPage(version, new SerializedPage(pageId, pageType, data));
+		}
+		catch (IOException ex)
+		{
+			throw new WicketRuntimeException(ex);
+		}
+	}
+
+	private byte[] writeDescriptor(long version, SerializedPage page)
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		try (DataOutputStream output = new DataOutputStream(bytes))
+		{
+			output.writeLong(version);
+			output.writeInt(page.getData().length);
+			output.writeUTF(page.getPageType());
+		}
+		catch (IOException ex)
+		{
+			throw new WicketRuntimeException(ex);
+		}
+		return bytes.toByteArray();
+	}
+
+	private Descriptor readDescriptor(byte[] value)
+	{
+		try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(value)))
+		{
+			return new Descriptor(input.readLong(), input.readInt(), input.readUTF());
+		}
+		catch (IOException ex)
+		{
+			throw new WicketRuntimeException(ex);
+		}
+	}
+
+	/**
+	 * A page in the near-cache.
+	 */
+	private static class CachedPage
+	{
+		private final long version;
+
+		private final SerializedPage page;
+
+		private CachedPage(long version, SerializedPage page)
+		{
+			this.version = version;
+			this.page = page;
+		}
+	}
+
+	/**
+	 * The descriptor of a stored page.
+	 */
+	private static class Descriptor
+	{
+		private final long version;
+
+		private final int size;
+
+		private final String pageType;
+
+		private Descriptor(long version, int size, String pageType)
+		{
+			this.version = version;
+			this.size = size;
+			this.pageType = pageType;
+		}
+	}
+}
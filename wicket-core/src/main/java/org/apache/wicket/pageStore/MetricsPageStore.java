@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.util.List;
+
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.pageStore.IPageStoreMetrics.Operation;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A store measuring the operations of its delegate.
+ * <p>
+ * Several instances can be placed in a chain of stores to attribute time to each part, e.g. one
+ * in front of a {@link SerializingPageStore} and one in front of a persistent store to tell
+ * serialization from I/O:
+ * 
+ * <pre>
+ * new MetricsPageStore(new SerializingPageStore(new MetricsPageStore(new DiskPageStore(...), metrics), serializer), metrics)
+ * </pre>
+ */
+public class MetricsPageStore extends DelegatingPageStore
+{
+	private final String name;
+
+	private final IPageStoreMetrics metrics;
+
+	/**
+	 * Measure under the simple class name of the delegate.
+	 * 
+	 * @param delegate
+	 *            store to measure
+	 * @param metrics
+	 *            receiver of measurements
+	 */
+	public MetricsPageStore(IPageStore delegate, IPageStoreMetrics metrics)
+	{
+		this(delegate, delegate.getClass().getSimpleName(), metrics);
+	}
+
+	/**
+	 * Measure under the given name.
+	 * 
+	 * @param delegate
+	 *            store to measure
+	 * @param name
+	 *            name of the measured store
+	 * @param metrics
+	 *            receiver of measurements
+	 */
+	public MetricsPageStore(IPageStore delegate, String name, IPageStoreMetrics metrics)
+	{
+		super(delegate);
+
+		this.name = Args.notNull(name, "name");
+		this.metrics = Args.notNull(metrics, "metrics");
+	}
+
+	/**
+	 * Supports asynchronous add if the delegate supports it.
+	 */
+	@Override
+	public boolean canBeAsynchronous(IPageContext context)
+	{
+		return getDelegate().canBeAsynchronous(context);
+	}
+
+	@Override
+	public IManageablePage getPage(IPageContext context, int id)
+	{
+		long start = System.nanoTime();
+
+		IManageablePage page = getDelegate().getPage(context, id);
+
+		metrics.recordOperation(name, Operation.GET, page == null ? 0 : 1, getBytes(page),
+			System.nanoTime() - start);
+
+		return page;
+	}
+
+	@Override
+	public void addPage(IPageContext context, IManageablePage page)
+	{
+		long start = System.nanoTime();
+
+		getDelegate().addPage(context, page);
+
+		metrics.recordOperation(name, Operation.ADD, 1, getBytes(page), System.nanoTime() - start);
+	}
+
+	@Override
+	public void addPages(IPageContext context, List<IManageablePage> pages)
+	{
+		long start = System.nanoTime();
+
+		getDelegate().addPages(context, pages);
+
+		long bytes = 0;
+		for (IManageablePage page : pages)
+		{
+			bytes += getBytes(page);
+		}
+		metrics.recordOperation(name, Operation.ADD, pages.size(), bytes, System.nanoTime() - start);
+	}
+
+	@Override
+	public void removePage(IPageContext context, IManageablePage page)
+	{
+		long start = System.nanoTime();
+
+		getDelegate().removePage(context, page);
+
+		metrics.recordOperation(name, Operation.REMOVE, 1, 0, System.nanoTime() - start);
+	}
+
+	@Override
+	public void removeAllPages(IPageContext context)
+	{
+		long start = System.nanoTime();
+
+		getDelegate().removeAllPages(context);
+
+		metrics.recordOperation(name, Operation.REMOVE_ALL, 0, 0, System.nanoTime() - start);
+	}
+
+	private static long getBytes(IManageablePage page)
+	{
+		if (page instanceof SerializedPage)
+		{
+			return ((SerializedPage)page).getData().length;
+		}
+		return 0;
+	}
+}
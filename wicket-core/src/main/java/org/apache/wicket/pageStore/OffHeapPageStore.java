@@ -0,0 +1,556 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+
+/**
+ * A storage of serialized pages in direct memory, i.e. outside of the heap managed by the garbage
+ * collector.
+ * <p>
+ * The data of pages is kept in fixed-size blocks of direct {@link ByteBuffer}s, allocated in slabs
+ * up to a maximum size shared by all sessions. When no blocks are free, pages are evicted with the
+ * CLOCK algorithm: each access marks a page as referenced, eviction gives referenced pages a second
+ * chance and removes the first non-referenced one. Reads do not lock, they are validated against
+ * concurrent eviction instead.
+ * <p>
+ * This store is intended as a cache for a {@link CachingPageStore} in front of a persistent store,
+ * following a {@link SerializingPageStore}:
+ *
+ * <pre>
+ * new CachingPageStore(new DiskPageStore(...), new OffHeapPageStore(getName(), Bytes.megabytes(256)))
+ * </pre>
+ *
+ * All pages added to this store <em>must</em> be {@code SerializedPage}s.
+ */
+public class OffHeapPageStore extends AbstractPersistentPageStore implements IPersistentPageStore
+{
+	/**
+	 * Default size of blocks.
+	 */
+	public static final Bytes DEFAULT_BLOCK_SIZE = Bytes.kilobytes(4);
+
+	/**
+	 * Maximum size of a single slab.
+	 */
+	private static final int SLAB_SIZE = 16 * 1024 * 1024;
+
+	private final int blockSize;
+
+	private final int blocksPerSlab;
+
+	private final int maxBlocks;
+
+	private final ConcurrentMap<String, ConcurrentMap<Integer, Entry>> sessions = new ConcurrentHashMap<>();
+
+	private final AtomicLong totalSize = new AtomicLong();
+
+	/**
+	 * Slabs of blocks, replaced on growth so reads do not need to lock.
+	 */
+	private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+
+	/**
+	 * Guards all fields following and the allocation of slabs.
+	 */
+	private final Object lock = new Object();
+
+	private int[] freeBlocks = new int[0];
+
+	private int freeCount;
+
+	/**
+	 * First entry of the clock, i.e. the next candidate for eviction.
+	 */
+	private Entry clockHead;
+
+	/**
+	 * Last entry of the clock.
+	 */
+	private Entry clockTail;
+
+	/**
+	 * Keep pages up to {@code maxSize} for all sessions.
+	 *
+	 * @param applicationName
+	 *            {@link Application#getName()}
+	 * @param maxSize
+	 *            maximum size of all pages
+	 */
+	public OffHeapPageStore(String applicationName, Bytes maxSize)
+	{
+		this(applicationName, maxSize, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Keep pages up to {@code maxSize} for all sessions.
+	 *
+	 * @param applicationName
+	 *            {@link Application#getName()}
+	 * @param maxSize
+	 *            maximum size of all pages
+	 * @param blockSize
+	 *            size of blocks
+	 */
+	public OffHeapPageStore(String applicationName, Bytes maxSize, Bytes blockSize)
+	{
+		this(applicationName, maxSize, blockSize, SLAB_SIZE);
+	}
+
+	/**
+	 * Constructor with a custom size of slabs, for testing only.
+	 */
+	OffHeapPageStore(String applicationName, Bytes maxSize, Bytes blockSize, int slabSize)
+	{
+		super(applicationName);
+
+		this.blockSize = Args.withinRange(16L, (long)slabSize,
+			Args.notNull(blockSize, "blockSize").bytes(), "blockSize").intValue();
+
+		long blocks = Args.notNull(maxSize, "maxSize").bytes() / this.blockSize;
+		this.maxBlocks = Args.withinRange(1L, (long)Integer.MAX_VALUE, blocks, "maxSize / blockSize")
+			.intValue();
+
+		this.blocksPerSlab = Math.min(slabSize / this.blockSize, maxBlocks);
+	}
+
+	/**
+	 * Pages are always serialized, so versioning is supported.
+	 */
+	@Override
+	public boolean supportsVersioning()
+	{
+		return true;
+	}
+
+	@Override
+	protected IManageablePage getPersistedPage(String sessionIdentifier, int id)
+	{
+		Map<Integer, Entry> entries = sessions.get(sessionIdentifier);
+		if (entries == null)
+		{
+			return null;
+		}
+
+		Entry entry = entries.get(id);
+		if (entry == null)
+		{
+			return null;
+		}
+
+		entry.referenced = true;
+
+		byte[] data = read(entry);
+
+		if (entry.freed)
+		{
+			// evicted while reading, blocks might have been reused
+			return null;
+		}
+
+		return new SerializedPage(id, entry.pageType, data);
+	}
+
+	@Override
+	protected void addPersistedPage(String sessionIdentifier, IManageablePage page)
+	{
+		if (page instanceof SerializedPage == false)
+		{
+			throw new WicketRuntimeException("OffHeapPageStore works with serialized pages only");
+		}
+		SerializedPage serializedPage = (SerializedPage)page;
+		byte[] data = serializedPage.getData();
+
+		int count = (data.length + blockSize - 1) / blockSize;
+		if (count > maxBlocks)
+		{
+			// too large to be kept
+			removePersistedPage(sessionIdentifier, page);
+			return;
+		}
+
+		int[] blocks = allocate(count);
+		if (blocks == null)
+		{
+			// all blocks are currently being written
+			removePersistedPage(sessionIdentifier, page);
+			return;
+		}
+
+		Entry entry = new Entry(sessionIdentifier, page.getPageId(), serializedPage.getPageType(),
+			data.length, blocks);
+		write(entry, data);
+
+		totalSize.addAndGet(entry.length);
+		Entry previous = sessions.computeIfAbsent(sessionIdentifier, key -> new ConcurrentHashMap<>())
+			.put(entry.pageId, entry);
+
+		synchronized (lock)
+		{
+			if (entry.freed == false)
+			{
+				link(entry);
+			}
+		}
+
+		if (previous != null)
+		{
+			free(previous);
+		}
+	}
+
+	@Override
+	protected void removePersistedPage(String sessionIdentifier, IManageablePage page)
+	{
+		Map<Integer, Entry> entries = sessions.get(sessionIdentifier);
+		if (entries != null)
+		{
+			Entry entry = entries.remove(page.getPageId());
+			if (entry != null)
+			{
+				free(entry);
+			}
+		}
+	}
+
+	@Override
+	protected void removeAllPersistedPages(String sessionIdentifier)
+	{
+		Map<Integer, Entry> entries = sessions.remove(sessionIdentifier);
+		if (entries != null)
+		{
+			for (Entry entry : entries.values())
+			{
+				free(entry);
+			}
+		}
+	}
+
+	@Override
+	public Set<String> getSessionIdentifiers()
+	{
+		return Collections.unmodifiableSet(sessions.keySet());
+	}
+
+	@Override
+	public List<IPersistedPage> getPersistedPages(String sessionIdentifier)
+	{
+		List<IPersistedPage> pages = new ArrayList<>();
+
+		Map<Integer, Entry> entries = sessions.get(sessionIdentifier);
+		if (entries != null)
+		{
+			for (Entry entry : entries.values())
+			{
+				pages.add(new PersistedPage(entry.pageId, entry.pageType, entry.length));
+			}
+		}
+
+		return pages;
+	}
+
+	@Override
+	public Bytes getTotalSize()
+	{
+		return Bytes.bytes(totalSize.get());
+	}
+
+	@Override
+	public void destroy()
+	{
+		super.destroy();
+
+		sessions.clear();
+		totalSize.set(0);
+
+		synchronized (lock)
+		{
+			while (clockHead != null)
+			{
+				Entry entry = clockHead;
+				unlink(entry);
+				entry.freed = true;
+			}
+			slabs = new ByteBuffer[0];
+			freeBlocks = new int[0];
+			freeCount = 0;
+		}
+	}
+
+	/**
+	 * Number of entries in the clock, for testing only.
+	 */
+	int getClockLength()
+	{
+		synchronized (lock)
+		{
+			int length = 0;
+			for (Entry entry = clockHead; entry != null; entry = entry.next)
+			{
+				length++;
+			}
+			return length;
+		}
+	}
+
+	/**
+	 * Allocate blocks, evicting pages if necessary.
+	 * 
+	 * @return blocks or <code>null</code> if not enough blocks could be freed
+	 */
+	private int[] allocate(int count)
+	{
+		int[] blocks = new int[count];
+
+		synchronized (lock)
+		{
+			while (freeCount < count)
+			{
+				if (slabs.length * blocksPerSlab < maxBlocks)
+				{
+					addSlab();
+				}
+				else if (evict() == false)
+				{
+					return null;
+				}
+			}
+
+			freeCount -= count;
+			System.arraycopy(freeBlocks, freeCount, blocks, 0, count);
+		}
+
+		return blocks;
+	}
+
+	private void addSlab()
+	{
+		int first = slabs.length * blocksPerSlab;
+		int count = Math.min(blocksPerSlab, maxBlocks - first);
+
+		ByteBuffer[] grownSlabs = Arrays.copyOf(slabs, slabs.length + 1);
+		grownSlabs[slabs.length] = ByteBuffer.allocateDirect(count * blockSize);
+		slabs = grownSlabs;
+
+		// room for all blocks of all slabs, as all of them might be freed
+		freeBlocks = Arrays.copyOf(freeBlocks, first + count);
+		// hand out lower blocks first
+		for (int block = first + count - 1; block >= first; block--)
+		{
+			freeBlocks[freeCount++] = block;
+		}
+	}
+
+	/**
+	 * Evict the next page of the clock which was not referenced since the last pass.
+	 * 
+	 * @return <code>false</code> if there is no page to evict
+	 */
+	private boolean evict()
+	{
+		while (true)
+		{
+			Entry entry = clockHead;
+			if (entry == null)
+			{
+				return false;
+			}
+
+			if (entry.referenced)
+			{
+				entry.referenced = false;
+				unlink(entry);
+				link(entry);
+				continue;
+			}
+
+			Map<Integer, Entry> entries = sessions.get(entry.sessionIdentifier);
+			if (entries != null)
+			{
+				entries.remove(entry.pageId, entry);
+			}
+			free(entry);
+			return true;
+		}
+	}
+
+	/**
+	 * Free the blocks of an entry.
+	 */
+	private void free(Entry entry)
+	{
+		synchronized (lock)
+		{
+			if (entry.freed)
+			{
+				return;
+			}
+			entry.freed = true;
+
+			unlink(entry);
+
+			totalSize.addAndGet(-entry.length);
+
+			if (slabs.length == 0)
+			{
+				// destroyed
+				return;
+			}
+
+			for (int block : entry.blocks)
+			{
+				freeBlocks[freeCount++] = block;
+			}
+		}
+	}
+
+	/**
+	 * Append an entry to the end of the clock, must be called with the lock held.
+	 */
+	private void link(Entry entry)
+	{
+		entry.previous = clockTail;
+		entry.next = null;
+		if (clockTail == null)
+		{
+			clockHead = entry;
+		}
+		else
+		{
+			clockTail.next = entry;
+		}
+		clockTail = entry;
+	}
+
+	/**
+	 * Remove an entry from the clock if contained, must be called with the lock held.
+	 */
+	private void unlink(Entry entry)
+	{
+		if (entry.previous == null && clockHead != entry)
+		{
+			// not linked
+			return;
+		}
+
+		if (entry.previous == null)
+		{
+			clockHead = entry.next;
+		}
+		else
+		{
+			entry.previous.next = entry.next;
+		}
+		if (entry.next == null)
+		{
+			clockTail = entry.previous;
+		}
+		else
+		{
+			entry.next.previous = entry.previous;
+		}
+		entry.previous = null;
+		entry.next = null;
+	}
+
+	private void write(Entry entry, byte[] data)
+	{
+		int offset = 0;
+		for (int block : entry.blocks)
+		{
+			int length = Math.min(blockSize, data.length - offset);
+			slab(block).put(position(block), data, offset, length);
+			offset += length;
+		}
+	}
+
+	private byte[] read(Entry entry)
+	{
+		byte[] data = new byte[entry.length];
+
+		int offset = 0;
+		for (int block : entry.blocks)
+		{
+			int length = Math.min(blockSize, data.length - offset);
+			slab(block).get(position(block), data, offset, length);
+			offset += length;
+		}
+
+		return data;
+	}
+
+	private ByteBuffer slab(int block)
+	{
+		return slabs[block / blocksPerSlab];
+	}
+
+	private int position(int block)
+	{
+		return (block % blocksPerSlab) * blockSize;
+	}
+
+	/**
+	 * A page kept in blocks.
+	 */
+	private static class Entry
+	{
+		final String sessionIdentifier;
+
+		final int pageId;
+
+		final String pageType;
+
+		final int length;
+
+		final int[] blocks;
+
+		volatile boolean referenced;
+
+		volatile boolean freed;
+
+		/**
+		 * Neighbours in the clock, guarded by the store's lock.
+		 */
+		Entry previous;
+
+		Entry next;
+
+		Entry(String sessionIdentifier, int pageId, String pageType, int length, int[] blocks)
+		{
+			this.sessionIdentifier = sessionIdentifier;
+			this.pageId = pageId;
+			this.pageType = pageType;
+			this.length = length;
+			this.blocks = blocks;
+		}
+	}
+}
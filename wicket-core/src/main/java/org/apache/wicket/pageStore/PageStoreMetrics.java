@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics aggregating all measurements in memory.
+ * <p>
+ * Operations are summed up per store and operation, waits for locks are counted in a histogram
+ * with buckets bounded by {@link #LOCK_WAIT_BOUNDS}. Counters of the stores themselves are
+ * available from the {@link #register(IPageStore) registered} chain of stores.
+ */
+public class PageStoreMetrics implements IPageStoreMetrics
+{
+	/**
+	 * Exclusive upper bounds of the buckets of the lock wait histogram, followed by an unbounded
+	 * bucket.
+	 */
+	public static final List<Duration> LOCK_WAIT_BOUNDS = List.of(Duration.ofMillis(1),
+		Duration.ofMillis(10), Duration.ofMillis(100), Duration.ofSeconds(1), Duration.ofSeconds(10));
+
+	private final ConcurrentMap<String, Map<Operation, Statistics>> stores = new ConcurrentHashMap<>();
+
+	private final LongAdder[] lockWaits = new LongAdder[LOCK_WAIT_BOUNDS.size() + 1];
+
+	private volatile IPageStore pageStore;
+
+	/**
+	 * Create empty metrics.
+	 */
+	public PageStoreMetrics()
+	{
+		for (int b = 0; b < lockWaits.length; b++)
+		{
+			lockWaits[b] = new LongAdder();
+		}
+	}
+
+	@Override
+	public void recordOperation(String store, Operation operation, int pages, long bytes, long nanos)
+	{
+		stores.computeIfAbsent(store, key -> {
+			Map<Operation, Statistics> statistics = new EnumMap<>(Operation.class);
+			for (Operation candidate : Operation.values())
+			{
+				statistics.put(candidate, new Statistics());
+			}
+			return statistics;
+		}).get(operation).record(pages, bytes, nanos);
+	}
+
+	@Override
+	public void recordLockWait(long nanos)
+	{
+		int bucket = 0;
+		while (bucket < LOCK_WAIT_BOUNDS.size() && nanos >= LOCK_WAIT_BOUNDS.get(bucket).toNanos())
+		{
+			bucket++;
+		}
+		lockWaits[bucket].increment();
+	}
+
+	@Override
+	public void register(IPageStore store)
+	{
+		this.pageStore = store;
+	}
+
+	/**
+	 * Find a store of the given type in the registered chain of stores.
+	 * 
+	 * @param type
+	 *            type of store
+	 * @return store or <code>null</code> if not available
+	 */
+	public <T extends IPageStore> T findStore(Class<T> type)
+	{
+		IPageStore store = pageStore;
+		while (store != null)
+		{
+			if (type.isInstance(store))
+			{
+				return type.cast(store);
+			}
+
+			if (store instanceof DelegatingPageStore)
+			{
+				store = ((DelegatingPageStore)store).getDelegate();
+			}
+			else
+			{
+				store = null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the names of all stores with recorded operations.
+	 * 
+	 * @return names of stores
+	 */
+	public Set<String> getStores()
+	{
+		return Collections.unmodifiableSet(stores.keySet());
+	}
+
+	/**
+	 * Get the statistics of an operation of a store.
+	 * 
+	 * @param store
+	 *            name of store
+	 * @param operation
+	 *            operation
+	 * @return statistics or <code>null</code> if no operation was recorded for the store
+	 */
+	public Statistics getStatistics(String store, Operation operation)
+	{
+		Map<Operation, Statistics> statistics = stores.get(store);
+		if (statistics == null)
+		{
+			return null;
+		}
+		return statistics.get(operation);
+	}
+
+	/**
+	 * Get the histogram of lock waits.
+	 * 
+	 * @return counts of lock waits for each bucket
+	 * @see #LOCK_WAIT_BOUNDS
+	 */
+	public long[] getLockWaits()
+	{
+		long[] counts = new long[lockWaits.length];
+		for (int b = 0; b < lockWaits.length; b++)
+		{
+			counts[b] = lockWaits[b].sum();
+		}
+		return counts;
+	}
+
+	/**
+	 * Statistics of an operation.
+	 */
+	public static class Statistics
+	{
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder pages = new LongAdder();
+
+		private final LongAdder bytes = new LongAdder();
+
+		private final LongAdder nanos = new LongAdder();
+
+		private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+		private void record(int pages, long bytes, long nanos)
+		{
+			this.count.increment();
+			this.pages.add(pages);
+			this.bytes.add(bytes);
+			this.nanos.add(nanos);
+			this.maxNanos.accumulate(nanos);
+		}
+
+		/**
+		 * @return count of operations
+		 */
+		public long getCount()
+		{
+			return count.sum();
+		}
+
+		/**
+		 * @return count of handled pages
+		 */
+		public long getPages()
+		{
+			return pages.sum();
+		}
+
+		/**
+		 * @return size of handled serialized pages
+		 */
+		public long getBytes()
+		{
+			return bytes.sum();
+		}
+
+		/**
+		 * @return total time of all operations
+		 */
+		public Duration getTime()
+		{
+			return Duration.ofNanos(nanos.sum());
+		}
+
+		/**
+		 * @return maximum time of a single operation
+		 */
+		public Duration getMaxTime()
+		{
+			return Duration.ofNanos(maxNanos.get());
+		}
+	}
+}
@@ -0,0 +1,528 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.pageStore.disk.Segment;
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.thread.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A storage of pages in memory-mapped files shared by all sessions.
+ * <p>
+ * All pages passed into this store are restricted to be {@link SerializedPage}s.
+ * <p>
+ * While {@link DiskPageStore} opens a file per session and serializes all access to it, this
+ * implementation appends pages of all sessions into a few {@link Segment}s. An in-memory index
+ * maps each session and page id to its location in a segment, thus pages are read without any
+ * locking and without any system call. Each session is still limited to a maximum size, oldest
+ * pages of a session are released when this limit is exceeded.
+ * <p>
+ * Released space is reclaimed by a background task, copying the remaining pages of sparsely used
+ * segments to the current segment and deleting the former afterwards.
+ * <p>
+ * Note: Contrary to {@link DiskPageStore} the index is not persisted, any segments from a previous
+ * run are deleted on startup.
+ */
+public class SegmentPageStore extends AbstractPersistentPageStore implements IPersistentPageStore
+{
+	private static final Logger log = LoggerFactory.getLogger(SegmentPageStore.class);
+
+	/**
+	 * Default size of each segment.
+	 */
+	public static final Bytes DEFAULT_SEGMENT_SIZE = Bytes.megabytes(32);
+
+	private static final String FILE_SUFFIX = ".segment";
+
+	/**
+	 * Segments with less live data are compacted.
+	 */
+	private static final double COMPACTION_THRESHOLD = 0.5;
+
+	/**
+	 * Frequency of compaction, segments have to be sealed at least this long before they are compacted.
+	 */
+	private static final Duration COMPACTION_FREQUENCY = Duration.ofSeconds(10);
+
+	private final Bytes maxSizePerSession;
+
+	private final int segmentSize;
+
+	private final File folder;
+
+	private final ConcurrentMap<String, SessionIndex> sessions = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<Integer, Segment> segments = new ConcurrentHashMap<>();
+
+	private final AtomicInteger segmentIds = new AtomicInteger();
+
+	private final AtomicLong totalSize = new AtomicLong();
+
+	private volatile Segment current;
+
+	private final Task compaction;
+
+	/**
+	 * Create a store that supports {@link SerializedPage}s only.
+	 *
+	 * @param applicationName
+	 *            name of application
+	 * @param fileStoreFolder
+	 *            folder to store to
+	 * @param maxSizePerSession
+	 *            maximum size per session
+	 *
+	 * @see SerializingPageStore
+	 */
+	public SegmentPageStore(String applicationName, File fileStoreFolder, Bytes maxSizePerSession)
+	{
+		this(applicationName, fileStoreFolder, maxSizePerSession, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Create a store that supports {@link SerializedPage}s only.
+	 *
+	 * @param applicationName
+	 *            name of application
+	 * @param fileStoreFolder
+	 *            folder to store to
+	 * @param maxSizePerSession
+	 *            maximum size per session
+	 * @param segmentSize
+	 *            size of each segment
+	 *
+	 * @see SerializingPageStore
+	 */
+	public SegmentPageStore(String applicationName, File fileStoreFolder, Bytes maxSizePerSession,
+		Bytes segmentSize)
+	{
+		super(applicationName);
+
+		this.folder = new File(fileStoreFolder, applicationName + "-segmentstore");
+		this.maxSizePerSession = Args.notNull(maxSizePerSession, "maxSizePerSession");
+		this.segmentSize = Args.withinRange(1L, (long)Integer.MAX_VALUE,
+			Args.notNull(segmentSize, "segmentSize").bytes(), "segmentSize").intValue();
+
+		try
+		{
+			if (folder.exists())
+			{
+				Files.removeFolder(folder);
+			}
+			Files.mkdirs(folder);
+		}
+		catch (SecurityException e)
+		{
+			throw new WicketRuntimeException(
+				"SecurityException occurred while creating SegmentPageStore. Consider using a non-disk based IPageStore implementation. "
+					+ "See org.apache.wicket.Application.setPageManagerProvider(IPageManagerProvider)",
+				e);
+		}
+
+		current = newSegment(this.segmentSize);
+
+		compaction = new Task("Wicket-SegmentPageStore-Compaction");
+		compaction.run(COMPACTION_FREQUENCY, logger -> compact());
+	}
+
+	/**
+	 * Pages are already serialized.
+	 */
+	@Override
+	public boolean supportsVersioning()
+	{
+		return true;
+	}
+
+	@Override
+	public void destroy()
+	{
+		log.debug("Destroying...");
+		compaction.interrupt();
+
+		for (Segment segment : segments.values())
+		{
+			segment.close();
+		}
+		segments.clear();
+		sessions.clear();
+
+		Files.removeFolder(folder);
+
+		super.destroy();
+		log.debug("Destroyed.");
+	}
+
+	@Override
+	protected IManageablePage getPersistedPage(String sessionIdentifier, int id)
+	{
+		SessionIndex index = sessions.get(sessionIdentifier);
+		if (index != null)
+		{
+			Location location = index.locations.get(id);
+			if (location != null)
+			{
+				if (log.isDebugEnabled())
+				{
+					log.debug("Returning page with id '{}' in session with id '{}'", id, sessionIdentifier);
+				}
+
+				return new SerializedPage(id, location.pageType, location.read());
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	protected void removePersistedPage(String sessionIdentifier, IManageablePage page)
+	{
+		SessionIndex index = sessions.get(sessionIdentifier);
+		if (index != null)
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("Removing page with id '{}' in session with id '{}'", page.getPageId(), sessionIdentifier);
+			}
+
+			synchronized (index)
+			{
+				index.remove(page.getPageId());
+			}
+		}
+	}
+
+	@Override
+	protected void removeAllPersistedPages(String sessionIdentifier)
+	{
+		SessionIndex index = sessions.remove(sessionIdentifier);
+		if (index != null)
+		{
+			synchronized (index)
+			{
+				index.removed = true;
+
+				for (Integer pageId : new ArrayList<>(index.order))
+				{
+					index.remove(pageId);
+				}
+			}
+		}
+	}
+
+	@Override
+	protected void addPersistedPage(String sessionIdentifier, IManageablePage page)
+	{
+		if (page instanceof SerializedPage == false)
+		{
+			throw new WicketRuntimeException("SegmentPageStore works with serialized pages only");
+		}
+		SerializedPage serializedPage = (SerializedPage) page;
+
+		log.debug("Storing data for page with id '{}' in session with id '{}'", serializedPage.getPageId(), sessionIdentifier);
+
+		Location location = append(serializedPage.getPageType(), serializedPage.getData());
+
+		while (true)
+		{
+			SessionIndex index = sessions.computeIfAbsent(sessionIdentifier, key -> new SessionIndex());
+			synchronized (index)
+			{
+				if (index.removed)
+				{
+					// concurrently removed, try again with a new index
+					continue;
+				}
+
+				index.add(serializedPage.getPageId(), location);
+
+				while (index.size > maxSizePerSession.bytes() && index.order.size() > 1)
+				{
+					index.remove(index.order.iterator().next());
+				}
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Append data to the current segment, rolling over to a new segment if it is full.
+	 *
+	 * @param pageType
+	 *            type of page
+	 * @param data
+	 *            data to append
+	 * @return location of data
+	 */
+	private Location append(String pageType, byte[] data)
+	{
+		while (true)
+		{
+			Segment segment = current;
+
+			int offset = segment.append(data);
+			if (offset >= 0)
+			{
+				return new Location(segment, offset, data.length, pageType);
+			}
+
+			roll(segment, data.length);
+		}
+	}
+
+	/**
+	 * Replace the given full segment with a new one.
+	 *
+	 * @param full
+	 *            the full segment
+	 * @param length
+	 *            length of data that did not fit
+	 */
+	private synchronized void roll(Segment full, int length)
+	{
+		if (current == full)
+		{
+			full.seal();
+
+			current = newSegment(Math.max(segmentSize, length));
+		}
+	}
+
+	private Segment newSegment(int capacity)
+	{
+		int id = segmentIds.incrementAndGet();
+		File file = new File(folder, id + FILE_SUFFIX);
+		try
+		{
+			Segment segment = new Segment(id, file, capacity);
+			segments.put(id, segment);
+
+			log.debug("Created segment {}", segment);
+
+			return segment;
+		}
+		catch (IOException ex)
+		{
+			throw new WicketRuntimeException("Cannot create segment " + file, ex);
+		}
+	}
+
+	/**
+	 * Compact sealed segments with little live data.
+	 * <p>
+	 * Pages still stored in such a segment are copied to the current segment and the former is
+	 * deleted afterwards.
+	 */
+	protected void compact()
+	{
+		long sealedBefore = System.currentTimeMillis() - COMPACTION_FREQUENCY.toMillis();
+
+		for (Segment segment : segments.values())
+		{
+			long sealed = segment.getSealed();
+			if (sealed == 0 || sealed > sealedBefore)
+			{
+				// still in use or possibly still appended to
+				continue;
+			}
+
+			if (segment.getLive() > segment.getUsed() * COMPACTION_THRESHOLD)
+			{
+				continue;
+			}
+
+			log.debug("Compacting segment {}", segment);
+
+			if (segment.getLive() > 0)
+			{
+				for (SessionIndex index : sessions.values())
+				{
+					move(index, segment);
+				}
+			}
+
+			segments.remove(segment.getId());
+			segment.close();
+		}
+	}
+
+	/**
+	 * Move all pages of a session away from the given segment.
+	 *
+	 * @param index
+	 *            index of session
+	 * @param segment
+	 *            segment to move pages from
+	 */
+	private void move(SessionIndex index, Segment segment)
+	{
+		for (Map.Entry<Integer, Location> entry : index.locations.entrySet())
+		{
+			Location location = entry.getValue();
+			if (location.segment != segment)
+			{
+				continue;
+			}
+
+			Location moved = append(location.pageType, location.read());
+
+			synchronized (index)
+			{
+				if (index.removed == false && index.locations.replace(entry.getKey(), location, moved))
+				{
+					location.release();
+				}
+				else
+				{
+					// concurrently replaced or removed
+					moved.release();
+				}
+			}
+		}
+	}
+
+	@Override
+	public Set<String> getSessionIdentifiers()
+	{
+		return Collections.unmodifiableSet(sessions.keySet());
+	}
+
+	@Override
+	public List<IPersistedPage> getPersistedPages(String sessionIdentifier)
+	{
+		List<IPersistedPage> pages = new ArrayList<>();
+
+		SessionIndex index = sessions.get(sessionIdentifier);
+		if (index != null)
+		{
+			synchronized (index)
+			{
+				for (Integer pageId : index.order)
+				{
+					Location location = index.locations.get(pageId);
+
+					pages.add(new PersistedPage(pageId, location.pageType, location.length));
+				}
+			}
+		}
+
+		return pages;
+	}
+
+	@Override
+	public Bytes getTotalSize()
+	{
+		return Bytes.bytes(totalSize.get());
+	}
+
+	/**
+	 * Location of a page in a segment.
+	 */
+	private static class Location
+	{
+		private final Segment segment;
+
+		private final int offset;
+
+		private final int length;
+
+		private final String pageType;
+
+		public Location(Segment segment, int offset, int length, String pageType)
+		{
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.pageType = pageType;
+		}
+
+		public byte[] read()
+		{
+			return segment.read(offset, length);
+		}
+
+		public void release()
+		{
+			segment.release(length);
+		}
+	}
+
+	/**
+	 * Index of all pages of a single session.
+	 * <p>
+	 * Reads go through {@link #locations} without locking, all modifications have to synchronize on
+	 * the index.
+	 */
+	private class SessionIndex
+	{
+		private final ConcurrentMap<Integer, Location> locations = new ConcurrentHashMap<>();
+
+		/**
+		 * Page ids in order of adding, oldest first.
+		 */
+		private final Set<Integer> order = new LinkedHashSet<>();
+
+		private long size;
+
+		private boolean removed;
+
+		public void add(int pageId, Location location)
+		{
+			remove(pageId);
+
+			locations.put(pageId, location);
+			order.add(pageId);
+
+			size += location.length;
+			totalSize.addAndGet(location.length);
+		}
+
+		public void remove(Integer pageId)
+		{
+			Location location = locations.remove(pageId);
+			if (location != null)
+			{
+				order.remove(pageId);
+
+				size -= location.length;
+				totalSize.addAndGet(-location.length);
+
+				location.release();
+			}
+		}
+	}
+}
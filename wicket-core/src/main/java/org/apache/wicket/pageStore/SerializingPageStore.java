@@ -16,6 +16,13 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.wicket.MetaDataKey;
 import org.apache.wicket.page.IManageablePage;
 import org.apache.wicket.serialize.ISerializer;
 import org.apache.wicket.util.lang.Args;
@@ -23,12 +30,35 @@ import org.apache.wicket.util.lang.Classes;
 
 /**
  * A store that serializes all pages before delegating and vice versa.
+ * <p>
+ * The serialized form of each page is remembered until the end of the request, so other stores
+ * can reuse it instead of serializing the page once again, see
+ * {@link #getSerializedPage(IPageContext, IManageablePage)}.
+ * <p>
+ * Pages which are not modified since they were last stored or restored (see
+ * {@link IManageablePage#isPageModified()}) are neither serialized nor passed to the delegate again.
+ * The serialized form of each page restored from the delegate, which tracks its modifications, is
+ * remembered until the end of the request, so it is still available to other stores when such a
+ * page is skipped.
  */
 public class SerializingPageStore extends DelegatingPageStore
 {
+	private static final MetaDataKey<Map<IManageablePage, SerializedPage>> KEY = new MetaDataKey<>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	private static final MetaDataKey<Map<IManageablePage, SerializedPage>> RESTORED_KEY = new MetaDataKey<>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
 
 	private final ISerializer serializer;
 
+	private final LongAdder storeCount = new LongAdder();
+
+	private final LongAdder skipCount = new LongAdder();
+
 	/**
 	 * @param delegate
 	 *            store to delegate to
@@ -67,7 +97,15 @@ public class SerializingPageStore extends DelegatingPageStore
 
 		if (page instanceof SerializedPage)
 		{
-			page = (IManageablePage)serializer.deserialize(((SerializedPage)page).getData());
+			SerializedPage serializedPage = (SerializedPage)page;
+
+			page = (IManageablePage)deserialize(context, serializedPage.getData());
+
+			if (isSerializedPageShared() && page.isPageModified() == false)
+			{
+				// page might be skipped, so keep its serialized form for other stores
+				context.getRequestData(RESTORED_KEY, IdentityHashMap::new).put(page, serializedPage);
+			}
 		}
 		return page;
 	}
@@ -75,10 +113,190 @@ public class SerializingPageStore extends DelegatingPageStore
 	@Override
 	public void addPage(IPageContext context, IManageablePage page)
 	{
-		if (page instanceof SerializedPage == false)
+		if (page instanceof SerializedPage)
+		{
+			getDelegate().addPage(context, page);
+			return;
+		}
+
+		SerializedPage serializedPage = serializePage(context, page);
+		if (serializedPage == null)
+		{
+			return;
+		}
+
+		getDelegate().addPage(context, serializedPage);
+
+		page.onPageStored();
+		storeCount.increment();
+	}
+
+	/**
+	 * Serializes all pages and passes them on to the delegate at once.
+	 */
+	@Override
+	public void addPages(IPageContext context, List<IManageablePage> pages)
+	{
+		List<IManageablePage> serializedPages = new ArrayList<>(pages.size());
+		List<IManageablePage> storedPages = new ArrayList<>(pages.size());
+		for (IManageablePage page : pages)
+		{
+			if (page instanceof SerializedPage)
+			{
+				serializedPages.add(page);
+				continue;
+			}
+
+			SerializedPage serializedPage = serializePage(context, page);
+			if (serializedPage != null)
+			{
+				serializedPages.add(serializedPage);
+				storedPages.add(page);
+			}
+		}
+
+		if (serializedPages.isEmpty())
+		{
+			return;
+		}
+
+		getDelegate().addPages(context, serializedPages);
+
+		for (IManageablePage page : storedPages)
+		{
+			page.onPageStored();
+			storeCount.increment();
+		}
+	}
+
+	/**
+	 * Serialize a page, if it is not already stored in its current state.
+	 * 
+	 * @return serialized page or <code>null</code> if the page does not have to be stored
+	 */
+	private SerializedPage serializePage(IPageContext context, IManageablePage page)
+	{
+		SerializedPage restored = getRestoredPage(context, page);
+		if (page.isPageModified() == false
+			&& (restored == null || restored.getPageId() == page.getPageId()))
+		{
+			// already stored in its current state
+			if (restored != null)
+			{
+				context.getRequestData(KEY, IdentityHashMap::new).put(page,
+					new SerializedPage(page.getPageId(), Classes.name(page.getClass()), restored.getData()));
+			}
+			skipCount.increment();
+			return null;
+		}
+
+		SerializedPage serializedPage = new SerializedPage(page.getPageId(), Classes.name(page.getClass()), serialize(context, page));
+
+		if (isSerializedPageShared())
+		{
+			context.getRequestData(KEY, IdentityHashMap::new).put(page, serializedPage);
+		}
+
+		return serializedPage;
+	}
+
+	/**
+	 * Serialize a page.
+	 * 
+	 * @param context
+	 *            context
+	 * @param page
+	 *            page
+	 * @return serialized data
+	 */
+	protected byte[] serialize(IPageContext context, IManageablePage page)
+	{
+		return serializer.serialize(page);
+	}
+
+	/**
+	 * Deserialize a page.
+	 * 
+	 * @param context
+	 *            context
+	 * @param data
+	 *            serialized data
+	 * @return page
+	 */
+	protected Object deserialize(IPageContext context, byte[] data)
+	{
+		return serializer.deserialize(data);
+	}
+
+	/**
+	 * Whether the serialized form of pages is shared with other stores, see
+	 * {@link #getSerializedPage(IPageContext, IManageablePage)}.
+	 * <p>
+	 * Subclasses have to return <code>false</code> if their data is not plainly deserializable with
+	 * the serializer.
+	 * 
+	 * @return <code>true</code> by default
+	 */
+	protected boolean isSerializedPageShared()
+	{
+		return true;
+	}
+
+	/**
+	 * Get the count of pages serialized and passed to the delegate.
+	 * 
+	 * @return count of stored pages
+	 */
+	public long getStoreCount()
+	{
+		return storeCount.sum();
+	}
+
+	/**
+	 * Get the count of pages skipped because they were not modified since they were last stored
+	 * or restored.
+	 * 
+	 * @return count of skipped pages
+	 */
+	public long getSkipCount()
+	{
+		return skipCount.sum();
+	}
+
+	/**
+	 * Get the serialized form a page was restored from in the current request.
+	 * 
+	 * @return serialized page or <code>null</code> if the page was not restored in the current
+	 *         request
+	 */
+	private SerializedPage getRestoredPage(IPageContext context, IManageablePage page)
+	{
+		Map<IManageablePage, SerializedPage> restoredPages = context.getRequestData(RESTORED_KEY, () -> null);
+		if (restoredPages == null)
+		{
+			return null;
+		}
+		return restoredPages.get(page);
+	}
+
+	/**
+	 * Get the serialized form of a page, as created by any {@link SerializingPageStore} in the
+	 * current request.
+	 * 
+	 * @param context
+	 *            context
+	 * @param page
+	 *            page
+	 * @return serialized page or <code>null</code> if the page was not serialized in the current
+	 *         request
+	 */
+	public static SerializedPage getSerializedPage(IPageContext context, IManageablePage page)
+	{
+		Map<IManageablePage, SerializedPage> serializedPages = context.getRequestData(KEY, () -> null);
+		if (serializedPages == null)
 		{
-			page = new SerializedPage(page.getPageId(), Classes.name(page.getClass()), serializer.serialize(page));
+			return null;
 		}
-		getDelegate().addPage(context, page);
+		return serializedPages.get(page);
 	}
 }
@@ -16,10 +16,14 @@
  */
 package org.apache.wicket.pageStore.crypt;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.security.AlgorithmParameters;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
@@ -30,14 +34,38 @@ import org.apache.wicket.WicketRuntimeException;
 
 /**
  * Default encryption and decryption implementation.
+ * <p>
+ * {@link Cipher}s are pooled for reuse, since their lookup is expensive. Encryption writes the IV
+ * and the ciphertext into a single array.
  */
 public class DefaultCrypter implements ICrypter
 {
+	private final BlockingQueue<Cipher> ciphers = new ArrayBlockingQueue<>(
+		Runtime.getRuntime().availableProcessors());
+
+	private final BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(
+		Runtime.getRuntime().availableProcessors());
+
 	protected Cipher getCipher() throws GeneralSecurityException
 	{
 		return Cipher.getInstance("AES/CBC/PKCS5Padding");
 	}
 
+	private Cipher acquireCipher() throws GeneralSecurityException
+	{
+		Cipher cipher = ciphers.poll();
+		if (cipher == null)
+		{
+			cipher = getCipher();
+		}
+		return cipher;
+	}
+
+	private void releaseCipher(Cipher cipher)
+	{
+		ciphers.offer(cipher);
+	}
+
 	@Override
 	public SecretKey generateKey(SecureRandom random)
 	{
@@ -58,18 +86,20 @@ public class DefaultCrypter implements ICrypter
 	{
 		try
 		{
-			Cipher cipher = getCipher();
+			Cipher cipher = acquireCipher();
 			cipher.init(Cipher.ENCRYPT_MODE, key, random);
 
 			AlgorithmParameters params = cipher.getParameters();
 			byte[] iv = params.getParameterSpec(IvParameterSpec.class).getIV();
 
-			byte[] ciphertext = cipher.doFinal(decrypted);
+			byte[] encrypted = Arrays.copyOf(iv,
+				iv.length + cipher.getOutputSize(decrypted.length));
+			int length = iv.length +
+				cipher.doFinal(decrypted, 0, decrypted.length, encrypted, iv.length);
 
-			byte[] encrypted = Arrays.copyOf(iv, iv.length + ciphertext.length);
-			System.arraycopy(ciphertext, 0, encrypted, iv.length, ciphertext.length);
+			releaseCipher(cipher);
 
-			return encrypted;
+			return length == encrypted.length ? encrypted : Arrays.copyOf(encrypted, length);
 		}
 		catch (GeneralSecurityException ex)
 		{
@@ -77,19 +107,53 @@ public class DefaultCrypter implements ICrypter
 		}
 	}
 
+	/**
+	 * Encrypts in chunks through a pooled buffer.
+	 */
+	@Override
+	public OutputStream encrypt(OutputStream out, SecretKey key, SecureRandom random)
+		throws IOException
+	{
+		try
+		{
+			Cipher cipher = acquireCipher();
+			cipher.init(Cipher.ENCRYPT_MODE, key, random);
+
+			AlgorithmParameters params = cipher.getParameters();
+			out.write(params.getParameterSpec(IvParameterSpec.class).getIV());
+
+			byte[] buffer = buffers.poll();
+			if (buffer == null)
+			{
+				buffer = new byte[EncryptingOutputStream.BUFFER_SIZE];
+			}
+
+			return new EncryptingOutputStream(out, cipher, buffer)
+			{
+				@Override
+				protected void release(Cipher cipher, byte[] buffer)
+				{
+					releaseCipher(cipher);
+					buffers.offer(buffer);
+				}
+			};
+		}
+		catch (GeneralSecurityException ex)
+		{
+			throw new IOException(ex);
+		}
+	}
+
 	@Override
 	public byte[] decrypt(byte[] encrypted, SecretKey key)
 	{
 		try
 		{
-			byte[] iv = new byte[16];
-			byte[] ciphertext = new byte[encrypted.length - 16];
-			System.arraycopy(encrypted, 0, iv, 0, iv.length);
-			System.arraycopy(encrypted, 16, ciphertext, 0, ciphertext.length);
-
-			Cipher cipher = getCipher();
-			cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(iv));
-			byte[] decrypted = cipher.doFinal(ciphertext);
+			Cipher cipher = acquireCipher();
+			cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(encrypted, 0, 16));
+			byte[] decrypted = cipher.doFinal(encrypted, 16, encrypted.length - 16);
+
+			releaseCipher(cipher);
 
 			return decrypted;
 		}
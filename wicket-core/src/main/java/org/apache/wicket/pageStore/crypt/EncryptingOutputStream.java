@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore.crypt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+
+/**
+ * A stream encrypting with an initialized {@link Cipher} into another stream, in chunks through a
+ * reusable buffer.
+ * <p>
+ * Closing this stream finishes encryption, but does not close the other stream.
+ */
+abstract class EncryptingOutputStream extends OutputStream
+{
+	/**
+	 * Size of chunks passed to the cipher.
+	 */
+	private static final int CHUNK_SIZE = 4 * 1024;
+
+	/**
+	 * Size of buffers, fitting the output of a chunk including a pending block.
+	 */
+	static final int BUFFER_SIZE = CHUNK_SIZE + 32;
+
+	private final OutputStream out;
+
+	private final Cipher cipher;
+
+	private final byte[] buffer;
+
+	private final byte[] single = new byte[1];
+
+	private boolean closed;
+
+	/**
+	 * @param out
+	 *            stream to write encrypted data to
+	 * @param cipher
+	 *            cipher initialized for encryption
+	 * @param buffer
+	 *            buffer of {@link #BUFFER_SIZE}
+	 */
+	EncryptingOutputStream(OutputStream out, Cipher cipher, byte[] buffer)
+	{
+		this.out = out;
+		this.cipher = cipher;
+		this.buffer = buffer;
+	}
+
+	@Override
+	public void write(int b) throws IOException
+	{
+		single[0] = (byte)b;
+		write(single, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		while (len > 0)
+		{
+			int chunk = Math.min(len, CHUNK_SIZE);
+			try
+			{
+				out.write(buffer, 0, cipher.update(b, off, chunk, buffer, 0));
+			}
+			catch (ShortBufferException ex)
+			{
+				out.write(cipher.update(b, off, chunk));
+			}
+			off += chunk;
+			len -= chunk;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (closed)
+		{
+			return;
+		}
+		closed = true;
+
+		try
+		{
+			if (cipher.getOutputSize(0) <= buffer.length)
+			{
+				out.write(buffer, 0, cipher.doFinal(buffer, 0));
+			}
+			else
+			{
+				// cipher buffers all data itself, e.g. for authenticated encryption
+				out.write(cipher.doFinal());
+			}
+			out.flush();
+		}
+		catch (GeneralSecurityException ex)
+		{
+			throw new IOException(ex);
+		}
+		finally
+		{
+			release(cipher, buffer);
+		}
+	}
+
+	/**
+	 * Release the cipher and the buffer for reuse.
+	 * 
+	 * @param cipher
+	 *            cipher
+	 * @param buffer
+	 *            buffer
+	 */
+	protected abstract void release(Cipher cipher, byte[] buffer);
+}
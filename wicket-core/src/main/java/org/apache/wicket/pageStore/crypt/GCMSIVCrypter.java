@@ -16,10 +16,14 @@
  */
 package org.apache.wicket.pageStore.crypt;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.security.AlgorithmParameters;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
@@ -37,14 +41,38 @@ import org.bouncycastle.jcajce.spec.AEADParameterSpec;
  * of the algorithm in Java by BC. When the JDK gets support for GCM-SIV
  * (https://bugs.openjdk.org/browse/JDK-8256530), this implementation will likely be faster than or
  * about as fast as CBC.
+ * <p>
+ * {@link Cipher}s are pooled for reuse, since their lookup is expensive. Encryption writes the
+ * nonce and the ciphertext into a single array.
  */
 public class GCMSIVCrypter implements ICrypter
 {
+	private final BlockingQueue<Cipher> ciphers = new ArrayBlockingQueue<>(
+		Runtime.getRuntime().availableProcessors());
+
+	private final BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(
+		Runtime.getRuntime().availableProcessors());
+
 	protected Cipher getCipher() throws GeneralSecurityException
 	{
 		return Cipher.getInstance("AES/GCM-SIV/NoPadding");
 	}
 
+	private Cipher acquireCipher() throws GeneralSecurityException
+	{
+		Cipher cipher = ciphers.poll();
+		if (cipher == null)
+		{
+			cipher = getCipher();
+		}
+		return cipher;
+	}
+
+	private void releaseCipher(Cipher cipher)
+	{
+		ciphers.offer(cipher);
+	}
+
 	@Override
 	public SecretKey generateKey(SecureRandom random)
 	{
@@ -65,17 +93,20 @@ public class GCMSIVCrypter implements ICrypter
 	{
 		try
 		{
-			Cipher cipher = getCipher();
+			Cipher cipher = acquireCipher();
 			cipher.init(Cipher.ENCRYPT_MODE, key, random);
 
 			AlgorithmParameters params = cipher.getParameters();
 			byte[] nonce = params.getParameterSpec(AEADParameterSpec.class).getNonce();
-			byte[] ciphertext = cipher.doFinal(decrypted);
 
-			byte[] encrypted = Arrays.copyOf(nonce, nonce.length + ciphertext.length);
-			System.arraycopy(ciphertext, 0, encrypted, nonce.length, ciphertext.length);
+			byte[] encrypted = Arrays.copyOf(nonce,
+				nonce.length + cipher.getOutputSize(decrypted.length));
+			int length = nonce.length +
+				cipher.doFinal(decrypted, 0, decrypted.length, encrypted, nonce.length);
+
+			releaseCipher(cipher);
 
-			return encrypted;
+			return length == encrypted.length ? encrypted : Arrays.copyOf(encrypted, length);
 		}
 		catch (GeneralSecurityException ex)
 		{
@@ -83,19 +114,56 @@ public class GCMSIVCrypter implements ICrypter
 		}
 	}
 
+	/**
+	 * Encrypts in chunks through a pooled buffer.
+	 */
+	@Override
+	public OutputStream encrypt(OutputStream out, SecretKey key, SecureRandom random)
+		throws IOException
+	{
+		try
+		{
+			Cipher cipher = acquireCipher();
+			cipher.init(Cipher.ENCRYPT_MODE, key, random);
+
+			AlgorithmParameters params = cipher.getParameters();
+			out.write(params.getParameterSpec(AEADParameterSpec.class).getNonce());
+
+			byte[] buffer = buffers.poll();
+			if (buffer == null)
+			{
+				buffer = new byte[EncryptingOutputStream.BUFFER_SIZE];
+			}
+
+			return new EncryptingOutputStream(out, cipher, buffer)
+			{
+				@Override
+				protected void release(Cipher cipher, byte[] buffer)
+				{
+					releaseCipher(cipher);
+					buffers.offer(buffer);
+				}
+			};
+		}
+		catch (GeneralSecurityException ex)
+		{
+			throw new IOException(ex);
+		}
+	}
+
 	@Override
 	public byte[] decrypt(byte[] encrypted, SecretKey key)
 	{
 		try
 		{
-			byte[] nonce = new byte[12];
-			byte[] ciphertext = new byte[encrypted.length - nonce.length];
-			System.arraycopy(encrypted, 0, nonce, 0, nonce.length);
-			System.arraycopy(encrypted, nonce.length, ciphertext, 0, ciphertext.length);
+			byte[] nonce = Arrays.copyOf(encrypted, 12);
 
-			Cipher cipher = getCipher();
+			Cipher cipher = acquireCipher();
 			cipher.init(Cipher.DECRYPT_MODE, key, new AEADParameterSpec(nonce, 128));
-			byte[] decrypted = cipher.doFinal(ciphertext);
+			byte[] decrypted = cipher.doFinal(encrypted, nonce.length,
+				encrypted.length - nonce.length);
+
+			releaseCipher(cipher);
 
 			return decrypted;
 		}
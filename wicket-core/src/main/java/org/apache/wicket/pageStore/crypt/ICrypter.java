@@ -16,7 +16,9 @@
  */
 package org.apache.wicket.pageStore.crypt;
 
-import java.io.Serializable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.security.SecureRandom;
 
 import javax.crypto.SecretKey;
@@ -30,4 +32,41 @@ public interface ICrypter {
 	byte[] encrypt(byte[] bytes, SecretKey key, SecureRandom random);
 	
 	byte[] decrypt(byte[] bytes, SecretKey key);
+
+	/**
+	 * Get a stream encrypting everything written to it into the given stream, the result equals
+	 * {@link #encrypt(byte[], SecretKey, SecureRandom)}.
+	 * <p>
+	 * Closing the returned stream finishes encryption, but does not close the given stream. By
+	 * default all data is collected and encrypted on close.
+	 * 
+	 * @param out
+	 *            stream to write encrypted data to
+	 * @param key
+	 *            key to encrypt with
+	 * @param random
+	 *            random
+	 * @return stream to write the data to encrypt to
+	 * @throws IOException
+	 *             if encryption could not be started
+	 */
+	default OutputStream encrypt(OutputStream out, SecretKey key, SecureRandom random)
+		throws IOException
+	{
+		return new ByteArrayOutputStream()
+		{
+			private boolean closed;
+
+			@Override
+			public void close() throws IOException
+			{
+				if (closed == false)
+				{
+					closed = true;
+
+					out.write(encrypt(toByteArray(), key, random));
+				}
+			}
+		};
+	}
 }
\ No newline at end of file
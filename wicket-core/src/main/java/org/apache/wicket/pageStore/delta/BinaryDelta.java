@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore.delta;
+
+import java.io.ByteArrayOutputStream;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * Binary delta between two byte arrays.
+ * <p>
+ * Blocks of the base are indexed by a rolling hash, then the target is scanned for matching blocks
+ * (similar to rsync). Matches are extended as far as possible and encoded as copies from the base,
+ * everything else as literal bytes.
+ * <p>
+ * Format: the target length, followed by operations, each starting with a varint of
+ * <code>length &lt;&lt; 1 | type</code>:
+ * <ul>
+ * <li>copy: varint of offset into base</li>
+ * <li>literal: the bytes</li>
+ * </ul>
+ */
+public class BinaryDelta
+{
+	private static final int COPY = 1;
+
+	private static final int LITERAL = 0;
+
+	private static final int PRIME = 31;
+
+	private final int blockSize;
+
+	/**
+	 * Power of prime for removal of the leading byte from the rolling hash.
+	 */
+	private final int power;
+
+	/**
+	 * Create a delta with blocks of 16 bytes.
+	 */
+	public BinaryDelta()
+	{
+		this(16);
+	}
+
+	/**
+	 * Create a delta.
+	 *
+	 * @param blockSize
+	 *            size of blocks to match
+	 */
+	public BinaryDelta(int blockSize)
+	{
+		this.blockSize = Args.withinRange(4, 1024, blockSize, "blockSize").intValue();
+
+		int power = 1;
+		for (int i = 1; i < blockSize; i++)
+		{
+			power *= PRIME;
+		}
+		this.power = power;
+	}
+
+	/**
+	 * Encode the difference from base to target.
+	 *
+	 * @param base
+	 *            base data
+	 * @param target
+	 *            target data
+	 * @return delta
+	 */
+	public byte[] encode(byte[] base, byte[] target)
+	{
+		Output output = new Output(target.length / 8 + 16);
+		output.writeVarInt(target.length);
+
+		int[] index = index(base);
+		int mask = index.length - 1;
+
+		int literal = 0;
+		int position = 0;
+		int hash = target.length >= blockSize ? hash(target, 0) : 0;
+		while (position + blockSize <= target.length)
+		{
+			int candidate = index[hash & mask] - 1;
+			if (candidate >= 0 && matches(base, candidate, target, position))
+			{
+				int offset = candidate;
+				int length = blockSize;
+
+				// extend forward
+				while (position + length < target.length && offset + length < base.length &&
+					target[position + length] == base[offset + length])
+				{
+					length++;
+				}
+
+				// extend backward into pending literal
+				while (position > literal && offset > 0 && target[position - 1] == base[offset - 1])
+				{
+					position--;
+					offset--;
+					length++;
+				}
+
+				output.writeLiteral(target, literal, position - literal);
+				output.writeCopy(offset, length);
+
+				position += length;
+				literal = position;
+
+				if (position + blockSize <= target.length)
+				{
+					hash = hash(target, position);
+				}
+			}
+			else
+			{
+				if (position + blockSize < target.length)
+				{
+					hash = (hash - target[position] * power) * PRIME + target[position + blockSize];
+				}
+				position++;
+			}
+		}
+
+		output.writeLiteral(target, literal, target.length - literal);
+
+		return output.toByteArray();
+	}
+
+	/**
+	 * Decode a delta.
+	 *
+	 * @param base
+	 *            base data
+	 * @param delta
+	 *            delta as created by {@link #encode(byte[], byte[])}
+	 * @return target data
+	 */
+	public byte[] decode(byte[] base, byte[] delta)
+	{
+		Input input = new Input(delta);
+
+		byte[] target = new byte[input.readVarInt()];
+		int position = 0;
+		while (input.position < delta.length)
+		{
+			int op = input.readVarInt();
+			int length = op >>> 1;
+			if ((op & COPY) == COPY)
+			{
+				int offset = input.readVarInt();
+				System.arraycopy(base, offset, target, position, length);
+			}
+			else
+			{
+				System.arraycopy(delta, input.position, target, position, length);
+				input.position += length;
+			}
+			position += length;
+		}
+
+		if (position != target.length)
+		{
+			throw new WicketRuntimeException("corrupt delta");
+		}
+
+		return target;
+	}
+
+	/**
+	 * Index all complete blocks of the given data by their hash.
+	 *
+	 * @return table of offset + 1 per hash
+	 */
+	private int[] index(byte[] base)
+	{
+		int blocks = base.length / blockSize;
+
+		int size = Integer.highestOneBit(Math.max(blocks, 1) * 2 - 1) << 1;
+		int[] index = new int[size];
+		int mask = size - 1;
+
+		for (int block = blocks - 1; block >= 0; block--)
+		{
+			// iterate backwards, so earlier blocks win
+			int offset = block * blockSize;
+			index[hash(base, offset) & mask] = offset + 1;
+		}
+
+		return index;
+	}
+
+	private int hash(byte[] data, int offset)
+	{
+		int hash = 0;
+		for (int i = 0; i < blockSize; i++)
+		{
+			hash = hash * PRIME + data[offset + i];
+		}
+		return hash;
+	}
+
+	private boolean matches(byte[] base, int offset, byte[] target, int position)
+	{
+		if (offset + blockSize > base.length)
+		{
+			return false;
+		}
+
+		for (int i = 0; i < blockSize; i++)
+		{
+			if (base[offset + i] != target[position + i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static class Output extends ByteArrayOutputStream
+	{
+		Output(int size)
+		{
+			super(size);
+		}
+
+		void writeCopy(int offset, int length)
+		{
+			writeVarInt(length << 1 | COPY);
+			writeVarInt(offset);
+		}
+
+		void writeLiteral(byte[] data, int offset, int length)
+		{
+			if (length > 0)
+			{
+				writeVarInt(length << 1 | LITERAL);
+				write(data, offset, length);
+			}
+		}
+
+		void writeVarInt(int value)
+		{
+			while ((value & ~0x7F) != 0)
+			{
+				write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			write(value);
+		}
+	}
+
+	private static class Input
+	{
+		private final byte[] data;
+
+		private int position;
+
+		Input(byte[] data)
+		{
+			this.data = data;
+		}
+
+		int readVarInt()
+		{
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7)
+			{
+				int b = data[position++] & 0xFF;
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+				{
+					return value;
+				}
+			}
+			throw new WicketRuntimeException("corrupt delta");
+		}
+	}
+}
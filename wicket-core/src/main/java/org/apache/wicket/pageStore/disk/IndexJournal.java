@@ -0,0 +1,577 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore.disk;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.pageStore.disk.PageWindowManager.FileWindow;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only journal of changes to the {@link PageWindowManager}s of sessions.
+ * <p>
+ * Each change is appended as a checksummed record before the changing operation returns. A new
+ * window is recorded before the data of its page is written, so windows of pages displaced by it
+ * are never replayed after their data was overwritten. On startup all records are replayed, stopping at the first
+ * incomplete or corrupt record, so the journal survives a process being killed at any time. Once
+ * the journal grew beyond twice its size after the last compaction, it is compacted into a single
+ * snapshot for each session.
+ * <p>
+ * Records are not forced to the storage device, thus a crash of the operating system might lose the
+ * most recent changes.
+ */
+public class IndexJournal
+{
+	private static final Logger log = LoggerFactory.getLogger(IndexJournal.class);
+
+	/**
+	 * Minimum size of the journal before it is compacted.
+	 */
+	private static final long MIN_COMPACT_SIZE = 1024 * 1024;
+
+	/**
+	 * Size of length and checksum preceding each record.
+	 */
+	private static final int HEADER_SIZE = 8;
+
+	private static final byte MAX_SIZE = 0;
+
+	private static final byte SNAPSHOT = 1;
+
+	private static final byte CREATE = 2;
+
+	private static final byte REMOVE = 3;
+
+	private static final byte REMOVE_ALL = 4;
+
+	private final File file;
+
+	private final long maxSize;
+
+	private final Supplier<Map<String, PageWindowManager>> managers;
+
+	/**
+	 * Changes are recorded under the read lock, compaction requires the write lock.
+	 */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Guards the fields following.
+	 */
+	private final Object appendLock = new Object();
+
+	private FileChannel channel;
+
+	private long size;
+
+	private volatile long compactedSize;
+
+	/**
+	 * Create a journal.
+	 * 
+	 * @param file
+	 *            file of the journal
+	 * @param maxSize
+	 *            maximum size of {@link PageWindowManager}s
+	 * @param managers
+	 *            supplier of all current managers by session identifier, used for compaction
+	 */
+	public IndexJournal(File file, long maxSize, Supplier<Map<String, PageWindowManager>> managers)
+	{
+		this.file = Args.notNull(file, "file");
+		this.maxSize = maxSize;
+		this.managers = Args.notNull(managers, "managers");
+	}
+
+	/**
+	 * Replay all records of the journal and open it for appending.
+	 * 
+	 * @return managers by session identifier
+	 * @throws IOException
+	 */
+	public Map<String, PageWindowManager> open() throws IOException
+	{
+		Map<String, PageWindowManager> result = new HashMap<>();
+
+		long valid = 0;
+		if (file.exists())
+		{
+			valid = replay(result);
+			if (valid < file.length())
+			{
+				log.warn("Ignoring {} bytes of incomplete records in journal {}",
+					file.length() - valid, file);
+			}
+		}
+
+		lock.writeLock().lock();
+		try
+		{
+			FileChannel opened = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE);
+			opened.truncate(valid);
+			opened.position(valid);
+
+			synchronized (appendLock)
+			{
+				channel = opened;
+				size = valid;
+			}
+
+			if (valid == 0)
+			{
+				append(record(MAX_SIZE, out -> out.writeLong(maxSize)));
+			}
+			compactedSize = getSize();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Replay all valid records.
+	 * 
+	 * @return length of valid records
+	 */
+	private long replay(Map<String, PageWindowManager> result) throws IOException
+	{
+		long position = 0;
+		long length = file.length();
+		long journalMaxSize = maxSize;
+
+		try (InputStream stream = new BufferedInputStream(Files.newInputStream(file.toPath())))
+		{
+			DataInputStream input = new DataInputStream(stream);
+
+			CRC32 crc = new CRC32();
+			while (position + HEADER_SIZE <= length)
+			{
+				int recordLength = input.readInt();
+				int checksum = input.readInt();
+				if (recordLength < 1 || recordLength > length - position - HEADER_SIZE)
+				{
+					break;
+				}
+
+				byte[] payload = new byte[recordLength];
+				input.readFully(payload);
+
+				crc.reset();
+				crc.update(payload);
+				if ((int)crc.getValue() != checksum)
+				{
+					break;
+				}
+
+				try
+				{
+					journalMaxSize = replay(
+						new DataInputStream(new ByteArrayInputStream(payload)), result,
+						journalMaxSize);
+				}
+				catch (IOException ex)
+				{
+					log.warn("Cannot replay record in journal " + file, ex);
+					break;
+				}
+
+				position += HEADER_SIZE + recordLength;
+			}
+		}
+		catch (EOFException ex)
+		{
+			// file was shortened concurrently
+		}
+
+		return position;
+	}
+
+	/**
+	 * Replay a single record.
+	 * 
+	 * @return maximum size for new managers
+	 */
+	private long replay(DataInputStream record, Map<String, PageWindowManager> result,
+		long journalMaxSize) throws IOException
+	{
+		byte type = record.readByte();
+		switch (type)
+		{
+			case MAX_SIZE :
+				return record.readLong();
+			case SNAPSHOT :
+				String snapshotIdentifier = record.readUTF();
+				result.put(snapshotIdentifier, PageWindowManager.readSnapshot(record));
+				break;
+			case CREATE :
+				String sessionIdentifier = record.readUTF();
+				int pageId = record.readInt();
+				String pageType = record.readBoolean() ? record.readUTF() : null;
+				int pageSize = record.readInt();
+
+				result.computeIfAbsent(sessionIdentifier,
+					key -> new PageWindowManager(journalMaxSize))
+					.createPageWindow(pageId, pageType, pageSize);
+				break;
+			case REMOVE :
+				PageWindowManager manager = result.get(record.readUTF());
+				int removedId = record.readInt();
+				if (manager != null)
+				{
+					manager.removePage(removedId);
+				}
+				break;
+			case REMOVE_ALL :
+				result.remove(record.readUTF());
+				break;
+			default :
+				throw new IOException("Unknown record type " + type);
+		}
+
+		return journalMaxSize;
+	}
+
+	/**
+	 * Create a window for a page, write its data and record the change.
+	 * 
+	 * @param sessionIdentifier
+	 *            identifier of session
+	 * @param manager
+	 *            manager of session
+	 * @param pageId
+	 *            id of page
+	 * @param pageType
+	 *            type of page
+	 * @param pageSize
+	 *            size of page
+	 * @param writer
+	 *            writer of the page's data into the created window
+	 * @return created window
+	 * @throws IOException
+	 *             if the writer failed, the window is removed again
+	 * 
+	 * @see PageWindowManager#createPageWindow(int, String, int)
+	 */
+	public FileWindow createPageWindow(String sessionIdentifier, PageWindowManager manager,
+		int pageId, String pageType, int pageSize, IWindowWriter writer) throws IOException
+	{
+		FileWindow window;
+
+		lock.readLock().lock();
+		try
+		{
+			window = manager.createPageWindow(pageId, pageType, pageSize);
+
+			// record before pages displaced by the window are overwritten
+			append(record(CREATE, out -> {
+				out.writeUTF(sessionIdentifier);
+				out.writeInt(pageId);
+				out.writeBoolean(pageType != null);
+				if (pageType != null)
+				{
+					out.writeUTF(pageType);
+				}
+				out.writeInt(pageSize);
+			}));
+
+			try
+			{
+				writer.write(window);
+			}
+			catch (IOException | RuntimeException ex)
+			{
+				manager.removePage(pageId);
+
+				append(record(REMOVE, out -> {
+					out.writeUTF(sessionIdentifier);
+					out.writeInt(pageId);
+				}));
+
+				throw ex;
+			}
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+
+		compactIfNeeded();
+
+		return window;
+	}
+
+	/**
+	 * Remove the window of a page and record the change.
+	 * 
+	 * @param sessionIdentifier
+	 *            identifier of session
+	 * @param manager
+	 *            manager of session
+	 * @param pageId
+	 *            id of page
+	 * 
+	 * @see PageWindowManager#removePage(int)
+	 */
+	public void removePage(String sessionIdentifier, PageWindowManager manager, int pageId)
+	{
+		lock.readLock().lock();
+		try
+		{
+			manager.removePage(pageId);
+
+			append(record(REMOVE, out -> {
+				out.writeUTF(sessionIdentifier);
+				out.writeInt(pageId);
+			}));
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+
+		compactIfNeeded();
+	}
+
+	/**
+	 * Record the removal of all windows of a session.
+	 * 
+	 * @param sessionIdentifier
+	 *            identifier of session
+	 */
+	public void removeAll(String sessionIdentifier)
+	{
+		lock.readLock().lock();
+		try
+		{
+			append(record(REMOVE_ALL, out -> out.writeUTF(sessionIdentifier)));
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+
+		compactIfNeeded();
+	}
+
+	/**
+	 * Get the current size of the journal.
+	 * 
+	 * @return size in bytes
+	 */
+	public long getSize()
+	{
+		synchronized (appendLock)
+		{
+			return size;
+		}
+	}
+
+	private void compactIfNeeded()
+	{
+		if (getSize() > Math.max(MIN_COMPACT_SIZE, 2 * compactedSize))
+		{
+			compact();
+		}
+	}
+
+	/**
+	 * Compact the journal into a single snapshot for each session.
+	 */
+	public void compact()
+	{
+		lock.writeLock().lock();
+		try
+		{
+			synchronized (appendLock)
+			{
+				if (channel == null)
+				{
+					return;
+				}
+			}
+
+			File temp = new File(file.getPath() + ".tmp");
+			try (FileChannel tempChannel = FileChannel.open(temp.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE))
+			{
+				write(tempChannel, record(MAX_SIZE, out -> out.writeLong(maxSize)));
+
+				for (Map.Entry<String, PageWindowManager> entry : managers.get().entrySet())
+				{
+					write(tempChannel, record(SNAPSHOT, out -> {
+						out.writeUTF(entry.getKey());
+						entry.getValue().writeSnapshot(out);
+					}));
+				}
+
+				tempChannel.force(true);
+			}
+
+			synchronized (appendLock)
+			{
+				IOUtils.closeQuietly(channel);
+				channel = null;
+
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+
+				channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND);
+				size = channel.size();
+			}
+			compactedSize = getSize();
+		}
+		catch (IOException ex)
+		{
+			log.error("Couldn't compact journal " + file, ex);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Compact and close the journal.
+	 */
+	public void close()
+	{
+		compact();
+
+		lock.writeLock().lock();
+		try
+		{
+			synchronized (appendLock)
+			{
+				IOUtils.closeQuietly(channel);
+				channel = null;
+			}
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void append(ByteBuffer record)
+	{
+		synchronized (appendLock)
+		{
+			if (channel == null)
+			{
+				log.warn("Journal {} is not open", file);
+				return;
+			}
+
+			try
+			{
+				size += write(channel, record);
+			}
+			catch (IOException ex)
+			{
+				log.error("Couldn't append to journal " + file, ex);
+			}
+		}
+	}
+
+	private static int write(FileChannel channel, ByteBuffer record) throws IOException
+	{
+		int length = record.remaining();
+		while (record.hasRemaining())
+		{
+			channel.write(record);
+		}
+		return length;
+	}
+
+	private static ByteBuffer record(byte type, IRecordWriter writer)
+	{
+		try
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(0);
+			out.writeInt(0);
+			out.writeByte(type);
+			writer.write(out);
+			out.flush();
+
+			ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+
+			CRC32 crc = new CRC32();
+			crc.update(buffer.array(), HEADER_SIZE, buffer.capacity() - HEADER_SIZE);
+			buffer.putInt(0, buffer.capacity() - HEADER_SIZE);
+			buffer.putInt(4, (int)crc.getValue());
+
+			return buffer;
+		}
+		catch (IOException ex)
+		{
+			throw new WicketRuntimeException("Couldn't create record", ex);
+		}
+	}
+
+	/**
+	 * Writer of data into a window.
+	 */
+	@FunctionalInterface
+	public interface IWindowWriter
+	{
+		/**
+		 * Write into the given window.
+		 * 
+		 * @param window
+		 *            window to write to
+		 * @throws IOException
+		 */
+		void write(FileWindow window) throws IOException;
+	}
+
+	@FunctionalInterface
+	private interface IRecordWriter
+	{
+		void write(DataOutputStream out) throws IOException;
+	}
+}
@@ -16,6 +16,9 @@
  */
 package org.apache.wicket.pageStore.disk;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -491,4 +494,63 @@ public class PageWindowManager implements Serializable
 	{
 		return totalSize;
 	}
+
+	/**
+	 * Write a snapshot of all windows.
+	 * 
+	 * @param output
+	 *            output to write to
+	 * @throws IOException
+	 * 
+	 * @see #readSnapshot(DataInput)
+	 */
+	synchronized void writeSnapshot(DataOutput output) throws IOException
+	{
+		output.writeLong(maxSize);
+		output.writeInt(indexPointer);
+		output.writeInt(totalSize);
+
+		output.writeInt(windows.size());
+		for (FileWindow window : windows)
+		{
+			output.writeInt(window.id);
+			output.writeBoolean(window.type != null);
+			if (window.type != null)
+			{
+				output.writeUTF(window.type);
+			}
+			output.writeInt(window.filePartOffset);
+			output.writeInt(window.filePartSize);
+		}
+	}
+
+	/**
+	 * Read a snapshot of windows.
+	 * 
+	 * @param input
+	 *            input to read from
+	 * @return manager with windows
+	 * @throws IOException
+	 * 
+	 * @see #writeSnapshot(DataOutput)
+	 */
+	static PageWindowManager readSnapshot(DataInput input) throws IOException
+	{
+		PageWindowManager manager = new PageWindowManager(input.readLong());
+		manager.indexPointer = input.readInt();
+		manager.totalSize = input.readInt();
+
+		int count = input.readInt();
+		for (int w = 0; w < count; w++)
+		{
+			FileWindow window = new FileWindow();
+			window.id = input.readInt();
+			window.type = input.readBoolean() ? input.readUTF() : null;
+			window.filePartOffset = input.readInt();
+			window.filePartSize = input.readInt();
+			manager.windows.add(window);
+		}
+
+		return manager;
+	}
 }
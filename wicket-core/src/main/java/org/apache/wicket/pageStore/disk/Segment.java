@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * An append-only file of fixed capacity, mapped into memory.
+ * <p>
+ * Space is reserved with a compare-and-set on the current position, so any number of threads can
+ * append and read concurrently without locking. Data is never overwritten, instead released space is
+ * counted, so the owner can decide when the segment is worth to be compacted.
+ *
+ * @see #append(byte[])
+ * @see #release(int)
+ */
+public class Segment
+{
+	private final int id;
+
+	private final File file;
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer buffer;
+
+	private final int capacity;
+
+	/**
+	 * Position of next append.
+	 */
+	private final AtomicInteger position = new AtomicInteger();
+
+	/**
+	 * Count of bytes no longer in use.
+	 */
+	private final AtomicLong released = new AtomicLong();
+
+	/**
+	 * Time of sealing, <code>0</code> if not sealed yet.
+	 */
+	private volatile long sealed = 0;
+
+	/**
+	 * Create a segment in the given file.
+	 *
+	 * @param id
+	 *            id of segment
+	 * @param file
+	 *            file to map, existing content is discarded
+	 * @param capacity
+	 *            maximum count of bytes
+	 * @throws IOException
+	 */
+	public Segment(int id, File file, int capacity) throws IOException
+	{
+		this.id = id;
+		this.file = Args.notNull(file, "file");
+		this.capacity = capacity;
+
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+			StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try
+		{
+			buffer = channel.map(MapMode.READ_WRITE, 0, capacity);
+		}
+		catch (IOException ex)
+		{
+			IOUtils.closeQuietly(channel);
+			throw ex;
+		}
+	}
+
+	public int getId()
+	{
+		return id;
+	}
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Append the given data.
+	 *
+	 * @param data
+	 *            data to append
+	 * @return offset of data or <code>-1</code> if the remaining capacity is not sufficient
+	 */
+	public int append(byte[] data)
+	{
+		int offset;
+		do
+		{
+			offset = position.get();
+			if (capacity - offset < data.length)
+			{
+				return -1;
+			}
+		}
+		while (!position.compareAndSet(offset, offset + data.length));
+
+		buffer.slice(offset, data.length).put(data);
+
+		return offset;
+	}
+
+	/**
+	 * Read data.
+	 *
+	 * @param offset
+	 *            offset of data
+	 * @param length
+	 *            length of data
+	 * @return data
+	 */
+	public byte[] read(int offset, int length)
+	{
+		byte[] data = new byte[length];
+
+		buffer.slice(offset, length).get(data);
+
+		return data;
+	}
+
+	/**
+	 * Release previously appended data.
+	 *
+	 * @param length
+	 *            length of released data
+	 */
+	public void release(int length)
+	{
+		released.addAndGet(length);
+	}
+
+	/**
+	 * Get the count of bytes appended so far.
+	 *
+	 * @return used bytes
+	 */
+	public int getUsed()
+	{
+		return position.get();
+	}
+
+	/**
+	 * Get the count of bytes appended and not released.
+	 *
+	 * @return live bytes
+	 */
+	public long getLive()
+	{
+		return position.get() - released.get();
+	}
+
+	/**
+	 * Seal this segment, i.e. it should no longer be appended to.
+	 */
+	public void seal()
+	{
+		if (sealed == 0)
+		{
+			sealed = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Get the time this segment was sealed.
+	 *
+	 * @return time in milliseconds or <code>0</code> if not sealed
+	 */
+	public long getSealed()
+	{
+		return sealed;
+	}
+
+	/**
+	 * Close this segment and delete its file.
+	 * <p>
+	 * Note: The mapped memory stays readable until it is garbage collected, thus concurrent reads
+	 * will not fail.
+	 */
+	public void close()
+	{
+		IOUtils.closeQuietly(channel);
+
+		Files.remove(file);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Segment [id=" + id + ", used=" + getUsed() + ", live=" + getLive() + "]";
+	}
+}
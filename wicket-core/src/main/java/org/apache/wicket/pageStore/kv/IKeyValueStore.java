@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore.kv;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.pageStore.KeyValuePageStore;
+
+/**
+ * A store of binary values shared by all nodes of a cluster, e.g. backed by Redis, Memcached or a
+ * data grid.
+ * <p>
+ * Batch methods are intended to be implemented with a single round trip to the store, e.g. by
+ * pipelining. Their default implementations fall back to the single-value methods.
+ * 
+ * @see KeyValuePageStore
+ * @see MemoryKeyValueStore
+ */
+public interface IKeyValueStore
+{
+	/**
+	 * Get a value.
+	 * 
+	 * @param key
+	 *            key of value
+	 * @return value or <code>null</code> if not present or expired
+	 */
+	byte[] get(String key);
+
+	/**
+	 * Get several values.
+	 * 
+	 * @param keys
+	 *            keys of values
+	 * @return present values by key
+	 */
+	default Map<String, byte[]> getAll(Collection<String> keys)
+	{
+		Map<String, byte[]> values = new LinkedHashMap<>();
+		for (String key : keys)
+		{
+			byte[] value = get(key);
+			if (value != null)
+			{
+				values.put(key, value);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Put a value.
+	 * 
+	 * @param key
+	 *            key of value
+	 * @param value
+	 *            value
+	 * @param ttl
+	 *            time after which the value expires
+	 */
+	void put(String key, byte[] value, Duration ttl);
+
+	/**
+	 * Put several values.
+	 * 
+	 * @param values
+	 *            values by key
+	 * @param ttl
+	 *            time after which the values expire
+	 */
+	default void putAll(Map<String, byte[]> values, Duration ttl)
+	{
+		for (Map.Entry<String, byte[]> entry : values.entrySet())
+		{
+			put(entry.getKey(), entry.getValue(), ttl);
+		}
+	}
+
+	/**
+	 * Reset the time-to-live of a value, e.g. after it was read.
+	 * 
+	 * @param key
+	 *            key of value
+	 * @param ttl
+	 *            time from now after which the value expires
+	 */
+	void touch(String key, Duration ttl);
+
+	/**
+	 * Reset the time-to-live of several values.
+	 * 
+	 * @param keys
+	 *            keys of values
+	 * @param ttl
+	 *            time from now after which the values expire
+	 */
+	default void touchAll(Collection<String> keys, Duration ttl)
+	{
+		for (String key : keys)
+		{
+			touch(key, ttl);
+		}
+	}
+
+	/**
+	 * Delete a value.
+	 * 
+	 * @param key
+	 *            key of value
+	 */
+	void delete(String key);
+
+	/**
+	 * Delete several values.
+	 * 
+	 * @param keys
+	 *            keys of values
+	 */
+	default void deleteAll(Collection<String> keys)
+	{
+		for (String key : keys)
+		{
+			delete(key);
+		}
+	}
+
+	/**
+	 * Get the keys starting with a prefix.
+	 * 
+	 * @param prefix
+	 *            prefix of keys
+	 * @return keys of present values
+	 */
+	List<String> scan(String prefix);
+
+	/**
+	 * Release all resources, called when the page store using this store is destroyed.
+	 */
+	default void close()
+	{
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore.kv;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * An {@link IKeyValueStore} keeping values in memory of the current JVM.
+ * <p>
+ * This is a reference implementation, useful for tests and for sharing a single store between
+ * several applications of the same JVM. Expired values are removed lazily when accessed.
+ */
+public class MemoryKeyValueStore implements IKeyValueStore
+{
+	private final ConcurrentSkipListMap<String, Value> values = new ConcurrentSkipListMap<>();
+
+	private final Clock clock;
+
+	/**
+	 * Expire values by the system clock.
+	 */
+	public MemoryKeyValueStore()
+	{
+		this(Clock.systemUTC());
+	}
+
+	/**
+	 * Expire values by the given clock.
+	 * 
+	 * @param clock
+	 *            clock to expire values
+	 */
+	public MemoryKeyValueStore(Clock clock)
+	{
+		this.clock = Args.notNull(clock, "clock");
+	}
+
+	@Override
+	public byte[] get(String key)
+	{
+		Value value = values.get(key);
+		if (value == null)
+		{
+			return null;
+		}
+
+		if (value.isExpired(clock.millis()))
+		{
+			values.remove(key, value);
+			return null;
+		}
+
+		return value.data;
+	}
+
+	@Override
+	public void put(String key, byte[] value, Duration ttl)
+	{
+		Args.notNull(value, "value");
+
+		values.put(key, new Value(value, clock.millis() + ttl.toMillis()));
+	}
+
+	@Override
+	public void touch(String key, Duration ttl)
+	{
+		long now = clock.millis();
+
+		values.computeIfPresent(key,
+			(k, value) -> value.isExpired(now) ? null : new Value(value.data, now + ttl.toMillis()));
+	}
+
+	@Override
+	public void delete(String key)
+	{
+		values.remove(key);
+	}
+
+	@Override
+	public List<String> scan(String prefix)
+	{
+		long now = clock.millis();
+
+		List<String> keys = new ArrayList<>();
+
+		ConcurrentNavigableMap<String, Value> range = values.tailMap(prefix);
+		for (Map.Entry<String, Value> entry : range.entrySet())
+		{
+			String key = entry.getKey();
+			if (key.startsWith(prefix) == false)
+			{
+				break;
+			}
+
+			if (entry.getValue().isExpired(now))
+			{
+				values.remove(key, entry.getValue());
+			}
+			else
+			{
+				keys.add(key);
+			}
+		}
+
+		return keys;
+	}
+
+	private static class Value
+	{
+		private final byte[] data;
+
+		private final long expiration;
+
+		private Value(byte[] data, long expiration)
+		{
+			this.data = data;
+			this.expiration = expiration;
+		}
+
+		private boolean isExpired(long now)
+		{
+			return now >= expiration;
+		}
+	}
+}
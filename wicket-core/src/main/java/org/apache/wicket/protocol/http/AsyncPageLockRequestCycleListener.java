@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.apache.wicket.Session;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.core.request.handler.IPageRequestHandler;
+import org.apache.wicket.core.request.handler.ListenerRequestHandler;
+import org.apache.wicket.page.IAsyncPageLockManager;
+import org.apache.wicket.page.IPageLockManager;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.RequestHandlerExecutor.ReplaceHandlerException;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.handler.EmptyRequestHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This {@link RequestCycle} listener suspends requests to locked pages, so they do not hold a
+ * container thread while waiting for the lock.
+ * <p>
+ * When the page of a resolved {@link IPageRequestHandler} is locked by another request, the lock
+ * is acquired asynchronously from the session's {@link IAsyncPageLockManager} and the request is
+ * put into asynchronous mode. As soon as the lock is handed off, the request is dispatched again
+ * and continues processing with the lock claimed by the dispatching thread.
+ * <p>
+ * This requires {@link WicketFilter} to support asynchronous requests and to be mapped to
+ * {@code ASYNC} dispatches:
+ *
+ * <pre>
+ * &lt;filter&gt;
+ *   ...
+ *   &lt;async-supported&gt;true&lt;/async-supported&gt;
+ * &lt;/filter&gt;
+ * &lt;filter-mapping&gt;
+ *   ...
+ *   &lt;dispatcher&gt;REQUEST&lt;/dispatcher&gt;
+ *   &lt;dispatcher&gt;ASYNC&lt;/dispatcher&gt;
+ * &lt;/filter-mapping&gt;
+ * </pre>
+ *
+ * Requests are processed as usual if the lock manager does not support asynchronous locking or
+ * the request does not support asynchronous mode.
+ *
+ * @see org.apache.wicket.page.FifoPageLockManager
+ */
+public class AsyncPageLockRequestCycleListener implements IRequestCycleListener
+{
+	private static final Logger log = LoggerFactory.getLogger(AsyncPageLockRequestCycleListener.class);
+
+	private static final String OWNER = AsyncPageLockRequestCycleListener.class.getName() + ".owner";
+
+	private static final String FAILURE = AsyncPageLockRequestCycleListener.class.getName() +
+		".failure";
+
+	@Override
+	public void onRequestHandlerResolved(RequestCycle cycle, IRequestHandler handler)
+	{
+		if (handler instanceof IPageRequestHandler == false)
+		{
+			return;
+		}
+		Integer pageId = ((IPageRequestHandler)handler).getPageId();
+		if (pageId == null)
+		{
+			return;
+		}
+
+		Object containerRequest = cycle.getRequest().getContainerRequest();
+		if (containerRequest instanceof HttpServletRequest == false)
+		{
+			return;
+		}
+		HttpServletRequest request = (HttpServletRequest)containerRequest;
+
+		IPageLockManager lockManager = Session.get()
+			.getPageAccessSynchronizer()
+			.getPageLockManager();
+		if (lockManager instanceof IAsyncPageLockManager == false)
+		{
+			return;
+		}
+		IAsyncPageLockManager asyncLockManager = (IAsyncPageLockManager)lockManager;
+
+		Object owner = request.getAttribute(OWNER);
+		if (owner != null)
+		{
+			// dispatched again
+			request.removeAttribute(OWNER);
+			asyncLockManager.claimPages(owner);
+
+			Throwable failure = (Throwable)request.getAttribute(FAILURE);
+			if (failure != null)
+			{
+				request.removeAttribute(FAILURE);
+				if (failure instanceof RuntimeException)
+				{
+					throw (RuntimeException)failure;
+				}
+				throw new WicketRuntimeException(failure);
+			}
+			return;
+		}
+
+		if (request.isAsyncSupported() == false)
+		{
+			return;
+		}
+
+		final Object newOwner = new Object();
+		boolean shared = handler instanceof ListenerRequestHandler &&
+			((ListenerRequestHandler)handler).isReadOnly();
+		CompletableFuture<Void> lock = (shared
+			? asyncLockManager.lockPageSharedAsync(pageId, newOwner)
+			: asyncLockManager.lockPageAsync(pageId, newOwner)).toCompletableFuture();
+		if (lock.isDone())
+		{
+			// not locked by another request, or failed already
+			asyncLockManager.claimPages(newOwner);
+			return;
+		}
+
+		log.debug("suspending request to locked page {}", pageId);
+
+		request.setAttribute(OWNER, newOwner);
+		AsyncContext asyncContext = request.startAsync();
+		// the lock manager times out
+		asyncContext.setTimeout(0);
+		asyncContext.addListener(new AsyncListener()
+		{
+			@Override
+			public void onTimeout(AsyncEvent event) throws IOException
+			{
+				asyncLockManager.unlockAllPages(newOwner);
+			}
+
+			@Override
+			public void onError(AsyncEvent event) throws IOException
+			{
+				asyncLockManager.unlockAllPages(newOwner);
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) throws IOException
+			{
+			}
+
+			@Override
+			public void onComplete(AsyncEvent event) throws IOException
+			{
+			}
+		});
+
+		lock.whenComplete((result, failure) -> {
+			if (failure != null)
+			{
+				request.setAttribute(FAILURE,
+					failure instanceof CompletionException ? failure.getCause() : failure);
+			}
+
+			try
+			{
+				asyncContext.dispatch();
+			}
+			catch (IllegalStateException ex)
+			{
+				// request is gone already
+				asyncLockManager.unlockAllPages(newOwner);
+			}
+		});
+
+		// nothing to do until dispatched again
+		throw new ReplaceHandlerException(new EmptyRequestHandler(), true);
+	}
+}
@@ -19,14 +19,17 @@ package org.apache.wicket.protocol.http;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.Cookie;
 import org.apache.wicket.Application;
 import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.markup.RawMarkup;
 import org.apache.wicket.request.Response;
 import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.response.filter.IResponseFilter;
@@ -151,6 +154,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 	private final List<Action> actions = new ArrayList<Action>();
 	private StringBuilder charSequenceBuilder;
 	private ByteArrayOutputStream dataStream;
+	private List<StaticChunk> staticChunks;
 
 	@Override
 	public void reset()
@@ -159,6 +163,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		actions.clear();
 		charSequenceBuilder = null;
 		dataStream = null;
+		staticChunks = null;
 	}
 
 	@Override
@@ -231,12 +236,23 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 			charSequenceBuilder = builder;
 			actions.add(ActionType.DATA.action(res ->
 			{
-				AppendingStringBuffer responseBuffer = new AppendingStringBuffer(builder);
-
 				List<IResponseFilter> responseFilters = Application.get()
 						.getRequestCycleSettings()
 						.getResponseFilters();
 
+				if (staticChunks != null && (responseFilters == null || responseFilters.isEmpty()) &&
+					(res instanceof BufferedWebResponse) == false)
+				{
+					Charset charset = getCharset(res);
+					if (charset != null)
+					{
+						writeEncoded(res, builder, charset);
+						return;
+					}
+				}
+
+				AppendingStringBuffer responseBuffer = new AppendingStringBuffer(builder);
+
 				if (responseFilters != null)
 				{
 					for (IResponseFilter filter : responseFilters)
@@ -250,6 +266,78 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		charSequenceBuilder.append(sequence);
 	}
 
+	/**
+	 * Writes static markup. Unless response filters have to be applied, the markup is written
+	 * with its {@link RawMarkup#getBytes(Charset) pre-encoded bytes} and only the remaining text is
+	 * encoded by this response.
+	 * 
+	 * @param markup
+	 *            the static markup
+	 */
+	public void writeRawMarkup(RawMarkup markup)
+	{
+		int offset = charSequenceBuilder != null ? charSequenceBuilder.length() : 0;
+
+		write(markup.toCharSequence());
+
+		if (staticChunks == null)
+		{
+			staticChunks = new ArrayList<>();
+		}
+		staticChunks.add(new StaticChunk(offset, markup));
+	}
+
+	/**
+	 * Get the charset the container encodes text of the given response with.
+	 * 
+	 * @param response
+	 * @return charset or <code>null</code> if not known
+	 */
+	private static Charset getCharset(final Response response)
+	{
+		if (response.getContainerResponse() instanceof ServletResponse)
+		{
+			String encoding = ((ServletResponse)response.getContainerResponse()).getCharacterEncoding();
+			try
+			{
+				return encoding != null ? Charset.forName(encoding) : null;
+			}
+			catch (IllegalArgumentException ex)
+			{
+				// not supported, let the container encode the text
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Writes the text as bytes, using the pre-encoded bytes of static chunks.
+	 * 
+	 * @param response
+	 * @param builder
+	 * @param charset
+	 *            charset of the response
+	 */
+	private void writeEncoded(final Response response, final StringBuilder builder,
+		final Charset charset)
+	{
+		int position = 0;
+		for (StaticChunk chunk : staticChunks)
+		{
+			if (chunk.offset > position)
+			{
+				response.write(builder.substring(position, chunk.offset).getBytes(charset));
+			}
+			response.write(chunk.markup.getBytes(charset));
+
+			position = chunk.offset + chunk.markup.toCharSequence().length();
+		}
+		if (position < builder.length())
+		{
+			response.write(builder.substring(position).getBytes(charset));
+		}
+	}
+
 	/**
 	 * Returns the text already written to this response.
 	 * 
@@ -286,6 +374,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		{
 			charSequenceBuilder.setLength(0);
 		}
+		staticChunks = null;
 		write(text);
 	}
 
@@ -425,4 +514,20 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 	{
 		return originalResponse.getContainerResponse();
 	}
+
+	/**
+	 * Static markup written at an offset of the text.
+	 */
+	private static final class StaticChunk
+	{
+		private final int offset;
+
+		private final RawMarkup markup;
+
+		private StaticChunk(int offset, RawMarkup markup)
+		{
+			this.offset = offset;
+			this.markup = markup;
+		}
+	}
 }
@@ -275,7 +275,8 @@ public class WicketFilter implements Filter
 		try
 		{
 			reqProcessed = requestCycle.processRequest();
-			if (reqProcessed)
+			// a suspended request is responded to when dispatched again
+			if (reqProcessed && httpServletRequest.isAsyncStarted() == false)
 			{
 				webResponse.flush();
 			}
@@ -24,15 +24,29 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-abstract class ClassScanner
+/**
+ * Scans classes and their superclasses for static fields holding {@link ResourceReference}s. Each
+ * class is scanned once only.
+ */
+public abstract class ClassScanner
 {
 	private static final Logger log = LoggerFactory.getLogger(ClassScanner.class);
 
 	private final Set<String> scannedClasses = ConcurrentHashMap.newKeySet();
 
-	abstract boolean foundResourceReference(ResourceReference reference);
+	/**
+	 * Called for each resource reference found.
+	 * 
+	 * @param reference
+	 *            the resource reference
+	 * @return {@code true} if the reference is to be counted
+	 */
+	protected abstract boolean foundResourceReference(ResourceReference reference);
 
-	ClassScanner()
+	/**
+	 * Construct.
+	 */
+	protected ClassScanner()
 	{
 	}
 
@@ -47,7 +47,7 @@ public class ResourceReferenceRegistry
 	private ClassScanner scanner = new ClassScanner()
 	{
 		@Override
-		boolean foundResourceReference(final ResourceReference reference)
+		protected boolean foundResourceReference(final ResourceReference reference)
 		{
 			// register the RR found (static field of Scope class)
 			return registerResourceReference(reference);
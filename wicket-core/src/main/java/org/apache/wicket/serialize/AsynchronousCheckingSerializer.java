@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize;
+
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.wicket.core.util.objects.checker.CheckingObjectOutputStream;
+import org.apache.wicket.core.util.objects.checker.CheckingObjectOutputStream.ObjectCheckException;
+import org.apache.wicket.core.util.objects.checker.IObjectChecker;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A serializer checking a sample of serialized objects in the background, so checkers can be used
+ * in production without slowing down serialization.
+ * <p>
+ * Each sampled object is checked on a snapshot: its serialized bytes are deserialized by a
+ * background thread and written through a {@link CheckingObjectOutputStream}. Violations are
+ * reported to a {@link IViolationListener}. If the background thread cannot keep up, samples are
+ * dropped rather than queued without bounds.
+ * <p>
+ * Note that checkers relying on transient state, e.g. a
+ * {@link org.apache.wicket.core.util.objects.checker.NotDetachedModelChecker}, cannot detect
+ * violations on a snapshot, since transient state is not serialized.
+ * 
+ * <pre>
+ * getFrameworkSettings().setSerializer(new AsynchronousCheckingSerializer(
+ * 	new JavaSerializer(getApplicationKey()), 0.01, new OrphanComponentChecker()));
+ * </pre>
+ */
+public class AsynchronousCheckingSerializer implements ISerializer
+{
+	private static final Logger log = LoggerFactory.getLogger(AsynchronousCheckingSerializer.class);
+
+	/**
+	 * Default count of samples waiting to be checked.
+	 */
+	public static final int DEFAULT_CAPACITY = 100;
+
+	/**
+	 * Receiver of violations detected by checkers.
+	 */
+	@FunctionalInterface
+	public interface IViolationListener
+	{
+		/**
+		 * A checker detected a violation.
+		 * 
+		 * @param object
+		 *            the snapshot of the checked object
+		 * @param violation
+		 *            the violation
+		 */
+		void onViolation(Object object, ObjectCheckException violation);
+	}
+
+	private final ISerializer delegate;
+
+	private final double sampleRate;
+
+	private final IViolationListener listener;
+
+	private final IObjectChecker[] checkers;
+
+	private final ThreadPoolExecutor executor;
+
+	private final LongAdder checkCount = new LongAdder();
+
+	private final LongAdder dropCount = new LongAdder();
+
+	/**
+	 * Check a sample of objects, logging violations.
+	 * 
+	 * @param delegate
+	 *            serializer to delegate to
+	 * @param sampleRate
+	 *            fraction of objects to check, between <code>0</code> and <code>1</code>
+	 * @param checkers
+	 *            checkers to use
+	 */
+	public AsynchronousCheckingSerializer(ISerializer delegate, double sampleRate,
+		IObjectChecker... checkers)
+	{
+		this(delegate, sampleRate, (object, violation) -> log.warn(violation.getMessage()),
+			DEFAULT_CAPACITY, checkers);
+	}
+
+	/**
+	 * Check a sample of objects.
+	 * 
+	 * @param delegate
+	 *            serializer to delegate to
+	 * @param sampleRate
+	 *            fraction of objects to check, between <code>0</code> and <code>1</code>
+	 * @param listener
+	 *            receiver of violations
+	 * @param capacity
+	 *            maximum count of samples waiting to be checked
+	 * @param checkers
+	 *            checkers to use
+	 */
+	public AsynchronousCheckingSerializer(ISerializer delegate, double sampleRate,
+		IViolationListener listener, int capacity, IObjectChecker... checkers)
+	{
+		this.delegate = Args.notNull(delegate, "delegate");
+		this.sampleRate = Args.withinRange(0d, 1d, sampleRate, "sampleRate");
+		this.listener = Args.notNull(listener, "listener");
+		this.checkers = Args.notNull(checkers, "checkers");
+		Args.withinRange(1, Integer.MAX_VALUE, capacity, "capacity");
+
+		// a single thread, terminated when idle so it does not outlive the application
+		executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<>(capacity), runnable -> {
+				Thread thread = new Thread(runnable, "Wicket-SerializationChecker");
+				thread.setDaemon(true);
+				return thread;
+			}, (runnable, executor) -> dropCount.increment());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	@Override
+	public byte[] serialize(Object object)
+	{
+		byte[] data = delegate.serialize(object);
+
+		if (data != null && CheckingObjectOutputStream.isAvailable() &&
+			ThreadLocalRandom.current().nextDouble() < sampleRate)
+		{
+			executor.execute(() -> check(data));
+		}
+
+		return data;
+	}
+
+	@Override
+	public Object deserialize(byte[] data)
+	{
+		return delegate.deserialize(data);
+	}
+
+	/**
+	 * Check a snapshot.
+	 * 
+	 * @param data
+	 *            serialized object
+	 */
+	private void check(byte[] data)
+	{
+		Object object = null;
+		try
+		{
+			object = delegate.deserialize(data);
+
+			try (CheckingObjectOutputStream out = new CheckingObjectOutputStream(
+				OutputStream.nullOutputStream(), checkers))
+			{
+				out.writeObject(object);
+			}
+		}
+		catch (ObjectCheckException violation)
+		{
+			listener.onViolation(object, violation);
+		}
+		catch (Exception ex)
+		{
+			log.debug("Cannot check serialized object", ex);
+		}
+		finally
+		{
+			checkCount.increment();
+		}
+	}
+
+	/**
+	 * Get the count of checked objects.
+	 * 
+	 * @return count of checks
+	 */
+	public long getCheckCount()
+	{
+		return checkCount.sum();
+	}
+
+	/**
+	 * Get the count of sampled objects which were not checked, because too many samples were
+	 * waiting already.
+	 * 
+	 * @return count of dropped samples
+	 */
+	public long getDropCount()
+	{
+		return dropCount.sum();
+	}
+}
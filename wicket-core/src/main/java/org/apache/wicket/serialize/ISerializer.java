@@ -16,6 +16,9 @@
  */
 package org.apache.wicket.serialize;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * A serializer that can be used to convert an object to byte array and back
  */
@@ -31,6 +34,29 @@ public interface ISerializer
 	 */
 	byte[] serialize(Object object);
 
+	/**
+	 * Writes the serialized object to a stream, e.g. to pass it through further stages without an
+	 * intermediate byte array.
+	 * <p>
+	 * The stream is not closed. By default the result of {@link #serialize(Object)} is written.
+	 *
+	 * @param object
+	 *            the object to serialize
+	 * @param out
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if the object could not be serialized or written
+	 */
+	default void serialize(Object object, OutputStream out) throws IOException
+	{
+		byte[] data = serialize(object);
+		if (data == null)
+		{
+			throw new IOException("Could not serialize " + object.getClass());
+		}
+		out.write(data);
+	}
+
 	/**
 	 * Reconstructs the object from its serialized state
 	 *
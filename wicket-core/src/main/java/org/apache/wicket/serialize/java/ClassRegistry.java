@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A registry of classes, assigning a small integer id to each class name.
+ * <p>
+ * Ids are assigned in order of registration, thus a registry has to be set up identically whenever
+ * previously serialized data is deserialized, e.g. after a restart of the application. The default
+ * registrations cover hot types of the framework and the JDK.
+ *
+ * @see CompactJavaSerializer
+ */
+public class ClassRegistry
+{
+	/**
+	 * Names of classes registered by default, the order must never change.
+	 */
+	private static final String[] DEFAULTS = {
+			// JDK
+			"java.lang.Object",
+			"java.lang.String",
+			"java.lang.Number",
+			"java.lang.Integer",
+			"java.lang.Long",
+			"java.lang.Boolean",
+			"java.lang.Double",
+			"java.lang.Enum",
+			"java.util.ArrayList",
+			"java.util.LinkedList",
+			"java.util.HashMap",
+			"java.util.LinkedHashMap",
+			"java.util.HashSet",
+			"java.util.Locale",
+			"[I",
+			"[B",
+			"[Ljava.lang.Object;",
+			"[Ljava.lang.String;",
+
+			// framework
+			"org.apache.wicket.Component",
+			"org.apache.wicket.MarkupContainer",
+			"org.apache.wicket.Page",
+			"org.apache.wicket.markup.html.WebPage",
+			"org.apache.wicket.markup.html.WebMarkupContainer",
+			"org.apache.wicket.markup.html.basic.Label",
+			"org.apache.wicket.markup.html.link.Link",
+			"org.apache.wicket.markup.html.link.BookmarkablePageLink",
+			"org.apache.wicket.markup.html.list.ListView",
+			"org.apache.wicket.markup.html.list.ListItem",
+			"org.apache.wicket.markup.html.list.AbstractItem",
+			"org.apache.wicket.markup.repeater.AbstractRepeater",
+			"org.apache.wicket.markup.repeater.RepeatingView",
+			"org.apache.wicket.markup.repeater.Item",
+			"org.apache.wicket.markup.html.form.Form",
+			"org.apache.wicket.markup.html.form.FormComponent",
+			"org.apache.wicket.markup.html.form.TextField",
+			"org.apache.wicket.markup.html.form.AbstractTextComponent",
+			"org.apache.wicket.markup.html.panel.Panel",
+			"org.apache.wicket.markup.html.panel.Fragment",
+			"org.apache.wicket.markup.html.panel.FeedbackPanel",
+			"org.apache.wicket.MetaDataEntry",
+			"[Lorg.apache.wicket.MetaDataEntry;",
+			"org.apache.wicket.model.Model",
+			"org.apache.wicket.model.PropertyModel",
+			"org.apache.wicket.model.CompoundPropertyModel",
+			"org.apache.wicket.model.LoadableDetachableModel",
+			"org.apache.wicket.model.ResourceModel",
+			"org.apache.wicket.model.StringResourceModel",
+			"org.apache.wicket.request.mapper.parameter.PageParameters",
+			"org.apache.wicket.request.mapper.parameter.INamedParameters$NamedPair",
+			"org.apache.wicket.request.mapper.parameter.INamedParameters$Type",
+			"org.apache.wicket.behavior.Behavior",
+			"org.apache.wicket.behavior.AttributeAppender",
+			"org.apache.wicket.AttributeModifier",
+			"org.apache.wicket.AttributeModifier$MarkerValue",
+			"org.apache.wicket.ajax.AbstractDefaultAjaxBehavior",
+			"org.apache.wicket.ajax.AjaxEventBehavior",
+			"org.apache.wicket.ajax.attributes.AjaxRequestAttributes",
+			"org.apache.wicket.feedback.FeedbackMessages",
+			"org.apache.wicket.util.io.IClusterable",
+			"org.apache.commons.collections4.map.LinkedMap",
+			"org.apache.commons.collections4.map.AbstractLinkedMap",
+			"org.apache.commons.collections4.map.AbstractHashedMap" };
+
+	private final List<String> names = new CopyOnWriteArrayList<>();
+
+	private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a registry with default registrations.
+	 */
+	public ClassRegistry()
+	{
+		register(DEFAULTS);
+	}
+
+	/**
+	 * Register classes.
+	 *
+	 * @param classes
+	 *            classes to register
+	 * @return this
+	 */
+	public ClassRegistry register(Class<?>... classes)
+	{
+		for (Class<?> clazz : classes)
+		{
+			register(clazz.getName());
+		}
+
+		return this;
+	}
+
+	/**
+	 * Register classes by name.
+	 *
+	 * @param classNames
+	 *            names of classes as returned by {@link Class#getName()}
+	 * @return this
+	 */
+	public synchronized ClassRegistry register(String... classNames)
+	{
+		for (String className : classNames)
+		{
+			Args.notNull(className, "className");
+
+			if (ids.containsKey(className) == false)
+			{
+				ids.put(className, names.size());
+				names.add(className);
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Get the id of a class name.
+	 *
+	 * @param className
+	 *            name of class
+	 * @return id or <code>-1</code> if not registered
+	 */
+	public int getId(String className)
+	{
+		Integer id = ids.get(className);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Get the name of a class by its id.
+	 *
+	 * @param id
+	 *            id of class
+	 * @return name of class
+	 * @throws IndexOutOfBoundsException
+	 *             if no class is registered with the given id
+	 */
+	public String getName(int id)
+	{
+		return names.get(id);
+	}
+
+	/**
+	 * @return count of registered classes
+	 */
+	public int size()
+	{
+		return names.size();
+	}
+}
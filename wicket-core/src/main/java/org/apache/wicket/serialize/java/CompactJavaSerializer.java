@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A {@link JavaSerializer} writing compact class descriptors.
+ * <p>
+ * Standard Java serialization writes a full descriptor - class name, serialVersionUID, flags and
+ * all field names and types - for each class once per stream. Since each page is serialized into
+ * its own stream, these descriptors make up a significant part of a serialized page. This
+ * serializer replaces them with a variable-length id from a {@link ClassRegistry} (or the class name
+ * if not registered) and a fingerprint of the class' serialVersionUID and fields. On
+ * deserialization the local class descriptor is used, after the fingerprint was verified.
+ * <p>
+ * Note: Since descriptors are not written, data can be deserialized only if the classes did not
+ * change in an incompatible way. Pages persisted with another serializer cannot be read.
+ * <p>
+ * To use this serializer, set it in {@link org.apache.wicket.Application#init()}:
+ *
+ * <pre>
+ * getFrameworkSettings().setSerializer(new CompactJavaSerializer(getApplicationKey()));
+ * </pre>
+ *
+ * Additional hot classes of the application can be registered, but this has to happen in the same
+ * order on each start of the application:
+ *
+ * <pre>
+ * CompactJavaSerializer serializer = new CompactJavaSerializer(getApplicationKey());
+ * serializer.getClassRegistry().register(MyPage.class, MyPanel.class);
+ * </pre>
+ */
+public class CompactJavaSerializer extends JavaSerializer
+{
+	/**
+	 * Marker for a class written by name.
+	 */
+	private static final int UNREGISTERED = 0;
+
+	private static final ClassValue<Integer> FINGERPRINTS = new ClassValue<>()
+	{
+		@Override
+		protected Integer computeValue(Class<?> type)
+		{
+			return fingerprint(ObjectStreamClass.lookupAny(type));
+		}
+	};
+
+	private final ClassRegistry registry;
+
+	/**
+	 * Construct with a default {@link ClassRegistry}.
+	 *
+	 * @param applicationKey
+	 *            the name of the application
+	 */
+	public CompactJavaSerializer(final String applicationKey)
+	{
+		this(applicationKey, new ClassRegistry());
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationKey
+	 *            the name of the application
+	 * @param registry
+	 *            registry of classes
+	 */
+	public CompactJavaSerializer(final String applicationKey, final ClassRegistry registry)
+	{
+		super(applicationKey);
+
+		this.registry = Args.notNull(registry, "registry");
+	}
+
+	/**
+	 * @return the registry of classes
+	 */
+	public ClassRegistry getClassRegistry()
+	{
+		return registry;
+	}
+
+	@Override
+	protected ObjectOutputStream newObjectOutputStreamDelegate(OutputStream out) throws IOException
+	{
+		return new CompactObjectOutputStream(out, registry);
+	}
+
+	@Override
+	protected ObjectInputStream newObjectInputStream(InputStream in) throws IOException
+	{
+		return new CompactObjectInputStream(in, registry);
+	}
+
+	/**
+	 * Calculate a fingerprint of a class descriptor.
+	 *
+	 * @param desc
+	 *            descriptor
+	 * @return fingerprint
+	 */
+	private static int fingerprint(ObjectStreamClass desc)
+	{
+		long serialVersionUID = desc.getSerialVersionUID();
+
+		int hash = Long.hashCode(serialVersionUID);
+		for (ObjectStreamField field : desc.getFields())
+		{
+			hash = 31 * hash + field.getName().hashCode();
+			hash = 31 * hash + field.getTypeCode();
+			String typeString = field.getTypeString();
+			if (typeString != null)
+			{
+				hash = 31 * hash + typeString.hashCode();
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Writes compact class descriptors.
+	 */
+	private static class CompactObjectOutputStream extends ObjectOutputStream
+	{
+		private final ClassRegistry registry;
+
+		public CompactObjectOutputStream(OutputStream out, ClassRegistry registry)
+			throws IOException
+		{
+			super(out);
+
+			this.registry = registry;
+		}
+
+		@Override
+		protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException
+		{
+			Class<?> clazz = desc.forClass();
+
+			int id = registry.getId(clazz.getName());
+			if (id == -1)
+			{
+				writeVarInt(UNREGISTERED);
+				writeUTF(clazz.getName());
+			}
+			else
+			{
+				writeVarInt(id + 1);
+			}
+
+			writeInt(FINGERPRINTS.get(clazz));
+		}
+
+		private void writeVarInt(int value) throws IOException
+		{
+			while ((value & ~0x7F) != 0)
+			{
+				writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			writeByte(value);
+		}
+	}
+
+	/**
+	 * Reads compact class descriptors.
+	 */
+	private static class CompactObjectInputStream extends ClassResolverObjectInputStream
+	{
+		private final ClassRegistry registry;
+
+		public CompactObjectInputStream(InputStream in, ClassRegistry registry) throws IOException
+		{
+			super(in);
+
+			this.registry = registry;
+		}
+
+		@Override
+		protected ObjectStreamClass readClassDescriptor() throws IOException,
+			ClassNotFoundException
+		{
+			int id = readVarInt();
+
+			String className;
+			if (id == UNREGISTERED)
+			{
+				className = readUTF();
+			}
+			else
+			{
+				try
+				{
+					className = registry.getName(id - 1);
+				}
+				catch (IndexOutOfBoundsException ex)
+				{
+					throw new InvalidClassException("unknown class id " + id);
+				}
+			}
+
+			int fingerprint = readInt();
+
+			Class<?> clazz = resolveClassByName(className, latestUserDefinedLoader());
+			if (FINGERPRINTS.get(clazz) != fingerprint)
+			{
+				throw new InvalidClassException(className,
+					"local class incompatible with serialized data");
+			}
+
+			return ObjectStreamClass.lookupAny(clazz);
+		}
+
+		private int readVarInt() throws IOException
+		{
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7)
+			{
+				int b = readUnsignedByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+				{
+					return value;
+				}
+			}
+			throw new InvalidClassException("malformed class id");
+		}
+	}
+}
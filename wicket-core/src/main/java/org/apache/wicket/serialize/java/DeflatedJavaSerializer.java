@@ -21,6 +21,8 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
@@ -38,12 +40,21 @@ import java.util.zip.InflaterInputStream;
  * getFrameworkSettings().setSerializer(new DeflatedJavaSerializer(getApplicationKey()));
  * </pre>
  * 
+ * {@code Deflater}s and {@code Inflater}s are pooled for reuse, since each of them holds native
+ * memory which is otherwise released on garbage collection only.
+ * 
  * @author papegaaij
  */
 public class DeflatedJavaSerializer extends JavaSerializer
 {
 	private static final int COMPRESS_BUF_SIZE = 4 * 1024;
 
+	private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+	private final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+	private final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
 	/**
 	 * Construct.
 	 * 
@@ -57,8 +68,36 @@ public class DeflatedJavaSerializer extends JavaSerializer
 	@Override
 	protected ObjectOutputStream newObjectOutputStream(OutputStream out) throws IOException
 	{
-		return super.newObjectOutputStream(new DeflaterOutputStream(out, createDeflater(),
-			COMPRESS_BUF_SIZE));
+		Deflater pooled = deflaters.poll();
+		final Deflater deflater = pooled != null ? pooled : createDeflater();
+
+		return super.newObjectOutputStream(new DeflaterOutputStream(out, deflater,
+			COMPRESS_BUF_SIZE)
+		{
+			private boolean released;
+
+			@Override
+			public void close() throws IOException
+			{
+				try
+				{
+					super.close();
+				}
+				finally
+				{
+					if (released == false)
+					{
+						released = true;
+
+						deflater.reset();
+						if (deflaters.offer(deflater) == false)
+						{
+							deflater.end();
+						}
+					}
+				}
+			}
+		});
 	}
 
 	/**
@@ -75,7 +114,34 @@ public class DeflatedJavaSerializer extends JavaSerializer
 	@Override
 	protected ObjectInputStream newObjectInputStream(InputStream in) throws IOException
 	{
-		return super.newObjectInputStream(new InflaterInputStream(in, new Inflater(),
-			COMPRESS_BUF_SIZE));
+		Inflater pooled = inflaters.poll();
+		final Inflater inflater = pooled != null ? pooled : new Inflater();
+
+		return super.newObjectInputStream(new InflaterInputStream(in, inflater, COMPRESS_BUF_SIZE)
+		{
+			private boolean released;
+
+			@Override
+			public void close() throws IOException
+			{
+				try
+				{
+					super.close();
+				}
+				finally
+				{
+					if (released == false)
+					{
+						released = true;
+
+						inflater.reset();
+						if (inflaters.offer(inflater) == false)
+						{
+							inflater.end();
+						}
+					}
+				}
+			}
+		});
 	}
 }
@@ -17,7 +17,7 @@
 package org.apache.wicket.serialize.java;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.NotSerializableException;
@@ -31,6 +31,9 @@ import java.lang.reflect.Proxy;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.ThreadContext;
@@ -40,7 +43,9 @@ import org.apache.wicket.core.util.objects.checker.CheckingObjectOutputStream;
 import org.apache.wicket.core.util.objects.checker.ObjectSerializationChecker;
 import org.apache.wicket.serialize.ISerializer;
 import org.apache.wicket.settings.ApplicationSettings;
+import org.apache.wicket.util.io.ByteArrayOutputStream;
 import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,11 +55,28 @@ import org.slf4j.LoggerFactory;
  * 
  * Requires the application key to enable serialization and deserialisation outside thread in which
  * application thread local is set
+ * <p>
+ * Output buffers are pooled in size classes and reused across serializations. The expected size of
+ * each serialized class is learned from its previous serialization, so buffers are presized and do
+ * not have to grow while writing. The memory retained by the pool is bounded by the pool size
+ * multiplied with the capacities of all size classes (4KB up to 1MB), larger results are never
+ * pooled.
  */
 public class JavaSerializer implements ISerializer
 {
 	private static final Logger log = LoggerFactory.getLogger(JavaSerializer.class);
 
+	/**
+	 * Capacities of pooled output buffers.
+	 */
+	private static final int[] SIZE_CLASSES = { 4 * 1024, 16 * 1024, 64 * 1024, 256 * 1024,
+			1024 * 1024 };
+
+	/**
+	 * Default count of pooled buffers for each size class.
+	 */
+	public static final int DEFAULT_POOL_SIZE = 4;
+
 	private static final StackWalker STACKWALKER;
 	private static final ClassLoader PLATFORM_CLASS_LOADER;
 
@@ -72,6 +94,16 @@ public class JavaSerializer implements ISerializer
 	 */
 	private final String applicationKey;
 
+	/**
+	 * Pooled buffers for each size class.
+	 */
+	private final ArrayBlockingQueue<ByteArrayOutputStream>[] pools;
+
+	/**
+	 * Size of the last serialization for each class name.
+	 */
+	private final ConcurrentMap<String, Integer> sizeHints = new ConcurrentHashMap<>();
+
 	/**
 	 * Construct.
 	 * 
@@ -79,16 +111,43 @@ public class JavaSerializer implements ISerializer
 	 *      the name of the application
 	 */
 	public JavaSerializer(final String applicationKey)
+	{
+		this(applicationKey, DEFAULT_POOL_SIZE);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param applicationKey
+	 *      the name of the application
+	 * @param poolSize
+	 *      count of pooled buffers for each size class, <code>0</code> disables pooling
+	 */
+	@SuppressWarnings("unchecked")
+	public JavaSerializer(final String applicationKey, final int poolSize)
 	{
 		this.applicationKey = applicationKey;
+
+		Args.withinRange(0, Integer.MAX_VALUE, poolSize, "poolSize");
+		pools = new ArrayBlockingQueue[SIZE_CLASSES.length];
+		if (poolSize > 0)
+		{
+			for (int c = 0; c < SIZE_CLASSES.length; c++)
+			{
+				pools[c] = new ArrayBlockingQueue<>(poolSize);
+			}
+		}
 	}
 
 	@Override
 	public byte[] serialize(final Object object)
 	{
+		final String className = object.getClass().getName();
+		final int sizeHint = sizeHints.getOrDefault(className, 0);
+		final int sizeClass = getSizeClass(sizeHint);
+		final ByteArrayOutputStream out = borrowBuffer(sizeClass, sizeHint);
 		try
 		{
-			final ByteArrayOutputStream out = new ByteArrayOutputStream();
 			ObjectOutputStream oos = null;
 			try
 			{
@@ -107,6 +166,7 @@ public class JavaSerializer implements ISerializer
 					out.close();
 				}
 			}
+			sizeHints.put(className, out.size());
 			return out.toByteArray();
 		}
 		catch (Exception e)
@@ -114,9 +174,91 @@ public class JavaSerializer implements ISerializer
 			log.error("Error serializing object {} [object={}]",
 			          object.getClass(), object, e);
 		}
+		finally
+		{
+			releaseBuffer(sizeClass, out);
+		}
 		return null;
 	}
 
+	/**
+	 * Writes directly into the given stream, without a pooled buffer.
+	 */
+	@Override
+	public void serialize(final Object object, final OutputStream out) throws IOException
+	{
+		ObjectOutputStream oos = newObjectOutputStream(new FilterOutputStream(out)
+		{
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException
+			{
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				// stages of the object stream are finished, but the given stream stays open
+				flush();
+			}
+		});
+		try
+		{
+			oos.writeObject(applicationKey);
+			oos.writeObject(object);
+		}
+		finally
+		{
+			oos.close();
+		}
+	}
+
+	/**
+	 * Get the smallest size class fitting the given size.
+	 * 
+	 * @param size
+	 *      expected size
+	 * @return index of size class, or count of size classes if no class fits
+	 */
+	private static int getSizeClass(int size)
+	{
+		int c = 0;
+		while (c < SIZE_CLASSES.length && SIZE_CLASSES[c] < size)
+		{
+			c++;
+		}
+		return c;
+	}
+
+	private ByteArrayOutputStream borrowBuffer(int sizeClass, int sizeHint)
+	{
+		if (sizeClass < SIZE_CLASSES.length)
+		{
+			if (pools[sizeClass] != null)
+			{
+				ByteArrayOutputStream out = pools[sizeClass].poll();
+				if (out != null)
+				{
+					return out;
+				}
+			}
+			return new ByteArrayOutputStream(SIZE_CLASSES[sizeClass]);
+		}
+		// too large to be pooled
+		return new ByteArrayOutputStream(sizeHint);
+	}
+
+	private void releaseBuffer(int sizeClass, ByteArrayOutputStream out)
+	{
+		// buffers grown beyond their class are dropped, so the pool's memory stays bounded
+		if (sizeClass < SIZE_CLASSES.length && pools[sizeClass] != null &&
+			out.size() <= SIZE_CLASSES[sizeClass])
+		{
+			out.reset();
+			pools[sizeClass].offer(out);
+		}
+	}
+
 	@Override
 	public Object deserialize(final byte[] data)
 	{
@@ -188,13 +330,28 @@ public class JavaSerializer implements ISerializer
 	 */
 	protected ObjectOutputStream newObjectOutputStream(OutputStream out) throws IOException
 	{
-		return new SerializationCheckerObjectOutputStream(out);
+		return new SerializationCheckerObjectOutputStream(out, newObjectOutputStreamDelegate(out));
+	}
+
+	/**
+	 * Gets a new instance of the {@link ObjectOutputStream} actually writing the objects, used by the
+	 * stream returned from {@link #newObjectOutputStream(OutputStream)}.
+	 * 
+	 * @param out
+	 *            The output stream that should be used for the writing
+	 * @return a new object output stream instance
+	 * @throws IOException
+	 *             if an I/O error occurs while writing stream header
+	 */
+	protected ObjectOutputStream newObjectOutputStreamDelegate(OutputStream out) throws IOException
+	{
+		return new ObjectOutputStream(out);
 	}
 
 	/**
 	 * Extend {@link ObjectInputStream} to add framework class resolution logic.
 	 */
-	private static class ClassResolverObjectInputStream extends ObjectInputStream
+	protected static class ClassResolverObjectInputStream extends ObjectInputStream
 	{
 		public ClassResolverObjectInputStream(InputStream in) throws IOException
 		{
@@ -230,7 +387,7 @@ public class JavaSerializer implements ISerializer
 		 * resolves a class by name, first using the default Class.forName, but looking in the
 		 * Wicket ClassResolvers as well.
 		 */
-		private Class<?> resolveClassByName(String className, ClassLoader latestUserDefined)
+		protected Class<?> resolveClassByName(String className, ClassLoader latestUserDefined)
 			throws ClassNotFoundException
 		{
 			try
@@ -335,7 +492,7 @@ public class JavaSerializer implements ISerializer
 			}
 		}
 
-		private static ClassLoader latestUserDefinedLoader()
+		protected static ClassLoader latestUserDefinedLoader()
 		{
 			try
 			{
@@ -369,10 +526,11 @@ public class JavaSerializer implements ISerializer
 
 		private final ObjectOutputStream oos;
 
-		private SerializationCheckerObjectOutputStream(OutputStream outputStream) throws IOException
+		private SerializationCheckerObjectOutputStream(OutputStream outputStream,
+			ObjectOutputStream oos) throws IOException
 		{
 			this.outputStream = outputStream;
-			oos = new ObjectOutputStream(outputStream);
+			this.oos = oos;
 		}
 
 		@Override
@@ -0,0 +1,536 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A {@link JavaSerializer} that compresses the outputstream on the fly with a pure-Java LZ77
+ * codec. Compared to {@link DeflatedJavaSerializer} it reaches a lower compression ratio, but it
+ * costs only a fraction of the cpu time and no native memory.
+ * <p>
+ * To use this serializer, put the following code in your application's init:
+ * 
+ * <pre>
+ * getFrameworkSettings().setSerializer(new LZJavaSerializer(getApplicationKey()));
+ * </pre>
+ * 
+ * Data is compressed in blocks of 64KB, each encoded as a sequence of literals and back
+ * references as in the LZ4 block format, prefixed with its raw and its stored length. Blocks which
+ * do not compress are stored as they are. Buffers and hash tables are pooled for reuse.
+ */
+public class LZJavaSerializer extends JavaSerializer
+{
+	private static final int BLOCK_SIZE = 64 * 1024;
+
+	/**
+	 * Size of buffers, fitting a block in the worst case of incompressible data.
+	 */
+	private static final int BUFFER_SIZE = BLOCK_SIZE + BLOCK_SIZE / 255 + 16;
+
+	private static final int MIN_MATCH = 4;
+
+	/**
+	 * Matches have to start before the last 12 bytes of a block.
+	 */
+	private static final int MATCH_FIND_LIMIT = 12;
+
+	/**
+	 * The last 5 bytes of a block are always literals.
+	 */
+	private static final int LAST_LITERALS = 5;
+
+	private static final int MAX_OFFSET = 65535;
+
+	private static final int HASH_BITS = 12;
+
+	private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+	private final BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(2 * POOL_SIZE);
+
+	private final BlockingQueue<int[]> tables = new ArrayBlockingQueue<>(POOL_SIZE);
+
+	/**
+	 * Construct.
+	 * 
+	 * @param applicationKey
+	 */
+	public LZJavaSerializer(String applicationKey)
+	{
+		super(applicationKey);
+	}
+
+	@Override
+	protected ObjectOutputStream newObjectOutputStream(OutputStream out) throws IOException
+	{
+		return super.newObjectOutputStream(new CompressingOutputStream(out));
+	}
+
+	@Override
+	protected ObjectInputStream newObjectInputStream(InputStream in) throws IOException
+	{
+		return super.newObjectInputStream(new DecompressingInputStream(in));
+	}
+
+	private byte[] acquireBuffer()
+	{
+		byte[] buffer = buffers.poll();
+		return buffer != null ? buffer : new byte[BUFFER_SIZE];
+	}
+
+	private int[] acquireTable()
+	{
+		int[] table = tables.poll();
+		return table != null ? table : new int[1 << HASH_BITS];
+	}
+
+	/**
+	 * Compress a block.
+	 * 
+	 * @param src
+	 *            raw data
+	 * @param length
+	 *            length of raw data
+	 * @param dst
+	 *            buffer for compressed data
+	 * @param table
+	 *            hash table of recent positions
+	 * @return length of compressed data
+	 */
+	static int compress(byte[] src, int length, byte[] dst, int[] table)
+	{
+		Arrays.fill(table, -1);
+
+		int anchor = 0;
+		int op = 0;
+
+		int matchFindLimit = length - MATCH_FIND_LIMIT;
+		int matchLimit = length - LAST_LITERALS;
+
+		int ip = 0;
+		while (ip < matchFindLimit)
+		{
+			int sequence = readInt(src, ip);
+			int hash = (sequence * -1640531535) >>> (32 - HASH_BITS);
+			int ref = table[hash];
+			table[hash] = ip;
+
+			if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence)
+			{
+				// skip faster through incompressible data
+				ip += 1 + ((ip - anchor) >>> 6);
+				continue;
+			}
+
+			while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1])
+			{
+				ip--;
+				ref--;
+			}
+
+			int matchLength = MIN_MATCH;
+			while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength])
+			{
+				matchLength++;
+			}
+
+			op = writeLiterals(src, anchor, ip - anchor, matchLength - MIN_MATCH, dst, op);
+			dst[op++] = (byte)(ip - ref);
+			dst[op++] = (byte)((ip - ref) >>> 8);
+			if (matchLength - MIN_MATCH >= 15)
+			{
+				op = writeLength(matchLength - MIN_MATCH - 15, dst, op);
+			}
+
+			ip += matchLength;
+			anchor = ip;
+		}
+
+		return writeLiterals(src, anchor, length - anchor, 0, dst, op);
+	}
+
+	private static int readInt(byte[] b, int i)
+	{
+		return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | b[i + 3] << 24;
+	}
+
+	private static int writeLiterals(byte[] src, int off, int length, int matchLength, byte[] dst,
+		int op)
+	{
+		dst[op++] = (byte)(Math.min(length, 15) << 4 | Math.min(matchLength, 15));
+		if (length >= 15)
+		{
+			op = writeLength(length - 15, dst, op);
+		}
+		System.arraycopy(src, off, dst, op, length);
+		return op + length;
+	}
+
+	private static int writeLength(int length, byte[] dst, int op)
+	{
+		while (length >= 255)
+		{
+			dst[op++] = (byte)255;
+			length -= 255;
+		}
+		dst[op++] = (byte)length;
+		return op;
+	}
+
+	/**
+	 * Decompress a block.
+	 * 
+	 * @param src
+	 *            compressed data
+	 * @param length
+	 *            length of compressed data
+	 * @param dst
+	 *            buffer for raw data
+	 * @param rawLength
+	 *            expected length of raw data
+	 * @throws IOException
+	 *             if the data is corrupt
+	 */
+	static void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException
+	{
+		try
+		{
+			int ip = 0;
+			int op = 0;
+			while (true)
+			{
+				int token = src[ip++] & 0xFF;
+
+				int literals = token >>> 4;
+				if (literals == 15)
+				{
+					int b;
+					do
+					{
+						b = src[ip++] & 0xFF;
+						literals += b;
+					}
+					while (b == 255);
+				}
+				System.arraycopy(src, ip, dst, op, literals);
+				ip += literals;
+				op += literals;
+
+				if (ip >= length)
+				{
+					break;
+				}
+
+				int offset = (src[ip++] & 0xFF) | (src[ip++] & 0xFF) << 8;
+				int matchLength = token & 0x0F;
+				if (matchLength == 15)
+				{
+					int b;
+					do
+					{
+						b = src[ip++] & 0xFF;
+						matchLength += b;
+					}
+					while (b == 255);
+				}
+				matchLength += MIN_MATCH;
+
+				int ref = op - offset;
+				if (offset == 0 || ref < 0)
+				{
+					throw new IOException("Corrupt block, invalid offset " + offset);
+				}
+				if (offset >= matchLength)
+				{
+					System.arraycopy(dst, ref, dst, op, matchLength);
+					op += matchLength;
+				}
+				else
+				{
+					// overlapping match repeats the preceding bytes
+					for (int i = 0; i < matchLength; i++)
+					{
+						dst[op++] = dst[ref++];
+					}
+				}
+			}
+
+			if (ip != length || op != rawLength)
+			{
+				throw new IOException("Corrupt block, invalid length");
+			}
+		}
+		catch (IndexOutOfBoundsException ex)
+		{
+			throw new IOException("Corrupt block", ex);
+		}
+	}
+
+	/**
+	 * Compresses into blocks.
+	 */
+	private class CompressingOutputStream extends OutputStream
+	{
+		private final OutputStream out;
+
+		private final byte[] raw = acquireBuffer();
+
+		private final byte[] compressed = acquireBuffer();
+
+		private final int[] table = acquireTable();
+
+		private final byte[] header = new byte[8];
+
+		private int count;
+
+		private boolean closed;
+
+		CompressingOutputStream(OutputStream out)
+		{
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			if (count == BLOCK_SIZE)
+			{
+				writeBlock();
+			}
+			raw[count++] = (byte)b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			while (len > 0)
+			{
+				if (count == BLOCK_SIZE)
+				{
+					writeBlock();
+				}
+
+				int n = Math.min(len, BLOCK_SIZE - count);
+				System.arraycopy(b, off, raw, count, n);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		private void writeBlock() throws IOException
+		{
+			if (count == 0)
+			{
+				return;
+			}
+
+			int length = compress(raw, count, compressed, table);
+			if (length < count)
+			{
+				writeHeader(count, length);
+				out.write(compressed, 0, length);
+			}
+			else
+			{
+				writeHeader(count, count);
+				out.write(raw, 0, count);
+			}
+
+			count = 0;
+		}
+
+		private void writeHeader(int rawLength, int storedLength) throws IOException
+		{
+			for (int i = 0; i < 4; i++)
+			{
+				header[i] = (byte)(rawLength >>> (24 - 8 * i));
+				header[4 + i] = (byte)(storedLength >>> (24 - 8 * i));
+			}
+			out.write(header);
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			// like DeflaterOutputStream, pending data is written on close only
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (closed)
+			{
+				return;
+			}
+			closed = true;
+
+			try
+			{
+				writeBlock();
+				out.close();
+			}
+			finally
+			{
+				buffers.offer(raw);
+				buffers.offer(compressed);
+				tables.offer(table);
+			}
+		}
+	}
+
+	/**
+	 * Decompresses from blocks.
+	 */
+	private class DecompressingInputStream extends InputStream
+	{
+		private final InputStream in;
+
+		private final byte[] raw = acquireBuffer();
+
+		private final byte[] compressed = acquireBuffer();
+
+		private final byte[] header = new byte[8];
+
+		private int position;
+
+		private int limit;
+
+		private boolean closed;
+
+		DecompressingInputStream(InputStream in)
+		{
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			if (position == limit && readBlock() == false)
+			{
+				return -1;
+			}
+			return raw[position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (len == 0)
+			{
+				return 0;
+			}
+			if (position == limit && readBlock() == false)
+			{
+				return -1;
+			}
+
+			int n = Math.min(len, limit - position);
+			System.arraycopy(raw, position, b, off, n);
+			position += n;
+			return n;
+		}
+
+		@Override
+		public int available()
+		{
+			return limit - position;
+		}
+
+		private boolean readBlock() throws IOException
+		{
+			int first = in.read();
+			if (first == -1)
+			{
+				return false;
+			}
+			header[0] = (byte)first;
+			readFully(header, 1, header.length - 1);
+
+			int rawLength = readHeader(0);
+			int storedLength = readHeader(4);
+			if (rawLength <= 0 || rawLength > BLOCK_SIZE || storedLength <= 0 ||
+				storedLength > rawLength)
+			{
+				throw new IOException("Corrupt block header");
+			}
+
+			if (storedLength == rawLength)
+			{
+				readFully(raw, 0, rawLength);
+			}
+			else
+			{
+				readFully(compressed, 0, storedLength);
+				decompress(compressed, storedLength, raw, rawLength);
+			}
+
+			position = 0;
+			limit = rawLength;
+			return true;
+		}
+
+		private int readHeader(int off)
+		{
+			return (header[off] & 0xFF) << 24 | (header[off + 1] & 0xFF) << 16 |
+				(header[off + 2] & 0xFF) << 8 | (header[off + 3] & 0xFF);
+		}
+
+		private void readFully(byte[] b, int off, int len) throws IOException
+		{
+			while (len > 0)
+			{
+				int n = in.read(b, off, len);
+				if (n == -1)
+				{
+					throw new EOFException();
+				}
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (closed)
+			{
+				return;
+			}
+			closed = true;
+
+			try
+			{
+				in.close();
+			}
+			finally
+			{
+				buffers.offer(raw);
+				buffers.offer(compressed);
+			}
+		}
+	}
+}
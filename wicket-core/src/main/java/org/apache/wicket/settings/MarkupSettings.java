@@ -19,6 +19,7 @@ package org.apache.wicket.settings;
 import org.apache.wicket.DefaultMarkupIdGenerator;
 import org.apache.wicket.IMarkupIdGenerator;
 import org.apache.wicket.markup.MarkupFactory;
+import org.apache.wicket.markup.SegmentedLruCache;
 import org.apache.wicket.util.lang.Args;
 
 /**
@@ -77,6 +78,26 @@ public class MarkupSettings
 	 */
 	private IMarkupIdGenerator markupIdGenerator = new DefaultMarkupIdGenerator();
 
+	/**
+	 * Maximum number of markup characters held by the markup cache, 0 for an unbounded cache
+	 */
+	private long markupCacheCapacity = 0;
+
+	/**
+	 * Maximum number of keys held by the markup cache, 0 for an unbounded cache
+	 */
+	private long markupKeyCacheCapacity = 0;
+
+	/**
+	 * Should static markup be written with bytes encoded once?
+	 */
+	private boolean rawMarkupPreEncoded = false;
+
+	/**
+	 * Should tags be scanned directly on the input when parsing markup?
+	 */
+	private boolean xmlPullParserScanning = false;
+
 	/**
 	 * Construct
 	 */
@@ -300,4 +321,121 @@ public class MarkupSettings
 		this.updateAutoLabelsTogetherWithFormComponent = updateAutoLabelsTogetherWithFormComponent;
 		return this;
 	}
+
+	/**
+	 * Get the maximum number of markup characters held by the markup cache.
+	 * 
+	 * @return capacity, 0 for an unbounded cache
+	 * @see #setMarkupCacheCapacity(long)
+	 */
+	public long getMarkupCacheCapacity()
+	{
+		return markupCacheCapacity;
+	}
+
+	/**
+	 * Bound the markup cache by the number of markup characters it holds. Markup used once is
+	 * evicted before markup used frequently.
+	 * <p>
+	 * Has to be set before the markup cache is created, i.e. during application initialization.
+	 * 
+	 * @param capacity
+	 *            maximum count of characters, 0 for an unbounded cache (the default)
+	 * @return {@code this} object for chaining
+	 * @see SegmentedLruCache
+	 */
+	public MarkupSettings setMarkupCacheCapacity(long capacity)
+	{
+		Args.withinRange(0L, Long.MAX_VALUE, capacity, "capacity");
+		this.markupCacheCapacity = capacity;
+		return this;
+	}
+
+	/**
+	 * Get the maximum number of keys held by the markup cache.
+	 * 
+	 * @return capacity, 0 for an unbounded cache
+	 * @see #setMarkupKeyCacheCapacity(long)
+	 */
+	public long getMarkupKeyCacheCapacity()
+	{
+		return markupKeyCacheCapacity;
+	}
+
+	/**
+	 * Bound the count of keys the markup cache maps to locations of markup, e.g. one for each
+	 * combination of component class, locale, style and variation. This is independent from
+	 * the {@link #setMarkupCacheCapacity(long) capacity for markup}, since several keys might
+	 * share the same markup.
+	 * <p>
+	 * Has to be set before the markup cache is created, i.e. during application initialization.
+	 * 
+	 * @param capacity
+	 *            maximum count of keys, 0 for an unbounded cache (the default)
+	 * @return {@code this} object for chaining
+	 * @see SegmentedLruCache
+	 */
+	public MarkupSettings setMarkupKeyCacheCapacity(long capacity)
+	{
+		Args.withinRange(0L, Long.MAX_VALUE, capacity, "capacity");
+		this.markupKeyCacheCapacity = capacity;
+		return this;
+	}
+
+	/**
+	 * @return whether static markup is written with bytes encoded once
+	 * @see #setRawMarkupPreEncoded(boolean)
+	 */
+	public boolean isRawMarkupPreEncoded()
+	{
+		return rawMarkupPreEncoded;
+	}
+
+	/**
+	 * Write static markup of pages with bytes encoded once, instead of encoding the whole page
+	 * text on each request. Not effective if response filters are configured, e.g. in development
+	 * mode.
+	 * <p>
+	 * Note that the response of a page is written with bytes then, i.e. the servlet response's
+	 * output stream is used instead of its writer, encoding with the servlet response's character
+	 * encoding.
+	 * 
+	 * @param rawMarkupPreEncoded
+	 *            {@code true} to pre-encode static markup
+	 * @return {@code this} object for chaining
+	 * @see org.apache.wicket.markup.RawMarkup#getBytes(java.nio.charset.Charset)
+	 */
+	public MarkupSettings setRawMarkupPreEncoded(boolean rawMarkupPreEncoded)
+	{
+		this.rawMarkupPreEncoded = rawMarkupPreEncoded;
+		return this;
+	}
+
+	/**
+	 * @return whether tags are scanned directly on the input when parsing markup
+	 * @see #setXmlPullParserScanning(boolean)
+	 */
+	public boolean isXmlPullParserScanning()
+	{
+		return xmlPullParserScanning;
+	}
+
+	/**
+	 * Parse markup with a {@link org.apache.wicket.markup.parser.XmlPullParser} scanning tags
+	 * directly on the input, instead of matching each tag with regular expressions. The parsed
+	 * tags are the same.
+	 * <p>
+	 * Has to be set before markup is parsed, i.e. during application initialization. Disabled by
+	 * default for now, scanning will become the default in a future release.
+	 * 
+	 * @param xmlPullParserScanning
+	 *            {@code true} to scan tags directly on the input
+	 * @return {@code this} object for chaining
+	 * @see org.apache.wicket.markup.parser.XmlPullParser#XmlPullParser(boolean)
+	 */
+	public MarkupSettings setXmlPullParserScanning(boolean xmlPullParserScanning)
+	{
+		this.xmlPullParserScanning = xmlPullParserScanning;
+		return this;
+	}
 }
@@ -51,6 +51,9 @@ public class PageSettings
 	 */
 	private boolean callListenerAfterExpiry = false;
 
+	/** determines whether pages track modifications to skip storing of unmodified pages */
+	private boolean trackPageModifications = false;
+
 	/**
 	 * Adds a component resolver to the list.
 	 *
@@ -155,4 +158,34 @@ public class PageSettings
 		this.callListenerAfterExpiry = callAfterExpiry;
 		return this;
 	}
+
+	/**
+	 * @return {@code true} if pages track modifications, so unmodified pages are not stored again
+	 * @see org.apache.wicket.page.IManageablePage#isPageModified()
+	 */
+	public boolean getTrackPageModifications()
+	{
+		return trackPageModifications;
+	}
+
+	/**
+	 * Sets a setting that determines whether pages track modifications of their components, i.e.
+	 * changes of models, visibility and enabled state, added and removed children and behaviors.
+	 * Pages without any modification since they were last stored are then neither serialized nor
+	 * stored again.
+	 * <p>
+	 * Only enable this setting if all changes to the state of pages are reported to Wicket, e.g.
+	 * a field of a page or component modified in a listener must be followed by a call to
+	 * {@link org.apache.wicket.Page#dirty()}.
+	 *
+	 * @param trackPageModifications
+	 *          {@code true} if pages should track modifications
+	 * @see org.apache.wicket.page.IManageablePage#isPageModified()
+	 * @return {@code this} object for chaining
+	 */
+	public PageSettings setTrackPageModifications(boolean trackPageModifications)
+	{
+		this.trackPageModifications = trackPageModifications;
+		return this;
+	}
 }
@@ -22,6 +22,7 @@ import java.util.function.Supplier;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.pageStore.IPageStoreMetrics;
 import org.apache.wicket.pageStore.crypt.DefaultCrypter;
 import org.apache.wicket.pageStore.crypt.ICrypter;
 import org.apache.wicket.protocol.http.WebApplication;
@@ -50,12 +51,26 @@ public class StoreSettings
 
 	private int asynchronousQueueCapacity = DEFAULT_ASYNCHRONOUS_QUEUE_CAPACITY;
 
+	private int asynchronousThreads = 1;
+
+	private boolean asynchronousVirtualThreads = false;
+
 	private boolean asynchronous = true;
 	
 	private boolean encrypted = false;
+
+	private boolean segmented = false;
+
+	private int maxDeltas = 0;
 	
 	private Supplier<ICrypter> crypter = DefaultCrypter::new;
 
+	private IPageStoreMetrics metrics = null;
+
+	private Bytes maxSizeInSession = null;
+
+	private Bytes maxTotalSizeInSessions = null;
+
 	/**
 	 * Construct.
 	 * 
@@ -164,6 +179,58 @@ public class StoreSettings
 		return this;
 	}
 
+	/**
+	 * @return the count of threads storing pages asynchronously
+	 * @see org.apache.wicket.pageStore.AsynchronousPageStore
+	 */
+	public int getAsynchronousThreads()
+	{
+		return asynchronousThreads;
+	}
+
+	/**
+	 * Sets the count of threads storing pages asynchronously. With more than one thread, pages are
+	 * partitioned by session, each partition with its own queue of
+	 * {@link #getAsynchronousQueueCapacity()}.
+	 *
+	 * @param threads
+	 *            the count of threads
+	 * @see org.apache.wicket.pageStore.AsynchronousPageStore
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setAsynchronousThreads(int threads)
+	{
+		if (threads < 1)
+		{
+			throw new IllegalArgumentException(
+				"The count of asynchronous threads should be at least 1.");
+		}
+		asynchronousThreads = threads;
+		return this;
+	}
+
+	/**
+	 * Sets a flag whether pages should be stored asynchronously with virtual threads.
+	 *
+	 * @param virtual
+	 *            {@code true} to use virtual threads, {@code false} - otherwise
+	 * @see org.apache.wicket.pageStore.AsynchronousPageStore
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setAsynchronousVirtualThreads(boolean virtual)
+	{
+		asynchronousVirtualThreads = virtual;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if pages are stored asynchronously with virtual threads
+	 */
+	public boolean isAsynchronousVirtualThreads()
+	{
+		return asynchronousVirtualThreads;
+	}
+
 	/**
 	 * Sets a flag whether to wrap the configured {@link org.apache.wicket.pageStore.IPageStore} with
 	 * {@link org.apache.wicket.pageStore.AsynchronousPageStore}. By doing this the HTTP worker thread will not wait for the
@@ -209,6 +276,56 @@ public class StoreSettings
 		return encrypted;
 	}
 	
+	/**
+	 * Sets a flag whether to persist pages with a {@link org.apache.wicket.pageStore.SegmentPageStore}
+	 * instead of a {@link org.apache.wicket.pageStore.DiskPageStore}. The former keeps pages of all
+	 * sessions in shared memory-mapped files, avoiding a file per session.
+	 *
+	 * @param segmented
+	 *            {@code true} to use segments, {@code false} - otherwise
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setSegmented(boolean segmented)
+	{
+		this.segmented = segmented;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if pages are persisted in segments
+	 */
+	public boolean isSegmented()
+	{
+		return segmented;
+	}
+
+	/**
+	 * Sets the maximum count of deltas stored against a base version of a page by a
+	 * {@link org.apache.wicket.pageStore.DeltaPageStore}, {@code 0} disables deltas.
+	 *
+	 * @param maxDeltas
+	 *            maximum count of deltas before a new base is stored
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setMaxDeltas(int maxDeltas)
+	{
+		if (maxDeltas < 0)
+		{
+			throw new IllegalArgumentException("The maximum count of deltas cannot be negative.");
+		}
+		this.maxDeltas = maxDeltas;
+		return this;
+	}
+
+	/**
+	 * @return the maximum count of deltas against a base version of a page, {@code 0} if pages
+	 *         are stored without deltas
+	 */
+	public int getMaxDeltas()
+	{
+		return maxDeltas;
+	}
+
 	/**
 	 * Sets the supplier for the {@link ICrypter} used by a
 	 * {@link org.apache.wicket.pageStore.CryptingPageStore}.
@@ -232,4 +349,76 @@ public class StoreSettings
 	{
 		return crypter;
 	}
+
+	/**
+	 * Sets the receiver of measurements of page stores and page locks, e.g. a
+	 * {@link org.apache.wicket.pageStore.PageStoreMetrics}. Must be set before the page manager is
+	 * created, {@code null} disables measuring.
+	 * 
+	 * @param metrics
+	 *            receiver of measurements
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setMetrics(IPageStoreMetrics metrics)
+	{
+		this.metrics = metrics;
+		return this;
+	}
+
+	/**
+	 * @return the receiver of measurements of page stores and page locks, {@code null} if not
+	 *         measured. The default is {@code null}.
+	 */
+	public IPageStoreMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Sets the maximum size of pages kept in each session by an
+	 * {@link org.apache.wicket.pageStore.InSessionPageStore}, pages exceeding it are spilled to the
+	 * persistent store. {@code null} disables keeping pages in the session.
+	 *
+	 * @param maxSizeInSession
+	 *            the maximum size of pages kept in each session
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setMaxSizeInSession(Bytes maxSizeInSession)
+	{
+		this.maxSizeInSession = maxSizeInSession;
+		return this;
+	}
+
+	/**
+	 * @return the maximum size of pages kept in each session, {@code null} if pages are not kept in
+	 *         the session. The default is {@code null}.
+	 */
+	public Bytes getMaxSizeInSession()
+	{
+		return maxSizeInSession;
+	}
+
+	/**
+	 * Sets the maximum size of pages kept in all sessions, see {@link #setMaxSizeInSession(Bytes)}.
+	 * The least recently used pages of all sessions are spilled to the persistent store when it is
+	 * exceeded.
+	 *
+	 * @param maxTotalSizeInSessions
+	 *            the maximum size of pages kept in all sessions, {@code null} for no limit
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setMaxTotalSizeInSessions(Bytes maxTotalSizeInSessions)
+	{
+		this.maxTotalSizeInSessions = maxTotalSizeInSessions;
+		return this;
+	}
+
+	/**
+	 * @return the maximum size of pages kept in all sessions, {@code null} for no limit. The
+	 *         default is {@code null}.
+	 */
+	public Bytes getMaxTotalSizeInSessions()
+	{
+		return maxTotalSizeInSessions;
+	}
 }
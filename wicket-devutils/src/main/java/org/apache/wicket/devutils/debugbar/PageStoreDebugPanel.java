@@ -20,12 +20,15 @@ import org.apache.wicket.Component;
 import org.apache.wicket.Page;
 import org.apache.wicket.devutils.pagestore.PageStorePage;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.pageStore.AsynchronousPageStore;
+import org.apache.wicket.pageStore.CachingPageStore;
 import org.apache.wicket.pageStore.IPersistentPageStore;
 import org.apache.wicket.request.resource.PackageResourceReference;
 import org.apache.wicket.request.resource.ResourceReference;
 
 /**
- * A panel that adds a link to persisted pages to the debug bar.
+ * A panel that adds a link to persisted pages to the debug bar, showing the size of persisted
+ * pages, the ratio of cache hits and the count of pages waiting to be stored.
  */
 public class PageStoreDebugPanel extends StandardDebugPanel
 {
@@ -77,7 +80,26 @@ public class PageStoreDebugPanel extends StandardDebugPanel
 			public String getObject()
 			{
 				IPersistentPageStore store = PageStorePage.getPersistentPageStore();
-				return String.format("Persisted pages: %s", store == null ? "N/A" : store.getTotalSize());
+				String data = String.format("Persisted pages: %s", store == null ? "N/A" : store.getTotalSize());
+
+				CachingPageStore cache = PageStorePage.findPageStore(CachingPageStore.class);
+				if (cache != null)
+				{
+					long hits = cache.getHitCount();
+					long total = hits + cache.getMissCount();
+					if (total > 0)
+					{
+						data += String.format(", cache hits: %d%%", hits * 100 / total);
+					}
+				}
+
+				AsynchronousPageStore asynchronous = PageStorePage.findPageStore(AsynchronousPageStore.class);
+				if (asynchronous != null)
+				{
+					data += String.format(", queued: %d", asynchronous.getQueueDepth());
+				}
+
+				return data;
 			}
 		};
 	}
@@ -60,11 +60,22 @@ public class PageStorePage extends DevUtilsPage
 	 * @return store or <code>null</code> if not available
 	 */
 	public static IPersistentPageStore getPersistentPageStore() {
+		return findPageStore(IPersistentPageStore.class);
+	}
+
+	/**
+	 * Helper to find a store of the given type in the chain of stores of the application.
+	 * 
+	 * @param type
+	 *            type of store
+	 * @return store or <code>null</code> if not available
+	 */
+	public static <T> T findPageStore(Class<T> type) {
 		try {
 			IPageStore store = Session.get().getPageManager().getPageStore();
 			while (true) {
-				if (store instanceof IPersistentPageStore) {
-					return (IPersistentPageStore)store;
+				if (type.isInstance(store)) {
+					return type.cast(store);
 				}
 				
 				if (store instanceof DelegatingPageStore) {
@@ -38,6 +38,13 @@ import org.apache.wicket.request.resource.JavaScriptResourceReference;
 import org.apache.wicket.request.resource.ResourceReference;
 
 /**
+ * Behavior looking up choices for an auto-complete field.
+ * <p>
+ * The behavior is not read-only, since {@link #onRequest(String, RequestCycle)} might change the
+ * page, e.g. through the models of its components. Subclasses which only read the page while
+ * looking up choices can override {@link #isReadOnly()} to return {@code true}, so lookups do not
+ * wait for each other when the session uses a {@link org.apache.wicket.page.FifoPageLockManager}.
+ * 
  * @since 1.2
  * 
  * @author Janne Hietam&auml;ki (jannehietamaki)
@@ -41,6 +41,7 @@ import org.apache.wicket.jmx.wrapper.ApplicationSettings;
 import org.apache.wicket.jmx.wrapper.DebugSettings;
 import org.apache.wicket.jmx.wrapper.MarkupSettings;
 import org.apache.wicket.jmx.wrapper.PageSettings;
+import org.apache.wicket.jmx.wrapper.PageStore;
 import org.apache.wicket.jmx.wrapper.RequestCycleSettings;
 import org.apache.wicket.jmx.wrapper.RequestLogger;
 import org.apache.wicket.jmx.wrapper.ResourceSettings;
@@ -200,6 +201,9 @@ public class Initializer implements IInitializer
 			register(application, new StoreSettings(application), new ObjectName(domain
 				+ ":type=Application,name=StoreSettings"));
 
+			register(application, new PageStore(application), new ObjectName(domain
+				+ ":type=PageStore"));
+
 			RequestLogger sessionsBean = new RequestLogger(application);
 			ObjectName sessionsBeanName = new ObjectName(domain + ":type=RequestLogger");
 			register(application, sessionsBean, sessionsBeanName);
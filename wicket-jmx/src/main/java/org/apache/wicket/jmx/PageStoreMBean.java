@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.jmx;
+
+import org.apache.wicket.pageStore.PageStoreMetrics;
+
+/**
+ * JMX MBean for statistics of the application's page stores.
+ * <p>
+ * Statistics are available only if a {@link PageStoreMetrics} is set in the application's
+ * StoreSettings, all attributes are <code>null</code> otherwise.
+ */
+public interface PageStoreMBean
+{
+	/**
+	 * @return count of pages found in the cache, <code>null</code> if pages are not cached
+	 */
+	Long getCacheHitCount();
+
+	/**
+	 * @return count of pages not found in the cache, <code>null</code> if pages are not cached
+	 */
+	Long getCacheMissCount();
+
+	/**
+	 * @return count of pages waiting to be stored asynchronously, <code>null</code> if pages are
+	 *         not stored asynchronously
+	 */
+	Integer getQueueDepth();
+
+	/**
+	 * @return count of pages stored synchronously because of a full queue, <code>null</code> if
+	 *         pages are not stored asynchronously
+	 */
+	Long getDropCount();
+
+	/**
+	 * @return count of serialized pages, <code>null</code> if pages are not serialized
+	 */
+	Long getStoreCount();
+
+	/**
+	 * @return count of unmodified pages which were not serialized again, <code>null</code> if
+	 *         pages are not serialized
+	 */
+	Long getSkipCount();
+
+	/**
+	 * @return statistics of operations for each measured store, <code>null</code> if not measured
+	 */
+	String[] getOperations();
+
+	/**
+	 * @return histogram of waits for page locks, <code>null</code> if not measured
+	 */
+	String[] getLockWaits();
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.jmx.wrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.jmx.PageStoreMBean;
+import org.apache.wicket.pageStore.AsynchronousPageStore;
+import org.apache.wicket.pageStore.CachingPageStore;
+import org.apache.wicket.pageStore.IPageStore;
+import org.apache.wicket.pageStore.IPageStoreMetrics;
+import org.apache.wicket.pageStore.IPageStoreMetrics.Operation;
+import org.apache.wicket.pageStore.PageStoreMetrics;
+import org.apache.wicket.pageStore.SerializingPageStore;
+import org.apache.wicket.util.lang.Bytes;
+
+/**
+ * Exposes statistics of the Application's page stores for JMX.
+ */
+public class PageStore implements PageStoreMBean
+{
+	private final Application application;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param application
+	 */
+	public PageStore(final Application application)
+	{
+		this.application = application;
+	}
+
+	@Override
+	public Long getCacheHitCount()
+	{
+		CachingPageStore store = findStore(CachingPageStore.class);
+		return store == null ? null : store.getHitCount();
+	}
+
+	@Override
+	public Long getCacheMissCount()
+	{
+		CachingPageStore store = findStore(CachingPageStore.class);
+		return store == null ? null : store.getMissCount();
+	}
+
+	@Override
+	public Integer getQueueDepth()
+	{
+		AsynchronousPageStore store = findStore(AsynchronousPageStore.class);
+		return store == null ? null : store.getQueueDepth();
+	}
+
+	@Override
+	public Long getDropCount()
+	{
+		AsynchronousPageStore store = findStore(AsynchronousPageStore.class);
+		return store == null ? null : store.getDropCount();
+	}
+
+	@Override
+	public Long getStoreCount()
+	{
+		SerializingPageStore store = findStore(SerializingPageStore.class);
+		return store == null ? null : store.getStoreCount();
+	}
+
+	@Override
+	public Long getSkipCount()
+	{
+		SerializingPageStore store = findStore(SerializingPageStore.class);
+		return store == null ? null : store.getSkipCount();
+	}
+
+	@Override
+	public String[] getOperations()
+	{
+		PageStoreMetrics metrics = getMetrics();
+		if (metrics == null)
+		{
+			return null;
+		}
+
+		List<String> operations = new ArrayList<>();
+		for (String store : new TreeSet<>(metrics.getStores()))
+		{
+			for (Operation operation : Operation.values())
+			{
+				PageStoreMetrics.Statistics statistics = metrics.getStatistics(store, operation);
+				if (statistics.getCount() > 0)
+				{
+					operations.add(String.format("%s %s: count=%d, pages=%d, size=%s, time=%dms, max=%dms",
+						store, operation, statistics.getCount(), statistics.getPages(),
+						Bytes.bytes(statistics.getBytes()), statistics.getTime().toMillis(),
+						statistics.getMaxTime().toMillis()));
+				}
+			}
+		}
+		return operations.toArray(new String[0]);
+	}
+
+	@Override
+	public String[] getLockWaits()
+	{
+		PageStoreMetrics metrics = getMetrics();
+		if (metrics == null)
+		{
+			return null;
+		}
+
+		long[] counts = metrics.getLockWaits();
+
+		String[] lockWaits = new String[counts.length];
+		for (int b = 0; b < counts.length; b++)
+		{
+			if (b < PageStoreMetrics.LOCK_WAIT_BOUNDS.size())
+			{
+				lockWaits[b] = String.format("< %dms: %d",
+					PageStoreMetrics.LOCK_WAIT_BOUNDS.get(b).toMillis(), counts[b]);
+			}
+			else
+			{
+				lockWaits[b] = String.format(">= %dms: %d",
+					PageStoreMetrics.LOCK_WAIT_BOUNDS.get(b - 1).toMillis(), counts[b]);
+			}
+		}
+		return lockWaits;
+	}
+
+	private PageStoreMetrics getMetrics()
+	{
+		IPageStoreMetrics metrics = application.getStoreSettings().getMetrics();
+		if (metrics instanceof PageStoreMetrics)
+		{
+			return (PageStoreMetrics)metrics;
+		}
+		return null;
+	}
+
+	private <T extends IPageStore> T findStore(Class<T> type)
+	{
+		PageStoreMetrics metrics = getMetrics();
+		return metrics == null ? null : metrics.findStore(type);
+	}
+}